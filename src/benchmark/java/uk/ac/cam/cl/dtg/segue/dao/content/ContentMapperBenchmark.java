@@ -0,0 +1,235 @@
+package uk.ac.cam.cl.dtg.segue.dao.content;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.reflections.Reflections;
+import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
+import uk.ac.cam.cl.dtg.isaac.dos.content.ContentBase;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of mapping content DOs to DTOs for the largest kinds of content we serve.
+ *
+ * The content is generated to resemble real question pages, quizzes and event pages, including the deeply nested
+ * children (question parts, choices, hints and explanations) which make up most of the cost of mapping.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.benchmarks=ContentMapperBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+// Orika needs reflective access to Object.clone, which newer JVMs deny by default:
+@Fork(value = 1, jvmArgsAppend = "--add-opens=java.base/java.lang=ALL-UNNAMED")
+@State(Scope.Benchmark)
+public class ContentMapperBenchmark {
+    private static final int QUESTION_PAGE_PARTS = 8;
+    private static final int QUIZ_SECTIONS = 4;
+    private static final int QUIZ_SECTION_QUESTIONS = 5;
+    private static final int SEARCH_RESULTS = 50;
+
+    private ContentMapper contentMapper;
+    private Content questionPage;
+    private Content quiz;
+    private Content eventPage;
+    private List<Content> searchResults;
+
+    /**
+     * Create the content mapper and the content to map.
+     *
+     * @throws IOException - if the generated content cannot be deserialised.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        contentMapper = new ContentMapper(new Reflections("uk.ac.cam.cl.dtg.isaac"));
+
+        questionPage = this.load(questionPage("benchmark_question_page", QUESTION_PAGE_PARTS));
+        quiz = this.load(quiz("benchmark_quiz"));
+        eventPage = this.load(eventPage("benchmark_event_page"));
+
+        searchResults = Lists.newArrayList();
+        for (int i = 0; i < SEARCH_RESULTS; i++) {
+            searchResults.add(this.load(questionPage("benchmark_search_result_" + i, 2)));
+        }
+    }
+
+    @Benchmark
+    public ContentDTO mapQuestionPage() {
+        return contentMapper.getDTOByDO(questionPage);
+    }
+
+    @Benchmark
+    public ContentDTO mapQuiz() {
+        return contentMapper.getDTOByDO(quiz);
+    }
+
+    @Benchmark
+    public ContentDTO mapEventPage() {
+        return contentMapper.getDTOByDO(eventPage);
+    }
+
+    @Benchmark
+    public List<ContentDTO> mapSearchResults() {
+        return contentMapper.getDTOByDOList(searchResults);
+    }
+
+    /**
+     * Deserialise generated content in the same way as content loaded from git or the search provider.
+     *
+     * @param json - the content as a map of its JSON properties.
+     * @return the content DO.
+     * @throws IOException - if the content cannot be deserialised.
+     */
+    private Content load(final Map<String, Object> json) throws IOException {
+        ObjectMapper objectMapper = contentMapper.getSharedContentObjectMapper();
+        return (Content) objectMapper.readValue(objectMapper.writeValueAsString(json), ContentBase.class);
+    }
+
+    private static Map<String, Object> questionPage(final String id, final int numberOfParts) {
+        List<Object> children = Lists.newArrayList();
+        children.add(content(id + "_intro", "A block of introductory markdown with $\\LaTeX$ in it."));
+        children.add(figure(id + "_figure"));
+        for (int i = 0; i < numberOfParts; i++) {
+            children.add(i % 2 == 0 ? multiChoiceQuestion(id + "_part" + i) : numericQuestion(id + "_part" + i));
+        }
+
+        Map<String, Object> page = page("isaacQuestionPage", id, children);
+        page.put("level", 3);
+        page.put("relatedContent", Lists.newArrayList(id + "_concept_1", id + "_concept_2", id + "_concept_3"));
+        return page;
+    }
+
+    private static Map<String, Object> quiz(final String id) {
+        List<Object> sections = Lists.newArrayList();
+        for (int i = 0; i < QUIZ_SECTIONS; i++) {
+            List<Object> questions = Lists.newArrayList();
+            for (int j = 0; j < QUIZ_SECTION_QUESTIONS; j++) {
+                String questionId = String.format("%s_section%d_question%d", id, i, j);
+                questions.add(j % 2 == 0 ? multiChoiceQuestion(questionId) : numericQuestion(questionId));
+            }
+            sections.add(page("isaacQuizSection", id + "_section" + i, questions));
+        }
+
+        Map<String, Object> quiz = page("isaacQuiz", id, sections);
+        quiz.put("visibleToStudents", true);
+        quiz.put("rubric", content(id + "_rubric", "Answer every question. You have 40 minutes."));
+        return quiz;
+    }
+
+    private static Map<String, Object> eventPage(final String id) {
+        Map<String, Object> event = page("isaacEventPage", id, Lists.newArrayList(
+                content(id + "_description", "A long description of what will happen at the event."),
+                figure(id + "_map"),
+                content(id + "_timetable", "| Time | Session |\n| --- | --- |\n| 10:00 | Arrival |")));
+        event.put("date", 1666000000000L);
+        event.put("end_date", 1666020000000L);
+        event.put("bookingDeadline", 1665900000000L);
+        event.put("location", ImmutableMap.of(
+                "address", ImmutableMap.of("addressLine1", "15 JJ Thomson Avenue", "town", "Cambridge",
+                        "postalCode", "CB3 0FD", "country", "United Kingdom"),
+                "latitude", 52.2108, "longitude", 0.0919));
+        event.put("preResources", Lists.newArrayList(externalReference("Preparation worksheet")));
+        event.put("postResources", Lists.newArrayList(externalReference("Feedback form"),
+                externalReference("Slides")));
+        event.put("eventThumbnail", ImmutableMap.of("type", "image", "src", "content/events/thumbnail.png",
+                "altText", "Event thumbnail"));
+        event.put("emailEventDetails", "Please bring a calculator.");
+        event.put("numberOfPlaces", 80);
+        event.put("eventStatus", "OPEN");
+        return event;
+    }
+
+    private static Map<String, Object> multiChoiceQuestion(final String id) {
+        List<Object> choices = Lists.newArrayList();
+        for (int i = 0; i < 4; i++) {
+            Map<String, Object> choice = content(null, "Choice " + i);
+            choice.put("type", "choice");
+            choice.put("correct", i == 0);
+            choice.put("explanation", content(null, "Why choice " + i + " is " + (i == 0 ? "right." : "wrong.")));
+            choices.add(choice);
+        }
+        return question("isaacMultiChoiceQuestion", id, choices);
+    }
+
+    private static Map<String, Object> numericQuestion(final String id) {
+        List<Object> choices = Lists.newArrayList();
+        for (int i = 0; i < 3; i++) {
+            Map<String, Object> choice = content(null, String.valueOf(1.5 * (i + 1)));
+            choice.put("type", "quantity");
+            choice.put("units", "m\\,s^{-1}");
+            choice.put("correct", i == 0);
+            choice.put("explanation", content(null, "Feedback for answer " + i));
+            choices.add(choice);
+        }
+        Map<String, Object> question = question("isaacNumericQuestion", id, choices);
+        question.put("requireUnits", true);
+        question.put("significantFiguresMin", 2);
+        question.put("significantFiguresMax", 3);
+        return question;
+    }
+
+    private static Map<String, Object> question(final String type, final String id, final List<Object> choices) {
+        Map<String, Object> question = content(id, "What is the answer to this part of the question?");
+        question.put("type", type);
+        question.put("choices", choices);
+        question.put("answer", content(null, "The worked answer, with a figure.", figure(null)));
+        question.put("hints", Lists.newArrayList(content(null, "Hint one."), content(null, "Hint two."),
+                content(null, "Hint three.", figure(null))));
+        return question;
+    }
+
+    private static Map<String, Object> page(final String type, final String id, final List<Object> children) {
+        Map<String, Object> page = content(id, null);
+        page.put("type", type);
+        page.put("title", "Title of " + id);
+        page.put("subtitle", "Subtitle of " + id);
+        page.put("author", "benchmark");
+        page.put("published", true);
+        page.put("tags", Lists.newArrayList("physics", "mechanics", "kinematics"));
+        page.put("children", children);
+        return page;
+    }
+
+    private static Map<String, Object> content(final String id, final String value, final Object... children) {
+        Map<String, Object> content = Maps.newHashMap();
+        content.put("type", "content");
+        content.put("encoding", "markdown");
+        if (id != null) {
+            content.put("id", id);
+        }
+        if (value != null) {
+            content.put("value", value);
+        }
+        content.put("children", Lists.newArrayList(children));
+        return content;
+    }
+
+    private static Map<String, Object> figure(final String id) {
+        Map<String, Object> figure = content(id, "A caption for the figure.");
+        figure.put("type", "figure");
+        figure.put("src", "content/figures/figure.svg");
+        figure.put("altText", "A diagram of the problem.");
+        return figure;
+    }
+
+    private static Map<String, Object> externalReference(final String title) {
+        return ImmutableMap.of("title", title, "url", "https://isaacphysics.org/" + title.toLowerCase().replace(' ', '_'));
+    }
+}
@@ -0,0 +1,224 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import org.elasticsearch.action.bulk.BulkRequest;
+import org.elasticsearch.action.index.IndexRequest;
+import org.elasticsearch.action.search.SearchRequest;
+import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.action.support.WriteRequest;
+import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.RestHighLevelClient;
+import org.elasticsearch.client.indices.CreateIndexRequest;
+import org.elasticsearch.index.query.BoolQueryBuilder;
+import org.elasticsearch.index.query.QueryBuilder;
+import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.index.query.RangeQueryBuilder;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
+import org.elasticsearch.search.sort.SortOrder;
+import org.elasticsearch.xcontent.XContentType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.testcontainers.elasticsearch.ElasticsearchContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of the content searches made by GameManager and EventsFacade through findByFieldNames, comparing the filter
+ * queries we generate with the scored match queries and unrounded dates that were generated previously.
+ *
+ * Each pair of benchmarks sends an identical main query, so only the filter differs. The searches run against a
+ * generated content index in a local Elasticsearch container, so Docker must be available.
+ *
+ * Run with: mvn -P benchmark test-compile exec:exec -Djmh.benchmarks=FilterQueryBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterQueryBenchmark {
+    private static final String INDEX_BASE = "benchmark";
+    private static final String INDEX_TYPE = "content";
+    private static final int QUESTION_PAGES = 20000;
+    private static final int EVENT_PAGES = 2000;
+    private static final int BULK_REQUEST_SIZE = 1000;
+    private static final int RESULTS_LIMIT = 50;
+    private static final List<String> TAGS = Lists.newArrayList("physics", "maths", "chemistry", "mechanics",
+            "waves", "fields", "circuits", "calculus", "algebra", "regression_test");
+
+    private ElasticsearchContainer elasticsearch;
+    private RestHighLevelClient client;
+    private ElasticSearchProvider searchProvider;
+    private String typedIndex;
+    private Map<String, AbstractFilterInstruction> baseFilters;
+
+    /**
+     * Start Elasticsearch and fill an index with generated question and event pages.
+     *
+     * @throws IOException - if the index cannot be created or filled.
+     */
+    @Setup
+    public void setUp() throws IOException {
+        elasticsearch = new ElasticsearchContainer(
+                DockerImageName.parse("docker.elastic.co/elasticsearch/elasticsearch:7.17.6"))
+                .withEnv("xpack.security.enabled", "true")
+                .withEnv("ELASTIC_PASSWORD", "elastic")
+                .withStartupTimeout(Duration.ofSeconds(120));
+        elasticsearch.start();
+
+        client = ElasticSearchProvider.getClient("localhost", elasticsearch.getMappedPort(9200), "elastic", "elastic");
+        searchProvider = new ElasticSearchProvider(client);
+        typedIndex = ElasticSearchProvider.produceTypedIndexName(INDEX_BASE, INDEX_TYPE);
+
+        // The same raw title field the content indexer creates, as the default sort is on it:
+        client.indices().create(new CreateIndexRequest(typedIndex).mapping(ImmutableMap.of("properties",
+                ImmutableMap.of("title", ImmutableMap.of("type", "text",
+                        "fields", ImmutableMap.of("raw", ImmutableMap.of("type", "keyword")))))),
+                RequestOptions.DEFAULT);
+
+        Random random = new Random(42);
+        long now = System.currentTimeMillis();
+        BulkRequest bulkRequest = new BulkRequest();
+        for (int i = 0; i < QUESTION_PAGES + EVENT_PAGES; i++) {
+            Map<String, Object> page = Maps.newHashMap();
+            page.put("id", "benchmark_page_" + i);
+            page.put("title", "Benchmark page " + random.nextInt(QUESTION_PAGES));
+            page.put("published", random.nextInt(10) > 0);
+            page.put("tags", Lists.newArrayList(TAGS.get(random.nextInt(TAGS.size())),
+                    TAGS.get(random.nextInt(TAGS.size()))));
+            if (i < QUESTION_PAGES) {
+                page.put("type", "isaacQuestionPage");
+                page.put("level", 1 + random.nextInt(6));
+            } else {
+                long date = now + (long) (random.nextGaussian() * TimeUnit.DAYS.toMillis(180));
+                page.put("type", "isaacEventPage");
+                page.put("date", date);
+                page.put("endDate", date + TimeUnit.HOURS.toMillis(1 + random.nextInt(48)));
+            }
+            bulkRequest.add(new IndexRequest(typedIndex).id("benchmark_page_" + i).source(page, XContentType.JSON));
+
+            if (bulkRequest.numberOfActions() == BULK_REQUEST_SIZE) {
+                client.bulk(bulkRequest, RequestOptions.DEFAULT);
+                bulkRequest = new BulkRequest();
+            }
+        }
+        bulkRequest.setRefreshPolicy(WriteRequest.RefreshPolicy.IMMEDIATE);
+        client.bulk(bulkRequest, RequestOptions.DEFAULT);
+
+        // As configured in production by GitContentManager:
+        baseFilters = ImmutableMap.of(
+                "tags", new SimpleExclusionInstruction("regression_test"),
+                "published", new SimpleFilterInstruction("true"));
+    }
+
+    /**
+     * Stop Elasticsearch.
+     *
+     * @throws IOException - if the client cannot be closed.
+     */
+    @TearDown
+    public void tearDown() throws IOException {
+        client.close();
+        elasticsearch.stop();
+    }
+
+    @Benchmark
+    public SearchResponse gameManagerQuestionSearch() throws IOException {
+        return this.search(this.questionQuery(), searchProvider.generateFilterQuery(baseFilters), "title.raw",
+                SortOrder.ASC);
+    }
+
+    @Benchmark
+    public SearchResponse gameManagerQuestionSearchUnoptimisedFilter() throws IOException {
+        return this.search(this.questionQuery(), unoptimisedFilterQuery(baseFilters), "title.raw", SortOrder.ASC);
+    }
+
+    @Benchmark
+    public SearchResponse eventsFacadeUpcomingEventSearch() throws IOException {
+        return this.search(QueryBuilders.matchQuery("type", "isaacEventPage"),
+                searchProvider.generateFilterQuery(this.upcomingEventFilters()), "date", SortOrder.ASC);
+    }
+
+    @Benchmark
+    public SearchResponse eventsFacadeUpcomingEventSearchUnoptimisedFilter() throws IOException {
+        return this.search(QueryBuilders.matchQuery("type", "isaacEventPage"),
+                unoptimisedFilterQuery(this.upcomingEventFilters()), "date", SortOrder.ASC);
+    }
+
+    private QueryBuilder questionQuery() {
+        return QueryBuilders.boolQuery()
+                .must(QueryBuilders.matchQuery("type", "isaacQuestionPage"))
+                .must(QueryBuilders.boolQuery().minimumShouldMatch(1)
+                        .should(QueryBuilders.matchQuery("tags", "physics"))
+                        .should(QueryBuilders.matchQuery("tags", "mechanics")))
+                .must(QueryBuilders.matchQuery("level", 3));
+    }
+
+    private Map<String, AbstractFilterInstruction> upcomingEventFilters() {
+        Map<String, AbstractFilterInstruction> filters = Maps.newHashMap(baseFilters);
+        filters.put("endDate", new DateRangeFilterInstruction(new Date(), null));
+        return filters;
+    }
+
+    private SearchResponse search(final QueryBuilder query, final QueryBuilder filter, final String sortField,
+                                  final SortOrder sortOrder) throws IOException {
+        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder()
+                .query(QueryBuilders.boolQuery().must(query).filter(filter)).size(RESULTS_LIMIT)
+                .sort(SortBuilders.fieldSort(sortField).order(sortOrder).missing("_last"));
+        return client.search(new SearchRequest(typedIndex).source(sourceBuilder), RequestOptions.DEFAULT);
+    }
+
+    /**
+     * The filter query as it was generated before filters were compiled for filter context: every value is a scored
+     * match query nested in its own bool queries, and dates are sent to the millisecond.
+     *
+     * @param filterInstructions - the filters to apply.
+     * @return the filter query.
+     */
+    private static QueryBuilder unoptimisedFilterQuery(final Map<String, AbstractFilterInstruction> filterInstructions) {
+        BoolQueryBuilder filter = QueryBuilders.boolQuery();
+        for (Map.Entry<String, AbstractFilterInstruction> instruction : filterInstructions.entrySet()) {
+            String field = instruction.getKey();
+            if (instruction.getValue() instanceof DateRangeFilterInstruction) {
+                DateRangeFilterInstruction dateRange = (DateRangeFilterInstruction) instruction.getValue();
+                RangeQueryBuilder rangeFilter = QueryBuilders.rangeQuery(field);
+                if (dateRange.getFromDate() != null) {
+                    rangeFilter.from(dateRange.getFromDate().getTime());
+                }
+                if (dateRange.getToDate() != null) {
+                    rangeFilter.to(dateRange.getToDate().getTime());
+                }
+                filter.must(rangeFilter);
+            } else if (instruction.getValue() instanceof SimpleFilterInstruction) {
+                String value = ((SimpleFilterInstruction) instruction.getValue()).getMustMatchValue();
+                filter.must(QueryBuilders.boolQuery().must(
+                        QueryBuilders.boolQuery().must(QueryBuilders.matchQuery(field, value))));
+            } else if (instruction.getValue() instanceof SimpleExclusionInstruction) {
+                String value = ((SimpleExclusionInstruction) instruction.getValue()).getMustNotMatchValue();
+                filter.mustNot(QueryBuilders.boolQuery().must(
+                        QueryBuilders.boolQuery().must(QueryBuilders.matchQuery(field, value))));
+            }
+        }
+        return filter;
+    }
+}
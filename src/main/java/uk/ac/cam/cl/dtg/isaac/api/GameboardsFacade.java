@@ -45,6 +45,7 @@ import uk.ac.cam.cl.dtg.isaac.dos.QuestionValidationResponse;
 import uk.ac.cam.cl.dtg.isaac.dto.SegueErrorResponse;
 import uk.ac.cam.cl.dtg.isaac.dto.users.AbstractSegueUserDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionAttemptSummary;
 import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 
 import jakarta.servlet.http.HttpServletRequest;
@@ -239,8 +240,7 @@ public class GameboardsFacade extends AbstractIsaacFacade {
             GameboardDTO gameboard;
 
             AbstractSegueUserDTO randomUser = this.userManager.getCurrentUser(httpServletRequest);
-            Map<String, Map<String, List<QuestionValidationResponse>>> userQuestionAttempts = this.questionManager
-                    .getQuestionAttemptsByUser(randomUser);
+            QuestionAttemptSummary userAttemptSummary = this.questionManager.getQuestionAttemptSummary(randomUser);
 
             GameboardDTO unAugmentedGameboard = gameManager.getGameboard(gameboardId);
             if (null == unAugmentedGameboard) {
@@ -250,7 +250,7 @@ public class GameboardsFacade extends AbstractIsaacFacade {
 
             // Calculate the ETag
             EntityTag etag = new EntityTag(unAugmentedGameboard.toString().hashCode()
-                    + userQuestionAttempts.toString().hashCode() + "");
+                    + "-" + userAttemptSummary.getAttemptsVersion());
 
             Response cachedResponse = generateCachedResponse(request, etag, NEVER_CACHE_WITHOUT_ETAG_CHECK);
             if (cachedResponse != null) {
@@ -258,7 +258,7 @@ public class GameboardsFacade extends AbstractIsaacFacade {
             }
 
             // attempt to augment the gameboard with user information.
-            gameboard = gameManager.getGameboard(gameboardId, randomUser, userQuestionAttempts);
+            gameboard = gameManager.getGameboard(gameboardId, randomUser, userAttemptSummary);
 
             // We decided not to log this on the backend as the front end uses this lots.
             return Response.ok(gameboard).cacheControl(getCacheControl(NEVER_CACHE_WITHOUT_ETAG_CHECK, false)).tag(etag)
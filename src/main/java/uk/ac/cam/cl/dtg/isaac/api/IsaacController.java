@@ -23,6 +23,8 @@ import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.jboss.resteasy.annotations.GZIP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,8 +61,8 @@ import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
@@ -83,7 +85,6 @@ import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
 @Tag(name = "/")
 public class IsaacController extends AbstractIsaacFacade {
     private static final Logger log = LoggerFactory.getLogger(IsaacController.class);
-    private static final String ETAG_SEPARATOR = "/";
 
     private final IStatisticsManager statsManager;
     private final UserAccountManager userManager;
@@ -267,23 +268,6 @@ public class IsaacController extends AbstractIsaacFacade {
             return error.toResponse();
         }
 
-        // Determine if we can use the cache; this has two parts: a "quick and cheap" early check that does not need
-        // the file contents, and a more thorough check using the actual file contents.
-        // The ETag has two halves, separated by an ETAG_SEPARATOR.
-        String sha = this.contentManager.getCurrentContentSHA();
-        String earlyCacheCheckTag = String.valueOf(sha.hashCode() + path.hashCode());
-
-        String rawETagHeader = httpServletRequest.getHeader("If-None-Match");
-        String rawETag = null != rawETagHeader ? rawETagHeader.replaceAll("\"", "") : null;
-
-        // If the "early" cache check based on the path and content SHA matches, the file cannot have changed and
-        // we don't need to load it to return a 304 Not Modified:
-        if (null != rawETag && earlyCacheCheckTag.equals(rawETag.split(ETAG_SEPARATOR)[0])) {
-            return Response.notModified().cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, true)).tag(rawETag).build();
-        }
-
-        // If the content version has changed, we do need to load the file to see if it has been modified:
-        ByteArrayOutputStream fileContent;
         String mimeType;
 
         switch (Files.getFileExtension(path).toLowerCase()) {
@@ -312,37 +296,34 @@ public class IsaacController extends AbstractIsaacFacade {
         }
 
         try {
-            fileContent = this.contentManager.getFileBytes(path);
+            ObjectId fileBlobId = this.contentManager.getFileBlobId(path);
+            if (null == fileBlobId) {
+                String refererHeader = httpServletRequest.getHeader("Referer");
+                SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Unable to locate the file: " + path);
+                log.warn(String.format("Unable to locate the file: (%s). Referer: (%s)", path, refererHeader));
+                return error.toResponse();
+            }
+
+            // The blob id identifies the file contents, so the file is unchanged whenever it matches, even across
+            // content versions, and we don't need to load it to return a 304 Not Modified:
+            EntityTag etag = new EntityTag(fileBlobId.getName());
+            Response cachedResponse = generateCachedResponse(request, etag, NUMBER_SECONDS_IN_ONE_DAY);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+
+            return Response.ok(this.contentManager.getFileBlob(fileBlobId)).type(mimeType)
+                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, true))
+                    .tag(etag).build();
+        } catch (MissingObjectException e) {
+            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Unable to locate the file: " + path);
+            log.warn(String.format("The file (%s) is indexed but its blob is missing from the repository.", path));
+            return error.toResponse();
         } catch (IOException e) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Error reading from file repository", e);
             log.error(error.getErrorMessage(), e);
             return error.toResponse();
-        } catch (UnsupportedOperationException e) {
-            SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Multiple files match the search path provided.", e);
-            log.error(error.getErrorMessage(), e);
-            return error.toResponse();
         }
-
-        if (null == fileContent) {
-            String refererHeader = httpServletRequest.getHeader("Referer");
-            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Unable to locate the file: " + path);
-            log.warn(String.format("Unable to locate the file: (%s). Referer: (%s)", path, refererHeader));
-            return error.toResponse();
-        }
-
-        byte[] fileContentBytes = fileContent.toByteArray();
-
-        // If the "late" cache check based on the file contents matches, the file still has not changed:
-        String lateCacheCheckTag = String.valueOf(Arrays.hashCode(fileContentBytes));
-        if (null != rawETag && rawETag.contains(ETAG_SEPARATOR) && lateCacheCheckTag.equals(rawETag.split(ETAG_SEPARATOR)[1])) {
-            return Response.notModified().cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, true)).tag(rawETag).build();
-        }
-
-        // Otherwise, just return the full image to the client:
-        EntityTag etag = new EntityTag(earlyCacheCheckTag + ETAG_SEPARATOR + lateCacheCheckTag);
-        return Response.ok(fileContentBytes).type(mimeType)
-                .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, true))
-                .tag(etag).build();
     }
     /**
      * Endpoint to allow documents to be requested from the content database.
@@ -376,15 +357,6 @@ public class IsaacController extends AbstractIsaacFacade {
                         "You must have a teacher account to access these resources.").toResponse();
             }
 
-            // determine if we can use the cache if so return cached response.
-            String sha = this.contentManager.getCurrentContentSHA();
-            EntityTag etag = new EntityTag(sha.hashCode() + path.hashCode() + "");
-            Response cachedResponse = generateCachedResponse(request, etag, NUMBER_SECONDS_IN_ONE_DAY);
-            if (cachedResponse != null) {
-                return cachedResponse;
-            }
-
-            ByteArrayOutputStream fileContent;
             String mimeType;
             switch (Files.getFileExtension(path).toLowerCase()) {
                 case "pdf":
@@ -394,35 +366,44 @@ public class IsaacController extends AbstractIsaacFacade {
                 default:
                     // if it is an unknown type return an error
                     SegueErrorResponse error = new SegueErrorResponse(Status.BAD_REQUEST, "Invalid file type requested");
-                    return error.toResponse(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, false), etag);
+                    return error.toResponse(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, false), null);
             }
 
-            fileContent = this.contentManager.getFileBytes(path);
-            if (null == fileContent) {
+            ObjectId fileBlobId = this.contentManager.getFileBlobId(path);
+            if (null == fileBlobId) {
                 String refererHeader = httpServletRequest.getHeader("Referer");
                 SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Unable to locate the file: " + path);
                 log.warn(String.format("Unable to locate the file: (%s). Referer: (%s)", path, refererHeader));
-                return error.toResponse(getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, false), etag);
+                return error.toResponse(getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, false), null);
             }
 
+            // determine if we can use the cache if so return cached response.
+            EntityTag etag = new EntityTag(fileBlobId.getName());
+            Response cachedResponse = generateCachedResponse(request, etag, NUMBER_SECONDS_IN_ONE_DAY);
+            if (cachedResponse != null) {
+                return cachedResponse;
+            }
+
+            InputStream fileContent = this.contentManager.getFileBlob(fileBlobId);
+
             ImmutableMap<String, String> logMap = new ImmutableMap.Builder<String, String>()
                     .put(DOCUMENT_PATH_LOG_FIELDNAME, path)
                     .put(CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA()).build();
             getLogManager().logEvent(currentlyLoggedInUser, httpServletRequest, IsaacServerLogType.DOWNLOAD_FILE, logMap);
 
-            return Response.ok(fileContent.toByteArray()).type(mimeType)
+            return Response.ok(fileContent).type(mimeType)
                     .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_DAY, true))
                     .header("Content-Disposition", "attachment")  // Do not show this file in the browser.
                     .tag(etag).build();
 
+        } catch (MissingObjectException e) {
+            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Unable to locate the file: " + path);
+            log.warn(String.format("The file (%s) is indexed but its blob is missing from the repository.", path));
+            return error.toResponse(getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, false), null);
         } catch (IOException e) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Error reading file!");
             log.error(error.getErrorMessage(), e);
             return error.toResponse();
-        } catch (UnsupportedOperationException e) {
-            SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Multiple files match the path provided.");
-            log.error(error.getErrorMessage(), e);
-            return error.toResponse();
         } catch (NoUserLoggedInException e) {
             return SegueErrorResponse.getNotLoggedInResponse();
         }
@@ -29,11 +29,11 @@ import uk.ac.cam.cl.dtg.isaac.api.managers.GameManager;
 import uk.ac.cam.cl.dtg.isaac.api.managers.URIManager;
 import uk.ac.cam.cl.dtg.isaac.dos.IsaacTopicSummaryPage;
 import uk.ac.cam.cl.dtg.isaac.dto.GameboardDTO;
-import uk.ac.cam.cl.dtg.isaac.dto.IsaacPageFragmentDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.IsaacQuestionPageDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.IsaacTopicSummaryPageDTO;
 import uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager;
 import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentResponseCache;
 import uk.ac.cam.cl.dtg.segue.api.services.ContentService;
 import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
@@ -50,6 +50,7 @@ import uk.ac.cam.cl.dtg.isaac.dto.content.SeguePageDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.AbstractSegueUserDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.AnonymousUserDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionAttemptSummary;
 import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 
 import jakarta.annotation.Nullable;
@@ -62,6 +63,7 @@ import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
@@ -91,6 +93,7 @@ public class PagesFacade extends AbstractIsaacFacade {
     private final URIManager uriManager;
     private final QuestionManager questionManager;
     private final GitContentManager contentManager;
+    private final ContentResponseCache contentResponseCache;
 
     private final GameManager gameManager;
     private final String contentIndex;
@@ -108,6 +111,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      *            - Instance of Mapper facade.
      * @param contentManager
      *            - so we can get the latest content.
+     * @param contentResponseCache
+     *            - so we can serve responses which do not depend on the user from the cache.
      * @param userManager
      *            - So we can interrogate the user Manager.
      * @param uriManager
@@ -122,12 +127,14 @@ public class PagesFacade extends AbstractIsaacFacade {
     @Inject
     public PagesFacade(final ContentService api, final PropertiesLoader propertiesLoader,
                        final ILogManager logManager, final MapperFacade mapper, final GitContentManager contentManager,
+                       final ContentResponseCache contentResponseCache,
                        final UserAccountManager userManager, final URIManager uriManager, final QuestionManager questionManager,
                        final GameManager gameManager, @Named(CONTENT_INDEX) final String contentIndex) {
         super(propertiesLoader, logManager);
         this.api = api;
         this.mapper = mapper;
         this.contentManager = contentManager;
+        this.contentResponseCache = contentResponseCache;
         this.userManager = userManager;
         this.uriManager = uriManager;
         this.questionManager = questionManager;
@@ -142,6 +149,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      *
      * @param request
      *            - used to determine if we can return a cache response.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param ids
      *            - the ids of the concepts to request.
      * @param tags
@@ -155,59 +164,48 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("/concepts")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "List all concept page objects matching the provided criteria.")
-    public final Response getConceptList(@Context final Request request, @QueryParam("ids") final String ids,
+    public final Response getConceptList(@Context final Request request, @Context final HttpHeaders headers,
+            @QueryParam("ids") final String ids,
             @QueryParam("tags") final String tags,
             @DefaultValue(DEFAULT_START_INDEX_AS_STRING) @QueryParam("start_index") final Integer startIndex,
             @DefaultValue(DEFAULT_RESULTS_LIMIT_AS_STRING) @QueryParam("limit") final Integer limit) {
         Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
         fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(CONCEPT_TYPE));
 
-        StringBuilder etagCodeBuilder = new StringBuilder();
-
-        Integer newLimit = null;
-
-        if (limit != null) {
-            newLimit = limit;
-            etagCodeBuilder.append(limit.toString());
-        }
+        Integer newLimit = limit;
 
         // options
         if (ids != null) {
             List<String> idsList = Arrays.asList(ids.split(","));
             fieldsToMatch.put(ID_FIELDNAME, idsList);
             newLimit = idsList.size();
-            etagCodeBuilder.append(ids);
         }
 
         if (tags != null) {
             fieldsToMatch.put(TAGS_FIELDNAME, Arrays.asList(tags.split(",")));
-            etagCodeBuilder.append(tags);
         }
         Map<String, BooleanOperator> booleanOperatorOverrideMap = ImmutableMap.of(TAGS_FIELDNAME, BooleanOperator.OR);
 
-        // Calculate the ETag on last modified date of tags list
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode()
-                + etagCodeBuilder.toString().hashCode() + "");
+        Map<String, Object> requestParameters = new HashMap<>();
+        requestParameters.put("ids", ids);
+        requestParameters.put("tags", tags);
+        requestParameters.put("start_index", startIndex);
+        requestParameters.put("limit", newLimit);
 
-        Response cachedResponse = generateCachedResponse(request, etag);
-
-        if (cachedResponse != null) {
-            return cachedResponse;
-        }
-
-        try {
-            return listContentObjects(fieldsToMatch, booleanOperatorOverrideMap, startIndex, newLimit).tag(etag)
-                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true))
-                    .build();
-        } catch (ContentManagerException e1) {
-            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND,
-                    "Error locating the content requested", e1);
-            log.error(error.getErrorMessage(), e1);
-            return error.toResponse();
-        }
+        final Integer resultsLimit = newLimit;
+        return contentResponseCache.getResponse(request, headers, "getConceptList", requestParameters,
+                getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true), () -> {
+                    try {
+                        return listContentObjects(fieldsToMatch, booleanOperatorOverrideMap, startIndex, resultsLimit)
+                                .build();
+                    } catch (ContentManagerException e1) {
+                        SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND,
+                                "Error locating the content requested", e1);
+                        log.error(error.getErrorMessage(), e1);
+                        return error.toResponse();
+                    }
+                });
     }
 
     /**
@@ -215,6 +213,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      *
      * @param request
      *            - so we can deal with caching and ETags.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param servletRequest
      *            - so we can extract user information for logging.
      * @param conceptId
@@ -224,32 +224,26 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("/concepts/{concept_page_id}")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "Get a concept page object by ID.")
-    public final Response getConcept(@Context final Request request, @Context final HttpServletRequest servletRequest,
+    public final Response getConcept(@Context final Request request, @Context final HttpHeaders headers,
+                                     @Context final HttpServletRequest servletRequest,
                                      @PathParam("concept_page_id") final String conceptId) {
         if (null == conceptId || conceptId.isEmpty()) {
             return new SegueErrorResponse(Status.BAD_REQUEST, "You must provide a valid concept id.").toResponse();
         }
 
-        // Calculate the ETag on current live version of the content
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + "byId".hashCode()
-                + conceptId.hashCode() + "");
-        Response cachedResponse = generateCachedResponse(request, etag);
-        if (cachedResponse != null) {
-            return cachedResponse;
-        }
-
         Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
         fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(CONCEPT_TYPE));
 
         // options
         fieldsToMatch.put(ID_FIELDNAME + "." + UNPROCESSED_SEARCH_FIELD_SUFFIX, Arrays.asList(conceptId));
 
-        Response result = this.findSingleResult(fieldsToMatch);
+        Response result = contentResponseCache.getResponse(request, headers, "getConcept",
+                ImmutableMap.of("id", conceptId), getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true),
+                () -> this.findSingleResult(fieldsToMatch));
         try {
-            if (result.getEntity() instanceof SeguePageDTO) {
+            // Only a newly found concept is logged, not a response the client already had:
+            if (result.getStatus() == Status.OK.getStatusCode()) {
                 ImmutableMap<String, String> logEntry = new ImmutableMap.Builder<String, String>()
                         .put(CONCEPT_ID_LOG_FIELDNAME, conceptId).put(CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA())
                         .build();
@@ -258,11 +252,7 @@ public class PagesFacade extends AbstractIsaacFacade {
                 getLogManager().logEvent(userManager.getCurrentUser(servletRequest), servletRequest,
                         IsaacServerLogType.VIEW_CONCEPT, logEntry);
             }
-            Response cachableResult = Response.status(result.getStatus()).entity(result.getEntity())
-                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).tag(etag).build();
-
-            return cachableResult;
-
+            return result;
         } catch (SegueDatabaseException e) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
                     "Database error while looking up user information.", e);
@@ -276,6 +266,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      * 
      * @param request
      *            - used to determine if we can return a cache response.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param ids
      *            - the ids of the concepts to request.
      * @param searchString
@@ -296,9 +288,8 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("/questions")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "List all question page objects matching the provided criteria.")
-    public final Response getQuestionList(@Context final Request request,
+    public final Response getQuestionList(@Context final Request request, @Context final HttpHeaders headers,
             @QueryParam("ids") final String ids, @QueryParam("searchString") final String searchString,
             @QueryParam("tags") final String tags, @QueryParam("levels") final String level,
             @QueryParam("stages") final String stages, @QueryParam("difficulties") final String difficulties,
@@ -306,15 +297,12 @@ public class PagesFacade extends AbstractIsaacFacade {
             @DefaultValue("false") @QueryParam("fasttrack") final Boolean fasttrack,
             @DefaultValue(DEFAULT_START_INDEX_AS_STRING) @QueryParam("start_index") final Integer startIndex,
             @DefaultValue(DEFAULT_RESULTS_LIMIT_AS_STRING) @QueryParam("limit") final Integer limit) {
-        StringBuilder etagCodeBuilder = new StringBuilder();
         Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
 
         if (fasttrack) {
             fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(FAST_TRACK_QUESTION_TYPE));
-            etagCodeBuilder.append(FAST_TRACK_QUESTION_TYPE);
         } else {
             fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(QUESTION_TYPE));
-            etagCodeBuilder.append(QUESTION_TYPE);
         }
 
         // defaults
@@ -334,7 +322,6 @@ public class PagesFacade extends AbstractIsaacFacade {
             List<String> idsList = Arrays.asList(ids.split(","));
             fieldsToMatch.put(ID_FIELDNAME, idsList);
             newLimit = idsList.size();
-            etagCodeBuilder.append(ids);
         }
 
         Map<String, String> fieldNameToValues = new HashMap<String, String>() {{
@@ -349,46 +336,45 @@ public class PagesFacade extends AbstractIsaacFacade {
             String queryStringValue = entry.getValue();
             if (queryStringValue != null && !queryStringValue.isEmpty()) {
                 fieldsToMatch.put(fieldName, Arrays.asList(queryStringValue.split(",")));
-                etagCodeBuilder.append(queryStringValue);
             }
         }
 
-        // Calculate the ETag on last modified date of tags list
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode()
-                + etagCodeBuilder.toString().hashCode() + "");
-
-        Response cachedResponse = generateCachedResponse(request, etag);
+        Map<String, Object> requestParameters = new HashMap<>(fieldNameToValues);
+        requestParameters.put(TYPE_FIELDNAME, fieldsToMatch.get(TYPE_FIELDNAME));
+        requestParameters.put("ids", ids);
+        requestParameters.put("searchString", searchString);
+        requestParameters.put("start_index", newStartIndex);
+        requestParameters.put("limit", newLimit);
 
-        if (cachedResponse != null) {
-            return cachedResponse;
-        }
-        try {
-            // Currently if you provide a search string we use a different
-            // library call. This is because the previous one does not allow fuzzy
-            // search.
-            if (searchString != null && !searchString.isEmpty()) {
-                ResultsWrapper<ContentDTO> c;
+        final int resultsStartIndex = newStartIndex;
+        final int resultsLimit = newLimit;
+        return contentResponseCache.getResponse(request, headers, "getQuestionList", requestParameters,
+                getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true), () -> {
+                    try {
+                        // Currently if you provide a search string we use a different
+                        // library call. This is because the previous one does not allow fuzzy
+                        // search.
+                        if (searchString != null && !searchString.isEmpty()) {
+                            ResultsWrapper<ContentDTO> c;
 
-                c = api.segueSearch(searchString, this.contentIndex, fieldsToMatch, newStartIndex, newLimit);
+                            c = api.segueSearch(searchString, this.contentIndex, fieldsToMatch, resultsStartIndex,
+                                    resultsLimit);
 
-                ResultsWrapper<ContentSummaryDTO> summarizedContent = new ResultsWrapper<ContentSummaryDTO>(
-                        this.extractContentSummaryFromList(c.getResults()),
-                        c.getTotalResults());
+                            ResultsWrapper<ContentSummaryDTO> summarizedContent = new ResultsWrapper<ContentSummaryDTO>(
+                                    this.extractContentSummaryFromList(c.getResults()),
+                                    c.getTotalResults());
 
-                return Response.ok(summarizedContent).tag(etag)
-                        .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true))
-                        .build();
-            } else {
-                return listContentObjects(fieldsToMatch, null, newStartIndex, newLimit).tag(etag)
-                        .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).build();
-            }
-        } catch (ContentManagerException e1) {
-            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND,
-                    "Error locating the content requested", e1);
-            log.error(error.getErrorMessage(), e1);
-            return error.toResponse();
-        }
+                            return Response.ok(summarizedContent).build();
+                        } else {
+                            return listContentObjects(fieldsToMatch, null, resultsStartIndex, resultsLimit).build();
+                        }
+                    } catch (ContentManagerException e1) {
+                        SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND,
+                                "Error locating the content requested", e1);
+                        log.error(error.getErrorMessage(), e1);
+                        return error.toResponse();
+                    }
+                });
     }
 
     /**
@@ -423,18 +409,21 @@ public class PagesFacade extends AbstractIsaacFacade {
 
         try {
             AbstractSegueUserDTO user = userManager.getCurrentUser(httpServletRequest);
-            Map<String, Map<String, List<QuestionValidationResponse>>> userQuestionAttempts;
-            userQuestionAttempts = questionManager.getQuestionAttemptsByUser(user);
+            // Only the attempts at this page are shown in full; related questions only need to know what is correct:
+            Map<String, QuestionValidationResponse> bestAttempts =
+                    questionManager.getBestQuestionAttemptsForPage(user, questionId);
+            QuestionAttemptSummary userAttemptSummary = questionManager.getQuestionAttemptSummary(user);
 
             // Calculate the ETag
-            EntityTag etag = new EntityTag(questionId.hashCode() + userQuestionAttempts.toString().hashCode() + "");
+            EntityTag etag = new EntityTag(questionId.hashCode() + bestAttempts.toString().hashCode()
+                    + "-" + userAttemptSummary.getAttemptsVersion());
 
             Response cachedResponse = generateCachedResponse(request, etag, NEVER_CACHE_WITHOUT_ETAG_CHECK);
             if (cachedResponse != null) {
                 return cachedResponse;
             }
 
-            Response response = this.findSingleResult(fieldsToMatch, userQuestionAttempts);
+            Response response = this.findSingleResult(fieldsToMatch, userAttemptSummary);
 
             if (response.getEntity() != null && response.getEntity() instanceof IsaacQuestionPageDTO) {
                 SeguePageDTO content = (SeguePageDTO) response.getEntity();
@@ -449,8 +438,8 @@ public class PagesFacade extends AbstractIsaacFacade {
                     userIdForRandomisation = ((RegisteredUserDTO) user).getId().toString();
                 }
 
-                content = this.questionManager.augmentQuestionObjects(content, userIdForRandomisation,
-                        userQuestionAttempts);
+                content = this.questionManager.augmentQuestionObjectsWithBestAttempts(content, userIdForRandomisation,
+                        bestAttempts);
 
                 // the request log
                 getLogManager().logEvent(user, httpServletRequest, IsaacServerLogType.VIEW_QUESTION, logEntry);
@@ -478,6 +467,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      *
      * @param request
      *            - so we can deal with caching.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param httpServletRequest
      *            - so that we can extract user information.
      * @param topicId
@@ -487,19 +478,65 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("topics/{topic_id}")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "Get a topic summary with a list of related material.")
-    public final Response getTopicSummaryPage(@Context final Request request,
+    public final Response getTopicSummaryPage(@Context final Request request, @Context final HttpHeaders headers,
                                                  @Context final HttpServletRequest httpServletRequest, @PathParam("topic_id") final String topicId) {
+        // Topic summary pages have the ID convention "topic_summary_[tag_name]"
+        String summaryPageId = String.format("topic_summary_%s", topicId);
+
+        try {
+            AbstractSegueUserDTO user = userManager.getCurrentUser(httpServletRequest);
+            QuestionAttemptSummary userAttemptSummary = questionManager.getQuestionAttemptSummary(user);
+
+            Response response;
+            if (userAttemptSummary.isEmpty()) {
+                // Without any attempts to show, the summary is the same for every user:
+                response = contentResponseCache.getResponse(request, headers, "getTopicSummaryPage",
+                        ImmutableMap.of("id", topicId), getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true),
+                        () -> this.getTopicSummaryResponse(topicId, userAttemptSummary));
+            } else {
+                // Calculate the ETag on current live version of the content
+                // NOTE: Assumes that the latest version of the content is being used.
+                EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + topicId.hashCode() + "");
+                Response cachedResponse = generateCachedResponse(request, etag);
+                if (cachedResponse != null) {
+                    return cachedResponse;
+                }
+
+                response = this.getTopicSummaryResponse(topicId, userAttemptSummary);
+                if (response.getStatus() == Status.OK.getStatusCode()) {
+                    response = Response.fromResponse(response)
+                            .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).tag(etag).build();
+                }
+            }
+
+            // Log the request:
+            if (response.getStatus() == Status.OK.getStatusCode()) {
+                ImmutableMap<String, String> logEntry = new ImmutableMap.Builder<String, String>()
+                        .put(PAGE_ID_LOG_FIELDNAME, summaryPageId)
+                        .put(CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA()).build();
+                getLogManager().logEvent(user, httpServletRequest, IsaacServerLogType.VIEW_TOPIC_SUMMARY_PAGE, logEntry);
+            }
 
-        // Calculate the ETag on current live version of the content
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + topicId.hashCode() + "");
-        Response cachedResponse = generateCachedResponse(request, etag);
-        if (cachedResponse != null) {
-            return cachedResponse;
+            return response;
+        } catch (SegueDatabaseException e) {
+            SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                    "Database error while looking up user information.", e);
+            log.error(error.getErrorMessage(), e);
+            return error.toResponse();
         }
+    }
 
+    /**
+     * Load a topic summary and augment it with related content and its linked gameboards.
+     *
+     * @param topicId
+     *            - the topic of the summary page.
+     * @param userAttemptSummary
+     *            - the summary of the question attempts to augment the related questions with.
+     * @return A Response object containing the topic summary or containing a SegueErrorResponse.
+     */
+    private Response getTopicSummaryResponse(final String topicId, final QuestionAttemptSummary userAttemptSummary) {
         // Topic summary pages have the ID convention "topic_summary_[tag_name]"
         String summaryPageId = String.format("topic_summary_%s", topicId);
 
@@ -515,12 +552,8 @@ public class PagesFacade extends AbstractIsaacFacade {
             IsaacTopicSummaryPage topicSummaryDO = (IsaacTopicSummaryPage) contentDOById;
             IsaacTopicSummaryPageDTO topicSummaryDTO = (IsaacTopicSummaryPageDTO) contentDTOById;
 
-            AbstractSegueUserDTO user = userManager.getCurrentUser(httpServletRequest);
-            Map<String, Map<String, List<QuestionValidationResponse>>> userQuestionAttempts;
-
             // Augment related questions with attempt information:
-            userQuestionAttempts = questionManager.getQuestionAttemptsByUser(user);
-            this.augmentContentWithRelatedContent(this.contentIndex, topicSummaryDTO, userQuestionAttempts);
+            this.augmentContentWithRelatedContent(this.contentIndex, topicSummaryDTO, userAttemptSummary);
 
             // Augment linked gameboards using the list in the DO:
             // FIXME: this requires loading both the DO and DTO separately, since augmenting things is hard right now.
@@ -543,29 +576,19 @@ public class PagesFacade extends AbstractIsaacFacade {
             }
             topicSummaryDTO.setLinkedGameboards(linkedGameboards);
 
-            // Log the request:
-            ImmutableMap<String, String> logEntry = new ImmutableMap.Builder<String, String>()
-                    .put(PAGE_ID_LOG_FIELDNAME, summaryPageId)
-                    .put(CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA()).build();
-            getLogManager().logEvent(user, httpServletRequest, IsaacServerLogType.VIEW_TOPIC_SUMMARY_PAGE, logEntry);
-
-            return Response.status(Status.OK).entity(topicSummaryDTO)
-                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).tag(etag).build();
-        } catch (SegueDatabaseException e) {
-            SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                    "Database error while looking up user information.", e);
-            log.error(error.getErrorMessage(), e);
-            return error.toResponse();
+            return Response.status(Status.OK).entity(topicSummaryDTO).build();
         } catch (ContentManagerException e) {
             return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Failed to load topic summary.", e).toResponse();
         }
     }
-    
+
     /**
      * Rest end point that gets a single page based on a given id.
      * 
      * @param request
      *            - so we can deal with caching.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param httpServletRequest
      *            - so that we can extract user information.
      * @param pageId
@@ -575,24 +598,14 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("/{page}")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "Get a content page object by ID.")
-    public final Response getPage(@Context final Request request, @Context final HttpServletRequest httpServletRequest,
-            @PathParam("page") final String pageId) {
+    public final Response getPage(@Context final Request request, @Context final HttpHeaders headers,
+            @Context final HttpServletRequest httpServletRequest, @PathParam("page") final String pageId) {
 
         if (null == pageId || pageId.isEmpty()) {
             return new SegueErrorResponse(Status.BAD_REQUEST, "You must provide a valid page id.").toResponse();
         }
 
-        // Calculate the ETag on current live version of the content
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + pageId.hashCode() + "");
-
-        Response cachedResponse = generateCachedResponse(request, etag);
-        if (cachedResponse != null) {
-            return cachedResponse;
-        }
-
         Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
         fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(PAGE_TYPE, QUESTIONS_PAGE_TYPE));
 
@@ -600,11 +613,12 @@ public class PagesFacade extends AbstractIsaacFacade {
         fieldsToMatch.put(ID_FIELDNAME + "." + UNPROCESSED_SEARCH_FIELD_SUFFIX, Arrays.asList(pageId));
 
         try {
-            Response result = this.findSingleResult(fieldsToMatch);
-
-            if (result.getEntity() instanceof SeguePageDTO) {
-
+            Response result = contentResponseCache.getResponse(request, headers, "getPage",
+                    ImmutableMap.of("id", pageId), getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true),
+                    () -> this.findSingleResult(fieldsToMatch));
 
+            // Only a newly found page is logged, not a response the client already had:
+            if (result.getStatus() == Status.OK.getStatusCode()) {
                 ImmutableMap<String, String> logEntry = new ImmutableMap.Builder<String, String>()
                         .put(PAGE_ID_LOG_FIELDNAME, pageId)
                         .put(CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA()).build();
@@ -613,10 +627,7 @@ public class PagesFacade extends AbstractIsaacFacade {
                 getLogManager().logEvent(userManager.getCurrentUser(httpServletRequest), httpServletRequest,
                         IsaacServerLogType.VIEW_PAGE, logEntry);
             }
-
-            Response cachableResult = Response.status(result.getStatus()).entity(result.getEntity())
-                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).tag(etag).build();
-            return cachableResult;
+            return result;
         } catch (SegueDatabaseException e) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
                     "Database error while looking up user information.", e);
@@ -630,6 +641,8 @@ public class PagesFacade extends AbstractIsaacFacade {
      * 
      * @param request
      *            - so that we can deal with caching.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
      * @param httpServletRequest
      *            - so that we can extract user information.
      * @param fragmentId
@@ -639,34 +652,27 @@ public class PagesFacade extends AbstractIsaacFacade {
     @GET
     @Path("/fragments/{fragment_id}")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "Get a content page fragment by ID.")
-    public final Response getPageFragment(@Context final Request request, @Context final HttpServletRequest httpServletRequest,
-            @PathParam("fragment_id") final String fragmentId) {
+    public final Response getPageFragment(@Context final Request request, @Context final HttpHeaders headers,
+            @Context final HttpServletRequest httpServletRequest, @PathParam("fragment_id") final String fragmentId) {
         try {
-            // Calculate the ETag on current live version of the content
-            // NOTE: Assumes that the latest version of the content is being used.
-            EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + fragmentId.hashCode() + "");
-            Response cachedResponse = generateCachedResponse(request, etag);
-            if (cachedResponse != null) {
-                return cachedResponse;
-            }
-
             Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
             fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(PAGE_FRAGMENT_TYPE));
             fieldsToMatch.put(ID_FIELDNAME + "." + UNPROCESSED_SEARCH_FIELD_SUFFIX, Arrays.asList(fragmentId));
 
-            Response result = this.findSingleResult(fieldsToMatch);
+            Response result = contentResponseCache.getResponse(request, headers, "getPageFragment",
+                    ImmutableMap.of("id", fragmentId), getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true),
+                    () -> this.findSingleResult(fieldsToMatch));
 
-            if (result.getEntity() instanceof IsaacPageFragmentDTO) {
+            // Only a newly found fragment is logged, not a response the client already had:
+            if (result.getStatus() == Status.OK.getStatusCode()) {
                 getLogManager().logEvent(userManager.getCurrentUser(httpServletRequest), httpServletRequest,
                         IsaacServerLogType.VIEW_PAGE_FRAGMENT, ImmutableMap.of(
                                 FRAGMENT_ID_LOG_FIELDNAME, fragmentId,
                                 CONTENT_VERSION_FIELDNAME, this.contentManager.getCurrentContentSHA()
                         ));
             }
-            return Response.status(result.getStatus()).entity(result.getEntity())
-                    .cacheControl(getCacheControl(NUMBER_SECONDS_IN_ONE_HOUR, true)).tag(etag).build();
+            return result;
         } catch (SegueDatabaseException e) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
                     "Database error while looking up user information.", e);
@@ -680,39 +686,35 @@ public class PagesFacade extends AbstractIsaacFacade {
      * 
      * @param request
      *            - so that we can deal with caching.
+     * @param headers
+     *            - so we can tell whether the client accepts a gzipped response.
+     * @param subject
+     *            - the subject the pods are tagged with.
      * @return A Response object containing a page fragment object or containing a SegueErrorResponse.
      */
     @GET
     @Path("/pods/{subject}")
     @Produces(MediaType.APPLICATION_JSON)
-    @GZIP
     @Operation(summary = "List pods matching the subject provided.")
-    public final Response getPodList(@Context final Request request,
+    public final Response getPodList(@Context final Request request, @Context final HttpHeaders headers,
                                      @PathParam("subject") final String subject) {
-        // Calculate the ETag on current live version of the content
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + subject.hashCode() + "");
-        Response cachedResponse = generateCachedResponse(request, etag);
-        if (cachedResponse != null) {
-            return cachedResponse;
-        }
-
-        try {
-            Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
-            fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(POD_FRAGMENT_TYPE));
-            fieldsToMatch.put(TAGS_FIELDNAME, Arrays.asList(subject));
-
-            ResultsWrapper<ContentDTO> pods = api.findMatchingContent(this.contentIndex,
-                    ContentService.generateDefaultFieldToMatch(fieldsToMatch), 0, MAX_PODS_TO_RETURN);
+        Map<String, List<String>> fieldsToMatch = Maps.newHashMap();
+        fieldsToMatch.put(TYPE_FIELDNAME, Arrays.asList(POD_FRAGMENT_TYPE));
+        fieldsToMatch.put(TAGS_FIELDNAME, Arrays.asList(subject));
 
-            return Response.ok(pods).cacheControl(getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, true))
-                    .tag(etag)
-                    .build();
-        } catch (ContentManagerException e) {
-            log.error("Content manager exception while trying to request the pods.", e);
-            return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                    "Unable to retrieve Content requested due to an internal server error.", e).toResponse();
-        }
+        return contentResponseCache.getResponse(request, headers, "getPodList", ImmutableMap.of("subject", subject),
+                getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, true), () -> {
+                    try {
+                        ResultsWrapper<ContentDTO> pods = api.findMatchingContent(this.contentIndex,
+                                ContentService.generateDefaultFieldToMatch(fieldsToMatch), 0, MAX_PODS_TO_RETURN);
+
+                        return Response.ok(pods).build();
+                    } catch (ContentManagerException e) {
+                        log.error("Content manager exception while trying to request the pods.", e);
+                        return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                                "Unable to retrieve Content requested due to an internal server error.", e).toResponse();
+                    }
+                });
     }
 
     /**
@@ -724,20 +726,20 @@ public class PagesFacade extends AbstractIsaacFacade {
      *            - version of the content to use for augmentation.
      * @param contentToAugment
      *            - the content to augment.
-     * @param usersQuestionAttempts
-     *            - nullable question attempt information to support augmentation of content.
+     * @param usersAttemptSummary
+     *            - nullable summary of question attempts to support augmentation of content.
      * @return content which has been augmented
      * @throws ContentManagerException
      *             - an exception when the content is not found
      */
     private ContentDTO augmentContentWithRelatedContent(final String version, final ContentDTO contentToAugment,
-                                                        @Nullable final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts)
+                                                        @Nullable final QuestionAttemptSummary usersAttemptSummary)
             throws ContentManagerException {
 
         ContentDTO augmentedDTO = this.contentManager.populateRelatedContent(contentToAugment);
 
-        if (usersQuestionAttempts != null) {
-            this.augmentRelatedQuestionsWithAttemptInformation(augmentedDTO, usersQuestionAttempts);
+        if (usersAttemptSummary != null) {
+            this.augmentRelatedQuestionsWithAttemptInformation(augmentedDTO, usersAttemptSummary);
         }
 
         return augmentedDTO;
@@ -749,31 +751,20 @@ public class PagesFacade extends AbstractIsaacFacade {
      * i.e. sets whether the related content summary has been completed.
      *
      * @param content the content to be augmented.
-     * @param usersQuestionAttempts the user's question attempts.
+     * @param usersAttemptSummary the summary of the user's question attempts.
      */
     private void augmentRelatedQuestionsWithAttemptInformation(
             final ContentDTO content,
-            final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts) {
+            final QuestionAttemptSummary usersAttemptSummary) {
         // Check if all question parts have been answered
         List<ContentSummaryDTO> relatedContentSummaries = content.getRelatedContent();
         if (relatedContentSummaries != null) {
             for (ContentSummaryDTO relatedContentSummary : relatedContentSummaries) {
                 String questionId = relatedContentSummary.getId();
-                Map<String, List<QuestionValidationResponse>> questionAttempts = usersQuestionAttempts.get(questionId);
                 boolean questionAnsweredCorrectly = false;
-                if (questionAttempts != null) {
+                if (usersAttemptSummary.hasAttemptedQuestionPage(questionId)) {
                     for (String relatedQuestionPartId : relatedContentSummary.getQuestionPartIds()) {
-                        questionAnsweredCorrectly = false;
-                        List<QuestionValidationResponse> questionPartAttempts =
-                                questionAttempts.get(relatedQuestionPartId);
-                        if (questionPartAttempts != null) {
-                            for (QuestionValidationResponse partAttempt : questionPartAttempts) {
-                                questionAnsweredCorrectly = partAttempt.isCorrect();
-                                if (questionAnsweredCorrectly) {
-                                    break; // exit on first correct attempt
-                                }
-                            }
-                        }
+                        questionAnsweredCorrectly = usersAttemptSummary.isQuestionPartCorrect(relatedQuestionPartId);
                         if (!questionAnsweredCorrectly) {
                             break; // exit on first false question part
                         }
@@ -788,7 +779,7 @@ public class PagesFacade extends AbstractIsaacFacade {
             for (ContentBaseDTO child : children) {
                 if (child instanceof ContentDTO) {
                     ContentDTO childContent = (ContentDTO) child;
-                    augmentRelatedQuestionsWithAttemptInformation(childContent, usersQuestionAttempts);
+                    augmentRelatedQuestionsWithAttemptInformation(childContent, usersAttemptSummary);
                 }
             }
         }
@@ -838,7 +829,7 @@ public class PagesFacade extends AbstractIsaacFacade {
     }
 
     /**
-     * As per the {@link #findSingleResult(Map, Map) findSingleResult} method.
+     * As per the {@link #findSingleResult(Map, QuestionAttemptSummary) findSingleResult} method.
      */
     private Response findSingleResult(final Map<String, List<String>> fieldsToMatch) {
         return this.findSingleResult(fieldsToMatch, null);
@@ -851,13 +842,13 @@ public class PagesFacade extends AbstractIsaacFacade {
      * 
      * @param fieldsToMatch
      *            - expects a map of the form fieldname -> list of queries to match
-     * @param usersQuestionAttempts
-     *            - optional question attempt information to support augmentation of content.
+     * @param usersAttemptSummary
+     *            - optional summary of question attempts to support augmentation of content.
      *
      * @return A Response containing a single conceptPage or containing a SegueErrorResponse.
      */
     private Response findSingleResult(final Map<String, List<String>> fieldsToMatch,
-                                      @Nullable final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts) {
+                                      @Nullable final QuestionAttemptSummary usersAttemptSummary) {
         try {
             ResultsWrapper<ContentDTO> resultList = api.findMatchingContent(this.contentIndex,
                     ContentService.generateDefaultFieldToMatch(fieldsToMatch), null, null); // includes
@@ -875,7 +866,7 @@ public class PagesFacade extends AbstractIsaacFacade {
                 c = resultList.getResults().get(0);
             }
 
-            return Response.ok(this.augmentContentWithRelatedContent(this.contentIndex, c, usersQuestionAttempts)).build();
+            return Response.ok(this.augmentContentWithRelatedContent(this.contentIndex, c, usersAttemptSummary)).build();
         } catch (ContentManagerException e1) {
             SegueErrorResponse error = new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Error locating the content requested",
                     e1);
@@ -60,6 +60,7 @@ import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Calendar;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
@@ -187,6 +188,18 @@ public class EventBookingManager {
         return this.bookingPersistenceManager.adminGetBookingsByEventId(eventId);
     }
 
+    /**
+     * @param eventIds - the events of interest
+     * @param statuses - only bookings with one of these statuses are included
+     * @return map of event id to the ids of the users booked on that event.
+     * @throws SegueDatabaseException - if an error occurs.
+     */
+    public Map<String, List<Long>> getBookedUserIdsByEventIds(final Collection<String> eventIds,
+                                                              final Collection<BookingStatus> statuses)
+            throws SegueDatabaseException {
+        return this.bookingPersistenceManager.getBookedUserIdsByEventIds(eventIds, statuses);
+    }
+
     /**
      * Utility method to provide a count of the number of bookings on a given event with a given status.
      *
@@ -2,6 +2,8 @@ package uk.ac.cam.cl.dtg.isaac.api.managers;
 
 import com.google.api.client.util.Maps;
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,13 +12,11 @@ import uk.ac.cam.cl.dtg.isaac.dos.eventbookings.BookingStatus;
 import uk.ac.cam.cl.dtg.isaac.dto.IsaacEventPageDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
 import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
-import uk.ac.cam.cl.dtg.isaac.dto.eventbookings.DetailedEventBookingDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.EmailTemplateDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
-import uk.ac.cam.cl.dtg.isaac.dto.users.UserSummaryDTO;
 import uk.ac.cam.cl.dtg.segue.api.Constants;
 import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
 import uk.ac.cam.cl.dtg.segue.api.services.ContentService;
-import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserException;
 import uk.ac.cam.cl.dtg.segue.comm.EmailManager;
 import uk.ac.cam.cl.dtg.segue.comm.EmailType;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
@@ -32,6 +32,12 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static uk.ac.cam.cl.dtg.isaac.api.Constants.*;
@@ -40,6 +46,12 @@ import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
 
 public class EventNotificationEmailManager {
     private static final Logger log = LoggerFactory.getLogger(EventNotificationEmailManager.class);
+    private static final int EVENT_BATCH_SIZE = 20;
+    private static final int EMAIL_PREPARATION_THREADS = 4;
+    // Shared by every instance, as the scheduled jobs create a new instance each time they run:
+    private static final ExecutorService EMAIL_PREPARATION_EXECUTOR = Executors.newFixedThreadPool(
+            EMAIL_PREPARATION_THREADS, new ThreadFactoryBuilder().setNameFormat("event-email-preparation-%d")
+                    .setDaemon(true).build());
 
     private final PropertiesLoader properties;
     private final GitContentManager contentManager;
@@ -68,29 +80,116 @@ public class EventNotificationEmailManager {
         this.pgScheduledEmailManager = pgScheduledEmailManager;
     }
 
-    public void sendBookingStatusFilteredEmailForEvent(IsaacEventPageDTO event, String templateId, List<BookingStatus> bookingStatuses) throws SegueDatabaseException {
-        List<DetailedEventBookingDTO> eventBookings = bookingManager.adminGetBookingsByEventId(event.getId());
-        List<Long> ids = eventBookings.stream()
-                            .filter(DetailedEventBookingDTO -> bookingStatuses == null || bookingStatuses.contains(DetailedEventBookingDTO.getBookingStatus()))
-                            .map(DetailedEventBookingDTO::getUserBooked)
-                            .map(UserSummaryDTO::getId)
-                            .distinct().collect(Collectors.toList());
-        for (Long id : ids) {
-            try {
-                RegisteredUserDTO user = userAccountManager.getUserDTOById(id);
-                emailManager.sendTemplatedEmailToUser(user,
-                    emailManager.getEmailTemplateDTO(templateId),
-                    new ImmutableMap.Builder<String, Object>()
-                        .put("event.emailEventDetails", event.getEmailEventDetails() == null ? "" : event.getEmailEventDetails())
-                        .put("event", event)
-                        .build(),
-                    EmailType.SYSTEM);
-                log.debug(String.format("Sent email to user: %s %s, at: %s", user.getGivenName(), user.getFamilyName(), user.getEmail()));
-            } catch (NoUserException e) {
-                log.error(String.format("No user found with ID: %s", id));
-            } catch (ContentManagerException e) {
-                log.error("Failed to add the scheduled email sent time: ", e);
+    /**
+     * Stop preparing event emails, e.g. when the application is shutting down.
+     *
+     * Emails already being sent are interrupted; each one that was sent has been recorded, so the rest are sent by the
+     * next run.
+     */
+    public static void shutdownEmailPreparation() {
+        EMAIL_PREPARATION_EXECUTOR.shutdownNow();
+    }
+
+    /**
+     * Send a templated email to the users booked on each of the events provided, unless it has already been sent.
+     *
+     * Events are processed in batches: the bookings for a whole batch are loaded in one query and the emails are
+     * prepared in parallel on a bounded pool of threads. Progress is recorded in the scheduled_emails table as it goes,
+     * with a key per recipient committed to as soon as their email has been sent and a key for the event once every
+     * recipient has been emailed. Recipients whose email failed are therefore retried by the next run, which skips the
+     * events that were completed and the recipients who were already emailed.
+     *
+     * @param events - the events to email the attendees of.
+     * @param emailKeySuffix - identifies the kind of email, e.g. "pre" or "post", in the scheduled_emails keys.
+     * @param templateId - the content id of the email template.
+     * @param bookingStatuses - only users with a booking in one of these statuses are emailed.
+     * @throws ContentManagerException - if the email template cannot be loaded.
+     * @throws SegueDatabaseException - if the bookings, users or progress cannot be read or written.
+     */
+    void sendBookingStatusFilteredEmailsForEvents(final List<IsaacEventPageDTO> events, final String emailKeySuffix,
+                                                  final String templateId, final List<BookingStatus> bookingStatuses)
+            throws ContentManagerException, SegueDatabaseException {
+        try {
+            EmailTemplateDTO emailTemplate = null;
+            for (List<IsaacEventPageDTO> eventBatch : Lists.partition(events, EVENT_BATCH_SIZE)) {
+                Map<String, IsaacEventPageDTO> eventsByEmailKey = Maps.newLinkedHashMap();
+                for (IsaacEventPageDTO event : eventBatch) {
+                    eventsByEmailKey.put(String.format("%s@%s", event.getId(), emailKeySuffix), event);
+                }
+                eventsByEmailKey.keySet().removeAll(pgScheduledEmailManager.getCommittedEmailKeys(eventsByEmailKey.keySet()));
+                if (eventsByEmailKey.isEmpty()) {
+                    continue;
+                }
+                if (null == emailTemplate) {
+                    emailTemplate = emailManager.getEmailTemplateDTO(templateId);
+                }
+
+                Map<String, List<Long>> userIdsByEventId = bookingManager.getBookedUserIdsByEventIds(
+                        eventsByEmailKey.values().stream().map(IsaacEventPageDTO::getId).collect(Collectors.toList()),
+                        bookingStatuses);
+                Map<Long, RegisteredUserDTO> usersById = userAccountManager.findUsers(
+                        userIdsByEventId.values().stream().flatMap(List::stream).collect(Collectors.toSet()))
+                        .stream().collect(Collectors.toMap(RegisteredUserDTO::getId, Function.identity()));
+
+                Map<String, Long> userIdsByRecipientKey = Maps.newHashMap();
+                for (Map.Entry<String, IsaacEventPageDTO> eventEntry : eventsByEmailKey.entrySet()) {
+                    for (Long userId : userIdsByEventId.getOrDefault(eventEntry.getValue().getId(), Collections.emptyList())) {
+                        userIdsByRecipientKey.put(String.format("%s@%s", eventEntry.getKey(), userId), userId);
+                    }
+                }
+                Set<String> emailedRecipientKeys = pgScheduledEmailManager.getCommittedEmailKeys(userIdsByRecipientKey.keySet());
+
+                Map<String, Map<String, Future<?>>> pendingEmailsByEventKey = Maps.newLinkedHashMap();
+                for (Map.Entry<String, IsaacEventPageDTO> eventEntry : eventsByEmailKey.entrySet()) {
+                    IsaacEventPageDTO event = eventEntry.getValue();
+                    Map<String, Object> emailTokens = new ImmutableMap.Builder<String, Object>()
+                            .put("event.emailEventDetails", event.getEmailEventDetails() == null ? "" : event.getEmailEventDetails())
+                            .put("event", event)
+                            .build();
+
+                    Map<String, Future<?>> pendingEmailsByRecipientKey = Maps.newLinkedHashMap();
+                    for (Long userId : userIdsByEventId.getOrDefault(event.getId(), Collections.emptyList())) {
+                        String recipientKey = String.format("%s@%s", eventEntry.getKey(), userId);
+                        if (emailedRecipientKeys.contains(recipientKey)) {
+                            continue;
+                        }
+                        RegisteredUserDTO user = usersById.get(userId);
+                        if (null == user) {
+                            log.error(String.format("No user found with ID: %s", userId));
+                            continue;
+                        }
+                        EmailTemplateDTO template = emailTemplate;
+                        pendingEmailsByRecipientKey.put(recipientKey, EMAIL_PREPARATION_EXECUTOR.submit(() -> {
+                            emailManager.sendTemplatedEmailToUser(user, template, emailTokens, EmailType.SYSTEM);
+                            log.debug(String.format("Sent email to user: %s %s, at: %s", user.getGivenName(), user.getFamilyName(), user.getEmail()));
+                            // Record each email as soon as it is sent, so an interrupted run never sends it again:
+                            if (!pgScheduledEmailManager.commitToSchedulingEmail(recipientKey)) {
+                                log.warn(String.format("Sent scheduled event email (%s) was already recorded as sent.", recipientKey));
+                            }
+                            return null;
+                        }));
+                    }
+                    pendingEmailsByEventKey.put(eventEntry.getKey(), pendingEmailsByRecipientKey);
+                }
+
+                for (Map.Entry<String, Map<String, Future<?>>> pendingEmailsEntry : pendingEmailsByEventKey.entrySet()) {
+                    int sentEmails = 0;
+                    for (Future<?> pendingEmail : pendingEmailsEntry.getValue().values()) {
+                        try {
+                            pendingEmail.get();
+                            sentEmails++;
+                        } catch (ExecutionException e) {
+                            log.error("Failed to send scheduled event email: ", e.getCause());
+                        }
+                    }
+                    if (sentEmails == pendingEmailsEntry.getValue().size()) {
+                        pgScheduledEmailManager.commitToSchedulingEmail(pendingEmailsEntry.getKey());
+                    }
+                }
             }
+        } catch (InterruptedException e) {
+            log.warn("Interrupted while sending scheduled event emails; remaining emails will be sent on the next run.");
+            Thread.currentThread().interrupt();
         }
     }
 
@@ -113,17 +212,15 @@ public class EventNotificationEmailManager {
             ResultsWrapper<ContentDTO> findByFieldNames = this.contentManager.findByFieldNames(
                     ContentService.generateDefaultFieldToMatch(fieldsToMatch), startIndex, limit, sortInstructions,
                     filterInstructions);
+            List<IsaacEventPageDTO> events = Lists.newArrayList();
             for (ContentDTO contentResult : findByFieldNames.getResults()) {
                 if (contentResult instanceof IsaacEventPageDTO) {
-                    IsaacEventPageDTO event = (IsaacEventPageDTO) contentResult;
-                    String emailKey = String.format("%s@pre", event.getId());
-                    // Includes the attended status in case the events team have pre-emptively marked someone as attended.
-                    List<BookingStatus> bookingStatuses = Arrays.asList(BookingStatus.CONFIRMED, BookingStatus.ATTENDED);
-                    if (pgScheduledEmailManager.commitToSchedulingEmail(emailKey)) {
-                        this.sendBookingStatusFilteredEmailForEvent(event, "event_reminder", bookingStatuses);
-                    }
+                    events.add((IsaacEventPageDTO) contentResult);
                 }
             }
+            // Includes the attended status in case the events team have pre-emptively marked someone as attended.
+            List<BookingStatus> bookingStatuses = Arrays.asList(BookingStatus.CONFIRMED, BookingStatus.ATTENDED);
+            this.sendBookingStatusFilteredEmailsForEvents(events, "pre", "event_reminder", bookingStatuses);
         } catch (ContentManagerException | SegueDatabaseException e) {
             log.error("Failed to send scheduled event reminder emails: ", e);
         }
@@ -152,24 +249,23 @@ public class EventNotificationEmailManager {
             ResultsWrapper<ContentDTO> findByFieldNames = this.contentManager.findByFieldNames(
                     ContentService.generateDefaultFieldToMatch(fieldsToMatch), startIndex, limit, sortInstructions,
                     filterInstructions);
+            List<IsaacEventPageDTO> events = Lists.newArrayList();
             for (ContentDTO contentResult : findByFieldNames.getResults()) {
                 if (contentResult instanceof IsaacEventPageDTO) {
                     IsaacEventPageDTO event = (IsaacEventPageDTO) contentResult;
                     // Event end date (if present) is today or before, else event date is today or before
                     boolean endDateToday = event.getEndDate() != null && event.getEndDate().toInstant().isBefore(new Date().toInstant());
                     boolean noEndDateAndStartDateToday = event.getEndDate() == null && event.getDate().toInstant().isBefore(new Date().toInstant());
-                    if (endDateToday || noEndDateAndStartDateToday) {
-                        String emailKey = String.format("%s@post", event.getId());
-                        // Includes the confirmed status in case the events team don't update the status to attended in time.
-                        List<BookingStatus> bookingStatuses = Arrays.asList(BookingStatus.CONFIRMED, BookingStatus.ATTENDED);
-                        List<ExternalReference> postResources = event.getPostResources();
-                        boolean postResourcesPresent = postResources != null && !postResources.isEmpty() && !postResources.contains(null);
-                        if (postResourcesPresent && pgScheduledEmailManager.commitToSchedulingEmail(emailKey)) {
-                            this.sendBookingStatusFilteredEmailForEvent(event, "event_feedback", bookingStatuses);
-                        }
+                    List<ExternalReference> postResources = event.getPostResources();
+                    boolean postResourcesPresent = postResources != null && !postResources.isEmpty() && !postResources.contains(null);
+                    if ((endDateToday || noEndDateAndStartDateToday) && postResourcesPresent) {
+                        events.add(event);
                     }
                 }
             }
+            // Includes the confirmed status in case the events team don't update the status to attended in time.
+            List<BookingStatus> bookingStatuses = Arrays.asList(BookingStatus.CONFIRMED, BookingStatus.ATTENDED);
+            this.sendBookingStatusFilteredEmailsForEvents(events, "post", "event_feedback", bookingStatuses);
         } catch (ContentManagerException | SegueDatabaseException e) {
             log.error("Failed to send scheduled event feedback emails: ", e);
         }
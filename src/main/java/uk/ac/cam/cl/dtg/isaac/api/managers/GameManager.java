@@ -18,6 +18,7 @@ package uk.ac.cam.cl.dtg.isaac.api.managers;
 import com.google.api.client.util.Lists;
 import com.google.api.client.util.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import ma.glasnost.orika.MapperFacade;
@@ -47,6 +48,7 @@ import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.content.QuestionDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.AbstractSegueUserDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionAttemptSummary;
 import uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager;
 import uk.ac.cam.cl.dtg.segue.dao.ResourceNotFoundException;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
@@ -56,20 +58,29 @@ import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
 import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.NotNull;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static com.google.common.collect.Maps.immutableEntry;
 import static uk.ac.cam.cl.dtg.isaac.api.Constants.*;
 import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.HOT_GAMEBOARD_TRACKER;
 
 /**
  * This class will be responsible for generating and managing gameboards used by users.
@@ -81,6 +92,13 @@ public class GameManager {
     private static final float DEFAULT_QUESTION_PASS_MARK = 75;
 
     private static final int MAX_QUESTIONS_TO_SEARCH = 20;
+    private static final int QUESTION_POOL_SEARCH_PAGE_SIZE = 1000;
+    private static final int MAX_QUESTION_POOL_FILTER_SIZE = 10000;
+    private static final int MAX_QUEUED_QUESTION_POOL_LOADS = 20;
+    // Question pools are loaded off the request thread, one filter at a time:
+    private static final ExecutorService QUESTION_POOL_LOADER = new ThreadPoolExecutor(1, 1, 0L,
+            TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(MAX_QUEUED_QUESTION_POOL_LOADS),
+            new ThreadFactoryBuilder().setNameFormat("gameboard-question-pool-loader").setDaemon(true).build());
 
     private final GameboardPersistenceManager gameboardPersistenceManager;
     private final Random randomGenerator;
@@ -91,6 +109,9 @@ public class GameManager {
 
     private final QuestionManager questionManager;
 
+    private final Executor questionPoolLoader;
+    private volatile GameboardQuestionPool questionPool;
+
     /**
      * Creates a game manager that operates using the provided api.
      * 
@@ -109,16 +130,38 @@ public class GameManager {
     public GameManager(final GitContentManager contentManager,
                        final GameboardPersistenceManager gameboardPersistenceManager, final MapperFacade mapper,
                        final QuestionManager questionManager, @Named(CONTENT_INDEX) final String contentIndex) {
+        this(contentManager, gameboardPersistenceManager, mapper, questionManager, contentIndex,
+                QUESTION_POOL_LOADER);
+    }
+
+    /**
+     * Creates a game manager that loads its question pools with the executor provided.
+     *
+     * @see #GameManager(GitContentManager, GameboardPersistenceManager, MapperFacade, QuestionManager, String)
+     * @param questionPoolLoader
+     *            - runs the searches for the questions matching each filter.
+     */
+    GameManager(final GitContentManager contentManager,
+                final GameboardPersistenceManager gameboardPersistenceManager, final MapperFacade mapper,
+                final QuestionManager questionManager, final String contentIndex, final Executor questionPoolLoader) {
         this.contentManager = contentManager;
         this.gameboardPersistenceManager = gameboardPersistenceManager;
         this.questionManager = questionManager;
         this.contentIndex = contentIndex;
+        this.questionPoolLoader = questionPoolLoader;
 
         this.randomGenerator = new Random();
 
         this.mapper = mapper;
     }
 
+    /**
+     * Stop loading question pools, e.g. when the application is shutting down.
+     */
+    public static void shutdownQuestionPoolLoading() {
+        QUESTION_POOL_LOADER.shutdownNow();
+    }
+
     /**
      * This method expects only one of its 3 subject tag filter parameters to have more than one element due to
      * restrictions on the question filter interface.
@@ -163,14 +206,13 @@ public class GameManager {
             boardOwnerId = null;
         }
 
-        Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts = questionManager
-                .getQuestionAttemptsByUser(boardOwner);
+        QuestionAttemptSummary usersAttemptSummary = questionManager.getQuestionAttemptSummary(boardOwner);
 
         GameFilter gameFilter = new GameFilter(
                 subjects, fields, topics, levels, concepts, questionCategories, stages, difficulties, examBoards);
 
         List<GameboardItem> selectionOfGameboardQuestions =
-                this.getSelectedGameboardQuestions(gameFilter, usersQuestionAttempts);
+                this.getSelectedGameboardQuestions(gameFilter, usersAttemptSummary);
 
         if (!selectionOfGameboardQuestions.isEmpty()) {
             String uuid = UUID.randomUUID().toString();
@@ -184,7 +226,7 @@ public class GameManager {
 
             this.gameboardPersistenceManager.temporarilyStoreGameboard(gameboardDTO);
 
-            return augmentGameboardWithQuestionAttemptInformation(gameboardDTO, usersQuestionAttempts);
+            return augmentGameboardWithQuestionAttemptInformation(gameboardDTO, usersAttemptSummary);
         } else {
             return null;
         }
@@ -248,6 +290,7 @@ public class GameManager {
             return null;
         }
 
+        HOT_GAMEBOARD_TRACKER.record(gameboardId);
         return this.gameboardPersistenceManager.getGameboardById(gameboardId);
     }
 
@@ -376,13 +419,42 @@ public class GameManager {
     public final GameboardDTO getGameboard(final String gameboardId, final AbstractSegueUserDTO user,
             final Map<String, Map<String, List<QuestionValidationResponse>>> userQuestionAttempts)
             throws SegueDatabaseException, ContentManagerException {
-
+        HOT_GAMEBOARD_TRACKER.record(gameboardId);
 
         // we need to augment the DTO with whether this gameboard is in a users my boards list.
         return augmentGameboardWithQuestionAttemptInformationAndUserInformation(
                 this.gameboardPersistenceManager.getGameboardById(gameboardId), userQuestionAttempts, user);
     }
 
+    /**
+     * Get a gameboard by its id and augment with user information.
+     *
+     * @param gameboardId
+     *            - to look up.
+     * @param user
+     *            - This allows state information to be retrieved.
+     * @param attemptSummary
+     *            - the summary of the user's question attempts, so that we can augment the gameboard.
+     * @return the gameboard or null.
+     * @throws SegueDatabaseException
+     *             - if there is a problem retrieving the gameboard in the database or updating the users gameboard link
+     *             table.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     */
+    public final GameboardDTO getGameboard(final String gameboardId, final AbstractSegueUserDTO user,
+                                           final QuestionAttemptSummary attemptSummary)
+            throws SegueDatabaseException, ContentManagerException {
+        HOT_GAMEBOARD_TRACKER.record(gameboardId);
+        GameboardDTO gameboardDTO = this.gameboardPersistenceManager.getGameboardById(gameboardId);
+        if (user instanceof RegisteredUserDTO) {
+            gameboardDTO
+                    .setSavedToCurrentUser(this.isBoardLinkedToUser((RegisteredUserDTO) user, gameboardDTO.getId()));
+        }
+
+        return this.augmentGameboardWithQuestionAttemptInformation(gameboardDTO, attemptSummary);
+    }
+
     /**
      * Lookup gameboards belonging to a current user.
      * 
@@ -778,11 +850,52 @@ public class GameManager {
     private GameboardDTO augmentGameboardWithQuestionAttemptInformation(final GameboardDTO gameboardDTO,
                                                                         final Map<String, ? extends Map<String, ? extends List<? extends LightweightQuestionValidationResponse>>> questionAttemptsFromUser)
             throws ContentManagerException {
+        if (null == questionAttemptsFromUser) {
+            return gameboardDTO;
+        }
+        return this.augmentGameboardWithQuestionPartStates(gameboardDTO,
+                questionPartStatesFromAttempts(questionAttemptsFromUser));
+    }
+
+    /**
+     * Augments the gameboards with question attempt information NOT whether the user has it in their my board page.
+     *
+     * @param gameboardDTO
+     *            - the DTO of the gameboard.
+     * @param attemptSummary
+     *            - the summary of the user's question attempts.
+     * @return Augmented Gameboard.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     */
+    private GameboardDTO augmentGameboardWithQuestionAttemptInformation(final GameboardDTO gameboardDTO,
+                                                                        final QuestionAttemptSummary attemptSummary)
+            throws ContentManagerException {
+        if (null == attemptSummary) {
+            return gameboardDTO;
+        }
+        return this.augmentGameboardWithQuestionPartStates(gameboardDTO, questionPartStatesFromSummary(attemptSummary));
+    }
+
+    /**
+     * Augments the gameboards with the states of the questions in it.
+     *
+     * @param gameboardDTO
+     *            - the DTO of the gameboard.
+     * @param questionPartStateLookup
+     *            - to find the state of each question part in the gameboard.
+     * @return Augmented Gameboard.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     */
+    private GameboardDTO augmentGameboardWithQuestionPartStates(final GameboardDTO gameboardDTO,
+                                                                final QuestionPartStateLookup questionPartStateLookup)
+            throws ContentManagerException {
         if (null == gameboardDTO) {
             return null;
         }
 
-        if (null == questionAttemptsFromUser || gameboardDTO.getContents().size() == 0) {
+        if (gameboardDTO.getContents().size() == 0) {
             return gameboardDTO;
         }
 
@@ -792,7 +905,7 @@ public class GameManager {
         int totalNumberOfCorrectQuestionParts = 0;
         for (GameboardItem gameItem : questions) {
             try {
-                this.augmentGameItemWithAttemptInformation(gameItem, questionAttemptsFromUser);
+                this.augmentGameItemWithQuestionPartStates(gameItem, questionPartStateLookup);
             } catch (ResourceNotFoundException e) {
                 log.info(String.format(
                         "The gameboard '%s' references an unavailable question '%s' - treating it as if it never existed for marking!",
@@ -914,17 +1027,77 @@ public class GameManager {
 
     /**
      * This method aims to (somewhat) intelligently select some useful gameboard questions.
+     *
+     * Questions are sampled from the question pool for the current content version where possible, so that the search
+     * for a filter only happens once per content version; otherwise they are found with randomised searches, e.g.
+     * while the pool for the filter is still being loaded.
      * 
      * @param gameFilter
      *            - the filter query that should be used to make up the gameboard.
-     * @param usersQuestionAttempts
-     *            - the users question attempt information if available.
+     * @param usersAttemptSummary
+     *            - the summary of the users question attempts.
+     * @return Gameboard questions
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     */
+    List<GameboardItem> getSelectedGameboardQuestions(final GameFilter gameFilter,
+            final QuestionAttemptSummary usersAttemptSummary)
+            throws ContentManagerException {
+
+        GameboardQuestionPool pool = this.getQuestionPool();
+        int[] matchingOrdinals = null;
+        if (pool != null) {
+            matchingOrdinals = this.getQuestionPoolOrdinalsForFilter(pool, gameFilter);
+        }
+        if (null == matchingOrdinals) {
+            return this.searchForGameboardQuestions(gameFilter, usersAttemptSummary);
+        }
+
+        Set<GameboardItem> gameboardReadyQuestions = Sets.newHashSet();
+        List<GameboardItem> completedQuestions = Lists.newArrayList();
+        // Only questions the user has attempted can have been completed, so only those need their state working out.
+        BitSet attemptedOrdinals = pool.getOrdinals(usersAttemptSummary.getAttemptedQuestionPageIds());
+        PrimitiveIterator.OfInt randomOrdinals = GameboardQuestionPool.randomOrder(matchingOrdinals, randomGenerator);
+        while (gameboardReadyQuestions.size() < GAME_BOARD_TARGET_SIZE && randomOrdinals.hasNext()) {
+            // Look up only as many question pages as are still needed, through the content cache.
+            Map<String, Integer> ordinalsById = Maps.newLinkedHashMap();
+            while (ordinalsById.size() < GAME_BOARD_TARGET_SIZE - gameboardReadyQuestions.size()
+                    && randomOrdinals.hasNext()) {
+                int ordinal = randomOrdinals.nextInt();
+                ordinalsById.put(pool.getQuestionPageId(ordinal), ordinal);
+            }
+
+            for (ContentDTO questionPage
+                    : this.contentManager.getContentMatchingIds(ordinalsById.keySet(), 0, -1).getResults()) {
+                GameboardItem gameboardItem = this.gameboardPersistenceManager.convertToGameboardItem(questionPage,
+                        new GameboardContentDescriptor(questionPage.getId(), QUESTION_TYPE,
+                                AudienceContext.fromFilter(gameFilter)));
+
+                if (attemptedOrdinals.get(ordinalsById.get(questionPage.getId()))
+                        && isGameboardItemCompleted(gameboardItem, usersAttemptSummary)) {
+                    completedQuestions.add(gameboardItem);
+                } else {
+                    gameboardReadyQuestions.add(gameboardItem);
+                }
+            }
+        }
+
+        return this.fillGameboardWithCompletedQuestions(gameboardReadyQuestions, completedQuestions);
+    }
+
+    /**
+     * Select some useful gameboard questions by paging through a randomised search for the filter.
+     *
+     * @param gameFilter
+     *            - the filter query that should be used to make up the gameboard.
+     * @param usersAttemptSummary
+     *            - the summary of the users question attempts.
      * @return Gameboard questions
      * @throws ContentManagerException
      *             - if there is an error retrieving the content requested.
      */
-    private List<GameboardItem> getSelectedGameboardQuestions(final GameFilter gameFilter,
-            final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts)
+    private List<GameboardItem> searchForGameboardQuestions(final GameFilter gameFilter,
+            final QuestionAttemptSummary usersAttemptSummary)
             throws ContentManagerException {
 
         Long seed = new Random().nextLong();
@@ -942,18 +1115,7 @@ public class GameManager {
         // choose the gameboard questions to include.
         while (gameboardReadyQuestions.size() < GAME_BOARD_TARGET_SIZE && !selectionOfGameboardQuestions.isEmpty()) {
             for (GameboardItem gameboardItem : selectionOfGameboardQuestions) {
-                GameboardItemState questionState;
-                try {
-                    this.augmentGameItemWithAttemptInformation(gameboardItem, usersQuestionAttempts);
-                    questionState = gameboardItem.getState();
-                } catch (ResourceNotFoundException e) {
-                    throw new ContentManagerException(
-                            "Resource not found exception, this shouldn't happen as the selectionOfGameboardQuestions "
-                            + "should only show available content.");
-                }
-                
-                if (questionState.equals(GameboardItemState.PASSED) 
-                        || questionState.equals(GameboardItemState.PERFECT)) {
+                if (isGameboardItemCompleted(gameboardItem, usersAttemptSummary)) {
                     completedQuestions.add(gameboardItem);
                 } else {
                     gameboardReadyQuestions.add(gameboardItem);
@@ -976,6 +1138,46 @@ public class GameManager {
             selectionOfGameboardQuestions = this.getNextQuestionsForFilter(gameFilter, searchIndex, seed);
         }
 
+        return this.fillGameboardWithCompletedQuestions(gameboardReadyQuestions, completedQuestions);
+    }
+
+    /**
+     * Work out whether the user has already passed a gameboard question, augmenting it with their attempts.
+     *
+     * @param gameboardItem
+     *            - the gameboard question.
+     * @param usersAttemptSummary
+     *            - the summary of the users question attempts.
+     * @return whether the question has been passed.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     */
+    private boolean isGameboardItemCompleted(final GameboardItem gameboardItem,
+            final QuestionAttemptSummary usersAttemptSummary)
+            throws ContentManagerException {
+        GameboardItemState questionState;
+        try {
+            this.augmentGameItemWithAttemptInformation(gameboardItem, usersAttemptSummary);
+            questionState = gameboardItem.getState();
+        } catch (ResourceNotFoundException e) {
+            throw new ContentManagerException(
+                    "Resource not found exception, this shouldn't happen as the selectionOfGameboardQuestions "
+                    + "should only show available content.");
+        }
+        return questionState.equals(GameboardItemState.PASSED) || questionState.equals(GameboardItemState.PERFECT);
+    }
+
+    /**
+     * Make up the gameboard with completed questions if there are not enough others, and put it in a random order.
+     *
+     * @param gameboardReadyQuestions
+     *            - the questions chosen so far.
+     * @param completedQuestions
+     *            - questions the user has already completed.
+     * @return Gameboard questions
+     */
+    private List<GameboardItem> fillGameboardWithCompletedQuestions(final Set<GameboardItem> gameboardReadyQuestions,
+                                                                    final List<GameboardItem> completedQuestions) {
         // Try and make up the difference with completed ones if we haven't reached our target size
         if (gameboardReadyQuestions.size() < GAME_BOARD_TARGET_SIZE && !completedQuestions.isEmpty()) {
             for (GameboardItem completedQuestion : completedQuestions) {
@@ -994,6 +1196,91 @@ public class GameManager {
         return gameboardQuestionList;
     }
 
+    /**
+     * Get the question pool for the current content version, replacing it if the content version has changed.
+     *
+     * @return the question pool, or null if the current content version is not known.
+     */
+    private GameboardQuestionPool getQuestionPool() {
+        String contentSHA = this.contentManager.getCurrentContentSHA();
+        if (null == contentSHA) {
+            return null;
+        }
+        GameboardQuestionPool pool = this.questionPool;
+        if (null == pool || !contentSHA.equals(pool.getContentSHA())) {
+            // Two requests may race to replace the pool; either result is fine as the loser's pool is just dropped.
+            pool = new GameboardQuestionPool(contentSHA);
+            this.questionPool = pool;
+        }
+        return pool;
+    }
+
+    /**
+     * Find the ordinals of every question in the pool which matches a filter, starting a search for them in the
+     * background if the filter has not been used in this content version before.
+     *
+     * @param pool
+     *            - the question pool for the current content version.
+     * @param gameFilter
+     *            - the filter query that should be used to make up the gameboard.
+     * @return the ordinals of the matching questions, or null if they have not been loaded into the pool.
+     */
+    private int[] getQuestionPoolOrdinalsForFilter(final GameboardQuestionPool pool, final GameFilter gameFilter) {
+        List<GitContentManager.BooleanSearchClause> fieldsToMatch = generateFieldsToMatchForQuestionSearch(gameFilter);
+        String filterKey = fieldsToMatch.stream()
+                .map(clause -> clause.getField() + ":" + clause.getOperator() + ":" + clause.getValues())
+                .collect(Collectors.joining(";"));
+
+        int[] matchingOrdinals = pool.getOrdinalsForFilter(filterKey);
+        if (null == matchingOrdinals && pool.startLoadingFilter(filterKey)) {
+            try {
+                this.questionPoolLoader.execute(() -> this.loadQuestionPoolForFilter(pool, filterKey, fieldsToMatch));
+            } catch (RejectedExecutionException e) {
+                log.debug(String.format("Too many question pools waiting to be loaded, skipped filter (%s)", filterKey));
+                pool.cancelLoadingFilter(filterKey);
+            }
+        }
+        return matchingOrdinals;
+    }
+
+    /**
+     * Search for the ids of every question which matches a filter, and add them to the question pool.
+     *
+     * @param pool
+     *            - the question pool for the content version being searched.
+     * @param filterKey
+     *            - a key identifying the search for the questions.
+     * @param fieldsToMatch
+     *            - the search clauses matching questions for the filter.
+     */
+    private void loadQuestionPoolForFilter(final GameboardQuestionPool pool, final String filterKey,
+                                           final List<GitContentManager.BooleanSearchClause> fieldsToMatch) {
+        try {
+            List<String> matchingQuestionPageIds = Lists.newArrayList();
+            int startIndex = 0;
+            ResultsWrapper<ContentDTO> results;
+            do {
+                results = this.contentManager.findByFieldNames(fieldsToMatch, startIndex,
+                        QUESTION_POOL_SEARCH_PAGE_SIZE);
+                if (results.getTotalResults() > MAX_QUESTION_POOL_FILTER_SIZE) {
+                    pool.markFilterTooLargeToPool(filterKey);
+                    return;
+                }
+                for (ContentDTO questionPage : results.getResults()) {
+                    if (!isSuperseded(questionPage)) {
+                        matchingQuestionPageIds.add(questionPage.getId());
+                    }
+                }
+                startIndex += results.getResults().size();
+            } while (!results.getResults().isEmpty() && startIndex < results.getTotalResults());
+
+            pool.addQuestionPagesForFilter(filterKey, matchingQuestionPageIds);
+        } catch (ContentManagerException | RuntimeException e) {
+            log.error(String.format("Unable to load the question pool for filter (%s)", filterKey), e);
+            pool.cancelLoadingFilter(filterKey);
+        }
+    }
+
     /**
      * Gets you the next set of questions that match the given filter.
      * 
@@ -1010,10 +1297,7 @@ public class GameManager {
     public List<GameboardItem> getNextQuestionsForFilter(final GameFilter gameFilter, final int index,
             final Long randomSeed) throws ContentManagerException {
         // get some questions
-        List<GitContentManager.BooleanSearchClause> fieldsToMap = Lists.newArrayList();
-        fieldsToMap.add(new GitContentManager.BooleanSearchClause(
-                TYPE_FIELDNAME, BooleanOperator.AND, Collections.singletonList(QUESTION_TYPE)));
-        fieldsToMap.addAll(generateFieldToMatchForQuestionFilter(gameFilter));
+        List<GitContentManager.BooleanSearchClause> fieldsToMap = generateFieldsToMatchForQuestionSearch(gameFilter);
 
         // Search for questions that match the fields to map variable.
 
@@ -1027,13 +1311,8 @@ public class GameManager {
         // Map each Content object into an GameboardItem object
         for (ContentDTO c : questionsForGameboard) {
             // Only keep questions that have not been superseded.
-            // Yes, this should probably be done in the fieldsToMap filter above, but this is simpler.
-            if (c instanceof IsaacQuestionPageDTO) {
-                IsaacQuestionPageDTO qp = (IsaacQuestionPageDTO)c;
-                if (qp.getSupersededBy() != null && !qp.getSupersededBy().equals("")) {
-                    // This question has been superseded. Don't include it.
-                    continue;
-                }
+            if (isSuperseded(c)) {
+                continue;
             }
 
             GameboardItem questionInfo = this.gameboardPersistenceManager.convertToGameboardItem(
@@ -1044,6 +1323,36 @@ public class GameManager {
         return selectionOfGameboardQuestions;
     }
 
+    /**
+     * @param gameFilter
+     *            - the filter query that should be used to make up the gameboard.
+     * @return the search clauses matching questions for the filter.
+     */
+    private static List<GitContentManager.BooleanSearchClause> generateFieldsToMatchForQuestionSearch(
+            final GameFilter gameFilter) {
+        List<GitContentManager.BooleanSearchClause> fieldsToMatch = Lists.newArrayList();
+        fieldsToMatch.add(new GitContentManager.BooleanSearchClause(
+                TYPE_FIELDNAME, BooleanOperator.AND, Collections.singletonList(QUESTION_TYPE)));
+        fieldsToMatch.addAll(generateFieldToMatchForQuestionFilter(gameFilter));
+        return fieldsToMatch;
+    }
+
+    /**
+     * Superseded questions should not be chosen for new gameboards.
+     * Yes, this should probably be done in the search itself, but this is simpler.
+     *
+     * @param questionPage
+     *            - a question page.
+     * @return whether the question page has been superseded.
+     */
+    private static boolean isSuperseded(final ContentDTO questionPage) {
+        if (questionPage instanceof IsaacQuestionPageDTO) {
+            IsaacQuestionPageDTO qp = (IsaacQuestionPageDTO) questionPage;
+            return qp.getSupersededBy() != null && !qp.getSupersededBy().equals("");
+        }
+        return false;
+    }
+
     /**
      * AugmentGameItemWithAttemptInformation
      * 
@@ -1065,8 +1374,52 @@ public class GameManager {
             final Map<String, ? extends Map<String, ? extends List<? extends LightweightQuestionValidationResponse>>>
                     questionAttemptsFromUser)
             throws ContentManagerException, ResourceNotFoundException {
-        Validate.notNull(gameItem, "gameItem cannot be null");
         Validate.notNull(questionAttemptsFromUser, "questionAttemptsFromUser cannot be null");
+        return this.augmentGameItemWithQuestionPartStates(gameItem,
+                questionPartStatesFromAttempts(questionAttemptsFromUser));
+    }
+
+    /**
+     * Calculate the question state of a gameboard item from a summary of the user's attempts.
+     *
+     * @see #augmentGameItemWithAttemptInformation(GameboardItem, Map)
+     *
+     * @param gameItem
+     *             - the gameboard item.
+     * @param attemptSummary
+     *             - the summary of the user's question attempts.
+     * @return gameItem
+     *             - the gameItem passed in having been modified (augmented)), returned for possiblity of chaining.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     * @throws ResourceNotFoundException
+     *             - if we cannot find the question specified.
+     */
+    private GameboardItem augmentGameItemWithAttemptInformation(final GameboardItem gameItem,
+                                                                final QuestionAttemptSummary attemptSummary)
+            throws ContentManagerException, ResourceNotFoundException {
+        Validate.notNull(attemptSummary, "attemptSummary cannot be null");
+        return this.augmentGameItemWithQuestionPartStates(gameItem, questionPartStatesFromSummary(attemptSummary));
+    }
+
+    /**
+     * Calculate the question state of a gameboard item from the states of its question parts.
+     *
+     * @param gameItem
+     *             - the gameboard item.
+     * @param questionPartStateLookup
+     *             - to find the state of each question part in the gameboard item.
+     * @return gameItem
+     *             - the gameItem passed in having been modified (augmented)), returned for possiblity of chaining.
+     * @throws ContentManagerException
+     *             - if there is an error retrieving the content requested.
+     * @throws ResourceNotFoundException
+     *             - if we cannot find the question specified.
+     */
+    private GameboardItem augmentGameItemWithQuestionPartStates(final GameboardItem gameItem,
+                                                                final QuestionPartStateLookup questionPartStateLookup)
+            throws ContentManagerException, ResourceNotFoundException {
+        Validate.notNull(gameItem, "gameItem cannot be null");
 
         List<QuestionPartState> questionPartStates = Lists.newArrayList();
         int questionPartsCorrect = 0;
@@ -1078,39 +1431,21 @@ public class GameManager {
         // get all question parts in the question page: depends on each question
         // having an id that starts with the question page id.
         Collection<QuestionDTO> listOfQuestionParts = getAllMarkableQuestionPartsDFSOrder(questionPage);
-        Map<String, ? extends List<? extends LightweightQuestionValidationResponse>> questionAttempts =
-                questionAttemptsFromUser.get(questionPageId);
-        if (questionAttempts != null) {
-            for (ContentDTO questionPart : listOfQuestionParts) {
-                List<? extends LightweightQuestionValidationResponse> questionPartAttempts =
-                        questionAttempts.get(questionPart.getId());
-                if (questionPartAttempts != null) {
-                    // Go through the attempts in reverse chronological order for this question part to determine if
-                    // there is a correct answer somewhere.
-                    boolean foundCorrectForThisQuestion = false;
-                    for (int i = questionPartAttempts.size() - 1; i >= 0; i--) {
-                        if (questionPartAttempts.get(i).isCorrect() != null
-                                && questionPartAttempts.get(i).isCorrect()) {
-                            foundCorrectForThisQuestion = true;
-                            break;
-                        }
-                    }
-                    if (foundCorrectForThisQuestion) {
-                        questionPartStates.add(QuestionPartState.CORRECT);
-                        questionPartsCorrect++;
-                    } else {
-                        questionPartStates.add(QuestionPartState.INCORRECT);
-                        questionPartsIncorrect++;
-                    }
-                } else {
-                    questionPartStates.add(QuestionPartState.NOT_ATTEMPTED);
+        for (ContentDTO questionPart : listOfQuestionParts) {
+            QuestionPartState questionPartState =
+                    questionPartStateLookup.getState(questionPageId, questionPart.getId());
+            questionPartStates.add(questionPartState);
+            switch (questionPartState) {
+                case CORRECT:
+                    questionPartsCorrect++;
+                    break;
+                case INCORRECT:
+                    questionPartsIncorrect++;
+                    break;
+                default:
                     questionPartsNotAttempted++;
-                }
+                    break;
             }
-        } else {
-            questionPartsNotAttempted = listOfQuestionParts.size();
-            questionPartStates = listOfQuestionParts.stream()
-                    .map(_q -> QuestionPartState.NOT_ATTEMPTED).collect(Collectors.toList());
         }
 
         // Get the pass mark for the question page
@@ -1146,6 +1481,56 @@ public class GameManager {
         return gameItem;
     }
     
+    /**
+     * @param questionAttemptsFromUser
+     *             - the users question attempt data.
+     * @return a lookup of question part states; a part is correct if any attempt at it was correct.
+     */
+    private static QuestionPartStateLookup questionPartStatesFromAttempts(
+            final Map<String, ? extends Map<String, ? extends List<? extends LightweightQuestionValidationResponse>>>
+                    questionAttemptsFromUser) {
+        return (questionPageId, questionPartId) -> {
+            Map<String, ? extends List<? extends LightweightQuestionValidationResponse>> questionAttempts =
+                    questionAttemptsFromUser.get(questionPageId);
+            if (null == questionAttempts || null == questionAttempts.get(questionPartId)) {
+                return QuestionPartState.NOT_ATTEMPTED;
+            }
+            List<? extends LightweightQuestionValidationResponse> questionPartAttempts =
+                    questionAttempts.get(questionPartId);
+            // Go through the attempts in reverse chronological order for this question part to determine if
+            // there is a correct answer somewhere.
+            for (int i = questionPartAttempts.size() - 1; i >= 0; i--) {
+                if (questionPartAttempts.get(i).isCorrect() != null && questionPartAttempts.get(i).isCorrect()) {
+                    return QuestionPartState.CORRECT;
+                }
+            }
+            return QuestionPartState.INCORRECT;
+        };
+    }
+
+    /**
+     * @param attemptSummary
+     *             - the summary of the user's question attempts.
+     * @return a lookup of question part states.
+     */
+    private static QuestionPartStateLookup questionPartStatesFromSummary(final QuestionAttemptSummary attemptSummary) {
+        return (questionPageId, questionPartId) -> {
+            if (!attemptSummary.hasAttemptedQuestionPart(questionPartId)) {
+                return QuestionPartState.NOT_ATTEMPTED;
+            }
+            return attemptSummary.isQuestionPartCorrect(questionPartId)
+                    ? QuestionPartState.CORRECT : QuestionPartState.INCORRECT;
+        };
+    }
+
+    /**
+     * Looks up the state of a user's attempts at a question part.
+     */
+    @FunctionalInterface
+    private interface QuestionPartStateLookup {
+        QuestionPartState getState(String questionPageId, String questionPartId);
+    }
+
     /**
      * Generate a random integer value to represent the position of the wildcard tile in the gameboard.
      * 
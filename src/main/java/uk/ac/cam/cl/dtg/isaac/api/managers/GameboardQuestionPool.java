@@ -0,0 +1,181 @@
+package uk.ac.cam.cl.dtg.isaac.api.managers;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The question pages which can be chosen for random gameboards in one content version.
+ *
+ * Each question page id is given an ordinal when it is first added, so the questions matching a filter can be kept as
+ * a compact array of ordinals and sets of questions, e.g. those a user has completed, as bitsets. Only the ids are
+ * held; the content of the questions chosen is looked up through the content cache. Content does not change within a
+ * content version, so the questions matching each filter only need to be searched for once.
+ *
+ * This class is threadsafe.
+ */
+class GameboardQuestionPool {
+    private static final long MAX_FILTERS_CACHED = 1000;
+
+    private final String contentSHA;
+    private final List<String> questionPageIds = new ArrayList<>();
+    private final Map<String, Integer> ordinalsById = new HashMap<>();
+    private final Cache<String, int[]> ordinalsByFilter =
+            CacheBuilder.newBuilder().maximumSize(MAX_FILTERS_CACHED).build();
+    private final Cache<String, Boolean> filtersTooLargeToPool =
+            CacheBuilder.newBuilder().maximumSize(MAX_FILTERS_CACHED).build();
+    private final Set<String> filtersLoading = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param contentSHA - the content version the question pages are from.
+     */
+    GameboardQuestionPool(final String contentSHA) {
+        this.contentSHA = contentSHA;
+    }
+
+    /**
+     * @return the content version the question pages are from.
+     */
+    String getContentSHA() {
+        return contentSHA;
+    }
+
+    /**
+     * @param filterKey - a key identifying the search for the questions.
+     * @return the ordinals of the question pages matching the filter, or null if they have not been added.
+     */
+    int[] getOrdinalsForFilter(final String filterKey) {
+        return ordinalsByFilter.getIfPresent(filterKey);
+    }
+
+    /**
+     * Claim the job of searching for the questions matching a filter, so that only one search is made for it.
+     *
+     * @param filterKey - a key identifying the search for the questions.
+     * @return whether the caller should search for the questions; false if they are already being searched for, or
+     *         there are too many to hold in the pool.
+     */
+    boolean startLoadingFilter(final String filterKey) {
+        if (filtersTooLargeToPool.getIfPresent(filterKey) != null) {
+            return false;
+        }
+        return filtersLoading.add(filterKey);
+    }
+
+    /**
+     * Add the question pages matching a filter to the pool.
+     *
+     * @param filterKey - a key identifying the search for the questions.
+     * @param matchingQuestionPageIds - the ids of every question page matching the filter.
+     * @return the ordinals of the question pages.
+     */
+    int[] addQuestionPagesForFilter(final String filterKey, final List<String> matchingQuestionPageIds) {
+        int[] ordinals = new int[matchingQuestionPageIds.size()];
+        synchronized (questionPageIds) {
+            for (int i = 0; i < ordinals.length; i++) {
+                String questionPageId = matchingQuestionPageIds.get(i);
+                Integer ordinal = ordinalsById.get(questionPageId);
+                if (null == ordinal) {
+                    ordinal = questionPageIds.size();
+                    questionPageIds.add(questionPageId);
+                    ordinalsById.put(questionPageId, ordinal);
+                }
+                ordinals[i] = ordinal;
+            }
+        }
+        ordinalsByFilter.put(filterKey, ordinals);
+        filtersLoading.remove(filterKey);
+        return ordinals;
+    }
+
+    /**
+     * Record that there are too many questions matching a filter to hold in the pool, so they are not searched for
+     * again in this content version.
+     *
+     * @param filterKey - a key identifying the search for the questions.
+     */
+    void markFilterTooLargeToPool(final String filterKey) {
+        filtersTooLargeToPool.put(filterKey, true);
+        filtersLoading.remove(filterKey);
+    }
+
+    /**
+     * Give up searching for the questions matching a filter, so that a later request can try again.
+     *
+     * @param filterKey - a key identifying the search for the questions.
+     */
+    void cancelLoadingFilter(final String filterKey) {
+        filtersLoading.remove(filterKey);
+    }
+
+    /**
+     * @param ordinal - the ordinal of a question page in the pool.
+     * @return the id of the question page.
+     */
+    String getQuestionPageId(final int ordinal) {
+        synchronized (questionPageIds) {
+            return questionPageIds.get(ordinal);
+        }
+    }
+
+    /**
+     * @param ids - the ids of some question pages.
+     * @return the set of ordinals of those question pages which are in the pool.
+     */
+    BitSet getOrdinals(final Collection<String> ids) {
+        BitSet ordinals = new BitSet();
+        synchronized (questionPageIds) {
+            for (String questionPageId : ids) {
+                Integer ordinal = ordinalsById.get(questionPageId);
+                if (ordinal != null) {
+                    ordinals.set(ordinal);
+                }
+            }
+        }
+        return ordinals;
+    }
+
+    /**
+     * Iterate through ordinals in a random order, without shuffling more of them than are used.
+     *
+     * @param ordinals - the ordinals to iterate through; the array is not changed.
+     * @param random - the source of randomness.
+     * @return an iterator returning each of the ordinals once.
+     */
+    static PrimitiveIterator.OfInt randomOrder(final int[] ordinals, final Random random) {
+        int[] remaining = ordinals.clone();
+        return new PrimitiveIterator.OfInt() {
+            private int position = 0;
+
+            @Override
+            public boolean hasNext() {
+                return position < remaining.length;
+            }
+
+            @Override
+            public int nextInt() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                // one step of a Fisher-Yates shuffle
+                int chosen = position + random.nextInt(remaining.length - position);
+                int ordinal = remaining[chosen];
+                remaining[chosen] = remaining[position];
+                remaining[position] = ordinal;
+                position++;
+                return ordinal;
+            }
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package uk.ac.cam.cl.dtg.isaac.api.managers;
 
+import com.google.common.collect.Sets;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -8,9 +9,12 @@ import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.Set;
 
 public class PgScheduledEmailManager {
     private static final Logger log = LoggerFactory.getLogger(PgScheduledEmailManager.class);
@@ -45,4 +49,34 @@ public class PgScheduledEmailManager {
         }
         return false;
     }
+
+    /**
+     * Find which of the email keys provided have already been committed to.
+     *
+     * @param emailKeys - the keys to check.
+     * @return the subset of the keys which already exist.
+     * @throws SegueDatabaseException - if the keys could not be read.
+     */
+    public Set<String> getCommittedEmailKeys(final Collection<String> emailKeys) throws SegueDatabaseException {
+        Set<String> committedKeys = Sets.newHashSet();
+        if (emailKeys.isEmpty()) {
+            return committedKeys;
+        }
+
+        String query = "SELECT email_id FROM scheduled_emails WHERE email_id = ANY (?)";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setArray(1, conn.createArrayOf("text", emailKeys.toArray()));
+
+            try (ResultSet results = pst.executeQuery()) {
+                while (results.next()) {
+                    committedKeys.add(results.getString("email_id"));
+                }
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+        return committedKeys;
+    }
 }
@@ -199,7 +199,8 @@ public class QuizQuestionManager {
 
         Set<Long> completedUserIds = quizAttemptManager.getCompletedUserIds(assignment);
 
-        Map<Long, Map<String, List<QuestionValidationResponse>>> answers = quizQuestionAttemptManager.getAllAnswersForQuizAssignment(assignment.getId());
+        // Only the correctness of the latest answers is needed to mark the quiz.
+        Map<Long, Map<String, Boolean>> answers = quizQuestionAttemptManager.getLatestAnswerCorrectnessForQuizAssignment(assignment.getId());
 
         return users.stream().collect(Collectors.toMap(user -> user, user -> {
             // Not completed.
@@ -216,8 +217,7 @@ public class QuizQuestionManager {
             }
 
             // Calculate the scores.
-            Map<QuestionDTO, QuestionValidationResponse> answerMap = extractAnswers(questionsToAugment, answers.get(user.getId()));
-            return getIndividualQuizFeedback(sections, QuizFeedbackMode.DETAILED_FEEDBACK, questionsToAugment, answerMap);
+            return markQuiz(sections, QuizFeedbackMode.DETAILED_FEEDBACK, questionsToAugment, answers.get(user.getId()));
         }));
     }
 
@@ -326,6 +326,27 @@ public class QuizQuestionManager {
      */
     @Nullable
     private QuizFeedbackDTO getIndividualQuizFeedback(List<IsaacQuizSectionDTO> sections, QuizFeedbackMode feedbackMode, Collection<QuestionDTO> questionsToAugment, Map<QuestionDTO, QuestionValidationResponse> answerMap) {
+        Map<String, Boolean> answerCorrectness = new HashMap<>();
+        answerMap.forEach((question, response) -> {
+            if (response != null) {
+                answerCorrectness.put(question.getId(), Boolean.TRUE.equals(response.isCorrect()));
+            }
+        });
+        return markQuiz(sections, feedbackMode, questionsToAugment, answerCorrectness);
+    }
+
+    /**
+     * Get the feedback (marks) for an individual from whether their latest answer to each question was correct.
+     *
+     * @param sections The sections of the quiz.
+     * @param feedbackMode What level of feedback to provide.
+     * @param questionsToAugment The questions from the quiz.
+     * @param answerCorrectness Map from question ID to whether the individual's latest answer was correct, with no
+     *                          entry if the question was not attempted.
+     * @return The quiz feedback.
+     */
+    @Nullable
+    private QuizFeedbackDTO markQuiz(List<IsaacQuizSectionDTO> sections, QuizFeedbackMode feedbackMode, Collection<QuestionDTO> questionsToAugment, Map<String, Boolean> answerCorrectness) {
         if (feedbackMode == QuizFeedbackMode.NONE) {
             return null;
         }
@@ -343,9 +364,9 @@ public class QuizQuestionManager {
                 log.error("Missing test section id: " + sectionId + " in question " + question + " but not in section map " + sections);
                 continue;
             }
-            QuestionValidationResponse response = answerMap.get(question);
-            if (response != null) {
-                if (response.isCorrect()) {
+            Boolean correct = answerCorrectness.get(question.getId());
+            if (correct != null) {
+                if (correct) {
                     sectionMark.correct++;
                     questionMark.correct = 1;
                 } else {
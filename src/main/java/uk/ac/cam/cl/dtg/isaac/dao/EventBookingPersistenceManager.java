@@ -2,6 +2,7 @@ package uk.ac.cam.cl.dtg.isaac.dao;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
+import com.google.api.client.util.Maps;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +26,7 @@ import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
 import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
 
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -198,6 +200,30 @@ public class EventBookingPersistenceManager {
         }
     }
 
+    /**
+     * Get the ids of the users booked onto each of a batch of events, looked up in a single query.
+     *
+     * Unlike adminGetBookingsByEventId this does not load the event content or the booked users, so is suitable for
+     * bulk jobs which only need to know who is booked.
+     *
+     * @param eventIds
+     *            - the events of interest
+     * @param statuses
+     *            - only bookings with one of these statuses are included
+     * @return map of event id to the ids of the users booked on that event; events without bookings are omitted.
+     * @throws SegueDatabaseException
+     *             - if an error occurs.
+     */
+    public Map<String, List<Long>> getBookedUserIdsByEventIds(final Collection<String> eventIds,
+                                                              final Collection<BookingStatus> statuses)
+            throws SegueDatabaseException {
+        Map<String, List<Long>> userIdsByEventId = Maps.newHashMap();
+        for (EventBooking booking : dao.findAllByEventIdsAndStatuses(eventIds, statuses)) {
+            userIdsByEventId.computeIfAbsent(booking.getEventId(), k -> Lists.newArrayList()).add(booking.getUserId());
+        }
+        return userIdsByEventId;
+    }
+
     /**
      * Get event bookings by an event id.
      * TODO - if an event disappears (either by being unpublished or being deleted, then this method will not pull back the event.
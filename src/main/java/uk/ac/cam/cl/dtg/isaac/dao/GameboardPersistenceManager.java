@@ -60,6 +60,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
@@ -79,9 +80,13 @@ public class GameboardPersistenceManager {
     private static final Logger log = LoggerFactory.getLogger(GameboardPersistenceManager.class);
     private static final Long GAMEBOARD_TTL_MINUTES = 30L;
     private static final int GAMEBOARD_ITEM_MAP_BATCH_SIZE = 1000;
+    private static final long GAMEBOARD_TEMPLATE_CACHE_MAX_SIZE = 10000;
+    private static final long GAMEBOARD_TEMPLATE_TTL_MINUTES = 5;
 
     private final PostgresSqlDb database;
     private final Cache<String, GameboardDO> gameboardNonPersistentStorage;
+    private final Cache<String, GameboardDTO> gameboardTemplateCache;
+    private String gameboardTemplateContentSHA;
     
     private final MapperFacade mapper; // used for content object mapping.
     private final ObjectMapper objectMapper; // used for json serialisation
@@ -117,6 +122,12 @@ public class GameboardPersistenceManager {
         this.uriManager = uriManager;		
         this.gameboardNonPersistentStorage = CacheBuilder.newBuilder()
                 .expireAfterAccess(GAMEBOARD_TTL_MINUTES, TimeUnit.MINUTES).<String, GameboardDO> build();
+        // Fully populated saved gameboards only change if their title is changed or the content version changes, so
+        // can be shared between users; each user is given their own copy to add their attempt information to. Only
+        // this node's changes invalidate a board, so boards expire soon after being cached, however often they are used,
+        // to bound how long a change made by another node can go unseen.
+        this.gameboardTemplateCache = CacheBuilder.newBuilder().maximumSize(GAMEBOARD_TEMPLATE_CACHE_MAX_SIZE)
+                .expireAfterWrite(GAMEBOARD_TEMPLATE_TTL_MINUTES, TimeUnit.MINUTES).<String, GameboardDTO> build();
     }
 
     /**
@@ -251,6 +262,8 @@ public class GameboardPersistenceManager {
 
         } catch (SQLException e) {
             throw new SegueDatabaseException("Postgres exception", e);
+        } finally {
+            this.gameboardTemplateCache.invalidate(gameboard.getId());
         }
 
         return gameboard;
@@ -483,6 +496,12 @@ public class GameboardPersistenceManager {
 
         // go through all game boards working out the set of question ids.
         for (GameboardDTO game : gameboards) {
+            // the items of a board with a cached template are already known.
+            GameboardDTO template = this.getGameboardTemplate(game.getId());
+            if (template != null) {
+                game.setContents(copyGameboardItems(template.getContents()));
+                continue;
+            }
             List<GameboardContentDescriptor> gameboardContentDescriptors = getContentDescriptors(game);
             contentDescriptors.addAll(gameboardContentDescriptors);
             gameboardToQuestionsMap.put(game.getId(), gameboardContentDescriptors.stream()
@@ -490,13 +509,18 @@ public class GameboardPersistenceManager {
         }
 
         if (contentDescriptors.isEmpty()) {
-            log.info("No question ids found; returning original gameboard without augmenting.");
+            if (!gameboardToQuestionsMap.isEmpty()) {
+                log.info("No question ids found; returning original gameboard without augmenting.");
+            }
             return gameboards;
         }
 
         Map<String, GameboardItem> gameboardReadyQuestions = getGameboardItemMap(Lists.newArrayList(contentDescriptors));
 
         for (GameboardDTO game : gameboards) {
+            if (!gameboardToQuestionsMap.containsKey(game.getId())) {
+                continue;
+            }
             // empty and re-populate the gameboard dto with fully augmented gameboard items.
             game.setContents(new ArrayList<GameboardItem>());
             for (String questionId : gameboardToQuestionsMap.get(game.getId())) {
@@ -776,6 +800,14 @@ public class GameboardPersistenceManager {
             return this.convertToGameboardDTO(this.gameboardNonPersistentStorage.getIfPresent(gameboardId));
         }
 
+        // then the saved gameboards we have already populated
+        if (fullyPopulate) {
+            GameboardDTO template = this.getGameboardTemplate(gameboardId);
+            if (template != null) {
+                return copyGameboard(template);
+            }
+        }
+
         String query = "SELECT * FROM gameboards WHERE id = ?;";
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(query);
@@ -798,7 +830,10 @@ public class GameboardPersistenceManager {
                             + listOfResults);
                 }
 
-                return this.convertToGameboardDTO(listOfResults.get(0), fullyPopulate);
+                if (!fullyPopulate) {
+                    return this.convertToGameboardDTO(listOfResults.get(0), false);
+                }
+                return this.populateAndCacheGameboards(listOfResults).get(0);
             }
         } catch (SQLException | IOException e) {
             throw new SegueDatabaseException("Unable to find assignment by id", e);
@@ -827,13 +862,20 @@ public class GameboardPersistenceManager {
         List<String> gameboardIdsForQuery = new ArrayList<>();
         for (String gameboardId : gameboardIds) {
             GameboardDO cachedGameboard = this.gameboardNonPersistentStorage.getIfPresent(gameboardId);
+            GameboardDTO template = fullyPopulate ? this.getGameboardTemplate(gameboardId) : null;
             if (null != cachedGameboard) {
                 cachedGameboards.add(this.convertToGameboardDTO(cachedGameboard));
+            } else if (null != template) {
+                cachedGameboards.add(copyGameboard(template));
             } else {
                 gameboardIdsForQuery.add(gameboardId);
             }
         }
 
+        if (gameboardIdsForQuery.isEmpty()) {
+            return cachedGameboards;
+        }
+
         // Then, go for the database
         String query = "SELECT * FROM gameboards WHERE id = ANY (?);";
         try (Connection conn = database.getDatabaseConnection();
@@ -849,10 +891,15 @@ public class GameboardPersistenceManager {
                 }
 
                 if (listOfResults.size() == 0) {
-                    return null;
+                    return cachedGameboards.isEmpty() ? null : cachedGameboards;
                 }
 
-                List<GameboardDTO> databaseGameboards = listOfResults.stream().map(r -> this.convertToGameboardDTO(r, fullyPopulate)).collect(Collectors.toList());
+                List<GameboardDTO> databaseGameboards;
+                if (fullyPopulate) {
+                    databaseGameboards = this.populateAndCacheGameboards(listOfResults);
+                } else {
+                    databaseGameboards = this.convertToGameboardDTOs(listOfResults, false);
+                }
 
                 return Stream.of(cachedGameboards, databaseGameboards).flatMap(Collection::stream).collect(Collectors.toList());
             }
@@ -861,6 +908,83 @@ public class GameboardPersistenceManager {
         }
     }
 
+    /**
+     * Fully populate saved gameboards, looking up the items of all of them together, and keep the results as templates
+     * for later requests for the same gameboards.
+     *
+     * @param gameboardDOs
+     *            - saved gameboards to populate.
+     * @return a copy of each fully populated gameboard, which can be changed by the caller.
+     */
+    private List<GameboardDTO> populateAndCacheGameboards(final List<GameboardDO> gameboardDOs) {
+        // find the content version before the content, so a template is never newer than the version it is kept for
+        String contentSHA = this.contentManager.getCurrentContentSHA();
+        List<GameboardDTO> gameboards = this.augmentGameboardItems(this.convertToGameboardDTOs(gameboardDOs, false));
+
+        List<GameboardDTO> copies = Lists.newArrayList();
+        for (GameboardDTO gameboard : gameboards) {
+            this.putGameboardTemplate(contentSHA, gameboard);
+            copies.add(copyGameboard(gameboard));
+        }
+        return copies;
+    }
+
+    /**
+     * @param gameboardId
+     *            - the gameboard to find.
+     * @return the fully populated gameboard for the current content version, which must not be changed, or null if
+     *         there is no such gameboard cached.
+     */
+    private GameboardDTO getGameboardTemplate(final String gameboardId) {
+        String contentSHA = this.contentManager.getCurrentContentSHA();
+        synchronized (this.gameboardTemplateCache) {
+            if (null == contentSHA || !contentSHA.equals(this.gameboardTemplateContentSHA)) {
+                // the items of every gameboard may have changed in the new content version
+                this.gameboardTemplateCache.invalidateAll();
+                this.gameboardTemplateContentSHA = contentSHA;
+                return null;
+            }
+        }
+        return this.gameboardTemplateCache.getIfPresent(gameboardId);
+    }
+
+    /**
+     * @param contentSHA
+     *            - the content version the gameboard was populated from.
+     * @param gameboard
+     *            - a fully populated gameboard, which must not be changed after this call.
+     */
+    private void putGameboardTemplate(final String contentSHA, final GameboardDTO gameboard) {
+        synchronized (this.gameboardTemplateCache) {
+            if (null != contentSHA && contentSHA.equals(this.gameboardTemplateContentSHA)) {
+                this.gameboardTemplateCache.put(gameboard.getId(), gameboard);
+            }
+        }
+    }
+
+    /**
+     * Copy the parts of a gameboard which are the same for every user, so the copy can be augmented for one user.
+     *
+     * @param gameboard
+     *            - the gameboard to copy.
+     * @return a new gameboard, with new gameboard items.
+     */
+    private static GameboardDTO copyGameboard(final GameboardDTO gameboard) {
+        return new GameboardDTO(gameboard.getId(), gameboard.getTitle(), copyGameboardItems(gameboard.getContents()),
+                gameboard.getWildCard(), gameboard.getWildCardPosition(), gameboard.getCreationDate(),
+                gameboard.getGameFilter(), gameboard.getOwnerUserId(), gameboard.getCreationMethod(),
+                null == gameboard.getTags() ? null : new HashSet<>(gameboard.getTags()));
+    }
+
+    /**
+     * @param gameboardItems
+     *            - the items to copy.
+     * @return a new list of new gameboard items.
+     */
+    private static List<GameboardItem> copyGameboardItems(final List<GameboardItem> gameboardItems) {
+        return gameboardItems.stream().map(GameboardItem::new).collect(Collectors.toList());
+    }
+
     /**
      * @param results - the results from sql.
      * @return a gameboard DO.
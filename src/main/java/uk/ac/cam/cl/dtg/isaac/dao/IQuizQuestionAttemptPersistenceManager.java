@@ -27,4 +27,16 @@ public interface IQuizQuestionAttemptPersistenceManager {
     Map<String, List<QuestionValidationResponse>> getAllAnswersForQuizAttempt(Long quizAttemptId) throws SegueDatabaseException;
 
     Map<Long, Map<String, List<QuestionValidationResponse>>> getAllAnswersForQuizAssignment(Long quizAssignmentId) throws SegueDatabaseException;
+
+    /**
+     * Get whether each user's latest answer to each question in a quiz assignment was correct.
+     *
+     * Only the latest attempt at each question is read, and only its correctness, so this is much cheaper than
+     * {@link #getAllAnswersForQuizAssignment(Long)} when only marks are needed.
+     *
+     * @param quizAssignmentId - the quiz assignment of interest.
+     * @return a map of user id to a map of question id to whether their latest answer was correct.
+     * @throws SegueDatabaseException - if there is a database problem.
+     */
+    Map<Long, Map<String, Boolean>> getLatestAnswerCorrectnessForQuizAssignment(Long quizAssignmentId) throws SegueDatabaseException;
 }
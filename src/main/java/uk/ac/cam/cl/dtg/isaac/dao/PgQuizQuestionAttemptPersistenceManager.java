@@ -147,4 +147,33 @@ public class PgQuizQuestionAttemptPersistenceManager implements IQuizQuestionAtt
             throw new SegueDatabaseException("Unable to process json exception", e);
         }
     }
+
+    @Override
+    public Map<Long, Map<String, Boolean>> getLatestAnswerCorrectnessForQuizAssignment(Long quizAssignmentId) throws SegueDatabaseException {
+        // There is at most one quiz attempt per user per assignment, so the latest answer to each question by each user
+        // is the first row for each (quiz_attempt_id, question_id) in reverse timestamp order.
+        String query = "SELECT DISTINCT ON (quiz_attempt_id, question_id) user_id, question_id, correct" +
+                    " FROM quiz_question_attempts" +
+                    " INNER JOIN quiz_attempts ON (quiz_attempts.id = quiz_question_attempts.quiz_attempt_id)" +
+                    " WHERE quiz_assignment_id = ? ORDER BY quiz_attempt_id, question_id, quiz_question_attempts.timestamp DESC";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setLong(1, quizAssignmentId);
+
+            try (ResultSet results = pst.executeQuery()) {
+                Map<Long, Map<String, Boolean>> resultsMap = Maps.newHashMap();
+                while (results.next()) {
+                    Long userId = results.getLong("user_id");
+                    String questionId = results.getString("question_id");
+                    boolean correct = results.getBoolean("correct");
+
+                    resultsMap.computeIfAbsent(userId, (ignoreKey) -> Maps.newHashMap()).put(questionId, correct);
+                }
+                return resultsMap;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
 }
@@ -9,6 +9,18 @@ import java.util.Map;
  */
 public interface IUserStreaksManager {
 
+    /**
+     * This method will update the stored streaks of a registered user after a correct question attempt.
+     *
+     * The attempt must already have been recorded; only the first correct attempt at each question part counts.
+     *
+     * @param user
+     *            - the registered user
+     * @param questionId
+     *            - the id of the question part answered correctly
+     */
+    void recordCorrectQuestionAttempt(RegisteredUserDTO user, String questionId);
+
     /**
      * This method will get the current streak and current streak progress for a registered user.
      *
@@ -118,6 +118,22 @@ public interface LocationHistory {
      */
     PostCode getPostCode(final String postCode) throws SegueDatabaseException;
 
+    /**
+     * @param postCodes
+     *            - the postcodes to look up
+     * @return - the postcode objects for those of the given postcodes which are stored
+     * @throws SegueDatabaseException
+     *             - if something goes wrong with the database.
+     */
+    List<PostCode> getPostCodes(Collection<String> postCodes) throws SegueDatabaseException;
+
+    /**
+     * @return - every stored postcode object
+     * @throws SegueDatabaseException
+     *             - if something goes wrong with the database.
+     */
+    List<PostCode> getAllPostCodes() throws SegueDatabaseException;
+
     /**
      * @param postCodes
      *            - a list of given postcodes
@@ -119,6 +119,39 @@ public class PgLocationHistory implements LocationHistory {
         }
     }
 
+    @Override
+    public List<PostCode> getPostCodes(final Collection<String> postCodes) throws SegueDatabaseException {
+        if (null == postCodes || postCodes.isEmpty()) {
+            return Lists.newArrayList();
+        }
+
+        String query = "SELECT postcode, lat, lon FROM uk_post_codes WHERE postcode = ANY (?)";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setArray(1, conn.createArrayOf("varchar", postCodes.toArray()));
+
+            try (ResultSet results = pst.executeQuery()) {
+                return buildPostCodes(results);
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
+
+    @Override
+    public List<PostCode> getAllPostCodes() throws SegueDatabaseException {
+        String query = "SELECT postcode, lat, lon FROM uk_post_codes";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+             ResultSet results = pst.executeQuery();
+        ) {
+            return buildPostCodes(results);
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
+
     @Override
     public Map<String, LocationHistoryEvent> getLatestByIPAddresses(final Collection<String> ipAddresses)
             throws SegueDatabaseException {
@@ -312,6 +345,22 @@ public class PgLocationHistory implements LocationHistory {
         }
     }
 
+    /**
+     * @param results
+     *            - the result set of postcode rows
+     * @return the postcode objects
+     * @throws SQLException
+     *             - if we cannot read the results.
+     */
+    private List<PostCode> buildPostCodes(final ResultSet results) throws SQLException {
+        List<PostCode> postCodes = Lists.newArrayList();
+        while (results.next()) {
+            postCodes.add(new PostCode(results.getString("postcode"), results.getDouble("lat"),
+                    results.getDouble("lon")));
+        }
+        return postCodes;
+    }
+
     /*
      * (non-Javadoc)
      * 
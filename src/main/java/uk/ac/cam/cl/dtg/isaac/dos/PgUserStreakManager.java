@@ -40,69 +40,72 @@ public class PgUserStreakManager implements IUserStreaksManager {
 
 
     @Override
-    public Map<String, Object> getCurrentStreakRecord(final RegisteredUserDTO user) {
-
-        Map<String, Object> streakRecord = Maps.newHashMap();
-        streakRecord.put("currentActivity", 0);
-        streakRecord.put("currentStreak", 0);
+    public void recordCorrectQuestionAttempt(final RegisteredUserDTO user, final String questionId) {
 
-        String query = "SELECT * FROM user_streaks_current_progress(?) LEFT JOIN user_streaks(?)" +
-                " ON user_streaks_current_progress.currentdate - user_streaks.enddate <= 1" +
-                " AND user_streaks.startdate <= user_streaks_current_progress.currentdate";
+        String query = "SELECT user_streaks_record_correct_attempt(?, ?)";
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(query);
         ) {
             pst.setLong(1, user.getId());
-            pst.setLong(2, user.getId());
+            pst.setString(2, questionId);
 
-            try (ResultSet results = pst.executeQuery()) {
-                if (results.next()) {
-                    streakRecord.put("currentActivity", results.getInt("currentprogress"));
-                    streakRecord.put("currentStreak", results.getInt("streaklength"));
-                }
-            }
+            pst.executeQuery().close();
         } catch (SQLException e) {
-            e.printStackTrace();
+            log.error(String.format("Unable to update streaks of user %s for question %s", user.getId(), questionId), e);
         }
-        return streakRecord;
     }
 
     @Override
-    public int getLongestStreak(final RegisteredUserDTO user) {
-
-        String query = "SELECT * FROM user_streaks(?) ORDER BY streaklength DESC LIMIT 1";
-        try (Connection conn = database.getDatabaseConnection();
-             PreparedStatement pst = conn.prepareStatement(query);
-        ) {
-            pst.setLong(1, user.getId());
+    public Map<String, Object> getCurrentStreakRecord(final RegisteredUserDTO user) {
 
-            try (ResultSet results = pst.executeQuery()) {
-                if (results.next()) {
-                    return results.getInt("streaklength");
-                }
-            }
-        } catch (SQLException e) {
-            e.printStackTrace();
-        }
+        // A streak is current if it ended no earlier than yesterday, or every day since it ended has been frozen:
+        String query = "SELECT CASE WHEN current_day = CURRENT_DATE THEN current_day_count ELSE 0 END AS currentprogress,"
+                + " CASE WHEN daily_streak_end_date >= CURRENT_DATE - 1"
+                + " OR user_streaks_frozen_between(user_id, daily_streak_end_date + 1, CURRENT_DATE - 1)"
+                + " THEN daily_streak ELSE 0 END AS streaklength"
+                + " FROM user_streak_state WHERE user_id = ?";
+        return this.getStreakRecord(user, query);
+    }
 
-        return 0;
+    @Override
+    public int getLongestStreak(final RegisteredUserDTO user) {
+        return this.getLongestStreak(user, "SELECT longest_daily_streak AS streaklength FROM user_streak_state WHERE user_id = ?");
     }
 
     @Override
     public Map<String, Object> getCurrentWeeklyStreakRecord(final RegisteredUserDTO user) {
 
+        String query = "SELECT CASE WHEN current_week = date_trunc('WEEK', CURRENT_DATE) THEN current_week_count ELSE 0 END AS currentprogress,"
+                + " CASE WHEN weekly_streak_end_date >= date_trunc('WEEK', CURRENT_DATE) - INTERVAL '7 DAY'"
+                + " OR user_streaks_frozen_between(user_id, weekly_streak_end_date + 7,"
+                + " (date_trunc('WEEK', CURRENT_DATE) - INTERVAL '7 DAY')::DATE, TRUE)"
+                + " THEN weekly_streak ELSE 0 END AS streaklength"
+                + " FROM user_streak_state WHERE user_id = ?";
+        return this.getStreakRecord(user, query);
+    }
+
+    @Override
+    public int getLongestWeeklyStreak(final RegisteredUserDTO user) {
+        return this.getLongestStreak(user, "SELECT longest_weekly_streak AS streaklength FROM user_streak_state WHERE user_id = ?");
+    }
+
+    /**
+     * Read the current progress and current streak of a user from their stored streak state.
+     *
+     * @param user - the registered user.
+     * @param query - a query with a single user id parameter, selecting currentprogress and streaklength.
+     * @return the current streak map object, with zero values if the user has no stored streak state.
+     */
+    private Map<String, Object> getStreakRecord(final RegisteredUserDTO user, final String query) {
+
         Map<String, Object> streakRecord = Maps.newHashMap();
         streakRecord.put("currentActivity", 0);
         streakRecord.put("currentStreak", 0);
 
-        String query = "SELECT * FROM user_streaks_weekly_current_progress(?) LEFT JOIN user_streaks_weekly(?)" +
-                " ON user_streaks_weekly_current_progress.currentweek - user_streaks_weekly.enddate <= 7" +
-                " AND user_streaks_weekly.startdate <= user_streaks_weekly_current_progress.currentweek";
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(query);
         ) {
             pst.setLong(1, user.getId());
-            pst.setLong(2, user.getId());
 
             try (ResultSet results = pst.executeQuery()) {
                 if (results.next()) {
@@ -116,10 +119,15 @@ public class PgUserStreakManager implements IUserStreaksManager {
         return streakRecord;
     }
 
-    @Override
-    public int getLongestWeeklyStreak(final RegisteredUserDTO user) {
+    /**
+     * Read the longest streak of a user from their stored streak state.
+     *
+     * @param user - the registered user.
+     * @param query - a query with a single user id parameter, selecting streaklength.
+     * @return the length of the longest streak, or zero if the user has no stored streak state.
+     */
+    private int getLongestStreak(final RegisteredUserDTO user, final String query) {
 
-        String query = "SELECT * FROM user_streaks_weekly(?) ORDER BY streaklength DESC LIMIT 1";
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(query);
         ) {
@@ -20,6 +20,7 @@ import uk.ac.cam.cl.dtg.isaac.dos.users.Role;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
 
 import jakarta.annotation.Nullable;
+import java.util.Collection;
 import java.util.Map;
 
 /**
@@ -144,6 +145,22 @@ public interface EventBookings {
      */
     Iterable<EventBooking> findAllByEventIdAndStatus(String eventId, @Nullable BookingStatus status) throws SegueDatabaseException;
 
+    /**
+     * Find all bookings for any of the given events with any of the given statuses, in a single query.
+     *
+     * Bookings belonging to deleted users are not returned.
+     *
+     * @param eventIds
+     *            - the events of interest.
+     * @param statuses
+     *            - the booking statuses that should match in the bookings returned.
+     * @return an iterable with all the bookings matching the criteria.
+     * @throws SegueDatabaseException
+     *             - if an error occurs.
+     */
+    Iterable<EventBooking> findAllByEventIdsAndStatuses(Collection<String> eventIds, Collection<BookingStatus> statuses)
+            throws SegueDatabaseException;
+
     /**
      * Find all bookings for a given event.
      * 
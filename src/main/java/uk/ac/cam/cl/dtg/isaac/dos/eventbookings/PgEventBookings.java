@@ -30,12 +30,14 @@ import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
 import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
 
 import jakarta.annotation.Nullable;
+import java.sql.Array;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Types;
+import java.util.Collection;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
@@ -527,6 +529,38 @@ public class PgEventBookings implements EventBookings {
         }
     }
 
+    @Override
+    public Iterable<EventBooking> findAllByEventIdsAndStatuses(final Collection<String> eventIds,
+                                                               final Collection<BookingStatus> statuses)
+            throws SegueDatabaseException {
+        Validate.notNull(eventIds);
+        Validate.notEmpty(statuses);
+        if (eventIds.isEmpty()) {
+            return Lists.newArrayList();
+        }
+
+        String query = "SELECT event_bookings.* FROM event_bookings JOIN users ON users.id=user_id"
+                + " WHERE event_id = ANY (?) AND status = ANY (?) AND NOT users.deleted ORDER BY event_id, user_id";
+        try (Connection conn = ds.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            Array eventIdsArray = conn.createArrayOf("text", eventIds.toArray());
+            Array statusesArray = conn.createArrayOf("text", statuses.stream().map(BookingStatus::name).toArray());
+            pst.setArray(1, eventIdsArray);
+            pst.setArray(2, statusesArray);
+
+            try (ResultSet results = pst.executeQuery()) {
+                List<EventBooking> returnResult = Lists.newArrayList();
+                while (results.next()) {
+                    returnResult.add(buildPgEventBooking(results));
+                }
+                return returnResult;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
+
     @Override
     public Iterable<EventBooking> findAllByUserId(final Long userId) throws SegueDatabaseException {
         Validate.notNull(userId);
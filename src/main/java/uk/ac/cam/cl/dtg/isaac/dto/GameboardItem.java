@@ -99,6 +99,8 @@ public class GameboardItem {
         this.setPassMark(original.getPassMark());
         this.setState(original.getState());
         this.setTags(original.getTags());
+        this.setBoardId(original.getBoardId());
+        this.setSupersededBy(original.getSupersededBy());
     }
 
     /**
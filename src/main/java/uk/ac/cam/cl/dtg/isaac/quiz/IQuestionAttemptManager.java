@@ -46,6 +46,32 @@ public interface IQuestionAttemptManager {
     Map<String, Map<String, List<QuestionValidationResponse>>> getQuestionAttempts(final Long userId)
             throws SegueDatabaseException;
 
+    /**
+     * Get a user's best attempt at each part of a single question page: their most recent correct attempt, or if they
+     * have none, their most recent attempt. Only these attempts are loaded, however many attempts the user has made.
+     *
+     * @param userId
+     *            - the id of the user to search for.
+     * @param questionPageId
+     *            - the id of the question page.
+     * @return map of question part id to the best attempt at it, or an empty map if there are no attempts.
+     * @throws SegueDatabaseException
+     *             - If there is a database error.
+     */
+    Map<String, QuestionValidationResponse> getBestQuestionAttemptsForPage(Long userId, String questionPageId)
+            throws SegueDatabaseException;
+
+    /**
+     * Get which questions a user has attempted and answered correctly, without loading the attempts themselves.
+     *
+     * @param userId
+     *            - the id of the user to search for.
+     * @return the summary of the user's attempts, which is empty if they have not yet registered any.
+     * @throws SegueDatabaseException
+     *             - If there is a database error.
+     */
+    QuestionAttemptSummary getQuestionAttemptSummary(Long userId) throws SegueDatabaseException;
+
     /**
      * A method that makes a single database request for a group of users and questions to get all of their attempt
      * information back.
@@ -87,6 +113,30 @@ public interface IQuestionAttemptManager {
      */
     Map<String, Map<String, List<QuestionValidationResponse>>> getAnonymousQuestionAttempts(String anonymousId) throws SegueDatabaseException;
 
+    /**
+     * @see #getBestQuestionAttemptsForPage(Long, String)
+     *
+     * @param anonymousId
+     *            - some anonymous identifier
+     * @param questionPageId
+     *            - the id of the question page.
+     * @return map of question part id to the best attempt at it, or an empty map if there are no attempts.
+     * @throws SegueDatabaseException
+     *             - If there is a database error.
+     */
+    Map<String, QuestionValidationResponse> getBestAnonymousQuestionAttemptsForPage(String anonymousId,
+                                                                                     String questionPageId)
+            throws SegueDatabaseException;
+
+    /**
+     * @param anonymousId
+     *            - some anonymous identifier
+     * @return the summary of the anonymous user's attempts, which is empty if they have not made any.
+     * @throws SegueDatabaseException
+     *             - If there is a database error.
+     */
+    QuestionAttemptSummary getAnonymousQuestionAttemptSummary(String anonymousId) throws SegueDatabaseException;
+
     /**
      * Convenience method to merge anonymous user question attempts with registered user records.
      * 
@@ -19,6 +19,8 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
 import com.google.api.client.util.Maps;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
@@ -38,11 +40,12 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
@@ -55,9 +58,16 @@ import static uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager.extractPageIdF
 public class PgQuestionAttempts implements IQuestionAttemptManager {
     private static final Logger log = LoggerFactory.getLogger(PgQuestionAttempts.class);
     private static final int MAX_PAGE_IDS_TO_MATCH = 200;
+    private static final long MAX_ATTEMPT_SUMMARIES_CACHED = 10000;
+    // Attempts can also be moved between users by merging accounts in the database, so only keep summaries briefly:
+    private static final long ATTEMPT_SUMMARY_CACHE_SECONDS = 30;
             
     private final PostgresSqlDb database;
     private final ObjectMapper objectMapper;
+    private final QuestionIdDictionary questionIdDictionary = new QuestionIdDictionary();
+    private final Cache<Long, QuestionAttemptSummary> attemptSummaryCache = CacheBuilder.newBuilder()
+            .maximumSize(MAX_ATTEMPT_SUMMARIES_CACHED).expireAfterWrite(ATTEMPT_SUMMARY_CACHE_SECONDS, TimeUnit.SECONDS)
+            .build();
 
     /**
      * @param ds
@@ -75,29 +85,25 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
     public void registerAnonymousQuestionAttempt(final String userId, final String questionPageId,
             final String fullQuestionId, final QuestionValidationResponse questionAttempt)
             throws SegueDatabaseException {
-        try (Connection conn = database.getDatabaseConnection()) {
-            Map<String, Map<String, List<QuestionValidationResponse>>> userAttempts = this.getAnonymousQuestionAttempts(userId);
-
-            if (null == userAttempts) {
-                userAttempts = new HashMap<>();
-            }
-
-            userAttempts.computeIfAbsent(questionPageId, k -> new HashMap<>());
 
-            userAttempts.get(questionPageId).computeIfAbsent(fullQuestionId, k -> new ArrayList<>());
-
-            userAttempts.get(questionPageId).get(fullQuestionId).add(questionAttempt);
+        String query = "INSERT INTO anonymous_question_attempts(anonymous_user_id, question_id, question_attempt,"
+                + " correct, \"timestamp\") VALUES (?, ?, ?::text::jsonb, ?, ?);";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setString(1, userId);
+            pst.setString(2, fullQuestionId);
+            pst.setString(3, objectMapper.writeValueAsString(questionAttempt));
 
-            String query = "UPDATE temporary_user_store SET temporary_app_data = " +
-                    "jsonb_set(temporary_app_data, ?::text[], ?::text::jsonb) WHERE id = ?;";
-            try (PreparedStatement pst = conn.prepareStatement(query)) {
-                pst.setString(1, "{questionAttempts}");
-                pst.setString(2, objectMapper.writeValueAsString(userAttempts));
-                pst.setString(3, userId);
+            if (questionAttempt.isCorrect() != null) {
+                pst.setBoolean(4, questionAttempt.isCorrect());
+            } else {
+                pst.setNull(4, java.sql.Types.NULL);
+            }
+            pst.setTimestamp(5, new java.sql.Timestamp(questionAttempt.getDateAttempted().getTime()));
 
-                if (pst.executeUpdate() == 0) {
-                    throw new SegueDatabaseException("Unable to save question attempt.");
-                }
+            if (pst.executeUpdate() == 0) {
+                throw new SegueDatabaseException("Unable to save question attempt.");
             }
 
         } catch (SQLException e) {
@@ -111,44 +117,36 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
      * getAnonymousQuestionAttempts.
      * @param anonymousId
      *            to lookup
-     * @return the question pageId --> full questionId --> list of responses. (or null if no data)
+     * @return the question pageId --> full questionId --> list of responses. (or an empty map if no data)
      */
     @Override
     public Map<String, Map<String, List<QuestionValidationResponse>>> getAnonymousQuestionAttempts(
             final String anonymousId) throws SegueDatabaseException {
-        String query = "SELECT temporary_app_data->'questionAttempts' AS question_attempts from temporary_user_store where id = ?;";
+        String query = "SELECT question_attempt FROM anonymous_question_attempts WHERE anonymous_user_id = ? ORDER BY id";
         try (Connection conn = database.getDatabaseConnection();
-             PreparedStatement pst = conn.prepareStatement(query, Statement.RETURN_GENERATED_KEYS);
+             PreparedStatement pst = conn.prepareStatement(query);
         ) {
             pst.setString(1, anonymousId);
 
-            try (ResultSet resultSet = pst.executeQuery()) {
-                // are there any results
-                if (!resultSet.isBeforeFirst()) {
-                    return Maps.newHashMap();
-                }
-                resultSet.next();
+            try (ResultSet results = pst.executeQuery()) {
+                // Attempts are stored in the order they were made, so use LinkedHashMap which is ordered:
+                Map<String, Map<String, List<QuestionValidationResponse>>> mapOfQuestionAttemptsByPage = Maps.newLinkedHashMap();
 
-                // We need to try and generate QuestionValidationResponses in the correct object structure - Apologies for the hideousness
-                Map<String, Map<String, List<Object>>> questionAttemptsFromDB
-                        = objectMapper.readValue(resultSet.getString("question_attempts"), Map.class);
-                Map<String, Map<String, List<QuestionValidationResponse>>> result = Maps.newHashMap();
+                while (results.next()) {
+                    QuestionValidationResponse questionAttempt = objectMapper.readValue(
+                            results.getString("question_attempt"), QuestionValidationResponse.class);
+                    String questionPageId = extractPageIdFromQuestionId(questionAttempt.getQuestionId());
+                    String questionId = questionAttempt.getQuestionId();
 
-                for (Map.Entry<String, Map<String, List<Object>>> questionAttemptsForPage : questionAttemptsFromDB.entrySet()) {
+                    Map<String, List<QuestionValidationResponse>> attemptsForThisQuestionPage
+                            = mapOfQuestionAttemptsByPage.computeIfAbsent(questionPageId, k -> Maps.newLinkedHashMap());
 
-                    Map<String, List<QuestionValidationResponse>> questionAttemptsForQuestion = Maps.newHashMap();
-                    for (Map.Entry<String, List<Object>> submap : questionAttemptsForPage.getValue().entrySet()) {
-                        List<QuestionValidationResponse> listOfuestionValidationResponses = Lists.newArrayList();
-                        questionAttemptsForQuestion.put(submap.getKey(), listOfuestionValidationResponses);
+                    List<QuestionValidationResponse> listOfResponses
+                            = attemptsForThisQuestionPage.computeIfAbsent(questionId, k -> Lists.newArrayList());
 
-                        for (Object o : submap.getValue()) {
-                            listOfuestionValidationResponses
-                                    .add(objectMapper.convertValue(o, QuestionValidationResponse.class));
-                        }
-                    }
-                    result.put(questionAttemptsForPage.getKey(), questionAttemptsForQuestion);
+                    listOfResponses.add(questionAttempt);
                 }
-                return result;
+                return mapOfQuestionAttemptsByPage;
             }
         } catch (SQLException e) {
             throw new SegueDatabaseException("Postgres exception", e);
@@ -181,6 +179,17 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
                 throw new SegueDatabaseException("Unable to save question attempt.");
             }
 
+            QuestionAttemptSummary attemptSummary = attemptSummaryCache.getIfPresent(userId);
+            if (attemptSummary != null) {
+                try (ResultSet generatedKeys = pst.getGeneratedKeys()) {
+                    if (generatedKeys.next()) {
+                        attemptSummary.recordAttempt(fullQuestionId, Boolean.TRUE.equals(questionAttempt.isCorrect()));
+                        attemptSummary.recordAttemptIds(1, generatedKeys.getLong("id"));
+                    } else {
+                        attemptSummaryCache.invalidate(userId);
+                    }
+                }
+            }
         } catch (SQLException e) {
             throw new SegueDatabaseException("Postgres exception", e);
         } catch (JsonProcessingException e) {
@@ -188,6 +197,49 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
         }
     }
 
+    @Override
+    public Map<String, QuestionValidationResponse> getBestQuestionAttemptsForPage(final Long userId,
+                                                                                  final String questionPageId)
+            throws SegueDatabaseException {
+        return this.loadBestQuestionAttemptsForPage("SELECT DISTINCT ON (question_id) question_id, question_attempt"
+                + " FROM question_attempts WHERE user_id = ? AND question_id ~>=~ ? AND question_id ~<~ ?"
+                + " ORDER BY question_id, correct IS TRUE DESC, \"timestamp\" DESC, id DESC",
+                pst -> pst.setLong(1, userId), questionPageId);
+    }
+
+    @Override
+    public Map<String, QuestionValidationResponse> getBestAnonymousQuestionAttemptsForPage(final String anonymousId,
+                                                                                           final String questionPageId)
+            throws SegueDatabaseException {
+        return this.loadBestQuestionAttemptsForPage("SELECT DISTINCT ON (question_id) question_id, question_attempt"
+                + " FROM anonymous_question_attempts"
+                + " WHERE anonymous_user_id = ? AND question_id ~>=~ ? AND question_id ~<~ ?"
+                + " ORDER BY question_id, correct IS TRUE DESC, id DESC",
+                pst -> pst.setString(1, anonymousId), questionPageId);
+    }
+
+    @Override
+    public QuestionAttemptSummary getQuestionAttemptSummary(final Long userId) throws SegueDatabaseException {
+        try {
+            return attemptSummaryCache.get(userId, () -> this.loadQuestionAttemptSummary(
+                    "SELECT question_id, bool_or(correct) AS correct, count(*) AS attempts, max(id) AS latest_attempt_id"
+                            + " FROM question_attempts WHERE user_id = ? GROUP BY question_id", pst -> pst.setLong(1, userId)));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SegueDatabaseException) {
+                throw (SegueDatabaseException) e.getCause();
+            }
+            throw new SegueDatabaseException("Unable to load question attempt summary", e);
+        }
+    }
+
+    @Override
+    public QuestionAttemptSummary getAnonymousQuestionAttemptSummary(final String anonymousId)
+            throws SegueDatabaseException {
+        return this.loadQuestionAttemptSummary(
+                "SELECT question_id, bool_or(correct) AS correct, count(*) AS attempts, max(id) AS latest_attempt_id"
+                        + " FROM anonymous_question_attempts WHERE anonymous_user_id = ? GROUP BY question_id", pst -> pst.setString(1, anonymousId));
+    }
+
     @Override
     public Map<String, Map<String, List<QuestionValidationResponse>>> getQuestionAttempts(final Long userId)
             throws SegueDatabaseException {
@@ -372,26 +424,44 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
         Validate.notNull(anonymousUserId, "Anonymous user must not be null when merging anonymousQuestion info");
         Validate.notNull(registeredUserId, "Registered user must not be null when merging anonymousQuestion info");
 
-        Map<String, Map<String, List<QuestionValidationResponse>>> anonymouslyAnsweredQuestions = this
-                .getAnonymousQuestionAttempts(anonymousUserId);
+        String query = "INSERT INTO question_attempts(user_id, question_id, question_attempt, correct, \"timestamp\")"
+                + " SELECT ?, question_id, question_attempt, correct, \"timestamp\" FROM anonymous_question_attempts"
+                + " WHERE anonymous_user_id = ? ORDER BY id;";
+        try (Connection conn = database.getDatabaseConnection()) {
+            try {
+                conn.setAutoCommit(false);
+
+                int count;
+                try (PreparedStatement pst = conn.prepareStatement(query)) {
+                    pst.setLong(1, registeredUserId);
+                    pst.setString(2, anonymousUserId);
+                    count = pst.executeUpdate();
+                }
 
-        if (anonymouslyAnsweredQuestions.isEmpty()) {
-            return;
-        }
+                // The merged attempts never went through the incremental streak update, so recalculate the streaks:
+                if (count > 0) {
+                    try (PreparedStatement rebuildStreaks = conn.prepareStatement(
+                            "SELECT user_streaks_rebuild_state(?)")) {
+                        rebuildStreaks.setLong(1, registeredUserId);
+                        rebuildStreaks.execute();
+                    }
+                }
+                conn.commit();
 
-        int count = 0;
-        for (String questionPageId : anonymouslyAnsweredQuestions.keySet()) {
-            for (String questionId : anonymouslyAnsweredQuestions.get(questionPageId).keySet()) {
-                for (QuestionValidationResponse questionResponse : anonymouslyAnsweredQuestions.get(questionPageId)
-                        .get(questionId)) {
-                    this.registerQuestionAttempt(registeredUserId, questionPageId, questionId, questionResponse);
-                    count++;
+                attemptSummaryCache.invalidate(registeredUserId);
+                if (count > 0) {
+                    log.info(String.format("Merged anonymously answered questions (%s) with known user account (%s)",
+                            count, registeredUserId));
                 }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
         }
-        
-        log.info(String.format("Merged anonymously answered questions (%s) with known user account (%s)", count,
-                registeredUserId));
     }
 
     @Override
@@ -421,8 +491,14 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
         Validate.notNull(fromDate);
         Validate.notNull(toDate);
 
+        String binSize = perDay != null && perDay ? "day" : "month";
+
         StringBuilder queryToBuild = new StringBuilder();
-        queryToBuild.append("WITH filtered_attempts AS (SELECT * FROM question_attempts WHERE user_id = ?) ");
+        // Bounding the timestamps to the bins requested lets Postgres skip partitions outside of the date range:
+        queryToBuild.append("WITH filtered_attempts AS (SELECT * FROM question_attempts WHERE user_id = ?");
+        queryToBuild.append(String.format(" AND \"timestamp\" >= date_trunc('%s', ?::timestamp)", binSize));
+        queryToBuild.append(String.format(" AND \"timestamp\" < date_trunc('%s', ?::timestamp) + INTERVAL '1 %s') ",
+                binSize, binSize));
 
         // The following LEFT JOIN gives us months with no events in as required, but need count(id) not count(1) to
         // count actual logged events (where id strictly NOT NULL) in those months, and not count an extra '1' for
@@ -443,6 +519,8 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
             pst.setLong(1, userId);
             pst.setTimestamp(2, new java.sql.Timestamp(fromDate.getTime()));
             pst.setTimestamp(3, new java.sql.Timestamp(toDate.getTime()));
+            pst.setTimestamp(4, new java.sql.Timestamp(fromDate.getTime()));
+            pst.setTimestamp(5, new java.sql.Timestamp(toDate.getTime()));
 
             try (ResultSet results = pst.executeQuery()) {
                 SimpleDateFormat formatter = new SimpleDateFormat("yyyy-MM-dd");
@@ -460,6 +538,82 @@ public class PgQuestionAttempts implements IQuestionAttemptManager {
         }
     }
 
+    /**
+     * Load the best attempt at each part of a question page.
+     *
+     * The parts of a page are found with a range of question ids rather than a LIKE prefix, since a bound prefix can
+     * only use the (user, question_id) index when Postgres plans the statement for that particular value.
+     *
+     * @param query - the query, with the user as its first parameter and the bounds of the question ids as the next two.
+     * @param userSetter - to set the user parameter of the query.
+     * @param questionPageId - the id of the question page.
+     * @return map of question part id to the best attempt at it.
+     * @throws SegueDatabaseException - if there is a database error.
+     */
+    private Map<String, QuestionValidationResponse> loadBestQuestionAttemptsForPage(
+            final String query, final StatementParameterSetter userSetter, final String questionPageId)
+            throws SegueDatabaseException {
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            userSetter.setParameters(pst);
+            // Every part id is the page id followed by the separator, and '}' is the character after '|':
+            pst.setString(2, questionPageId + ID_SEPARATOR);
+            pst.setString(3, questionPageId + (char) (ID_SEPARATOR.charAt(0) + 1));
+
+            try (ResultSet results = pst.executeQuery()) {
+                Map<String, QuestionValidationResponse> bestAttempts = Maps.newHashMap();
+                while (results.next()) {
+                    bestAttempts.put(results.getString("question_id"), objectMapper.readValue(
+                            results.getString("question_attempt"), QuestionValidationResponse.class));
+                }
+                return bestAttempts;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        } catch (IOException e) {
+            throw new SegueDatabaseException("Exception while parsing json", e);
+        }
+    }
+
+    /**
+     * Build a summary of attempts from a query returning the correctness of each question part attempted.
+     *
+     * @param query - the query, with question_id, correct, attempts and latest_attempt_id columns.
+     * @param parameterSetter - to set the parameters of the query.
+     * @return the summary of the attempts.
+     * @throws SegueDatabaseException - if there is a database error.
+     */
+    private QuestionAttemptSummary loadQuestionAttemptSummary(final String query,
+                                                              final StatementParameterSetter parameterSetter)
+            throws SegueDatabaseException {
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            parameterSetter.setParameters(pst);
+
+            try (ResultSet results = pst.executeQuery()) {
+                QuestionAttemptSummary attemptSummary = new QuestionAttemptSummary(questionIdDictionary);
+                while (results.next()) {
+                    // A part with no marked attempts has a null correctness, which getBoolean returns as false:
+                    attemptSummary.recordAttempt(results.getString("question_id"), results.getBoolean("correct"));
+                    attemptSummary.recordAttemptIds(results.getLong("attempts"), results.getLong("latest_attempt_id"));
+                }
+                return attemptSummary;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
+
+    /**
+     * Sets the parameters of a prepared statement.
+     */
+    @FunctionalInterface
+    private interface StatementParameterSetter {
+        void setParameters(PreparedStatement pst) throws SQLException;
+    }
+
     private LightweightQuestionValidationResponse resultsToLightweightValidationResponse(final ResultSet results) throws SQLException {
         LightweightQuestionValidationResponse partialQuestionAttempt = new QuestionValidationResponse();
 
@@ -0,0 +1,109 @@
+package uk.ac.cam.cl.dtg.isaac.quiz;
+
+import com.google.api.client.util.Lists;
+
+import java.util.BitSet;
+import java.util.List;
+
+import static uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager.extractPageIdFromQuestionId;
+
+/**
+ * Which question pages and parts a user has attempted, and which parts they have answered correctly.
+ *
+ * This is enough to work out question and gameboard states without loading every attempt a user has made. The sets
+ * are held as bitsets of ordinals from a QuestionIdDictionary and can be kept up to date as attempts are made.
+ *
+ * This class is threadsafe.
+ */
+public class QuestionAttemptSummary {
+    private final QuestionIdDictionary dictionary;
+    private final BitSet attemptedQuestionPages = new BitSet();
+    private final BitSet attemptedQuestionParts = new BitSet();
+    private final BitSet correctQuestionParts = new BitSet();
+    private long attemptCount = 0;
+    private long latestAttemptId = 0;
+
+    /**
+     * @param dictionary - the ordinals of question page and part ids.
+     */
+    public QuestionAttemptSummary(final QuestionIdDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Record an attempt at a question part.
+     *
+     * @param questionPartId - the full id of the question part.
+     * @param correct - whether the attempt was correct.
+     */
+    public synchronized void recordAttempt(final String questionPartId, final boolean correct) {
+        attemptedQuestionPages.set(dictionary.getOrAddOrdinal(extractPageIdFromQuestionId(questionPartId)));
+        int questionPartOrdinal = dictionary.getOrAddOrdinal(questionPartId);
+        attemptedQuestionParts.set(questionPartOrdinal);
+        if (correct) {
+            correctQuestionParts.set(questionPartOrdinal);
+        }
+    }
+
+    /**
+     * Record the database ids of attempts, so that the summary can be told apart from one of a different set of attempts.
+     *
+     * @param numberOfAttempts - how many attempts were made.
+     * @param latestAttemptId - the largest database id of the attempts.
+     */
+    public synchronized void recordAttemptIds(final long numberOfAttempts, final long latestAttemptId) {
+        this.attemptCount += numberOfAttempts;
+        this.latestAttemptId = Math.max(this.latestAttemptId, latestAttemptId);
+    }
+
+    /**
+     * @param questionPageId - the id of a question page.
+     * @return whether any part of the question page has been attempted.
+     */
+    public synchronized boolean hasAttemptedQuestionPage(final String questionPageId) {
+        int ordinal = dictionary.getOrdinal(questionPageId);
+        return ordinal >= 0 && attemptedQuestionPages.get(ordinal);
+    }
+
+    /**
+     * @param questionPartId - the full id of a question part.
+     * @return whether the question part has been attempted.
+     */
+    public synchronized boolean hasAttemptedQuestionPart(final String questionPartId) {
+        int ordinal = dictionary.getOrdinal(questionPartId);
+        return ordinal >= 0 && attemptedQuestionParts.get(ordinal);
+    }
+
+    /**
+     * @param questionPartId - the full id of a question part.
+     * @return whether any attempt at the question part was correct.
+     */
+    public synchronized boolean isQuestionPartCorrect(final String questionPartId) {
+        int ordinal = dictionary.getOrdinal(questionPartId);
+        return ordinal >= 0 && correctQuestionParts.get(ordinal);
+    }
+
+    /**
+     * @return the ids of every question page which has been attempted.
+     */
+    public synchronized List<String> getAttemptedQuestionPageIds() {
+        List<String> questionPageIds = Lists.newArrayList();
+        attemptedQuestionPages.stream().forEach(ordinal -> questionPageIds.add(dictionary.getId(ordinal)));
+        return questionPageIds;
+    }
+
+    /**
+     * @return whether no questions have been attempted.
+     */
+    public synchronized boolean isEmpty() {
+        return attemptedQuestionParts.isEmpty();
+    }
+
+    /**
+     * @return an identifier of the attempts summarised, taken from the database, e.g. for use in an ETag; it changes
+     * whenever an attempt is made, and when attempts are merged in from another account.
+     */
+    public synchronized String getAttemptsVersion() {
+        return attemptCount + "-" + latestAttemptId;
+    }
+}
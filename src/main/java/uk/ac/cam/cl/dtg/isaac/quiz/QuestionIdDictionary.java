@@ -0,0 +1,55 @@
+package uk.ac.cam.cl.dtg.isaac.quiz;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Gives each question page and question part id a small integer ordinal, so that sets of questions can be held as
+ * bitsets.
+ *
+ * Ordinals are only ever added, so bitsets built from them stay valid when the content version changes; an id which
+ * is no longer in the content just keeps its ordinal. The ordinals are only meaningful within this process.
+ *
+ * This class is threadsafe.
+ */
+public class QuestionIdDictionary {
+    private final Map<String, Integer> ordinalsById = new ConcurrentHashMap<>();
+    private final List<String> idsByOrdinal = new ArrayList<>();
+
+    /**
+     * @param id - a question page or question part id.
+     * @return the ordinal for the id, which is added if it is new.
+     */
+    public int getOrAddOrdinal(final String id) {
+        Integer ordinal = ordinalsById.get(id);
+        if (ordinal != null) {
+            return ordinal;
+        }
+        synchronized (idsByOrdinal) {
+            return ordinalsById.computeIfAbsent(id, (newId) -> {
+                idsByOrdinal.add(newId);
+                return idsByOrdinal.size() - 1;
+            });
+        }
+    }
+
+    /**
+     * @param id - a question page or question part id.
+     * @return the ordinal for the id, or -1 if it has not been added.
+     */
+    public int getOrdinal(final String id) {
+        return ordinalsById.getOrDefault(id, -1);
+    }
+
+    /**
+     * @param ordinal - an ordinal returned by this dictionary.
+     * @return the id with that ordinal.
+     */
+    public String getId(final int ordinal) {
+        synchronized (idsByOrdinal) {
+            return idsByOrdinal.get(ordinal);
+        }
+    }
+}
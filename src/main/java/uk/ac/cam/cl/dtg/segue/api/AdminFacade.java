@@ -15,8 +15,6 @@
  */
 package uk.ac.cam.cl.dtg.segue.api;
 
-import com.fasterxml.jackson.core.JsonParseException;
-import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Maps;
 import com.google.common.collect.ImmutableMap;
@@ -43,9 +41,11 @@ import uk.ac.cam.cl.dtg.segue.api.managers.IExternalAccountManager;
 import uk.ac.cam.cl.dtg.segue.api.managers.SegueResourceMisuseException;
 import uk.ac.cam.cl.dtg.segue.api.managers.StatisticsManager;
 import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
+import uk.ac.cam.cl.dtg.segue.api.monitors.HotKeyTracker;
 import uk.ac.cam.cl.dtg.segue.api.monitors.IMisuseMonitor;
 import uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics;
 import uk.ac.cam.cl.dtg.segue.api.monitors.UserSearchMisuseHandler;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentWarmUpService;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserException;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserLoggedInException;
 import uk.ac.cam.cl.dtg.segue.comm.EmailType;
@@ -98,13 +98,19 @@ import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
-import java.util.function.Function;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.stream.Collectors;
 
 import static uk.ac.cam.cl.dtg.isaac.api.Constants.*;
 import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.HOT_KEY_METRICS_COLLECTOR;
 
 /**
  * Admin facade for segue.
@@ -116,6 +122,7 @@ import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
 @Tag(name = "/admin")
 public class AdminFacade extends AbstractSegueFacade {
     private static final Logger log = LoggerFactory.getLogger(AdminFacade.class);
+    private static final long MAX_LIVE_VERSION_WARM_UP_WAIT_SECONDS = 10;
 
     private final UserAccountManager userManager;
     private final GitContentManager contentManager;
@@ -132,6 +139,7 @@ public class AdminFacade extends AbstractSegueFacade {
     private final IExternalAccountManager externalAccountManager;
     private final IMisuseMonitor misuseMonitor;
     private final SegueJobService segueJobService;
+    private final ContentWarmUpService contentWarmUpService;
 
     /**
      * Create an instance of the administrators facade.
@@ -154,6 +162,8 @@ public class AdminFacade extends AbstractSegueFacade {
      *            - for using the event booking system
      * @param misuseMonitor
      *            - misuse monitor.
+     * @param contentWarmUpService
+     *            - so that a new live content version can be warmed before it goes live.
      */
     @Inject
     public AdminFacade(final PropertiesLoader properties, final UserAccountManager userManager,
@@ -161,7 +171,8 @@ public class AdminFacade extends AbstractSegueFacade {
                        final StatisticsManager statsManager, final LocationManager locationManager,
                        final SchoolListReader schoolReader, final AbstractUserPreferenceManager userPreferenceManager,
                        final EventBookingManager eventBookingManager, final SegueJobService segueJobService,
-                       final IExternalAccountManager externalAccountManager, final IMisuseMonitor misuseMonitor) {
+                       final IExternalAccountManager externalAccountManager, final IMisuseMonitor misuseMonitor,
+                       final ContentWarmUpService contentWarmUpService) {
         super(properties, logManager);
         this.userManager = userManager;
         this.contentManager = contentManager;
@@ -174,6 +185,7 @@ public class AdminFacade extends AbstractSegueFacade {
         this.externalAccountManager = externalAccountManager;
         this.misuseMonitor = misuseMonitor;
         this.segueJobService = segueJobService;
+        this.contentWarmUpService = contentWarmUpService;
     }
 
     /**
@@ -204,6 +216,34 @@ public class AdminFacade extends AbstractSegueFacade {
         }
     }
 
+    /**
+     * Hot keys endpoint, listing the content, gameboards and endpoints requested most often from this server recently.
+     *
+     * @param request
+     *            - to determine access.
+     * @return the hottest keys of each tracker, with estimates of their recent request counts.
+     */
+    @GET
+    @Path("/stats/hot_keys")
+    @Produces(MediaType.APPLICATION_JSON)
+    @GZIP
+    public Response getHotKeys(@Context final HttpServletRequest request) {
+        try {
+            if (!isUserAnAdmin(userManager, request)) {
+                return new SegueErrorResponse(Status.FORBIDDEN, "You must be an admin to access this endpoint.")
+                        .toResponse();
+            }
+
+            Map<String, Map<String, Long>> hotKeys = Maps.newHashMap();
+            for (Map.Entry<String, HotKeyTracker> tracker : HOT_KEY_METRICS_COLLECTOR.getTrackers().entrySet()) {
+                hotKeys.put(tracker.getKey(), tracker.getValue().getTopKeys());
+            }
+            return Response.ok(hotKeys).cacheControl(getCacheControl(NEVER_CACHE_WITHOUT_ETAG_CHECK, false)).build();
+        } catch (NoUserLoggedInException e) {
+            return SegueErrorResponse.getNotLoggedInResponse();
+        }
+    }
+
     /**
      * This method will allow users to be mass-converted to a new role.
      * 
@@ -753,6 +793,11 @@ public class AdminFacade extends AbstractSegueFacade {
      *            - if searching by school by the URN.
      * @param subjectOfInterest
      *            - if searching by subject interest
+     * @param limit
+     *            - the maximum number of users to return in this page of results, or every match up to the hard
+     *            limit if not given.
+     * @param afterUserId
+     *            - the id of the last user on the previous page, from its page header, if any.
      * @return a userDTO or a segue error response
      */
     @GET
@@ -766,7 +811,9 @@ public class AdminFacade extends AbstractSegueFacade {
             @QueryParam("postcode") @Nullable final String postcode,
             @QueryParam("postcodeRadius") @Nullable final String postcodeRadius,
             @QueryParam("schoolURN") @Nullable final String schoolURN,
-            @QueryParam("subjectOfInterest") @Nullable final String subjectOfInterest) {
+            @QueryParam("subjectOfInterest") @Nullable final String subjectOfInterest,
+            @QueryParam("limit") @Nullable final Integer limit,
+            @QueryParam("after") @Nullable final Long afterUserId) {
 
         RegisteredUserDTO currentUser;
         try {
@@ -832,7 +879,14 @@ public class AdminFacade extends AbstractSegueFacade {
                 userPrototype.setSchoolId(schoolURN);
             }
 
+            int searchResultsLimit;
+            try {
+                searchResultsLimit = Integer.parseInt(this.getProperties().getProperty(Constants.SEARCH_RESULTS_HARD_LIMIT));
+            } catch(NumberFormatException e) {
+                searchResultsLimit = 2000; // Hard-coded, but only as a fail-safe.
+            }
             List<RegisteredUserDTO> foundUsers;
+            Long nextPageAfterUserId = null;
 
             // If a unique email address (without wildcards) provided, look up using this email immediately:
             if (null != email && !email.isEmpty() && !(email.contains("%") || email.contains("_"))) {
@@ -842,119 +896,129 @@ public class AdminFacade extends AbstractSegueFacade {
                     foundUsers = Collections.emptyList();
                 }
             } else {
-                foundUsers = this.userManager.findUsers(userPrototype);
-            }
-            Map<Long, RegisteredUserDTO> userMapById = foundUsers.parallelStream().collect(Collectors.toMap(RegisteredUserDTO::getId, Function.identity()));
-
-            // if postcode is set, filter found users
-            if (null != postcode) {
+                // Without a limit, every match up to the hard limit is returned, as before searches were paged:
+                UserSearchPage page = new UserSearchPage(afterUserId, limit, searchResultsLimit);
                 try {
-                    Map<String, List<Long>> postCodeAndUserIds = Maps.newHashMap();
-                    for (RegisteredUserDTO userDTO : foundUsers) {
-                        if (userDTO.getSchoolId() != null) {
-                            School school = this.schoolReader.findSchoolById(userDTO.getSchoolId());
-                            if (school != null) {
-                                String schoolPostCode = school.getPostcode();
-                                if (null == schoolPostCode || schoolPostCode.isEmpty()) {
-                                    continue;
-                                }
-                                List<Long> ids;
-                                if (postCodeAndUserIds.containsKey(schoolPostCode)) {
-                                    ids = postCodeAndUserIds.get(schoolPostCode);
-                                } else {
-                                    ids = Lists.newArrayList();
-                                }
-                                ids.add(userDTO.getId());
-                                postCodeAndUserIds.put(schoolPostCode, ids);
-                            }
-                        }
+                    while (page.needsMoreUsers()) {
+                        List<RegisteredUserDTO> batch = this.userManager.findUsers(userPrototype,
+                                page.getLastUserFoundId(), page.getBatchSize());
+                        page.addBatch(batch, this.filterUsers(batch, postcode, postcodeRadius, subjectOfInterest));
                     }
-
-                    PostCodeRadius radius = PostCodeRadius.valueOf(postcodeRadius);
-
-                    List<Long> userIdsWithinRadius = locationManager.getUsersWithinPostCodeDistanceOf(
-                            postCodeAndUserIds, postcode, radius);
-
-                    // Make sure the list returned is users who have schools in our postcode radius
-                    List<RegisteredUserDTO> nearbyUsers = new ArrayList<>();
-                    for (Long id : userIdsWithinRadius) {
-                        RegisteredUserDTO user = userMapById.get(id); //this.userManager.getUserDTOById(id);
-                        if (user != null) {
-                            nearbyUsers.add(user);
-                        }
-                    }
-                    foundUsers = nearbyUsers;
-
-                } catch (LocationServerException e) {
-                    log.error("Location service unavailable. ", e);
-                    return new SegueErrorResponse(Status.SERVICE_UNAVAILABLE,
-                            "Unable to process request using 3rd party location provider").toResponse();
-                } catch (UnableToIndexSchoolsException | SegueSearchException e) {
-                    log.error("Unable to get school statistics", e);
-                    return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                            "Unable to process schools information").toResponse();
-                } catch (JsonParseException | JsonMappingException e) {
-                    log.error("Problem parsing school", e);
-                    return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR, "Unable to read school")
+                } catch (NoUserException e) {
+                    return new SegueErrorResponse(Status.BAD_REQUEST,
+                            "The user these results follow no longer exists, so the search must be restarted.")
                             .toResponse();
-                } catch (IOException e) {
-                    log.error("Problem parsing school", e);
-                    return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                            "IOException while trying to communicate with the school service.").toResponse();
                 }
-            }
-
-            // FIXME - this shouldn't really be in a segue class!
-            if (subjectOfInterest != null && !subjectOfInterest.isEmpty()) {
-                List<RegisteredUserDTO> subjectFilteredUsers = new ArrayList<>();
-                Map<Long, List<UserPreference>> userPreferences = userPreferenceManager.getUserPreferences(IsaacUserPreferences.SUBJECT_INTEREST.name(), foundUsers);
-
-                for (RegisteredUserDTO userToFilter: foundUsers) {
-                    if (userPreferences.containsKey(userToFilter.getId())) {
-                        for (UserPreference pref : userPreferences.get(userToFilter.getId())) {
-                            if (pref.getPreferenceName().equals(subjectOfInterest) && pref.getPreferenceValue()) {
-                                subjectFilteredUsers.add(userToFilter);
-                            }
-                        }
-                    }
-                }
-                foundUsers = subjectFilteredUsers;
+                foundUsers = page.getUsers();
+                nextPageAfterUserId = page.getNextPageAfterUserId();
             }
 
             // Calculate the ETag
             EntityTag etag = new EntityTag(foundUsers.size() + foundUsers.toString().hashCode()
-                    + userPrototype.toString().hashCode() + "");
+                    + userPrototype.toString().hashCode() + "" + nextPageAfterUserId);
 
             Response cachedResponse = generateCachedResponse(request, etag);
             if (cachedResponse != null) {
                 return cachedResponse;
             }
 
-            int searchResultsLimit;
-            try {
-                searchResultsLimit = Integer.parseInt(this.getProperties().getProperty(Constants.SEARCH_RESULTS_HARD_LIMIT));
-            } catch(NumberFormatException e) {
-                searchResultsLimit = 2000; // Hard-coded, but only as a fail-safe.
-            }
-
-            if (foundUsers.size() > searchResultsLimit) {
-                log.warn(String.format("%s user (%s) search returned %d results, limiting to " + searchResultsLimit + ".",
-                        currentUser.getRole(), currentUser.getEmail(), foundUsers.size()));
-                foundUsers = foundUsers.subList(0, searchResultsLimit);
-            }
             log.info(String.format("%s user (%s) did a search across all users based on user prototype {%s}",
                     currentUser.getRole(), currentUser.getEmail(), userPrototype));
 
-            return Response.ok(this.userManager.convertToDetailedUserSummaryObjectList(foundUsers, UserSummaryForAdminUsersDTO.class))
+            Response.ResponseBuilder response = Response.ok(this.userManager.convertToDetailedUserSummaryObjectList(foundUsers, UserSummaryForAdminUsersDTO.class))
                     .tag(etag)
-                    .cacheControl(getCacheControl(NEVER_CACHE_WITHOUT_ETAG_CHECK, false))
-                    .build();
+                    .cacheControl(getCacheControl(NEVER_CACHE_WITHOUT_ETAG_CHECK, false));
+            if (nextPageAfterUserId != null) {
+                response.header(NEXT_PAGE_AFTER_HEADER, nextPageAfterUserId);
+            }
+            return response.build();
+        } catch (LocationServerException e) {
+            log.error("Location service unavailable. ", e);
+            return new SegueErrorResponse(Status.SERVICE_UNAVAILABLE,
+                    "Unable to process request using 3rd party location provider").toResponse();
+        } catch (UnableToIndexSchoolsException | SegueSearchException e) {
+            log.error("Unable to get school statistics", e);
+            return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                    "Unable to process schools information").toResponse();
         } catch (SegueDatabaseException e) {
             return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
                     "Database error while looking up user information.").toResponse();
         }
     }
 
+    /**
+     * Filter users found by a search by the location of their school and by their subjects of interest.
+     *
+     * @param users
+     *            - the users to filter.
+     * @param postcode
+     *            - if filtering by postcode.
+     * @param postcodeRadius
+     *            - the distance from the postcode to filter by.
+     * @param subjectOfInterest
+     *            - if filtering by subject interest.
+     * @return the users matching the filters, in their original order.
+     * @throws LocationServerException
+     *             - if the location service is unavailable.
+     * @throws UnableToIndexSchoolsException
+     *             - if the school list cannot be read.
+     * @throws SegueSearchException
+     *             - if the school list cannot be searched.
+     * @throws SegueDatabaseException
+     *             - if the user preferences cannot be read.
+     */
+    private List<RegisteredUserDTO> filterUsers(final List<RegisteredUserDTO> users, @Nullable final String postcode,
+                                                @Nullable final String postcodeRadius,
+                                                @Nullable final String subjectOfInterest)
+            throws LocationServerException, UnableToIndexSchoolsException, SegueSearchException,
+            SegueDatabaseException {
+        List<RegisteredUserDTO> foundUsers = users;
+
+        // if postcode is set, filter found users
+        if (null != postcode) {
+            Set<String> schoolURNs = foundUsers.stream().map(RegisteredUserDTO::getSchoolId)
+                    .filter(Objects::nonNull).collect(Collectors.toSet());
+            Map<String, String> schoolPostCodes = this.schoolReader.findSchoolPostcodesById(schoolURNs);
+
+            Map<String, List<Long>> postCodeAndUserIds = Maps.newHashMap();
+            for (RegisteredUserDTO userDTO : foundUsers) {
+                String schoolPostCode = schoolPostCodes.get(userDTO.getSchoolId());
+                if (null == schoolPostCode) {
+                    continue;
+                }
+                postCodeAndUserIds.computeIfAbsent(schoolPostCode, k -> Lists.newArrayList())
+                        .add(userDTO.getId());
+            }
+
+            PostCodeRadius radius = PostCodeRadius.valueOf(postcodeRadius);
+
+            Set<Long> userIdsWithinRadius = new HashSet<>(locationManager.getUsersWithinPostCodeDistanceOf(
+                    postCodeAndUserIds, postcode, radius));
+
+            // Make sure the list returned is users who have schools in our postcode radius
+            foundUsers = foundUsers.stream().filter(user -> userIdsWithinRadius.contains(user.getId()))
+                    .collect(Collectors.toList());
+        }
+
+        // FIXME - this shouldn't really be in a segue class!
+        if (subjectOfInterest != null && !subjectOfInterest.isEmpty()) {
+            List<RegisteredUserDTO> subjectFilteredUsers = new ArrayList<>();
+            Map<Long, List<UserPreference>> userPreferences = userPreferenceManager.getUserPreferences(IsaacUserPreferences.SUBJECT_INTEREST.name(), foundUsers);
+
+            for (RegisteredUserDTO userToFilter: foundUsers) {
+                if (userPreferences.containsKey(userToFilter.getId())) {
+                    for (UserPreference pref : userPreferences.get(userToFilter.getId())) {
+                        if (pref.getPreferenceName().equals(subjectOfInterest) && pref.getPreferenceValue()) {
+                            subjectFilteredUsers.add(userToFilter);
+                        }
+                    }
+                }
+            }
+            foundUsers = subjectFilteredUsers;
+        }
+        return foundUsers;
+    }
+
     /**
      * Get a user by id or email.
      * 
@@ -1117,6 +1181,15 @@ public class AdminFacade extends AbstractSegueFacade {
 
                 String oldLiveVersion = contentManager.getCurrentContentSHA();
 
+                // Start loading the most viewed content of the new version in the background, so this server isn't
+                // cold once it goes live, but don't hold up the request for long if the warm up is slow:
+                Future<?> warmUp = contentWarmUpService.warmUpContentVersionInBackground(version);
+                try {
+                    warmUp.get(MAX_LIVE_VERSION_WARM_UP_WAIT_SECONDS, TimeUnit.SECONDS);
+                } catch (TimeoutException e) {
+                    log.info("Changing live version to " + version + " before it has been fully warmed.");
+                }
+
                 HttpClient httpClient = new DefaultHttpClient();
 
                 HttpPost httpPost = new HttpPost("http://" + getProperties().getProperty("ETL_HOSTNAME") + ":"
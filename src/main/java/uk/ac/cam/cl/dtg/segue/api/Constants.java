@@ -124,6 +124,17 @@ public final class Constants {
     // The actual git commit SHA of the content we're using
     public static final String CONTENT_SHA = "CONTENT_SHA";
 
+    // The number of database and search queries a single request can make before a warning is logged
+    public static final String REQUEST_QUERY_BUDGET = "REQUEST_QUERY_BUDGET";
+
+    // Whether to serve content searches from an in-memory copy of the live content index
+    public static final String IN_MEMORY_CONTENT_SEARCH = "IN_MEMORY_CONTENT_SEARCH";
+
+    // The memory that password hashes running at the same time may use, and how many hashes may wait for it and for how long
+    public static final String PASSWORD_HASHING_MEMORY_BUDGET_MB = "PASSWORD_HASHING_MEMORY_BUDGET_MB";
+    public static final String PASSWORD_HASHING_MAX_QUEUED = "PASSWORD_HASHING_MAX_QUEUED";
+    public static final String PASSWORD_HASHING_QUEUE_TIMEOUT_MS = "PASSWORD_HASHING_QUEUE_TIMEOUT_MS";
+
     /**
      * Constant representing the segue application mode. e.g. either debug or production
      */
@@ -201,6 +212,12 @@ public final class Constants {
 
     public static final String EVENT_PRE_POST_EMAILS = "EVENT_PRE_POST_EMAILS";
 
+    // Partitioning of logged_events and question_attempts; partitions are only archived if a retention is configured.
+    public static final String LOGGED_EVENTS_RETENTION_MONTHS = "LOGGED_EVENTS_RETENTION_MONTHS";
+    public static final String QUESTION_ATTEMPTS_RETENTION_MONTHS = "QUESTION_ATTEMPTS_RETENTION_MONTHS";
+    public static final String PARTITION_ARCHIVE_LOCATION = "PARTITION_ARCHIVE_LOCATION";
+    public static final int PARTITION_MONTHS_TO_CREATE_AHEAD = 3;
+
     // MailGun Key
     public static final String MAILGUN_SECRET_KEY = "MAILGUN_SECRET_KEY";
 
@@ -407,6 +424,8 @@ public final class Constants {
 
     public static final String DEFAULT_SEARCH_RESULT_LIMIT_AS_STRING = "25";
 
+    public static final String NEXT_PAGE_AFTER_HEADER = "X-Next-Page-After";
+
     public static final Integer SEARCH_TEXT_CHAR_LIMIT = 1000;
 
     public static final Integer NO_SEARCH_LIMIT = -1;
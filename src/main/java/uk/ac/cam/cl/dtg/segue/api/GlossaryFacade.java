@@ -17,12 +17,14 @@
 package uk.ac.cam.cl.dtg.segue.api;
 
 import com.google.api.client.util.Lists;
+import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
 import com.google.inject.name.Named;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentResponseCache;
 import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentManagerException;
 import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
@@ -36,12 +38,16 @@ import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
-import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
 import jakarta.ws.rs.core.Response.Status;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
 
@@ -57,26 +63,32 @@ public class GlossaryFacade extends AbstractSegueFacade {
     private static final Logger log = LoggerFactory.getLogger(GlossaryFacade.class);
 
     private final GitContentManager contentManager;
+    private final ContentResponseCache contentResponseCache;
     private final String contentIndex;
 
     /**
      * @param properties     - to allow access to system properties.
      * @param contentManager - so that metadata about content can be accessed.
+     * @param contentResponseCache - so that responses can be served from the cache.
      * @param contentIndex   - to access the right version of the content.
      * @param logManager     - for logging events using the logging api.
      */
     @Inject
     public GlossaryFacade(final PropertiesLoader properties, final GitContentManager contentManager,
+                          final ContentResponseCache contentResponseCache,
                           @Named(CONTENT_INDEX) final String contentIndex,
                           final ILogManager logManager) {
         super(properties, logManager);
         this.contentManager = contentManager;
+        this.contentResponseCache = contentResponseCache;
         this.contentIndex = contentIndex;
     }
 
     /**
      * Gets all the glossary terms that are indexed.
      *
+     * @param request    - so that we can deal with caching.
+     * @param headers    - so we can tell whether the client accepts a gzipped response.
      * @param limit      - Maximum amount of terms to retrieve. Used for pagination.
      * @param startIndex - Index from which to start retrieving when results exceed limit.
      *
@@ -86,44 +98,51 @@ public class GlossaryFacade extends AbstractSegueFacade {
     @Path("terms")
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Get all the glossary terms that are indexed.")
-    public final Response getTerms(@QueryParam("start_index") final String startIndex,
+    public final Response getTerms(@Context final Request request, @Context final HttpHeaders headers,
+                                   @QueryParam("start_index") final String startIndex,
                                    @QueryParam("limit") final String limit) {
 
         List<GitContentManager.BooleanSearchClause> fieldsToMatch = Lists.newArrayList();
         fieldsToMatch.add(new GitContentManager.BooleanSearchClause(
                 TYPE_FIELDNAME, BooleanOperator.AND, Collections.singletonList("glossaryTerm")));
 
-        ResultsWrapper<ContentDTO> c;
-        try {
-            int resultsLimit;
-            int startIndexOfResults;
-
-            if (null != limit) {
-                resultsLimit = Integer.parseInt(limit);
-            } else {
-                resultsLimit = DEFAULT_RESULTS_LIMIT;
-            }
-
-            if (null != startIndex) {
-                startIndexOfResults = Integer.parseInt(startIndex);
-            } else {
-                startIndexOfResults = 0;
-            }
-
-            c = this.contentManager.findByFieldNames(fieldsToMatch, startIndexOfResults, resultsLimit);
-        } catch (ContentManagerException e) {
-            return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                    "Content acquisition error.", e).toResponse();
+        int resultsLimit;
+        int startIndexOfResults;
+
+        if (null != limit) {
+            resultsLimit = Integer.parseInt(limit);
+        } else {
+            resultsLimit = DEFAULT_RESULTS_LIMIT;
+        }
+
+        if (null != startIndex) {
+            startIndexOfResults = Integer.parseInt(startIndex);
+        } else {
+            startIndexOfResults = 0;
         }
-        // Calculate the ETag on last modified date of tags list
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + "");
-        return Response.ok(c).tag(etag).cacheControl(getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, true)).build();
+
+        Map<String, Object> requestParameters = new HashMap<>();
+        requestParameters.put("start_index", startIndexOfResults);
+        requestParameters.put("limit", resultsLimit);
+
+        return contentResponseCache.getResponse(request, headers, "getTerms", requestParameters,
+                getCacheControl(NUMBER_SECONDS_IN_TEN_MINUTES, true), () -> {
+                    try {
+                        ResultsWrapper<ContentDTO> c = this.contentManager.findByFieldNames(fieldsToMatch,
+                                startIndexOfResults, resultsLimit);
+                        return Response.ok(c).build();
+                    } catch (ContentManagerException e) {
+                        return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                                "Content acquisition error.", e).toResponse();
+                    }
+                });
     }
 
     /**
      * Gets the current version of the segue application.
      *
+     * @param request - so that we can deal with caching.
+     * @param headers - so we can tell whether the client accepts a gzipped response.
      * @param term_id - The ID of the term to retrieve.
      *
      * @return segue version as a string wrapped in a response.
@@ -132,27 +151,29 @@ public class GlossaryFacade extends AbstractSegueFacade {
     @Path("terms/{term_id}")
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Get the term with the given id.")
-    public final Response getTermById(@PathParam("term_id") final String term_id) {
+    public final Response getTermById(@Context final Request request, @Context final HttpHeaders headers,
+                                      @PathParam("term_id") final String term_id) {
 
         if (null == term_id) {
             return new SegueErrorResponse(Status.BAD_REQUEST, "Please specify a term_id.").toResponse();
         }
 
-        ResultsWrapper<ContentDTO> c;
-        try {
-            c = this.contentManager.getByIdPrefix(term_id, 0, 10000);
-            if (null == c) {
-                SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "No glossary term found with id: " + term_id);
-                log.debug(error.getErrorMessage());
-                return error.toResponse();
-            }
-        } catch (ContentManagerException e) {
-            return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
-                    "Content acquisition error.", e).toResponse();
-        }
-        // Calculate the ETag on last modified date of tags list
-        // NOTE: Assumes that the latest version of the content is being used.
-        EntityTag etag = new EntityTag(this.contentManager.getCurrentContentSHA().hashCode() + "");
-        return Response.ok(c).tag(etag).build();
+        // As before, no Cache-Control is sent, so clients revalidate with the ETag every time:
+        return contentResponseCache.getResponse(request, headers, "getTermById", ImmutableMap.of("id", term_id),
+                null, () -> {
+                    try {
+                        ResultsWrapper<ContentDTO> c = this.contentManager.getByIdPrefix(term_id, 0, 10000);
+                        if (null == c) {
+                            SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND,
+                                    "No glossary term found with id: " + term_id);
+                            log.debug(error.getErrorMessage());
+                            return error.toResponse();
+                        }
+                        return Response.ok(c).build();
+                    } catch (ContentManagerException e) {
+                        return new SegueErrorResponse(Status.INTERNAL_SERVER_ERROR,
+                                "Content acquisition error.", e).toResponse();
+                    }
+                });
     }
 }
\ No newline at end of file
@@ -27,6 +27,7 @@ import org.apache.http.impl.client.DefaultHttpClient;
 import org.jboss.resteasy.annotations.GZIP;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentWarmUpService;
 import uk.ac.cam.cl.dtg.segue.configuration.SegueGuiceConfigurationModule;
 import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
 import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
@@ -61,22 +62,28 @@ public class InfoFacade extends AbstractSegueFacade {
 
     private final GitContentManager contentManager;
     private final SegueJobService segueJobService;
+    private final ContentWarmUpService contentWarmUpService;
 
     /**
      * @param properties
      *            - to allow access to system properties.
      * @param contentManager
      *            - So that metadata about content can be accessed.
+     * @param segueJobService
+     *            - so that the status of the job scheduler can be checked.
+     * @param contentWarmUpService
+     *            - so that readiness can wait for the content caches to be warmed.
      * @param logManager
      *            - for logging events using the logging api.
      */
     @Inject
     public InfoFacade(final PropertiesLoader properties, final GitContentManager contentManager,
-                      final SegueJobService segueJobService,
+                      final SegueJobService segueJobService, final ContentWarmUpService contentWarmUpService,
                       final ILogManager logManager) {
         super(properties, logManager);
         this.contentManager = contentManager;
         this.segueJobService = segueJobService;
+        this.contentWarmUpService = contentWarmUpService;
     }
 
     /**
@@ -275,6 +282,25 @@ public class InfoFacade extends AbstractSegueFacade {
 
     }
 
+    /**
+     * This method checks whether the API is ready to serve traffic, i.e. whether the caches for the content version
+     * live at startup have been warmed.
+     *
+     * @return json ready true with a 200, or ready false with a 503 so that load balancers hold off.
+     */
+    @GET
+    @Path("ready")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Operation(summary = "Check whether the API is ready to serve the live content version.")
+    public Response checkReadiness() {
+        if (contentWarmUpService.isReady()) {
+            return Response.ok(ImmutableMap.of("ready", true)).build();
+        } else {
+            return Response.status(Response.Status.SERVICE_UNAVAILABLE).entity(ImmutableMap.of("ready", false))
+                    .build();
+        }
+    }
+
     /**
      * This method checks the status of the Quartz job service.
      *
@@ -61,6 +61,7 @@ import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserException;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserLoggedInException;
 import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentLoader;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentManagerException;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
 import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
@@ -250,10 +251,13 @@ public class QuestionFacade extends AbstractSegueFacade {
             return new SegueErrorResponse(Status.BAD_REQUEST, "No answer received.").toResponse();
         }
 
+        // The page is needed too, to check whether the question is part of a quiz, so load both together:
+        String questionPageId = extractPageIdFromQuestionId(questionId);
+        ContentLoader contentLoader = this.contentManager.createContentLoader().prefetch(questionId, questionPageId);
+
         Content contentBasedOnId;
         try {
-            contentBasedOnId = this.contentManager.getContentDOById(
-                    questionId);
+            contentBasedOnId = contentLoader.getContentDOById(questionId);
         } catch (ContentManagerException e1) {
             SegueErrorResponse error = new SegueErrorResponse(Status.NOT_FOUND, "Error locating the version requested",
                     e1);
@@ -272,10 +276,9 @@ public class QuestionFacade extends AbstractSegueFacade {
         }
 
         // Prevent attempting a question through this endpoint if this question is part of a quiz.
-        String questionPageId = extractPageIdFromQuestionId(questionId);
         Content pageContent;
         try {
-            pageContent = this.contentManager.getContentDOById(questionPageId);
+            pageContent = contentLoader.getContentDOById(questionPageId);
             if (pageContent instanceof IsaacQuiz) {
                 return new SegueErrorResponse(Status.FORBIDDEN, "This question is part of a quiz").toResponse();
             }
@@ -340,6 +343,11 @@ public class QuestionFacade extends AbstractSegueFacade {
 
             // Update the user in case their streak has changed:
             if (currentUser instanceof RegisteredUserDTO) {
+                if (response.getEntity() instanceof QuestionValidationResponseDTO
+                        && Boolean.TRUE.equals(((QuestionValidationResponseDTO) response.getEntity()).isCorrect())) {
+                    this.userStreaksManager.recordCorrectQuestionAttempt((RegisteredUserDTO) currentUser,
+                            ((QuestionValidationResponseDTO) response.getEntity()).getQuestionId());
+                }
                 this.userStreaksManager.notifyUserOfStreakChange((RegisteredUserDTO) currentUser);
             }
 
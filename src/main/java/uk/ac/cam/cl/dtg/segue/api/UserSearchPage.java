@@ -0,0 +1,92 @@
+package uk.ac.cam.cl.dtg.segue.api;
+
+import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+
+import jakarta.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Collects one page of the results of a user search, where some users found by the database may be filtered out.
+ *
+ * Users are read from the database in batches after the last user found so far, and the users of each batch which
+ * match the filters are added until the page is full; so a page is only ever short if there are no more matches, and
+ * a next page is only offered after a full page.
+ */
+class UserSearchPage {
+    private final int pageSize;
+    private final List<RegisteredUserDTO> users = new ArrayList<>();
+    private Long lastUserFoundId;
+    private Long nextPageAfterUserId = null;
+    private boolean moreUsers = true;
+
+    /**
+     * @param afterUserId - the id of the last user on the previous page, or null for the first page.
+     * @param limit - the page size asked for, or null to return every match up to the hard limit.
+     * @param hardLimit - the largest page size allowed.
+     */
+    UserSearchPage(@Nullable final Long afterUserId, @Nullable final Integer limit, final int hardLimit) {
+        this.lastUserFoundId = afterUserId;
+        this.pageSize = null == limit || limit < 1 ? hardLimit : Math.min(hardLimit, limit);
+    }
+
+    /**
+     * @return whether another batch of users should be read from the database.
+     */
+    boolean needsMoreUsers() {
+        return moreUsers && users.size() < pageSize;
+    }
+
+    /**
+     * @return the id of the last user found by the database so far, to read the next batch after.
+     */
+    @Nullable
+    Long getLastUserFoundId() {
+        return lastUserFoundId;
+    }
+
+    /**
+     * @return the number of users to read in the next batch; one more than the page size, so that whether there might
+     * be another page is known.
+     */
+    int getBatchSize() {
+        return pageSize + 1;
+    }
+
+    /**
+     * Add the users of a batch which match the filters.
+     *
+     * @param batch - a batch of users found by the database, in order.
+     * @param matchingUsers - the users of the batch which match the filters, in the same order.
+     */
+    void addBatch(final List<RegisteredUserDTO> batch, final List<RegisteredUserDTO> matchingUsers) {
+        moreUsers = batch.size() >= getBatchSize();
+        if (batch.isEmpty()) {
+            return;
+        }
+        lastUserFoundId = batch.get(batch.size() - 1).getId();
+        users.addAll(matchingUsers.subList(0, Math.min(matchingUsers.size(), pageSize - users.size())));
+
+        if (users.size() == pageSize) {
+            RegisteredUserDTO lastUserOnPage = users.get(pageSize - 1);
+            if (moreUsers || batch.indexOf(lastUserOnPage) < batch.size() - 1) {
+                nextPageAfterUserId = lastUserOnPage.getId();
+            }
+        }
+    }
+
+    /**
+     * @return the users on the page.
+     */
+    List<RegisteredUserDTO> getUsers() {
+        return users;
+    }
+
+    /**
+     * @return the id of the user the next page should follow, or null if there are no more users.
+     */
+    @Nullable
+    Long getNextPageAfterUserId() {
+        return nextPageAfterUserId;
+    }
+}
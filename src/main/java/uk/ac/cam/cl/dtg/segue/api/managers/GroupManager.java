@@ -33,7 +33,6 @@ import uk.ac.cam.cl.dtg.isaac.dto.GameboardItem;
 import uk.ac.cam.cl.dtg.isaac.dto.GameboardProgressSummaryDTO;
 import uk.ac.cam.cl.dtg.isaac.dto.IAssignmentLike;
 import uk.ac.cam.cl.dtg.isaac.dto.UserGameboardProgressSummaryDTO;
-import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserException;
 import uk.ac.cam.cl.dtg.segue.dao.ResourceNotFoundException;
 import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentManagerException;
@@ -51,6 +50,7 @@ import uk.ac.cam.cl.dtg.isaac.dto.users.UserSummaryWithGroupMembershipDTO;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.LinkedList;
@@ -507,29 +507,14 @@ public class GroupManager {
      *            - if there is a database problem.
      */
     private UserGroupDTO convertGroupToDTO(final UserGroup group) throws SegueDatabaseException {
-        UserGroupDTO dtoToReturn = dtoMapper.map(group, UserGroupDTO.class);
-
-        try {
-            dtoToReturn.setOwnerSummary(userManager.convertToDetailedUserSummaryObject(userManager.getUserDTOById(group.getOwnerId()), UserSummaryWithEmailAddressDTO.class));
-        } catch (NoUserException e) {
-            // This should never happen!
-            log.error(String.format("Group (%s) has owner ID (%s) that no longer exists!", group.getId(), group.getOwnerId()));
-        }
-
-        Set<UserSummaryWithEmailAddressDTO> setOfUsers = Sets.newHashSet();
-        Set<Long> additionalManagers = this.groupDatabase.getAdditionalManagerSetByGroupId(group.getId());
-
-        if (additionalManagers != null) {
-            setOfUsers.addAll(userManager.convertToDetailedUserSummaryObjectList(userManager.findUsers(additionalManagers), UserSummaryWithEmailAddressDTO.class));
-        }
-
-        dtoToReturn.setAdditionalManagers(setOfUsers);
-
-        return dtoToReturn;
+        return convertGroupsToDTOs(Collections.singletonList(group), true).get(0);
     }
 
     /**
      * Convert a collection of group DOs into DTOs.
+     *
+     * The owners and additional managers of all of the groups are looked up together, so the number of database
+     * queries does not grow with the number of groups.
      * 
      * @param groups - to convert
      * @param augmentGroups - whether owner and manager information is required for the group
@@ -539,42 +524,61 @@ public class GroupManager {
      */
     private List<UserGroupDTO> convertGroupsToDTOs(final Iterable<UserGroup> groups, final boolean augmentGroups)
             throws SegueDatabaseException {
-        // FIXME - this duplicates much of the behaviour of the single-group convertGroupToDTO(...) method.
-        // If refactored so additional managers uses lookup cache, then the single-group method should use this code!
+        List<UserGroup> groupList = Lists.newArrayList(groups);
         List<UserGroupDTO> result = Lists.newArrayList();
+        for (UserGroup group : groupList) {
+            result.add(dtoMapper.map(group, UserGroupDTO.class));
+        }
 
-        // add temporary cache so we don't have to look up the same user each time.
-        Map<Long, RegisteredUserDTO> userLookupCache = Maps.newHashMap();
+        if (!augmentGroups || groupList.isEmpty()) {
+            return result;
+        }
 
-        // go through each group and get the related user information in the correct format
-        for (UserGroup group : groups) {
-            UserGroupDTO dtoToReturn = dtoMapper.map(group, UserGroupDTO.class);
+        // find the additional managers of every group at once, then the owners and managers together.
+        Set<Long> groupIds = Sets.newHashSet();
+        Set<Long> userIds = Sets.newHashSet();
+        for (UserGroup group : groupList) {
+            groupIds.add(group.getId());
+            if (group.getOwnerId() != null) {
+                userIds.add(group.getOwnerId());
+            }
+        }
+        Map<Long, Set<Long>> additionalManagersByGroupId = this.groupDatabase.getAdditionalManagerSetsByGroupIds(groupIds);
+        for (Set<Long> additionalManagers : additionalManagersByGroupId.values()) {
+            userIds.addAll(additionalManagers);
+        }
 
-            if (augmentGroups) {
-                // convert the owner of the group into a DTO
-                try {
-                    RegisteredUserDTO ownerUser = userLookupCache.get(group.getOwnerId());
-                    if (null == ownerUser) {
-                        ownerUser = userManager.getUserDTOById(group.getOwnerId());
-                        userLookupCache.put(ownerUser.getId(), ownerUser);
-                    }
+        Map<Long, UserSummaryWithEmailAddressDTO> userSummariesById = Maps.newHashMap();
+        for (UserSummaryWithEmailAddressDTO userSummary : userManager.convertToDetailedUserSummaryObjectList(
+                userManager.findUsers(userIds), UserSummaryWithEmailAddressDTO.class)) {
+            userSummariesById.put(userSummary.getId(), userSummary);
+        }
 
-                    dtoToReturn.setOwnerSummary(userManager.convertToDetailedUserSummaryObject(ownerUser, UserSummaryWithEmailAddressDTO.class));
-                } catch (NoUserException e) {
-                    // This should never happen!
-                    log.error(String.format("Group (%s) has owner ID (%s) that no longer exists!", group.getId(), group.getOwnerId()));
-                }
+        // go through each group and add the related user information in the correct format
+        for (int i = 0; i < groupList.size(); i++) {
+            UserGroup group = groupList.get(i);
+            UserGroupDTO dtoToReturn = result.get(i);
+
+            UserSummaryWithEmailAddressDTO ownerSummary = userSummariesById.get(group.getOwnerId());
+            if (null == ownerSummary) {
+                // This should never happen!
+                log.error(String.format("Group (%s) has owner ID (%s) that no longer exists!", group.getId(), group.getOwnerId()));
+            } else {
+                dtoToReturn.setOwnerSummary(ownerSummary);
+            }
 
-                // Didn't bother using the user cache above for the below as the bottleneck was the group owner db calls.
-                Set<Long> additionalManagers = this.groupDatabase.getAdditionalManagerSetByGroupId(group.getId());
-                Set<UserSummaryWithEmailAddressDTO> setOfUsers = Sets.newHashSet();
-                if (additionalManagers != null) {
-                    setOfUsers.addAll(userManager.convertToDetailedUserSummaryObjectList(userManager.findUsers(additionalManagers), UserSummaryWithEmailAddressDTO.class));
+            Set<UserSummaryWithEmailAddressDTO> setOfUsers = Sets.newHashSet();
+            Set<Long> additionalManagers = additionalManagersByGroupId.get(group.getId());
+            if (additionalManagers != null) {
+                for (Long additionalManagerId : additionalManagers) {
+                    UserSummaryWithEmailAddressDTO additionalManager = userSummariesById.get(additionalManagerId);
+                    if (additionalManager != null) {
+                        setOfUsers.add(additionalManager);
+                    }
                 }
-
-                dtoToReturn.setAdditionalManagers(setOfUsers);
             }
-            result.add(dtoToReturn);
+
+            dtoToReturn.setAdditionalManagers(setOfUsers);
         }
 
         return result;
@@ -60,6 +60,7 @@ import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
 import uk.ac.cam.cl.dtg.isaac.quiz.IQuestionAttemptManager;
 import uk.ac.cam.cl.dtg.isaac.quiz.ISpecifier;
 import uk.ac.cam.cl.dtg.isaac.quiz.IValidator;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionAttemptSummary;
 import uk.ac.cam.cl.dtg.isaac.quiz.SpecifiesWith;
 import uk.ac.cam.cl.dtg.isaac.quiz.ValidatesWith;
 import uk.ac.cam.cl.dtg.isaac.quiz.ValidatorUnavailableException;
@@ -222,9 +223,41 @@ public class QuestionManager {
     public SeguePageDTO augmentQuestionObjects(final SeguePageDTO page, final String userId,
             final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts) {
 
+        Map<String, QuestionValidationResponse> bestAttempts = Maps.newHashMap();
+        if (usersQuestionAttempts != null && usersQuestionAttempts.containsKey(page.getId())) {
+            for (Map.Entry<String, List<QuestionValidationResponse>> questionAttempts
+                    : usersQuestionAttempts.get(page.getId()).entrySet()) {
+                bestAttempts.put(questionAttempts.getKey(), getBestAttempt(questionAttempts.getValue()));
+            }
+        }
+
+        return this.augmentQuestionObjectsWithBestAttempts(page, userId, bestAttempts);
+    }
+
+    /**
+     * This method will ensure the user's best attempts are used to augment the question objects in a page.
+     *
+     * It will also ensure that any personalisation of questions is affected (e.g. randomised multichoice elements).
+     *
+     * Note: It will not do anything to related content
+     *
+     * @see #getBestQuestionAttemptsForPage(AbstractSegueUserDTO, String)
+     *
+     * @param page
+     *            - to augment - this object may be mutated as a result of this method. i.e BestAttempt field set on
+     *            question DTOs.
+     * @param userId
+     *            - to allow us to provide a per user experience of question configuration (random seed).
+     * @param bestAttempts
+     *            - as a map of QuestionId to the best QuestionValidationResponseDO for the question.
+     * @return augmented page - the return result is by convenience as the page provided as a parameter will be mutated.
+     */
+    public SeguePageDTO augmentQuestionObjectsWithBestAttempts(final SeguePageDTO page, final String userId,
+            final Map<String, QuestionValidationResponse> bestAttempts) {
+
         List<QuestionDTO> questionsToAugment = extractQuestionObjects(page);
 
-        this.augmentQuestionObjectWithAttemptInformation(page, questionsToAugment, usersQuestionAttempts);
+        this.augmentQuestionObjectWithAttemptInformation(page, questionsToAugment, bestAttempts);
 
         shuffleChoiceQuestionsChoices(userId, questionsToAugment);
 
@@ -239,51 +272,55 @@ public class QuestionManager {
      *            question DTOs.
      * @param questionsToAugment
      *            - The flattened list of questions which should be augmented.
-     * @param usersQuestionAttempts
-     *            - as a map of QuestionPageId to Map of QuestionId to QuestionValidationResponseDO
+     * @param bestAttempts
+     *            - as a map of QuestionId to the best QuestionValidationResponseDO for the question.
      * @return augmented page - the return result is by convenience as the page provided as a parameter will be mutated.
      */
     private SeguePageDTO augmentQuestionObjectWithAttemptInformation(final SeguePageDTO page,
             final List<QuestionDTO> questionsToAugment,
-            final Map<String, Map<String, List<QuestionValidationResponse>>> usersQuestionAttempts) {
+            final Map<String, QuestionValidationResponse> bestAttempts) {
 
-        if (null == usersQuestionAttempts) {
+        if (null == bestAttempts) {
             return page;
         }
 
         for (QuestionDTO question : questionsToAugment) {
-            if (!usersQuestionAttempts.containsKey(page.getId())) {
-                continue;
-            }
-            if (usersQuestionAttempts.get(page.getId()).get(question.getId()) == null) {
+            QuestionValidationResponse bestAnswer = bestAttempts.get(question.getId());
+            if (null == bestAnswer) {
                 continue;
             }
 
-            QuestionValidationResponse bestAnswer = null;
-            List<QuestionValidationResponse> questionAttempts = usersQuestionAttempts.get(page.getId()).get(
-                    question.getId());
-
-            // iterate in reverse order to try and find the correct answer.
-            for (int i = questionAttempts.size() - 1; i >= 0; i--) {
-                QuestionValidationResponse currentResponse = questionAttempts.get(i);
-
-                if (bestAnswer == null) {
-                    bestAnswer = currentResponse;
-                }
-
-                if (questionAttempts.get(i).isCorrect() != null && questionAttempts.get(i).isCorrect()) {
-                    bestAnswer = currentResponse;
-                    break;
-                }
-            }
-
             question.setBestAttempt(this.convertQuestionValidationResponseToDTO(bestAnswer));
 
         }
         return page;
     }
 
+    /**
+     * The best attempt at a question is the most recent correct attempt, or if there is none the most recent attempt.
+     *
+     * @param questionAttempts
+     *            - the attempts at a question, in the order they were made.
+     * @return the best attempt.
+     */
+    private static QuestionValidationResponse getBestAttempt(final List<QuestionValidationResponse> questionAttempts) {
+        QuestionValidationResponse bestAnswer = null;
 
+        // iterate in reverse order to try and find the correct answer.
+        for (int i = questionAttempts.size() - 1; i >= 0; i--) {
+            QuestionValidationResponse currentResponse = questionAttempts.get(i);
+
+            if (bestAnswer == null) {
+                bestAnswer = currentResponse;
+            }
+
+            if (currentResponse.isCorrect() != null && currentResponse.isCorrect()) {
+                bestAnswer = currentResponse;
+                break;
+            }
+        }
+        return bestAnswer;
+    }
 
     /**
      * Converts a QuestionValidationResponse into a QuestionValidationResponseDTO.
@@ -395,6 +432,60 @@ public class QuestionManager {
         }
     }
     
+    /**
+     * getBestQuestionAttemptsForPage. This method will return only the best attempt at each part of a question page
+     * for a given user, rather than every attempt they have made at any question.
+     *
+     * @param user
+     *            - with the session information included.
+     * @param questionPageId
+     *            - the id of the question page.
+     * @return map of question id to the best attempt at it (QuestionID -> QuestionValidationResponse) or an empty map.
+     * @throws SegueDatabaseException
+     *             - if there is a database error.
+     */
+    public Map<String, QuestionValidationResponse> getBestQuestionAttemptsForPage(final AbstractSegueUserDTO user,
+                                                                                  final String questionPageId)
+            throws SegueDatabaseException {
+        Validate.notNull(user);
+
+        if (user instanceof RegisteredUserDTO) {
+            RegisteredUserDTO registeredUser = (RegisteredUserDTO) user;
+
+            return this.questionAttemptPersistenceManager.getBestQuestionAttemptsForPage(registeredUser.getId(),
+                    questionPageId);
+        } else {
+            AnonymousUserDTO anonymousUser = (AnonymousUserDTO) user;
+            return this.questionAttemptPersistenceManager.getBestAnonymousQuestionAttemptsForPage(
+                    anonymousUser.getSessionId(), questionPageId);
+        }
+    }
+
+    /**
+     * getQuestionAttemptSummary. This method will return which questions a given user has attempted and answered
+     * correctly, which is much cheaper than loading all of their attempts.
+     *
+     * @param user
+     *            - with the session information included.
+     * @return the summary of the user's question attempts.
+     * @throws SegueDatabaseException
+     *             - if there is a database error.
+     */
+    public QuestionAttemptSummary getQuestionAttemptSummary(final AbstractSegueUserDTO user)
+            throws SegueDatabaseException {
+        Validate.notNull(user);
+
+        if (user instanceof RegisteredUserDTO) {
+            RegisteredUserDTO registeredUser = (RegisteredUserDTO) user;
+
+            return this.questionAttemptPersistenceManager.getQuestionAttemptSummary(registeredUser.getId());
+        } else {
+            AnonymousUserDTO anonymousUser = (AnonymousUserDTO) user;
+            return this.questionAttemptPersistenceManager.getAnonymousQuestionAttemptSummary(
+                    anonymousUser.getSessionId());
+        }
+    }
+
     /**
      * @param users who we are interested in.
      * @param questionPageIds we want to look up.
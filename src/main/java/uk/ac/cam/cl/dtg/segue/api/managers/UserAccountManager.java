@@ -18,6 +18,7 @@ package uk.ac.cam.cl.dtg.segue.api.managers;
 import com.google.api.client.util.Lists;
 import com.google.common.collect.ImmutableMap;
 import com.google.inject.Inject;
+import jakarta.annotation.Nullable;
 import ma.glasnost.orika.MapperFacade;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
 import org.apache.commons.lang3.EnumUtils;
@@ -878,6 +879,33 @@ public class UserAccountManager implements IUserAccountManager {
         return this.convertUserDOListToUserDTOList(registeredUsersDOs);
     }
 
+    /**
+     * Find a page of users based on some user prototype, ordered by name.
+     *
+     * @param prototype
+     *            - partially completed user object to base search on
+     * @param afterUserId
+     *            - the id of the last user on the previous page, or null for the first page.
+     * @param limit
+     *            - the maximum number of users to return.
+     * @return list of registered user dtos.
+     * @throws NoUserException
+     *             - if the user to find the page after no longer exists, e.g. because they have been merged.
+     * @throws SegueDatabaseException
+     *             - if there is a database error.
+     */
+    public List<RegisteredUserDTO> findUsers(final RegisteredUserDTO prototype, @Nullable final Long afterUserId,
+                                             final int limit) throws NoUserException, SegueDatabaseException {
+        // Pages follow the position of this user in the sort order, which is lost if they no longer exist:
+        if (null != afterUserId && null == this.database.getById(afterUserId, true)) {
+            throw new NoUserException("No user found with this ID!");
+        }
+        List<RegisteredUser> registeredUsersDOs = this.database.findUsers(this.dtoMapper.map(prototype,
+                RegisteredUser.class), afterUserId, limit);
+
+        return this.convertUserDOListToUserDTOList(registeredUsersDOs);
+    }
+
     /**
      * Find a list of users based on a List of user ids.
      * 
@@ -0,0 +1,52 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import com.google.common.collect.ImmutableMap;
+import io.prometheus.client.Collector;
+import io.prometheus.client.GaugeMetricFamily;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exports the hottest keys of each HotKeyTracker to Prometheus.
+ *
+ * Only the first few top keys of each tracker are exported, to limit the number of label values; the full lists are
+ * available from the admin API.
+ */
+public class HotKeyMetricsCollector extends Collector {
+    private static final int MAX_EXPORTED_KEYS_PER_TRACKER = 10;
+
+    private final Map<String, HotKeyTracker> trackers;
+
+    /**
+     * @param trackers - the trackers to export, by name.
+     */
+    public HotKeyMetricsCollector(final Map<String, HotKeyTracker> trackers) {
+        this.trackers = ImmutableMap.copyOf(trackers);
+    }
+
+    /**
+     * @return the trackers exported, by name.
+     */
+    public Map<String, HotKeyTracker> getTrackers() {
+        return trackers;
+    }
+
+    @Override
+    public List<MetricFamilySamples> collect() {
+        GaugeMetricFamily hotKeyRequests = new GaugeMetricFamily("isaac_api_hot_key_requests",
+                "Estimated recent requests for the hottest keys, e.g. content IDs.", Arrays.asList("tracker", "key"));
+        for (Map.Entry<String, HotKeyTracker> tracker : trackers.entrySet()) {
+            int exportedKeys = 0;
+            for (Map.Entry<String, Long> topKey : tracker.getValue().getTopKeys().entrySet()) {
+                if (exportedKeys++ >= MAX_EXPORTED_KEYS_PER_TRACKER) {
+                    break;
+                }
+                hotKeyRequests.addMetric(Arrays.asList(tracker.getKey(), topKey.getKey()), topKey.getValue());
+            }
+        }
+        return Collections.singletonList(hotKeyRequests);
+    }
+}
@@ -0,0 +1,191 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Tracks which keys (e.g. content IDs or gameboard IDs) are requested most often at the moment.
+ *
+ * Every key is counted in a count-min sketch, which needs a fixed amount of memory however many distinct keys there
+ * are and can only overestimate a count. The keys with the highest estimates are kept alongside it as the top keys.
+ * All counts are halved at regular intervals, so that keys which were hot a long time ago fall away. Recording a key
+ * which is already among the top keys allocates nothing.
+ *
+ * This class is threadsafe.
+ */
+public class HotKeyTracker {
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_WIDTH = 4096;
+    private static final int DEFAULT_TOP_KEYS = 50;
+    private static final long DEFAULT_DECAY_PERIOD = 100000;
+
+    private final int depth;
+    private final int widthMask;
+    private final int maxTopKeys;
+    private final long decayPeriod;
+    private final long[] counters;
+    private final Map<String, long[]> topKeyCounts;
+
+    private String minimumTopKey;
+    private long recordsSinceDecay;
+
+    /**
+     * Create a tracker with a default size, suitable for tracking the hottest few dozen of many thousands of keys.
+     */
+    public HotKeyTracker() {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH, DEFAULT_TOP_KEYS, DEFAULT_DECAY_PERIOD);
+    }
+
+    /**
+     * @param depth - the number of rows of counters, each using a different hash of the key.
+     * @param width - the number of counters in each row, which must be a power of two.
+     * @param maxTopKeys - the number of top keys to keep.
+     * @param decayPeriod - the number of keys recorded between each halving of the counts.
+     */
+    public HotKeyTracker(final int depth, final int width, final int maxTopKeys, final long decayPeriod) {
+        if (depth < 1 || width < 1 || Integer.bitCount(width) != 1 || maxTopKeys < 1 || decayPeriod < 1) {
+            throw new IllegalArgumentException("Invalid hot key tracker size.");
+        }
+        this.depth = depth;
+        this.widthMask = width - 1;
+        this.maxTopKeys = maxTopKeys;
+        this.decayPeriod = decayPeriod;
+        this.counters = new long[depth * width];
+        this.topKeyCounts = new HashMap<>(maxTopKeys * 2);
+    }
+
+    /**
+     * Record a request for a key.
+     *
+     * @param key - the key requested; null keys are ignored.
+     */
+    public synchronized void record(final String key) {
+        if (null == key) {
+            return;
+        }
+
+        int hash = mix(key.hashCode());
+        int secondHash = mix(hash) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, ++counters[counterIndex(row, hash, secondHash)]);
+        }
+        this.updateTopKeys(key, estimate);
+
+        if (++recordsSinceDecay >= decayPeriod) {
+            this.decay();
+        }
+    }
+
+    /**
+     * @param key - a key.
+     * @return an estimate of the number of recent requests for the key, which may be too high but never too low.
+     */
+    public synchronized long estimateCount(final String key) {
+        int hash = mix(key.hashCode());
+        int secondHash = mix(hash) | 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, counters[counterIndex(row, hash, secondHash)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return the hottest keys and the estimates of their recent request counts, hottest first.
+     */
+    public synchronized Map<String, Long> getTopKeys() {
+        List<Map.Entry<String, long[]>> entries = new ArrayList<>(topKeyCounts.entrySet());
+        entries.sort((a, b) -> Long.compare(b.getValue()[0], a.getValue()[0]));
+        Map<String, Long> topKeys = new LinkedHashMap<>();
+        for (Map.Entry<String, long[]> entry : entries) {
+            topKeys.put(entry.getKey(), entry.getValue()[0]);
+        }
+        return topKeys;
+    }
+
+    /**
+     * @param key - a key.
+     * @return whether the key is currently one of the top keys.
+     */
+    public synchronized boolean isTopKey(final String key) {
+        return topKeyCounts.containsKey(key);
+    }
+
+    /**
+     * Keep the top keys up to date with a new estimate for a key.
+     *
+     * @param key - the key just recorded.
+     * @param estimate - the new estimate of its count.
+     */
+    private void updateTopKeys(final String key, final long estimate) {
+        long[] count = topKeyCounts.get(key);
+        if (count != null) {
+            count[0] = estimate;
+            if (key.equals(minimumTopKey)) {
+                minimumTopKey = null;
+            }
+            return;
+        }
+
+        if (topKeyCounts.size() < maxTopKeys) {
+            topKeyCounts.put(key, new long[] {estimate});
+            minimumTopKey = null;
+            return;
+        }
+
+        if (null == minimumTopKey) {
+            this.findMinimumTopKey();
+        }
+        if (estimate > topKeyCounts.get(minimumTopKey)[0]) {
+            topKeyCounts.remove(minimumTopKey);
+            topKeyCounts.put(key, new long[] {estimate});
+            minimumTopKey = null;
+        }
+    }
+
+    private void findMinimumTopKey() {
+        long minimumCount = Long.MAX_VALUE;
+        for (Map.Entry<String, long[]> entry : topKeyCounts.entrySet()) {
+            if (entry.getValue()[0] < minimumCount) {
+                minimumCount = entry.getValue()[0];
+                minimumTopKey = entry.getKey();
+            }
+        }
+    }
+
+    /**
+     * Halve every count, forgetting any top key whose count falls to zero.
+     */
+    private void decay() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>>= 1;
+        }
+        topKeyCounts.values().removeIf(count -> (count[0] >>>= 1) == 0);
+        minimumTopKey = null;
+        recordsSinceDecay = 0;
+    }
+
+    private int counterIndex(final int row, final int hash, final int secondHash) {
+        return row * (widthMask + 1) + ((hash + row * secondHash) & widthMask);
+    }
+
+    /**
+     * The finalisation step of MurmurHash3, so that similar keys are spread across the counters.
+     *
+     * @param hash - the hash to mix.
+     * @return the mixed hash.
+     */
+    private static int mix(final int hash) {
+        int h = hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
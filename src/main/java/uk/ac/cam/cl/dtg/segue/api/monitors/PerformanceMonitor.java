@@ -20,7 +20,9 @@ import org.apache.commons.lang3.time.StopWatch;
 import org.jboss.resteasy.spi.HttpRequest;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
 import uk.ac.cam.cl.dtg.segue.api.services.MonitorService;
+import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 
 import jakarta.annotation.Priority;
 import jakarta.ws.rs.container.ContainerRequestContext;
@@ -29,12 +31,20 @@ import jakarta.ws.rs.container.ContainerResponseContext;
 import jakarta.ws.rs.container.ContainerResponseFilter;
 import jakarta.ws.rs.core.Context;
 import jakarta.ws.rs.ext.Provider;
+import java.util.concurrent.TimeUnit;
 
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.HOT_ENDPOINT_TRACKER;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.REQUEST_DATABASE_ROWS_HISTOGRAM;
 import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.REQUEST_LATENCY_HISTOGRAM;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.REQUEST_QUERIES_HISTOGRAM;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.REQUEST_QUERY_LATENCY_HISTOGRAM;
 
 /**
  * Allows us to log the performance of all requests.
  *
+ * As well as the overall latency, the database and search queries made by each request are recorded per route, and a
+ * warning is logged for any request making more queries than the configured budget allows (e.g. an N+1 query pattern).
+ * The route of every request is also counted, so that the hottest endpoints can be found.
  */
 @Priority(0) // Setting the priority to 0 makes sure this filter is applied first on request and last on response
 @Provider
@@ -43,17 +53,31 @@ public class PerformanceMonitor implements ContainerRequestFilter, ContainerResp
 
     public static final long WARNING_THRESHOLD = 3000;
     public static final long ERROR_THRESHOLD = 10000;
+    public static final long DEFAULT_QUERY_BUDGET = 100;
     private static final long NUMBER_OF_MILLISECONDS_IN_A_SECOND = 1000;
+    private static final double NUMBER_OF_NANOSECONDS_IN_A_SECOND = 1e9;
+    private static final int MAX_LOGGED_STATEMENT_LENGTH = 200;
 
     @Context private HttpRequest request;
     private final MonitorService monitorService;
+    private final long queryBudget;
 
     /**
      * PerformanceMonitor.
+     *
+     * @param monitorService - to find the route of each request.
+     * @param properties - to read the query budget from.
      */
     @Inject
-    public PerformanceMonitor(final MonitorService monitorService) {
+    public PerformanceMonitor(final MonitorService monitorService, final PropertiesLoader properties) {
         this.monitorService = monitorService;
+
+        String queryBudgetProperty = properties.getProperty(Constants.REQUEST_QUERY_BUDGET);
+        if (null == queryBudgetProperty || queryBudgetProperty.isEmpty()) {
+            this.queryBudget = DEFAULT_QUERY_BUDGET;
+        } else {
+            this.queryBudget = Long.parseLong(queryBudgetProperty);
+        }
     }
 
     @Override
@@ -61,12 +85,16 @@ public class PerformanceMonitor implements ContainerRequestFilter, ContainerResp
         StopWatch timer = new StopWatch();
         timer.start();
         request.setAttribute("timer", timer);
+        request.setAttribute("work", RequestWorkMonitor.startRequest());
     }
 
     @Override
     public void filter(final ContainerRequestContext requestContext, final ContainerResponseContext responseContext) {
         StopWatch timer = (StopWatch) request.getAttribute("timer");
         request.removeAttribute("timer");
+        RequestWork work = (RequestWork) request.getAttribute("work");
+        request.removeAttribute("work");
+        RequestWorkMonitor.endRequest();
         
         if (null == timer) {
             // no timer started don't continue
@@ -88,13 +116,51 @@ public class PerformanceMonitor implements ContainerRequestFilter, ContainerResp
         }
 
         // Record for metrics
+        // Only the route is recorded, never path parameter values, since these can be tokens or user IDs:
+        String path = monitorService.getPathWithoutPathParamValues(request.getUri());
+        HOT_ENDPOINT_TRACKER.record(requestContext.getMethod() + " " + path);
         REQUEST_LATENCY_HISTOGRAM
                 .labels(
                         requestContext.getMethod(),
-                        monitorService.getPathWithoutPathParamValues(request.getUri()),
+                        path,
                         String.valueOf(responseContext.getStatus())
                 ).observe((double)timeInMs / NUMBER_OF_MILLISECONDS_IN_A_SECOND);
+
+        if (work != null) {
+            this.recordRequestWork(requestContext.getMethod(), path, work);
+        }
     }
 
+    /**
+     * Record the queries made by a request, and warn if it made more than the query budget allows.
+     *
+     * @param method - the HTTP method of the request.
+     * @param path - the route of the request, without path parameter values.
+     * @param work - the work recorded for the request.
+     */
+    private void recordRequestWork(final String method, final String path, final RequestWork work) {
+        REQUEST_QUERIES_HISTOGRAM.labels(method, path, "database").observe(work.getDatabaseQueries());
+        REQUEST_QUERIES_HISTOGRAM.labels(method, path, "search").observe(work.getSearchQueries());
+        REQUEST_QUERY_LATENCY_HISTOGRAM.labels(method, path, "database")
+                .observe(work.getDatabaseNanos() / NUMBER_OF_NANOSECONDS_IN_A_SECOND);
+        REQUEST_QUERY_LATENCY_HISTOGRAM.labels(method, path, "search")
+                .observe(work.getSearchNanos() / NUMBER_OF_NANOSECONDS_IN_A_SECOND);
+        REQUEST_DATABASE_ROWS_HISTOGRAM.labels(method, path).observe(work.getDatabaseRows());
+
+        if (work.getTotalQueries() > queryBudget) {
+            String mostRepeatedStatement = work.getMostRepeatedStatement();
+            int mostRepeatedExecutions = work.getExecutions(mostRepeatedStatement);
+            if (mostRepeatedStatement != null && mostRepeatedStatement.length() > MAX_LOGGED_STATEMENT_LENGTH) {
+                mostRepeatedStatement = mostRepeatedStatement.substring(0, MAX_LOGGED_STATEMENT_LENGTH) + "...";
+            }
+            log.warn(String.format("Query Budget Warning: Request: %s %s made %d queries and exceeded budget of %d "
+                            + "(database_queries=%d database_rows=%d database_ms=%d search_queries=%d search_ms=%d "
+                            + "most_repeated_statement_executions=%d most_repeated_statement=\"%s\")",
+                    method, path, work.getTotalQueries(), queryBudget, work.getDatabaseQueries(),
+                    work.getDatabaseRows(), TimeUnit.NANOSECONDS.toMillis(work.getDatabaseNanos()),
+                    work.getSearchQueries(), TimeUnit.NANOSECONDS.toMillis(work.getSearchNanos()),
+                    mostRepeatedExecutions, mostRepeatedStatement));
+        }
+    }
 
 }
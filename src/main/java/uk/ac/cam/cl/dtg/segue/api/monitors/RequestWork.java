@@ -0,0 +1,103 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The database and search work done on behalf of a single inbound request.
+ *
+ * Every statement executed is counted by its SQL, so that the same statement being run over and over for each item in
+ * a list (an N+1 query pattern) can be identified.
+ */
+public class RequestWork {
+    private static final int MAX_DISTINCT_STATEMENTS = 100;
+
+    private long databaseQueries;
+    private long databaseRows;
+    private long databaseNanos;
+    private long searchQueries;
+    private long searchNanos;
+    private final Map<String, Integer> executionsByStatement = new HashMap<>();
+
+    /**
+     * Record a database statement being executed.
+     *
+     * @param sql - the SQL of the statement, or null if it is not known.
+     * @param nanos - how long the statement took to execute.
+     */
+    public synchronized void recordDatabaseQuery(final String sql, final long nanos) {
+        databaseQueries++;
+        databaseNanos += nanos;
+        if (sql != null && (executionsByStatement.size() < MAX_DISTINCT_STATEMENTS
+                || executionsByStatement.containsKey(sql))) {
+            executionsByStatement.merge(sql, 1, Integer::sum);
+        }
+    }
+
+    /**
+     * Record a row being read from a database result set.
+     */
+    public synchronized void recordDatabaseRow() {
+        databaseRows++;
+    }
+
+    /**
+     * Record a call to the search provider.
+     *
+     * @param nanos - how long the call took.
+     */
+    public synchronized void recordSearchQuery(final long nanos) {
+        searchQueries++;
+        searchNanos += nanos;
+    }
+
+    public synchronized long getDatabaseQueries() {
+        return databaseQueries;
+    }
+
+    public synchronized long getDatabaseRows() {
+        return databaseRows;
+    }
+
+    public synchronized long getDatabaseNanos() {
+        return databaseNanos;
+    }
+
+    public synchronized long getSearchQueries() {
+        return searchQueries;
+    }
+
+    public synchronized long getSearchNanos() {
+        return searchNanos;
+    }
+
+    /**
+     * @return the total number of database and search queries.
+     */
+    public synchronized long getTotalQueries() {
+        return databaseQueries + searchQueries;
+    }
+
+    /**
+     * @return the SQL of the statement executed the most times, or null if no statements were executed.
+     */
+    public synchronized String getMostRepeatedStatement() {
+        String mostRepeatedStatement = null;
+        int mostExecutions = 0;
+        for (Map.Entry<String, Integer> entry : executionsByStatement.entrySet()) {
+            if (entry.getValue() > mostExecutions) {
+                mostRepeatedStatement = entry.getKey();
+                mostExecutions = entry.getValue();
+            }
+        }
+        return mostRepeatedStatement;
+    }
+
+    /**
+     * @param sql - the SQL of a statement.
+     * @return the number of times the statement was executed.
+     */
+    public synchronized int getExecutions(final String sql) {
+        return executionsByStatement.getOrDefault(sql, 0);
+    }
+}
@@ -0,0 +1,158 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Tracks the database and search work done by each inbound request.
+ *
+ * The work is recorded against the request being handled by the current thread, between calls to
+ * {@link #startRequest()} and {@link #endRequest()}. Database connections and search providers are wrapped so that the
+ * queries made through them are counted and timed; work done outside of a request, e.g. by scheduled jobs, is not
+ * recorded.
+ */
+public final class RequestWorkMonitor {
+    private static final ThreadLocal<RequestWork> currentRequestWork = new ThreadLocal<>();
+
+    /**
+     * Private constructor as it does not make sense to instantiate this class.
+     */
+    private RequestWorkMonitor() { }
+
+    /**
+     * Start recording work for a request handled by the current thread.
+     *
+     * @return the work that will be recorded for the request.
+     */
+    public static RequestWork startRequest() {
+        RequestWork work = new RequestWork();
+        currentRequestWork.set(work);
+        return work;
+    }
+
+    /**
+     * Stop recording work for the request handled by the current thread.
+     */
+    public static void endRequest() {
+        currentRequestWork.remove();
+    }
+
+    /**
+     * @return the work recorded for the request handled by the current thread, or null if there is no such request.
+     */
+    public static RequestWork getCurrentRequestWork() {
+        return currentRequestWork.get();
+    }
+
+    /**
+     * Wrap a database connection so that the statements executed with it, and the rows they return, are recorded for
+     * the current request.
+     *
+     * @param connection - the connection to wrap.
+     * @return the wrapped connection, or the connection itself if there is no current request.
+     */
+    public static Connection instrument(final Connection connection) {
+        RequestWork work = currentRequestWork.get();
+        if (null == work || null == connection) {
+            return connection;
+        }
+        return (Connection) Proxy.newProxyInstance(RequestWorkMonitor.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    Object result = invoke(connection, method, args);
+                    if (result instanceof Statement) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0] : null;
+                        return instrumentStatement((Statement) result, method.getReturnType(), sql, work);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Wrap a search provider so that the calls made to it are recorded for whichever request is current at the time.
+     *
+     * @param searchProvider - the search provider to wrap.
+     * @return the wrapped search provider.
+     */
+    public static ISearchProvider instrument(final ISearchProvider searchProvider) {
+        return (ISearchProvider) Proxy.newProxyInstance(RequestWorkMonitor.class.getClassLoader(),
+                new Class<?>[]{ISearchProvider.class}, (proxy, method, args) -> {
+                    RequestWork work = currentRequestWork.get();
+                    if (null == work || method.getDeclaringClass() == Object.class
+                            || "getNestedFieldConnector".equals(method.getName())) {
+                        return invoke(searchProvider, method, args);
+                    }
+                    long startTime = System.nanoTime();
+                    try {
+                        return invoke(searchProvider, method, args);
+                    } finally {
+                        work.recordSearchQuery(System.nanoTime() - startTime);
+                    }
+                });
+    }
+
+    /**
+     * @param statement - the statement to wrap.
+     * @param statementInterface - the JDBC interface the statement was returned as.
+     * @param preparedSql - the SQL the statement was prepared with, or null if it was not prepared.
+     * @param work - to record the statement's work against.
+     * @return the wrapped statement.
+     */
+    private static Statement instrumentStatement(final Statement statement, final Class<?> statementInterface,
+                                                 final String preparedSql, final RequestWork work) {
+        return (Statement) Proxy.newProxyInstance(RequestWorkMonitor.class.getClassLoader(),
+                new Class<?>[]{statementInterface}, (proxy, method, args) -> {
+                    Object result;
+                    if (method.getName().startsWith("execute")) {
+                        String sql = args != null && args.length > 0 && args[0] instanceof String
+                                ? (String) args[0] : preparedSql;
+                        long startTime = System.nanoTime();
+                        try {
+                            result = invoke(statement, method, args);
+                        } finally {
+                            work.recordDatabaseQuery(sql, System.nanoTime() - startTime);
+                        }
+                    } else {
+                        result = invoke(statement, method, args);
+                    }
+
+                    if (result instanceof ResultSet && !"getGeneratedKeys".equals(method.getName())) {
+                        return instrumentResultSet((ResultSet) result, work);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * @param resultSet - the result set to wrap.
+     * @param work - to record the rows read against.
+     * @return the wrapped result set.
+     */
+    private static ResultSet instrumentResultSet(final ResultSet resultSet, final RequestWork work) {
+        return (ResultSet) Proxy.newProxyInstance(RequestWorkMonitor.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, (proxy, method, args) -> {
+                    Object result = invoke(resultSet, method, args);
+                    if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                        work.recordDatabaseRow();
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Call a method on the wrapped object, throwing whatever it throws.
+     */
+    private static Object invoke(final Object target, final Method method, final Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -15,6 +15,7 @@
  */
 package uk.ac.cam.cl.dtg.segue.api.monitors;
 
+import com.google.common.collect.ImmutableMap;
 import io.prometheus.client.Counter;
 import io.prometheus.client.Gauge;
 import io.prometheus.client.Histogram;
@@ -33,6 +34,22 @@ public final class SegueMetrics {
             .labelNames("method", "path", "status")
             .help("Request latency in seconds.").register();
 
+    // Request Work Metrics
+    public static final Histogram REQUEST_QUERIES_HISTOGRAM = Histogram.build()
+            .name("isaac_api_request_queries")
+            .labelNames("method", "path", "store")
+            .buckets(0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000)
+            .help("Database or search queries made per request.").register();
+    public static final Histogram REQUEST_QUERY_LATENCY_HISTOGRAM = Histogram.build()
+            .name("isaac_api_request_query_seconds")
+            .labelNames("method", "path", "store")
+            .help("Time spent on database or search queries per request in seconds.").register();
+    public static final Histogram REQUEST_DATABASE_ROWS_HISTOGRAM = Histogram.build()
+            .name("isaac_api_request_database_rows")
+            .labelNames("method", "path")
+            .buckets(0, 1, 10, 100, 1000, 10000, 100000)
+            .help("Database rows read per request.").register();
+
     // WebSocket Response Time Metrics
     public static final Histogram WEBSOCKET_LATENCY_HISTOGRAM = Histogram.build()
             .name("isaac_api_websocket_requests")
@@ -45,9 +62,31 @@ public final class SegueMetrics {
             .labelNames("validator")
             .help("Validator latency in seconds.").register();
 
+    // Password Hashing Metrics
+    public static final Histogram PASSWORD_HASH_WAIT_HISTOGRAM = Histogram.build()
+            .name("isaac_password_hash_wait_seconds")
+            .labelNames("algorithm")
+            .help("Time spent waiting for memory to hash a password in seconds.").register();
+    public static final Histogram PASSWORD_HASH_LATENCY_HISTOGRAM = Histogram.build()
+            .name("isaac_password_hash_seconds")
+            .labelNames("algorithm")
+            .help("Password hashing latency in seconds.").register();
+    public static final Counter PASSWORD_HASH_REJECTED = Counter.build()
+            .name("isaac_password_hash_rejected_total")
+            .labelNames("algorithm", "reason")
+            .help("Password hashes rejected because no memory was available.").register();
+
     // Cache Metrics
     public static final CacheMetricsCollector CACHE_METRICS_COLLECTOR = new CacheMetricsCollector().register();
 
+    // Hot Key Metrics
+    public static final HotKeyTracker HOT_CONTENT_TRACKER = new HotKeyTracker();
+    public static final HotKeyTracker HOT_GAMEBOARD_TRACKER = new HotKeyTracker();
+    public static final HotKeyTracker HOT_ENDPOINT_TRACKER = new HotKeyTracker();
+    public static final HotKeyMetricsCollector HOT_KEY_METRICS_COLLECTOR = new HotKeyMetricsCollector(
+            ImmutableMap.of("content", HOT_CONTENT_TRACKER, "gameboard", HOT_GAMEBOARD_TRACKER,
+                    "endpoint", HOT_ENDPOINT_TRACKER)).register();
+
     // Websocket Metrics
     public static final Gauge CURRENT_OPEN_WEBSOCKETS = Gauge.build()
             .name("segue_websockets").help("Currently open websockets.").register();
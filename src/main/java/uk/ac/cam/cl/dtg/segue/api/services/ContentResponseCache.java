@@ -0,0 +1,264 @@
+package uk.ac.cam.cl.dtg.segue.api.services;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.hash.Hashing;
+import com.google.inject.Inject;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Supplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.CACHE_METRICS_COLLECTOR;
+
+/**
+ * A cache of serialised, gzipped responses for endpoints whose response depends only on the content version and the
+ * request parameters (i.e. not on the user making the request).
+ *
+ * Entries are keyed on a normalised form of the request and are only valid for the content SHA they were created
+ * with; the whole cache is emptied as soon as the live content SHA changes. Every response is given a strong ETag
+ * derived from the content SHA and the normalised request, so conditional requests can be answered without loading
+ * anything.
+ */
+public class ContentResponseCache {
+    private static final Logger log = LoggerFactory.getLogger(ContentResponseCache.class);
+
+    private static final long MAX_CACHE_SIZE_IN_BYTES = 64 * 1024 * 1024;
+    private static final String UNKNOWN_CONTENT_SHA = "unknown";
+    private static final String GZIP_ENCODING = "gzip";
+
+    private final GitContentManager contentManager;
+    private final ObjectMapper objectMapper;
+    private final Cache<String, CachedResponse> cache;
+
+    private volatile String cachedContentSHA;
+
+    /**
+     * @param contentManager - to find the current content SHA.
+     */
+    @Inject
+    public ContentResponseCache(final GitContentManager contentManager) {
+        this.contentManager = contentManager;
+
+        // Must match the serialisation configuration used for all other responses, see RestEasyJacksonConfiguration:
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+        this.cache = CacheBuilder.newBuilder().recordStats().maximumWeight(MAX_CACHE_SIZE_IN_BYTES)
+                .weigher((String key, CachedResponse response) -> key.length() + response.getGzippedBody().length)
+                .build();
+        CACHE_METRICS_COLLECTOR.addCache("content_response_cache", cache);
+    }
+
+    /**
+     * Get the response for a request, either from the cache or by calling the loader and caching the result.
+     *
+     * Only successful responses are cached; any other response from the loader is returned unchanged. If the client
+     * already has the current version of the response, a 304 Not Modified response is returned.
+     *
+     * @param request - the client request, so conditional requests can be evaluated.
+     * @param headers - the client request headers, to check whether the client accepts gzipped responses.
+     * @param endpoint - a name identifying the endpoint, unique amongst all users of this cache.
+     * @param parameters - every request parameter which affects the response; null values are ignored.
+     * @param cacheControl - the cache control to send with successful responses, or null to send none so that
+     *                     clients revalidate every time.
+     * @param loader - to generate the response if it is not already cached.
+     * @return the response to send to the client.
+     */
+    public Response getResponse(final Request request, final HttpHeaders headers, final String endpoint,
+                                final Map<String, ?> parameters, final CacheControl cacheControl,
+                                final Supplier<Response> loader) {
+        String contentSHA = contentManager.getCurrentContentSHA();
+        if (null == contentSHA || UNKNOWN_CONTENT_SHA.equals(contentSHA)) {
+            return loader.get();
+        }
+        this.invalidateIfContentChanged(contentSHA);
+
+        String key = normaliseRequest(endpoint, parameters);
+        boolean gzipAccepted = acceptsGzip(headers);
+        EntityTag etag = generateStrongETag(contentSHA, key, gzipAccepted);
+
+        Response.ResponseBuilder notModified = request.evaluatePreconditions(etag);
+        if (notModified != null) {
+            return notModified.cacheControl(cacheControl).tag(etag).build();
+        }
+
+        CachedResponse cachedResponse = cache.getIfPresent(key);
+        if (null == cachedResponse || !contentSHA.equals(cachedResponse.getContentSHA())) {
+            Response response = loader.get();
+            if (response.getStatus() != Response.Status.OK.getStatusCode() || !response.hasEntity()) {
+                return response;
+            }
+            try {
+                cachedResponse = new CachedResponse(contentSHA, gzip(objectMapper.writeValueAsBytes(response.getEntity())));
+            } catch (IOException e) {
+                log.error(String.format("Unable to serialise response for (%s), returning it uncached.", key), e);
+                return response;
+            }
+            // Don't cache anything loaded while the content was changing, it may be from either version:
+            if (contentSHA.equals(cachedContentSHA)) {
+                cache.put(key, cachedResponse);
+            }
+        }
+
+        Response.ResponseBuilder builder = Response.ok().type(MediaType.APPLICATION_JSON_TYPE)
+                .tag(etag).cacheControl(cacheControl).header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzipAccepted) {
+            return builder.entity(cachedResponse.getGzippedBody())
+                    .header(HttpHeaders.CONTENT_ENCODING, GZIP_ENCODING).build();
+        }
+        try {
+            return builder.entity(gunzip(cachedResponse.getGzippedBody())).build();
+        } catch (IOException e) {
+            log.error(String.format("Unable to decompress cached response for (%s).", key), e);
+            cache.invalidate(key);
+            return loader.get();
+        }
+    }
+
+    /**
+     * Empty the cache if the content SHA differs from the one the cached responses were generated for.
+     *
+     * @param contentSHA - the current live content SHA.
+     */
+    private void invalidateIfContentChanged(final String contentSHA) {
+        if (contentSHA.equals(cachedContentSHA)) {
+            return;
+        }
+        synchronized (this) {
+            if (!contentSHA.equals(cachedContentSHA)) {
+                log.info(String.format("Content SHA changed from (%s) to (%s), clearing cached responses.",
+                        cachedContentSHA, contentSHA));
+                cachedContentSHA = contentSHA;
+                cache.invalidateAll();
+            }
+        }
+    }
+
+    /**
+     * Build a cache key for a request which does not depend on the order the parameters were provided in.
+     *
+     * @param endpoint - the endpoint name.
+     * @param parameters - the request parameters.
+     * @return the cache key.
+     */
+    private static String normaliseRequest(final String endpoint, final Map<String, ?> parameters) {
+        StringBuilder key = new StringBuilder(endpoint);
+        for (Map.Entry<String, ?> parameter : new TreeMap<>(parameters).entrySet()) {
+            if (null == parameter.getValue()) {
+                continue;
+            }
+            key.append(key.length() == endpoint.length() ? '?' : '&')
+                    .append(URLEncoder.encode(parameter.getKey(), StandardCharsets.UTF_8)).append('=')
+                    .append(URLEncoder.encode(parameter.getValue().toString(), StandardCharsets.UTF_8));
+        }
+        return key.toString();
+    }
+
+    /**
+     * A strong ETag is specific to the exact bytes sent, so the gzipped and uncompressed representations differ.
+     *
+     * @param contentSHA - the content SHA the response was generated from.
+     * @param key - the normalised request.
+     * @param gzipped - whether the response body is gzipped.
+     * @return the ETag for the response.
+     */
+    private static EntityTag generateStrongETag(final String contentSHA, final String key, final boolean gzipped) {
+        String hash = Hashing.sha256().hashString(contentSHA + "~" + key, StandardCharsets.UTF_8).toString();
+        return new EntityTag(gzipped ? hash + "-" + GZIP_ENCODING : hash);
+    }
+
+    /**
+     * @param headers - the client request headers.
+     * @return whether the Accept-Encoding header allows a gzipped response.
+     */
+    private static boolean acceptsGzip(final HttpHeaders headers) {
+        if (null == headers) {
+            return false;
+        }
+        List<String> acceptEncodingHeaders = headers.getRequestHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (null == acceptEncodingHeaders) {
+            return false;
+        }
+        for (String header : acceptEncodingHeaders) {
+            for (String coding : header.split(",")) {
+                String[] codingAndParameters = coding.split(";");
+                String name = codingAndParameters[0].trim();
+                if (!GZIP_ENCODING.equalsIgnoreCase(name) && !"*".equals(name)) {
+                    continue;
+                }
+                boolean refused = false;
+                for (int i = 1; i < codingAndParameters.length; i++) {
+                    String parameter = codingAndParameters[i].replace(" ", "");
+                    if (parameter.matches("q=0(\\.0*)?")) {
+                        refused = true;
+                    }
+                }
+                if (!refused) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static byte[] gzip(final byte[] body) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.length / 4);
+        try (OutputStream gzipStream = new GZIPOutputStream(compressed)) {
+            gzipStream.write(body);
+        }
+        return compressed.toByteArray();
+    }
+
+    private static byte[] gunzip(final byte[] body) throws IOException {
+        try (InputStream gzipStream = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            return gzipStream.readAllBytes();
+        }
+    }
+
+    /**
+     * A serialised response and the content SHA it was generated from.
+     */
+    private static class CachedResponse {
+        private final String contentSHA;
+        private final byte[] gzippedBody;
+
+        /**
+         * @param contentSHA - the content SHA the response was generated from.
+         * @param gzippedBody - the gzipped JSON response body.
+         */
+        CachedResponse(final String contentSHA, final byte[] gzippedBody) {
+            this.contentSHA = contentSHA;
+            this.gzippedBody = gzippedBody;
+        }
+
+        String getContentSHA() {
+            return contentSHA;
+        }
+
+        byte[] getGzippedBody() {
+            return gzippedBody;
+        }
+    }
+}
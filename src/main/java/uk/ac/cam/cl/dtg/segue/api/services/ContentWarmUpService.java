@@ -0,0 +1,228 @@
+package uk.ac.cam.cl.dtg.segue.api.services;
+
+import com.google.common.base.Supplier;
+import com.google.common.base.Suppliers;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.inject.Inject;
+import jakarta.servlet.ServletContextEvent;
+import jakarta.servlet.ServletContextListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.isaac.api.Constants.IsaacServerLogType;
+import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
+import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+import uk.ac.cam.cl.dtg.segue.search.InMemoryContentSearchProvider;
+
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static uk.ac.cam.cl.dtg.isaac.api.Constants.CONCEPT_ID_LOG_FIELDNAME;
+import static uk.ac.cam.cl.dtg.isaac.api.Constants.QUESTION_ID_LOG_FIELDNAME;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.HOT_CONTENT_TRACKER;
+
+/**
+ * Warms the content caches for a content version, so that the first requests after a deploy or a change of live
+ * content version do not all have to go to the search cluster.
+ *
+ * Every content cache is keyed on the content SHA, so all of them are cold for a new version. The content currently
+ * hot on this server and the most viewed question and concept pages of the last week (from the VIEW_QUESTION and
+ * VIEW_CONCEPT log events) are loaded, along with their related content, straight from the indices of the new version;
+ * this can be done before the version goes live. The live content version is checked every few seconds and warmed in
+ * the background as soon as it changes.
+ *
+ * The API only reports itself as not ready until the live content version at startup has been warmed; a later change of
+ * live version must not take every server out of service at once, so never affects readiness.
+ */
+public class ContentWarmUpService implements ServletContextListener {
+    private static final Logger log = LoggerFactory.getLogger(ContentWarmUpService.class);
+
+    private static final Map<String, String> HOT_CONTENT_LOG_FIELDS = ImmutableMap.of(
+            IsaacServerLogType.VIEW_QUESTION.name(), QUESTION_ID_LOG_FIELDNAME,
+            IsaacServerLogType.VIEW_CONCEPT.name(), CONCEPT_ID_LOG_FIELDNAME);
+    private static final long HOT_CONTENT_LOOKBACK_MILLIS = TimeUnit.DAYS.toMillis(7);
+    private static final long HOT_CONTENT_REFRESH_INTERVAL_HOURS = 1;
+    private static final int MAX_HOT_CONTENT_IDS_PER_LOG_TYPE = 1000;
+    private static final int WARM_UP_BATCH_SIZE = 100;
+    private static final int WARM_UP_THREADS = 4;
+    private static final long MAX_WARM_UP_SECONDS = 120;
+    private static final long CONTENT_VERSION_CHECK_INTERVAL_SECONDS = 5;
+    private static final String UNKNOWN_CONTENT_SHA = "unknown";
+
+    private final GitContentManager contentManager;
+    private final ISearchProvider searchProvider;
+    private final Supplier<List<String>> hotContentIds;
+    private final ExecutorService warmUpExecutor;
+    private final ScheduledExecutorService versionCheckExecutor;
+
+    private final Set<String> warmedContentSHAs = ConcurrentHashMap.newKeySet();
+    private final Set<String> attemptedContentSHAs = ConcurrentHashMap.newKeySet();
+    private volatile boolean startupWarmUpComplete = false;
+
+    /**
+     * @param contentManager - to load the content into its caches.
+     * @param searchProvider - so that an in-memory copy of the content can also be loaded, if one is used.
+     * @param logManager - to find the most viewed content.
+     */
+    @Inject
+    public ContentWarmUpService(final GitContentManager contentManager, final ISearchProvider searchProvider,
+                                final ILogManager logManager) {
+        this.contentManager = contentManager;
+        this.searchProvider = searchProvider;
+        this.hotContentIds = Suppliers.memoizeWithExpiration(() -> findHotContentIds(logManager),
+                HOT_CONTENT_REFRESH_INTERVAL_HOURS, TimeUnit.HOURS);
+        this.warmUpExecutor = Executors.newFixedThreadPool(WARM_UP_THREADS, new ThreadFactoryBuilder()
+                .setNameFormat("content-warm-up-%d").setDaemon(true).build());
+        this.versionCheckExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("content-warm-up-version-check").setDaemon(true).build());
+    }
+
+    /**
+     * Warm the caches for a content version, unless that has already been done.
+     *
+     * The content is loaded in parallel batches and failures are only logged; a version is never warmed for longer
+     * than a couple of minutes, so that a struggling search cluster cannot stop the API becoming ready. If every part
+     * of the warm up fails, e.g. because the version is not indexed yet, the version is warmed again next time.
+     *
+     * @param contentSHA - the content version to warm, which must be indexed but need not be live yet.
+     */
+    public synchronized void warmUpContentVersion(final String contentSHA) {
+        if (null == contentSHA || UNKNOWN_CONTENT_SHA.equals(contentSHA) || warmedContentSHAs.contains(contentSHA)) {
+            return;
+        }
+
+        long startTime = System.currentTimeMillis();
+        List<Callable<Void>> warmUpTasks = Lists.newArrayList();
+        if (searchProvider instanceof InMemoryContentSearchProvider
+                && !contentSHA.equals(((InMemoryContentSearchProvider) searchProvider).getLoadedContentSHA())) {
+            warmUpTasks.add(() -> {
+                ((InMemoryContentSearchProvider) searchProvider).loadContentVersion(contentSHA);
+                return null;
+            });
+        }
+        // Content which is hot on this server right now comes first, then the most viewed content of the last week:
+        Set<String> hotContentIdSet = new LinkedHashSet<>(HOT_CONTENT_TRACKER.getTopKeys().keySet());
+        hotContentIdSet.addAll(hotContentIds.get());
+        List<String> contentIds = Lists.newArrayList(hotContentIdSet);
+        for (List<String> batch : Lists.partition(contentIds, WARM_UP_BATCH_SIZE)) {
+            warmUpTasks.add(() -> {
+                contentManager.warmContentCache(contentSHA, batch);
+                return null;
+            });
+        }
+
+        int failedTasks = 0;
+        try {
+            List<Future<Void>> completedTasks =
+                    warmUpExecutor.invokeAll(warmUpTasks, MAX_WARM_UP_SECONDS, TimeUnit.SECONDS);
+            for (Future<Void> warmUpTask : completedTasks) {
+                try {
+                    warmUpTask.get();
+                } catch (ExecutionException | CancellationException e) {
+                    failedTasks++;
+                    log.warn(String.format("Unable to warm part of content version (%s).", contentSHA),
+                            e instanceof ExecutionException ? e.getCause() : e);
+                }
+            }
+            log.info(String.format("Warmed %d content objects of content version (%s) in %dms, %d of %d tasks failed.",
+                    contentIds.size(), contentSHA, System.currentTimeMillis() - startTime, failedTasks,
+                    warmUpTasks.size()));
+        } catch (InterruptedException e) {
+            log.warn(String.format("Interrupted while warming content version (%s).", contentSHA));
+            Thread.currentThread().interrupt();
+            return;
+        }
+        attemptedContentSHAs.add(contentSHA);
+        if (warmUpTasks.isEmpty() || failedTasks < warmUpTasks.size()) {
+            warmedContentSHAs.add(contentSHA);
+        }
+    }
+
+    /**
+     * Warm the caches for a content version in the background, on the same thread as the live version checks.
+     *
+     * @param contentSHA - the content version to warm, which must be indexed but need not be live yet.
+     * @return a future which completes once the version has been warmed, or has failed to be.
+     */
+    public Future<?> warmUpContentVersionInBackground(final String contentSHA) {
+        return versionCheckExecutor.submit(() -> {
+            try {
+                this.warmUpContentVersion(contentSHA);
+            } catch (RuntimeException e) {
+                log.error(String.format("Unable to warm content version (%s).", contentSHA), e);
+            }
+        });
+    }
+
+    /**
+     * Warm the caches for the live content version, if it has changed, and mark the API as ready the first time this
+     * has been attempted, whether or not it succeeded.
+     */
+    void warmUpLiveContentVersion() {
+        String liveContentSHA = contentManager.getCurrentContentSHA();
+        this.warmUpContentVersion(liveContentSHA);
+        if (!startupWarmUpComplete && attemptedContentSHAs.contains(liveContentSHA)) {
+            log.info(String.format("Startup content warm up complete for content version (%s).", liveContentSHA));
+            startupWarmUpComplete = true;
+        }
+    }
+
+    /**
+     * @return whether the caches have been warmed for the content version which was live when this server started.
+     */
+    public boolean isReady() {
+        return startupWarmUpComplete;
+    }
+
+    @Override
+    public void contextInitialized(final ServletContextEvent servletContextEvent) {
+        versionCheckExecutor.scheduleWithFixedDelay(() -> {
+            try {
+                this.warmUpLiveContentVersion();
+            } catch (RuntimeException e) {
+                log.error("Unable to warm the live content version.", e);
+            }
+        }, 0, CONTENT_VERSION_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @Override
+    public void contextDestroyed(final ServletContextEvent servletContextEvent) {
+        log.info("Shutting down content warm up");
+        versionCheckExecutor.shutdownNow();
+        warmUpExecutor.shutdownNow();
+    }
+
+    /**
+     * @param logManager - to find the most viewed content.
+     * @return the IDs of the most viewed question and concept pages, or an empty list if they cannot be found.
+     */
+    private static List<String> findHotContentIds(final ILogManager logManager) {
+        Set<String> contentIds = new LinkedHashSet<>();
+        Date fromDate = new Date(System.currentTimeMillis() - HOT_CONTENT_LOOKBACK_MILLIS);
+        for (Map.Entry<String, String> logTypeAndField : HOT_CONTENT_LOG_FIELDS.entrySet()) {
+            try {
+                contentIds.addAll(logManager.getMostFrequentEventDetailValues(logTypeAndField.getKey(),
+                        logTypeAndField.getValue(), fromDate, MAX_HOT_CONTENT_IDS_PER_LOG_TYPE));
+            } catch (SegueDatabaseException e) {
+                log.error(String.format("Unable to find the most viewed content from (%s) events.",
+                        logTypeAndField.getKey()), e);
+            }
+        }
+        return Lists.newArrayList(contentIds);
+    }
+}
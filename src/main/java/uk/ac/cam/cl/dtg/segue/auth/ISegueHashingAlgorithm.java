@@ -57,4 +57,10 @@ public interface ISegueHashingAlgorithm {
      */
     byte[] computeHash(final String str, final String salt, final int keyLength)
             throws NoSuchAlgorithmException, InvalidKeySpecException;
+
+    /**
+     * The approximate amount of memory needed to compute a single hash.
+     * @return memory used per hash in bytes
+     */
+    long memoryCostInBytes();
 }
@@ -0,0 +1,178 @@
+package uk.ac.cam.cl.dtg.segue.auth;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import io.prometheus.client.Histogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics;
+import uk.ac.cam.cl.dtg.segue.auth.exceptions.PasswordHashingUnavailableException;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes password hashes within a fixed memory budget.
+ *
+ * Memory-hard algorithms like Scrypt allocate tens of megabytes per hash, so a burst of logins could otherwise exhaust
+ * the heap. Each hash must first reserve its algorithm's memory cost from the budget, which caps how many hashes run
+ * at once; callers wait in a bounded queue for a limited time, and are turned away immediately if the queue is full.
+ */
+public class PasswordHashingService {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+
+    public static final int DEFAULT_MEMORY_BUDGET_MEGABYTES = 512;
+    public static final int DEFAULT_MAX_QUEUED_HASHES = 50;
+    public static final long DEFAULT_QUEUE_TIMEOUT_MILLISECONDS = 5000;
+    private static final int BYTES_PER_PERMIT = 1024;
+
+    private final Semaphore memoryPermits;
+    private final int memoryBudgetPermits;
+    private final int maxQueuedHashes;
+    private final long queueTimeoutMilliseconds;
+    private final AtomicInteger queuedHashes = new AtomicInteger();
+    private final ExecutorService backgroundExecutor;
+
+    /**
+     * Create a password hashing service.
+     *
+     * @param memoryBudgetMegabytes
+     *            - the memory that may be used by hashes running at the same time.
+     * @param maxQueuedHashes
+     *            - the number of hashes that may wait for memory before further hashes are rejected.
+     * @param queueTimeoutMilliseconds
+     *            - how long a hash may wait for memory before it is rejected.
+     */
+    public PasswordHashingService(final int memoryBudgetMegabytes, final int maxQueuedHashes,
+                                  final long queueTimeoutMilliseconds) {
+        this.memoryBudgetPermits = Math.max(1, memoryBudgetMegabytes * (1024 * 1024 / BYTES_PER_PERMIT));
+        this.memoryPermits = new Semaphore(memoryBudgetPermits, true);
+        this.maxQueuedHashes = maxQueuedHashes;
+        this.queueTimeoutMilliseconds = queueTimeoutMilliseconds;
+        this.backgroundExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, maxQueuedHashes)),
+                new ThreadFactoryBuilder().setNameFormat("password-hashing-background").setDaemon(true).build());
+    }
+
+    /**
+     * Hash a password once there is enough memory available.
+     *
+     * @param algorithm - the algorithm to hash with.
+     * @param password - plain text password.
+     * @param salt - salt.
+     * @return hashed password
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     * @throws PasswordHashingUnavailableException - if there was no memory available in time.
+     */
+    public String hashPassword(final ISegueHashingAlgorithm algorithm, final String password, final String salt)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return withinMemoryBudget(algorithm, () -> algorithm.hashPassword(password, salt));
+    }
+
+    /**
+     * Compute a hash as a byte array once there is enough memory available.
+     *
+     * @param algorithm - the algorithm to hash with.
+     * @param str - string value
+     * @param salt - salt value
+     * @param keyLength - key length
+     * @return hash as a byte array
+     * @throws NoSuchAlgorithmException
+     * @throws InvalidKeySpecException
+     * @throws PasswordHashingUnavailableException - if there was no memory available in time.
+     */
+    public byte[] computeHash(final ISegueHashingAlgorithm algorithm, final String str, final String salt,
+                              final int keyLength) throws NoSuchAlgorithmException, InvalidKeySpecException {
+        return withinMemoryBudget(algorithm, () -> algorithm.computeHash(str, salt, keyLength));
+    }
+
+    /**
+     * Run a task off the request thread, e.g. to rehash a password once a user has logged in.
+     *
+     * The task is dropped if too many tasks are already waiting; it should be safe to skip.
+     *
+     * @param description - a description of the task for the logs.
+     * @param task - the task to run.
+     */
+    public void runInBackground(final String description, final Runnable task) {
+        try {
+            backgroundExecutor.execute(() -> {
+                try {
+                    task.run();
+                } catch (RuntimeException e) {
+                    log.error(String.format("Background password hashing task failed: %s", description), e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            log.warn(String.format("Too many background password hashing tasks waiting, skipped: %s", description));
+        }
+    }
+
+    /**
+     * Reserve the algorithm's memory cost from the budget while hashing.
+     */
+    private <T> T withinMemoryBudget(final ISegueHashingAlgorithm algorithm, final HashFunction<T> hashFunction)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        String algorithmName = algorithm.hashingAlgorithmName();
+        int permits = permitsFor(algorithm);
+
+        if (!memoryPermits.tryAcquire(permits)) {
+            if (queuedHashes.incrementAndGet() > maxQueuedHashes) {
+                queuedHashes.decrementAndGet();
+                SegueMetrics.PASSWORD_HASH_REJECTED.labels(algorithmName, "queue_full").inc();
+                throw new PasswordHashingUnavailableException("Too many passwords are waiting to be hashed.");
+            }
+
+            Histogram.Timer waitTimer = SegueMetrics.PASSWORD_HASH_WAIT_HISTOGRAM.labels(algorithmName).startTimer();
+            boolean acquired;
+            try {
+                acquired = memoryPermits.tryAcquire(permits, queueTimeoutMilliseconds, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                queuedHashes.decrementAndGet();
+                waitTimer.observeDuration();
+            }
+
+            if (!acquired) {
+                SegueMetrics.PASSWORD_HASH_REJECTED.labels(algorithmName, "timeout").inc();
+                throw new PasswordHashingUnavailableException("Timed out waiting to hash a password.");
+            }
+        } else {
+            SegueMetrics.PASSWORD_HASH_WAIT_HISTOGRAM.labels(algorithmName).observe(0);
+        }
+
+        Histogram.Timer hashTimer = SegueMetrics.PASSWORD_HASH_LATENCY_HISTOGRAM.labels(algorithmName).startTimer();
+        try {
+            return hashFunction.hash();
+        } finally {
+            hashTimer.observeDuration();
+            memoryPermits.release(permits);
+        }
+    }
+
+    /**
+     * @param algorithm - the algorithm to hash with.
+     * @return the number of permits needed to cover the memory used by a hash, never more than the whole budget.
+     */
+    private int permitsFor(final ISegueHashingAlgorithm algorithm) {
+        long permits = (algorithm.memoryCostInBytes() + BYTES_PER_PERMIT - 1) / BYTES_PER_PERMIT;
+        return (int) Math.min(memoryBudgetPermits, Math.max(1, permits));
+    }
+
+    /**
+     * A hash computation which may throw the checked exceptions of {@link ISegueHashingAlgorithm}.
+     */
+    @FunctionalInterface
+    private interface HashFunction<T> {
+        T hash() throws NoSuchAlgorithmException, InvalidKeySpecException;
+    }
+}
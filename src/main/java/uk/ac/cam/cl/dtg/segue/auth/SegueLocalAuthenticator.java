@@ -57,6 +57,7 @@ public class SegueLocalAuthenticator implements IPasswordAuthenticator {
 
     private final Map<String, ISegueHashingAlgorithm> possibleAlgorithms;
     private final ISegueHashingAlgorithm preferredAlgorithm;
+    private final PasswordHashingService hashingService;
 
 
     /**
@@ -68,17 +69,21 @@ public class SegueLocalAuthenticator implements IPasswordAuthenticator {
      *            - so we can look up system properties.
      * @param possibleAlgorithms
      *            - Map of possibleAlgorithms
+     * @param hashingService
+     *            - to compute hashes within a memory budget.
      */
     @Inject
     public SegueLocalAuthenticator(final IUserDataManager userDataManager, final IPasswordDataManager passwordDataManager,
                                    final PropertiesLoader properties,
                                    final Map<String, ISegueHashingAlgorithm> possibleAlgorithms,
-                                   final ISegueHashingAlgorithm preferredAlgorithm) {
+                                   final ISegueHashingAlgorithm preferredAlgorithm,
+                                   final PasswordHashingService hashingService) {
         this.userDataManager = userDataManager;
         this.properties = properties;
         this.possibleAlgorithms = possibleAlgorithms;
         this.preferredAlgorithm = preferredAlgorithm;
         this.passwordDataManager = passwordDataManager;
+        this.hashingService = hashingService;
     }
 
     @Override
@@ -117,15 +122,26 @@ public class SegueLocalAuthenticator implements IPasswordAuthenticator {
         // work out what algorithm is being used.
         ISegueHashingAlgorithm hashingAlgorithmUsed = this.possibleAlgorithms.get(luc.getSecurityScheme());
 
-        if (hashingAlgorithmUsed.hashPassword(plainTextPassword, luc.getSecureSalt()).equals(
+        if (hashingService.hashPassword(hashingAlgorithmUsed, plainTextPassword, luc.getSecureSalt()).equals(
                 luc.getPassword())) {
 
             // success, now check if we should rehash the password or not.
             if (!preferredAlgorithm.hashingAlgorithmName().equals(hashingAlgorithmUsed.hashingAlgorithmName())) {
 
-                // update the password
-                this.updateUsersPasswordWithoutValidation(localUserAccount, plainTextPassword);
-                log.info(String.format("Account id (%s) password algorithm automatically upgraded.", localUserAccount.getId()));
+                // update the password in the background, so the user does not have to wait for a second hash.
+                hashingService.runInBackground(String.format("upgrade password for account id (%s)", localUserAccount.getId()), () -> {
+                    try {
+                        // don't overwrite the password if it has been changed since the user logged in.
+                        LocalUserCredential currentLuc = passwordDataManager.getLocalUserCredential(localUserAccount.getId());
+                        if (null == currentLuc || !luc.getPassword().equals(currentLuc.getPassword())) {
+                            return;
+                        }
+                        this.updateUsersPasswordWithoutValidation(localUserAccount, plainTextPassword);
+                        log.info(String.format("Account id (%s) password algorithm automatically upgraded.", localUserAccount.getId()));
+                    } catch (SegueDatabaseException | NoSuchAlgorithmException | InvalidKeySpecException e) {
+                        log.error(String.format("Unable to upgrade password algorithm for account id (%s).", localUserAccount.getId()), e);
+                    }
+                });
             }
 
             return localUserAccount;
@@ -195,16 +211,16 @@ public class SegueLocalAuthenticator implements IPasswordAuthenticator {
             // If new password algorithms are implemented that use short keys and/or a larger charset than Base64 does
             // this may become an issue, although unlikely because short keys are risky and Base64 is an encoding safe charset.
             luc = new LocalUserCredential(userToAttachToken.getId(),
-                    "LOCKED@" + new String(Base64.encodeBase64(this.preferredAlgorithm.computeHash(UUID.randomUUID().toString(),
+                    "LOCKED@" + new String(Base64.encodeBase64(hashingService.computeHash(this.preferredAlgorithm, UUID.randomUUID().toString(),
                             UUID.randomUUID().toString(), SHORT_KEY_LENGTH))),
-                    new String(Base64.encodeBase64(this.preferredAlgorithm.computeHash(UUID.randomUUID().toString(),
+                    new String(Base64.encodeBase64(hashingService.computeHash(this.preferredAlgorithm, UUID.randomUUID().toString(),
                             UUID.randomUUID().toString(), SHORT_KEY_LENGTH))),
                     this.preferredAlgorithm.hashingAlgorithmName());
         }
 
         // Trim the "=" padding off the end of the base64 encoded token so that the URL that is
         // eventually generated is correctly parsed in email clients
-        String token = new String(Base64.encodeBase64(this.preferredAlgorithm.computeHash(UUID.randomUUID().toString(),
+        String token = new String(Base64.encodeBase64(hashingService.computeHash(this.preferredAlgorithm, UUID.randomUUID().toString(),
                 luc.getSecureSalt(), SHORT_KEY_LENGTH))).replace("=", "").replace("/", "")
                 .replace("+", "");
 
@@ -269,7 +285,7 @@ public class SegueLocalAuthenticator implements IPasswordAuthenticator {
     private void updateUsersPasswordWithoutValidation(final RegisteredUser userToSetPasswordFor, final String plainTextPassword)
             throws SegueDatabaseException, NoSuchAlgorithmException, InvalidKeySpecException {
         String passwordSalt = preferredAlgorithm.generateSalt();
-        String hashedPassword = preferredAlgorithm.hashPassword(plainTextPassword, passwordSalt);
+        String hashedPassword = hashingService.hashPassword(preferredAlgorithm, plainTextPassword, passwordSalt);
 
         LocalUserCredential luc = new LocalUserCredential(
                 userToSetPasswordFor.getId(),
@@ -93,6 +93,15 @@ public class SeguePBKDF2 {
         return key.generateSecret(spec).getEncoded();
     }
 
+    /**
+     * The memory needed by PBKDF2, which only holds a few blocks of the underlying hash function at once.
+     *
+     * @return the approximate memory used per hash in bytes.
+     */
+    public long memoryCostInBytes() {
+        return 1024L;
+    }
+
     /**
      * Helper method to generate a base64 encoded salt.
      *
@@ -78,6 +78,15 @@ public class SegueSCrypt {
         return SCrypt.generate(strBytes, saltBytes, iterations, blockSize, parallelismFactor, keyLength);
     }
 
+    /**
+     * The memory needed by Scrypt, which is dominated by its working array of N blocks of 128 * r bytes.
+     *
+     * @return the approximate memory used per hash in bytes.
+     */
+    public long memoryCostInBytes() {
+        return 128L * blockSize * (iterations + parallelismFactor);
+    }
+
     /**
      * Helper method to generate a base64 encoded salt.
      *
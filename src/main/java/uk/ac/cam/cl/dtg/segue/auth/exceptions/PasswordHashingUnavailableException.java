@@ -0,0 +1,19 @@
+package uk.ac.cam.cl.dtg.segue.auth.exceptions;
+
+/**
+ * An exception which indicates that a password could not be hashed because too many passwords are already being
+ * hashed; the request can be retried later.
+ */
+public class PasswordHashingUnavailableException extends RuntimeException {
+    private static final long serialVersionUID = 6307542880174218337L;
+
+    /**
+     * Creates a password hashing unavailable exception.
+     *
+     * @param message
+     *            - message to include with the exception.
+     */
+    public PasswordHashingUnavailableException(final String message) {
+        super(message);
+    }
+}
@@ -82,12 +82,15 @@ import uk.ac.cam.cl.dtg.segue.api.managers.StubExternalAccountManager;
 import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
 import uk.ac.cam.cl.dtg.segue.api.managers.UserAuthenticationManager;
 import uk.ac.cam.cl.dtg.segue.api.monitors.*;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentResponseCache;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentWarmUpService;
 import uk.ac.cam.cl.dtg.segue.auth.AuthenticationProvider;
 import uk.ac.cam.cl.dtg.segue.auth.FacebookAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.GoogleAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.IAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.ISecondFactorAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.ISegueHashingAlgorithm;
+import uk.ac.cam.cl.dtg.segue.auth.PasswordHashingService;
 import uk.ac.cam.cl.dtg.segue.auth.SegueLocalAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.SeguePBKDF2v1;
 import uk.ac.cam.cl.dtg.segue.auth.SeguePBKDF2v2;
@@ -133,8 +136,10 @@ import uk.ac.cam.cl.dtg.segue.scheduler.jobs.EventFeedbackEmailJob;
 import uk.ac.cam.cl.dtg.segue.scheduler.jobs.EventReminderEmailJob;
 import uk.ac.cam.cl.dtg.segue.scheduler.jobs.ScheduledAssignmentsEmailJob;
 import uk.ac.cam.cl.dtg.segue.scheduler.jobs.SegueScheduledSyncMailjetUsersJob;
+import uk.ac.cam.cl.dtg.segue.scheduler.jobs.TablePartitionMaintenanceJob;
 import uk.ac.cam.cl.dtg.segue.search.ElasticSearchProvider;
 import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+import uk.ac.cam.cl.dtg.segue.search.InMemoryContentSearchProvider;
 import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 import uk.ac.cam.cl.dtg.util.email.MailJetApiClientWrapper;
 import uk.ac.cam.cl.dtg.util.locations.IPInfoDBLocationResolver;
@@ -170,6 +175,8 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
     private static PostgresSqlDb postgresDB;
     private static ContentMapper mapper = null;
     private static GitContentManager contentManager = null;
+    private static ContentResponseCache contentResponseCache = null;
+    private static ContentWarmUpService contentWarmUpService = null;
     private static RestHighLevelClient elasticSearchClient = null;
     private static UserAccountManager userManager = null;
     private static UserAuthenticationManager userAuthenticationManager = null;
@@ -185,8 +192,11 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
     private static IExternalAccountManager externalAccountManager = null;
     private static GameboardPersistenceManager gameboardPersistenceManager = null;
     private static SchoolListReader schoolListReader = null;
+    private static ISearchProvider searchProvider = null;
     private static AssignmentManager assignmentManager = null;
     private static IGroupObserver groupObserver = null;
+    private static PasswordHashingService passwordHashingService = null;
+    private static PostCodeLocationResolver postCodeLocationResolver = null;
 
     private static Collection<Class<? extends ServletContextListener>> contextListeners;
     private static final Map<String, Reflections> reflections = com.google.common.collect.Maps.newHashMap();
@@ -237,7 +247,6 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
         try {
             this.configureProperties();
             this.configureDataPersistence();
-            this.configureSegueSearch();
             this.configureAuthenticationProviders();
             this.configureApplicationManagers();
 
@@ -323,10 +332,27 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
     }
 
     /**
-     * Configure segue search classes.
+     * Gets the search provider, which serves content searches from memory if IN_MEMORY_CONTENT_SEARCH is enabled.
+     *
+     * Only the calls which reach the search cluster are recorded as work done by each request.
+     *
+     * @param searchClient
+     *            - the client for the search cluster.
+     * @return the search provider singleton.
      */
-    private void configureSegueSearch() {
-        bind(ISearchProvider.class).to(ElasticSearchProvider.class);
+    @Inject
+    @Provides
+    @Singleton
+    private static ISearchProvider getSearchProvider(final RestHighLevelClient searchClient) {
+        if (null == searchProvider) {
+            searchProvider = RequestWorkMonitor.instrument(new ElasticSearchProvider(searchClient));
+            if (Boolean.parseBoolean(globalProperties.getProperty(Constants.IN_MEMORY_CONTENT_SEARCH))) {
+                searchProvider = new InMemoryContentSearchProvider(searchProvider,
+                        globalProperties.getProperty(Constants.CONTENT_INDEX));
+                log.info("Created Singleton of InMemoryContentSearchProvider");
+            }
+        }
+        return searchProvider;
     }
 
     /**
@@ -368,8 +394,6 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
     private void configureApplicationManagers() {
         bind(LocationHistory.class).to(PgLocationHistory.class);
 
-        bind(PostCodeLocationResolver.class).to(PostCodeIOLocationResolver.class);
-
         bind(IUserDataManager.class).to(PgUsers.class);
 
         bind(IAnonymousUserDataManager.class).to(PgAnonymousUsers.class);
@@ -485,6 +509,50 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
         return contentManager;
     }
 
+    /**
+     * This provides a singleton of the ContentResponseCache, so that all facades share one bounded cache.
+     *
+     * @param contentManager
+     *            - to find the current content SHA.
+     * @return the content response cache.
+     */
+    @Inject
+    @Provides
+    @Singleton
+    private static ContentResponseCache getContentResponseCache(final GitContentManager contentManager) {
+        if (null == contentResponseCache) {
+            contentResponseCache = new ContentResponseCache(contentManager);
+            log.info("Creating singleton of ContentResponseCache");
+        }
+
+        return contentResponseCache;
+    }
+
+    /**
+     * This provides a singleton of the ContentWarmUpService, which is also notified of the servlet context.
+     *
+     * @param contentManager
+     *            - to load the content into its caches.
+     * @param searchProvider
+     *            - so that an in-memory copy of the content can also be loaded.
+     * @param logManager
+     *            - to find the most viewed content.
+     * @return the content warm up service.
+     */
+    @Inject
+    @Provides
+    @Singleton
+    private static ContentWarmUpService getContentWarmUpService(final GitContentManager contentManager,
+                                                                final ISearchProvider searchProvider,
+                                                                final ILogManager logManager) {
+        if (null == contentWarmUpService) {
+            contentWarmUpService = new ContentWarmUpService(contentManager, searchProvider, logManager);
+            log.info("Creating singleton of ContentWarmUpService");
+        }
+
+        return contentWarmUpService;
+    }
+
     /**
      * This provides a singleton of the LogManager for the Segue facade.
      *
@@ -540,6 +608,34 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
         return mapper;
     }
 
+    /**
+     * This provides a singleton of the password hashing service, so that every authenticator shares one memory budget.
+     *
+     * @param properties
+     * 			- the global system properties
+     * @return the password hashing service
+     */
+    @Inject
+    @Provides
+    @Singleton
+    private static PasswordHashingService getPasswordHashingService(final PropertiesLoader properties) {
+        if (null == passwordHashingService) {
+            String memoryBudget = properties.getProperty(Constants.PASSWORD_HASHING_MEMORY_BUDGET_MB);
+            String maxQueued = properties.getProperty(Constants.PASSWORD_HASHING_MAX_QUEUED);
+            String queueTimeout = properties.getProperty(Constants.PASSWORD_HASHING_QUEUE_TIMEOUT_MS);
+
+            passwordHashingService = new PasswordHashingService(
+                    null == memoryBudget || memoryBudget.isEmpty()
+                            ? PasswordHashingService.DEFAULT_MEMORY_BUDGET_MEGABYTES : Integer.parseInt(memoryBudget),
+                    null == maxQueued || maxQueued.isEmpty()
+                            ? PasswordHashingService.DEFAULT_MAX_QUEUED_HASHES : Integer.parseInt(maxQueued),
+                    null == queueTimeout || queueTimeout.isEmpty()
+                            ? PasswordHashingService.DEFAULT_QUEUE_TIMEOUT_MILLISECONDS : Long.parseLong(queueTimeout));
+            log.info("Created Singleton of PasswordHashingService");
+        }
+        return passwordHashingService;
+    }
+
     /**
      * This provides an instance of the SegueLocalAuthenticator.
      *
@@ -550,12 +646,15 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
      * 			- the database to access passwords
      * @param properties
      * 			- the global system properties
+     * @param hashingService
+     * 			- to compute password hashes within a memory budget
      * @return an instance of the queue
      */
     @Inject
     @Provides
     private static SegueLocalAuthenticator getSegueLocalAuthenticator(final IUserDataManager database, final IPasswordDataManager passwordDataManager,
-                                                                      final PropertiesLoader properties) {
+                                                                      final PropertiesLoader properties,
+                                                                      final PasswordHashingService hashingService) {
         ISegueHashingAlgorithm preferredAlgorithm = new SegueSCryptv1();
         ISegueHashingAlgorithm oldAlgorithm1 = new SeguePBKDF2v1();
         ISegueHashingAlgorithm oldAlgorithm2 = new SeguePBKDF2v2();
@@ -568,7 +667,8 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
                 oldAlgorithm3.hashingAlgorithmName(), oldAlgorithm3
         );
 
-        return new SegueLocalAuthenticator(database, passwordDataManager, properties, possibleAlgorithms, preferredAlgorithm);
+        return new SegueLocalAuthenticator(database, passwordDataManager, properties, possibleAlgorithms, preferredAlgorithm,
+                hashingService);
     }
 
     /**
@@ -945,6 +1045,12 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
                     "SQL scheduled job that deletes expired reservations for the event booking system",
                     "0 0 7 * * ?", "db_scripts/scheduled/expired-reservations-clean-up.sql");
 
+            SegueScheduledJob rollUpDailyLogEventCounts = new SegueScheduledDatabaseScriptJob(
+                    "rollUpDailyLogEventCounts",
+                    "SQLMaintenance",
+                    "SQL scheduled job that rolls up complete days of log events into daily counts",
+                    "0 15 0 * * ?", "db_scripts/scheduled/logged-events-daily-rollup.sql");
+
             SegueScheduledJob deleteEventAdditionalBookingInformation = SegueScheduledJob.createCustomJob(
                   "deleteEventAdditionalBookingInformation",
                   "JavaJob",
@@ -963,6 +1069,15 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
                     new DeleteEventAdditionalBookingInformationOneYearJob()
             );
 
+            SegueScheduledJob tablePartitionMaintenance = SegueScheduledJob.createCustomJob(
+                    "tablePartitionMaintenance",
+                    "JavaJob",
+                    "Create upcoming partitions of logged_events and question_attempts and archive expired ones",
+                    "0 0 1 * * ?",
+                    Maps.newHashMap(),
+                    new TablePartitionMaintenanceJob()
+            );
+
             SegueScheduledJob eventReminderEmail = SegueScheduledJob.createCustomJob(
                 "eventReminderEmail",
                 "JavaJob",
@@ -1000,6 +1115,8 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
                     PIISQLJob,
                     cleanUpOldAnonymousUsers,
                     cleanUpExpiredReservations,
+                    rollUpDailyLogEventCounts,
+                    tablePartitionMaintenance,
                     deleteEventAdditionalBookingInformation,
                     deleteEventAdditionalBookingInformationOneYearJob,
                     scheduledAssignmentsEmail
@@ -1195,6 +1312,24 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
         return schoolListReader;
     }
 
+    /**
+     * This provides a singleton of the PostCodeLocationResolver, so that postcode locations are only held in memory once.
+     *
+     * @param locationHistory
+     *            - the location history, for the database of known postcodes.
+     * @return postcode location resolver
+     */
+    @Inject
+    @Provides
+    @Singleton
+    private static PostCodeLocationResolver getPostCodeLocationResolver(final LocationHistory locationHistory) {
+        if (null == postCodeLocationResolver) {
+            postCodeLocationResolver = new PostCodeIOLocationResolver(locationHistory);
+            log.info("Creating singleton of PostCodeLocationResolver");
+        }
+        return postCodeLocationResolver;
+    }
+
     /**
      * Utility method to make the syntax of property bindings clearer.
      *
@@ -1256,6 +1391,8 @@ public class SegueGuiceConfigurationModule extends AbstractModule implements Ser
     public void contextDestroyed(final ServletContextEvent sce) {
         // Close all resources we hold.
         log.info("Segue Config Module notified of shutdown. Releasing resources");
+        GameManager.shutdownQuestionPoolLoading();
+
         try {
             elasticSearchClient.close();
             elasticSearchClient = null;
@@ -0,0 +1,32 @@
+package uk.ac.cam.cl.dtg.segue.configuration.exceptionMappers;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.isaac.dto.SegueErrorResponse;
+import uk.ac.cam.cl.dtg.segue.auth.exceptions.PasswordHashingUnavailableException;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.ExceptionMapper;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * ExceptionHandler for PasswordHashingUnavailableExceptions, thrown when too many logins, registrations or password
+ * resets are happening at once. The user is asked to try again rather than being shown an unhandled error.
+ */
+@Provider
+public class PasswordHashingUnavailableExceptionMapper implements ExceptionMapper<PasswordHashingUnavailableException> {
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingUnavailableExceptionMapper.class);
+
+    @Context
+    private HttpServletRequest request;
+
+    @Override
+    public Response toResponse(final PasswordHashingUnavailableException e) {
+        log.warn(String.format("%s on %s request to %s: %s", e.getClass().getSimpleName(), request.getMethod(),
+                request.getRequestURI(), e.getMessage()));
+        return new SegueErrorResponse(Response.Status.SERVICE_UNAVAILABLE,
+                "We are experiencing a high number of logins. Please try again in a moment.").toResponse();
+    }
+}
@@ -121,6 +121,25 @@ public interface ILogManager {
      */
     Long getLogCountByType(String type) throws SegueDatabaseException;
 
+    /**
+     * Find the values of an event details field which have been logged most often for a type of event.
+     *
+     * This is useful for finding the most requested content, e.g. the question IDs of VIEW_QUESTION events.
+     *
+     * @param type
+     *            - event type of interest.
+     * @param eventDetailsField
+     *            - the top-level field of the event details to count the values of.
+     * @param fromDate
+     *            - only events logged since this date are counted.
+     * @param limit
+     *            - the maximum number of values to return.
+     * @return the most frequently logged values, most frequent first.
+     * @throws SegueDatabaseException - if there is a problem contacting the underlying database
+     */
+    List<String> getMostFrequentEventDetailValues(String type, String eventDetailsField, Date fromDate, int limit)
+            throws SegueDatabaseException;
+
     /**
      * Allows filtering by date range.
      * 
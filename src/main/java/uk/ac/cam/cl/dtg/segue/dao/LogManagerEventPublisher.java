@@ -133,6 +133,15 @@ public abstract class LogManagerEventPublisher implements ILogManager {
 
     }
 
+    @Override
+    public List<String> getMostFrequentEventDetailValues(final String type, final String eventDetailsField,
+                                                         final Date fromDate, final int limit)
+            throws SegueDatabaseException {
+
+        return this.logManager.getMostFrequentEventDetailValues(type, eventDetailsField, fromDate, limit);
+
+    }
+
     @Override
     public Collection<LogEvent> getLogsByType(String type, Date fromDate, Date toDate, List<RegisteredUserDTO> usersOfInterest)
             throws SegueDatabaseException{
@@ -61,6 +61,8 @@ import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.LOG_EVENT;
  */
 public class PgLogManager implements ILogManager {
     private static final Logger log = LoggerFactory.getLogger(PgLogManager.class);
+    private static final String LAST_ROLLED_UP_DAY
+            = "(SELECT COALESCE((SELECT rolled_up_to FROM logged_events_daily_counts_state), '-infinity'::date))";
 
     private final PostgresSqlDb database;
     private final LocationManager locationManager;
@@ -151,14 +153,36 @@ public class PgLogManager implements ILogManager {
     @Override
     public void transferLogEventsToRegisteredUser(final String oldUserId, final String newUserId) {
         String query = "UPDATE logged_events SET user_id = ?, anonymous_user = TRUE WHERE user_id = ?;";
-        try (Connection conn = database.getDatabaseConnection();
-             PreparedStatement pst = conn.prepareStatement(query);
-        ) {
-            pst.setString(1, newUserId);
-            pst.setString(2, oldUserId);
-
-            pst.executeUpdate();
-
+        // The daily rollup is keyed by user, so any complete days already rolled up must move across too:
+        String transferCountsQuery = "INSERT INTO logged_events_daily_counts(event_type, day, user_id, event_count)"
+                + " SELECT event_type, day, ?, event_count FROM logged_events_daily_counts WHERE user_id = ?"
+                + " ON CONFLICT (event_type, day, user_id) DO UPDATE"
+                + " SET event_count = logged_events_daily_counts.event_count + EXCLUDED.event_count;";
+        String deleteCountsQuery = "DELETE FROM logged_events_daily_counts WHERE user_id = ?;";
+        try (Connection conn = database.getDatabaseConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement pst = conn.prepareStatement(query);
+                 PreparedStatement transferCounts = conn.prepareStatement(transferCountsQuery);
+                 PreparedStatement deleteCounts = conn.prepareStatement(deleteCountsQuery);
+            ) {
+                pst.setString(1, newUserId);
+                pst.setString(2, oldUserId);
+                pst.executeUpdate();
+
+                transferCounts.setString(1, newUserId);
+                transferCounts.setString(2, oldUserId);
+                transferCounts.executeUpdate();
+
+                deleteCounts.setString(1, oldUserId);
+                deleteCounts.executeUpdate();
+
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         } catch (SQLException e) {
             log.error("Unable to transfer log events", e);
         }
@@ -187,6 +211,34 @@ public class PgLogManager implements ILogManager {
         }
     }
 
+    @Override
+    public List<String> getMostFrequentEventDetailValues(final String type, final String eventDetailsField,
+                                                         final Date fromDate, final int limit)
+            throws SegueDatabaseException {
+        String query = "SELECT event_details ->> ? AS detail_value, count(*) AS event_count FROM logged_events"
+                + " WHERE event_type = ? AND \"timestamp\" >= ? AND event_details ->> ? IS NOT NULL"
+                + " GROUP BY detail_value ORDER BY event_count DESC LIMIT ?";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setString(1, eventDetailsField);
+            pst.setString(2, type);
+            pst.setTimestamp(3, new java.sql.Timestamp(fromDate.getTime()));
+            pst.setString(4, eventDetailsField);
+            pst.setInt(5, limit);
+
+            try (ResultSet results = pst.executeQuery()) {
+                List<String> detailValues = Lists.newArrayList();
+                while (results.next()) {
+                    detailValues.add(results.getString("detail_value"));
+                }
+                return detailValues;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception: Unable to count log event details", e);
+        }
+    }
+
     @Override
     public Collection<LogEvent> getLogsByType(final String type, final Date fromDate, final Date toDate,
             final List<RegisteredUserDTO> usersOfInterest) throws SegueDatabaseException {
@@ -260,11 +312,20 @@ public class PgLogManager implements ILogManager {
     @Override
     public Map<String, Date> getLastLogDateForAllUsers(final String qualifyingLogEventType)
             throws SegueDatabaseException {
-        String query = "SELECT DISTINCT ON (user_id) user_id, \"timestamp\" FROM logged_events WHERE event_type = ? ORDER BY user_id, id DESC;";
+        // Only the date is returned, so complete days can come from the rollup and only events since it last ran need
+        // to be read from logged_events:
+        String query = "SELECT user_id, max(last_day) AS \"timestamp\" FROM ("
+                + " SELECT user_id, max(day) AS last_day FROM logged_events_daily_counts WHERE event_type = ?"
+                + " AND day <= " + LAST_ROLLED_UP_DAY + " GROUP BY user_id"
+                + " UNION ALL"
+                + " SELECT user_id, max(\"timestamp\")::date AS last_day FROM logged_events WHERE event_type = ?"
+                + " AND \"timestamp\" >= " + LAST_ROLLED_UP_DAY + " + 1 GROUP BY user_id"
+                + ") AS last_days GROUP BY user_id;";
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(query);
         ) {
             pst.setString(1, qualifyingLogEventType);
+            pst.setString(2, qualifyingLogEventType);
 
             try (ResultSet results = pst.executeQuery()) {
                 Map<String, Date> resultToReturn = Maps.newHashMap();
@@ -319,6 +380,9 @@ public class PgLogManager implements ILogManager {
      * 
      * An optimised method for getting log counts data by month.
      * This relies on the database doing the binning for us.
+     *
+     * Complete days are read from the logged_events_daily_counts rollup; only the days since the rollup last ran
+     * (usually just today) are counted from logged_events itself.
      * 
      * @param type
      *            - type of log event to search for.
@@ -337,8 +401,7 @@ public class PgLogManager implements ILogManager {
         Validate.notNull(fromDate);
         Validate.notNull(toDate);
 
-        StringBuilder queryToBuild = new StringBuilder();
-        queryToBuild.append("WITH filtered_logs AS (SELECT * FROM logged_events WHERE event_type=?");
+        String userFilter = "";
         if (userIds != null && !userIds.isEmpty()) {
             StringBuilder inParams = new StringBuilder();
             inParams.append("?");
@@ -346,30 +409,44 @@ public class PgLogManager implements ILogManager {
                 inParams.append(",?");
             }
 
-            queryToBuild.append(String.format(" AND user_id IN (%s)", inParams.toString()));
-
+            userFilter = String.format(" AND user_id IN (%s)", inParams.toString());
         }
-        queryToBuild.append(") ");
-        // The following LEFT JOIN gives us months with no events in as required, but need count(id) not count(1) to
-        // count actual logged events (where id strictly NOT NULL) in those months, and not count an extra '1' for
-        // empty months where id is NULL by definition of the JOIN.
-        queryToBuild.append("SELECT to_char(gen_month, 'YYYY-MM-01'), count(id)");
+
+        StringBuilder queryToBuild = new StringBuilder();
+        queryToBuild.append("WITH monthly_counts AS (");
+        queryToBuild.append("SELECT date_trunc('month', day) AS month, sum(event_count) AS event_count");
+        queryToBuild.append(" FROM logged_events_daily_counts WHERE event_type=?").append(userFilter);
+        queryToBuild.append(" AND day >= date_trunc('month', ?::timestamp) AND day <= ").append(LAST_ROLLED_UP_DAY);
+        queryToBuild.append(" GROUP BY 1");
+        queryToBuild.append(" UNION ALL ");
+        // Comparing the timestamp against plain values (not a join) allows only the newest partitions to be scanned:
+        queryToBuild.append("SELECT date_trunc('month', \"timestamp\") AS month, count(id) AS event_count");
+        queryToBuild.append(" FROM logged_events WHERE event_type=?").append(userFilter);
+        queryToBuild.append(" AND \"timestamp\" >= date_trunc('month', ?::timestamp)");
+        queryToBuild.append(" AND \"timestamp\" >= ").append(LAST_ROLLED_UP_DAY).append(" + 1");
+        queryToBuild.append(" GROUP BY 1) ");
+        // The LEFT JOIN gives us months with no events in as required; those have a NULL sum so are coalesced to 0.
+        queryToBuild.append("SELECT to_char(gen_month, 'YYYY-MM-01'), COALESCE(sum(event_count), 0) AS count");
         queryToBuild.append(" FROM generate_series(date_trunc('month', ?::timestamp), ?, INTERVAL '1' MONTH) m(gen_month)");
-        queryToBuild.append(" LEFT OUTER JOIN filtered_logs ON ( date_trunc('month', \"timestamp\") = date_trunc('month', gen_month) )");
+        queryToBuild.append(" LEFT OUTER JOIN monthly_counts ON ( month = date_trunc('month', gen_month) )");
         queryToBuild.append(" GROUP BY gen_month ORDER BY gen_month ASC;");
 
         try (Connection conn = database.getDatabaseConnection();
              PreparedStatement pst = conn.prepareStatement(queryToBuild.toString());
         ) {
-            pst.setString(1, type);
-
-            int index = 2;
-            if (userIds != null) {
-                for (String userId : userIds) {
-                    pst.setString(index++, userId);
+            java.sql.Timestamp fromTimestamp = new java.sql.Timestamp(fromDate.getTime());
+            int index = 1;
+            // The rolled up counts and the raw counts since the last rollup take the same parameters:
+            for (int i = 0; i < 2; i++) {
+                pst.setString(index++, type);
+                if (userIds != null) {
+                    for (String userId : userIds) {
+                        pst.setString(index++, userId);
+                    }
                 }
+                pst.setTimestamp(index++, fromTimestamp);
             }
-            pst.setTimestamp(index++, new java.sql.Timestamp(fromDate.getTime()));
+            pst.setTimestamp(index++, fromTimestamp);
             pst.setTimestamp(index++, new java.sql.Timestamp(toDate.getTime()));
 
             try (ResultSet results = pst.executeQuery()) {
@@ -0,0 +1,307 @@
+package uk.ac.cam.cl.dtg.segue.dao;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.inject.Inject;
+import org.apache.commons.lang3.Validate;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Manages the monthly range partitions of the large append-only tables (logged_events and question_attempts).
+ *
+ * Partitions are named [table]_pYYYY_MM and cover one calendar month of "timestamp" values. Each table also has a
+ * default partition which only receives rows when no monthly partition exists yet; those rows are moved into the
+ * monthly partition when it is created.
+ *
+ * Rows from before the tables were partitioned are in a single [table]_legacy partition until they are split by month
+ * with the 2022-10-split_legacy_partitions.sql backfill script.
+ */
+public class PgTablePartitionManager {
+    private static final Logger log = LoggerFactory.getLogger(PgTablePartitionManager.class);
+
+    public static final String LOGGED_EVENTS_TABLE = "logged_events";
+    public static final String QUESTION_ATTEMPTS_TABLE = "question_attempts";
+    public static final String LEGACY_PARTITION_SUFFIX = "_legacy";
+    private static final Set<String> PARTITIONED_TABLES = ImmutableSet.of(LOGGED_EVENTS_TABLE, QUESTION_ATTEMPTS_TABLE);
+
+    private static final DateTimeFormatter PARTITION_SUFFIX_FORMAT = DateTimeFormatter.ofPattern("yyyy_MM");
+    private static final Pattern UPPER_BOUND_PATTERN = Pattern.compile("TO \\('(\\d{4}-\\d{2}-\\d{2})");
+
+    private final PostgresSqlDb database;
+
+    /**
+     * @param database - the database containing the partitioned tables.
+     */
+    @Inject
+    public PgTablePartitionManager(final PostgresSqlDb database) {
+        this.database = database;
+    }
+
+    /**
+     * Make sure there is a monthly partition of the table for every month up to and including the month containing
+     * the date provided.
+     *
+     * New partitions are created after the latest existing one, so there are never gaps. Any rows which were written to
+     * the default partition because the partition did not yet exist are moved into the new partition.
+     *
+     * @param table - the partitioned table.
+     * @param until - a date in the last month that should have a partition.
+     * @return the names of the partitions that were created.
+     * @throws SegueDatabaseException - if a partition could not be created.
+     */
+    public List<String> createMonthlyPartitionsUntil(final String table, final LocalDate until)
+            throws SegueDatabaseException {
+        validateTable(table);
+        List<String> createdPartitions = new ArrayList<>();
+
+        LocalDate latestUpperBound = null;
+        for (TablePartition partition : this.getPartitions(table)) {
+            if (partition.getUpperBound() != null
+                    && (latestUpperBound == null || partition.getUpperBound().isAfter(latestUpperBound))) {
+                latestUpperBound = partition.getUpperBound();
+            }
+        }
+
+        LocalDate lastMonth = until.withDayOfMonth(1);
+        LocalDate month = latestUpperBound != null ? latestUpperBound : LocalDate.now().withDayOfMonth(1);
+        while (!month.isAfter(lastMonth)) {
+            createdPartitions.add(this.createMonthlyPartition(table, month));
+            month = month.plusMonths(1);
+        }
+        return createdPartitions;
+    }
+
+    /**
+     * Detach every partition of the table whose rows are all older than the cutoff date.
+     *
+     * Detached partitions become ordinary tables which are no longer visible through the parent table, ready to be
+     * archived with {@link #archiveAndDropTable(String, Path)}. Until then they are listed by getDetachedPartitions.
+     *
+     * @param table - the partitioned table.
+     * @param cutoff - partitions whose upper bound is on or before this date will be detached.
+     * @return the names of the detached partitions.
+     * @throws SegueDatabaseException - if a partition could not be detached.
+     */
+    public List<String> detachPartitionsBefore(final String table, final LocalDate cutoff)
+            throws SegueDatabaseException {
+        validateTable(table);
+        List<String> detachedPartitions = new ArrayList<>();
+
+        for (TablePartition partition : this.getPartitions(table)) {
+            if (partition.getUpperBound() == null || partition.getUpperBound().isAfter(cutoff)) {
+                continue;
+            }
+            try (Connection conn = database.getDatabaseConnection();
+                 Statement st = conn.createStatement();
+            ) {
+                st.execute(String.format("ALTER TABLE %s DETACH PARTITION %s;", table, partition.getName()));
+                detachedPartitions.add(partition.getName());
+                log.info(String.format("Detached partition (%s) from table (%s)", partition.getName(), table));
+            } catch (SQLException e) {
+                throw new SegueDatabaseException("Unable to detach partition " + partition.getName(), e);
+            }
+        }
+        return detachedPartitions;
+    }
+
+    /**
+     * Write the contents of a detached partition to a gzipped CSV file (with a header row) and then drop it.
+     *
+     * The table is only dropped once the whole file has been written successfully.
+     *
+     * @param detachedPartition - the name of a partition listed by getDetachedPartitions.
+     * @param archiveDirectory - the directory to write the archive file to.
+     * @return the archive file written.
+     * @throws SegueDatabaseException - if the table could not be read or dropped.
+     * @throws IOException - if the archive file could not be written.
+     */
+    public Path archiveAndDropTable(final String detachedPartition, final Path archiveDirectory)
+            throws SegueDatabaseException, IOException {
+        Validate.isTrue(detachedPartition.matches("[a-z_]+_(p\\d{4}_\\d{2}|legacy)"),
+                "Only detached monthly or legacy partitions can be archived.");
+        Files.createDirectories(archiveDirectory);
+        Path archiveFile = archiveDirectory.resolve(detachedPartition + ".csv.gz");
+
+        try (Connection conn = database.getDatabaseConnection()) {
+            try (OutputStream archive = new GZIPOutputStream(Files.newOutputStream(archiveFile))) {
+                conn.unwrap(PGConnection.class).getCopyAPI().copyOut(
+                        String.format("COPY %s TO STDOUT WITH (FORMAT csv, HEADER)", detachedPartition), archive);
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute(String.format("DROP TABLE %s;", detachedPartition));
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Unable to archive table " + detachedPartition, e);
+        }
+        log.info(String.format("Archived table (%s) to (%s)", detachedPartition, archiveFile));
+        return archiveFile;
+    }
+
+    /**
+     * List the partitions of a table which have been detached but not yet archived and dropped, e.g. because archiving
+     * them failed or was interrupted.
+     *
+     * @param table - the partitioned table.
+     * @return the names of the detached partitions.
+     * @throws SegueDatabaseException - if the tables cannot be read.
+     */
+    public List<String> getDetachedPartitions(final String table) throws SegueDatabaseException {
+        validateTable(table);
+        String query = "SELECT relname FROM pg_class WHERE relkind = 'r' AND NOT relispartition"
+                + " AND relnamespace = (SELECT relnamespace FROM pg_class WHERE relname = ? AND relkind = 'p')"
+                + " AND relname ~ ('^' || ? || '_(p\\d{4}_\\d{2}|legacy)$') ORDER BY relname;";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setString(1, table);
+            pst.setString(2, table);
+
+            try (ResultSet results = pst.executeQuery()) {
+                List<String> detachedPartitions = new ArrayList<>();
+                while (results.next()) {
+                    detachedPartitions.add(results.getString("relname"));
+                }
+                return detachedPartitions;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Unable to list detached partitions of " + table, e);
+        }
+    }
+
+    /**
+     * List the partitions currently attached to a table.
+     *
+     * @param table - the partitioned table.
+     * @return the partitions, with their upper bound if they have one.
+     * @throws SegueDatabaseException - if the partitions cannot be read.
+     */
+    public List<TablePartition> getPartitions(final String table) throws SegueDatabaseException {
+        validateTable(table);
+        String query = "SELECT child.relname AS partition_name, pg_get_expr(child.relpartbound, child.oid) AS partition_bound"
+                + " FROM pg_inherits JOIN pg_class parent ON pg_inherits.inhparent = parent.oid"
+                + " JOIN pg_class child ON pg_inherits.inhrelid = child.oid"
+                + " WHERE parent.relname = ? AND child.relkind IN ('r', 'p');";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setString(1, table);
+
+            try (ResultSet results = pst.executeQuery()) {
+                List<TablePartition> partitions = new ArrayList<>();
+                while (results.next()) {
+                    Matcher upperBound = UPPER_BOUND_PATTERN.matcher(results.getString("partition_bound"));
+                    partitions.add(new TablePartition(results.getString("partition_name"),
+                            upperBound.find() ? LocalDate.parse(upperBound.group(1)) : null));
+                }
+                return partitions;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Unable to list partitions of " + table, e);
+        }
+    }
+
+    /**
+     * Create the partition for a single month, moving across any rows for that month from the default partition.
+     *
+     * @param table - the partitioned table.
+     * @param month - the first day of the month.
+     * @return the name of the partition created.
+     * @throws SegueDatabaseException - if the partition could not be created.
+     */
+    private String createMonthlyPartition(final String table, final LocalDate month) throws SegueDatabaseException {
+        String partitionName = String.format("%s_p%s", table, month.format(PARTITION_SUFFIX_FORMAT));
+        String defaultPartitionName = table + "_default";
+        String from = month.toString();
+        String to = month.plusMonths(1).toString();
+
+        // Attaching a partition fails if the default partition holds rows in its range, so they are moved first:
+        try (Connection conn = database.getDatabaseConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement st = conn.createStatement()) {
+                st.execute(String.format("CREATE TABLE %s (LIKE %s INCLUDING DEFAULTS INCLUDING CONSTRAINTS);",
+                        partitionName, table));
+                int movedRows = st.executeUpdate(String.format("WITH moved_rows AS (DELETE FROM %s"
+                                + " WHERE \"timestamp\" >= '%s' AND \"timestamp\" < '%s' RETURNING *)"
+                                + " INSERT INTO %s SELECT * FROM moved_rows;",
+                        defaultPartitionName, from, to, partitionName));
+                st.execute(String.format("ALTER TABLE %s ATTACH PARTITION %s FOR VALUES FROM ('%s') TO ('%s');",
+                        table, partitionName, from, to));
+                conn.commit();
+
+                if (movedRows > 0) {
+                    log.info(String.format("Moved %s rows from (%s) into new partition (%s)", movedRows,
+                            defaultPartitionName, partitionName));
+                }
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Unable to create partition " + partitionName, e);
+        }
+        log.info(String.format("Created partition (%s) of table (%s)", partitionName, table));
+        return partitionName;
+    }
+
+    /**
+     * Table names cannot be bound as statement parameters, so only known partitioned tables are allowed.
+     *
+     * @param table - the table name to check.
+     */
+    private static void validateTable(final String table) {
+        Validate.isTrue(PARTITIONED_TABLES.contains(table), "Not a partitioned table: " + table);
+    }
+
+    /**
+     * A partition of a table, with the exclusive upper bound of the timestamps it holds (or null for the default).
+     */
+    public static class TablePartition {
+        private final String name;
+        private final LocalDate upperBound;
+
+        /**
+         * @param name - the name of the partition table.
+         * @param upperBound - the exclusive upper bound of the partition, or null for the default partition.
+         */
+        public TablePartition(final String name, final LocalDate upperBound) {
+            this.name = name;
+            this.upperBound = upperBound;
+        }
+
+        /**
+         * @return the name of the partition table.
+         */
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the exclusive upper bound of the partition, or null for the default partition.
+         */
+        public LocalDate getUpperBound() {
+            return upperBound;
+        }
+    }
+}
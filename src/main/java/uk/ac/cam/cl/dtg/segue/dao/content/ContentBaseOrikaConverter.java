@@ -15,6 +15,7 @@
  */
 package uk.ac.cam.cl.dtg.segue.dao.content;
 
+import ma.glasnost.orika.BoundMapperFacade;
 import ma.glasnost.orika.MappingContext;
 import ma.glasnost.orika.metadata.Type;
 import org.slf4j.Logger;
@@ -67,6 +68,12 @@ public class ContentBaseOrikaConverter extends AbstractPolymorphicConverter<Cont
             return null;
         }
 
+        BoundMapperFacade<Content, ContentDTO> boundMapper = contentMapper.getBoundMapperByDOClass(contentClass);
+        if (boundMapper != null && source.getClass().equals(contentClass)) {
+            // Reuse the existing context rather than creating a new one for every child:
+            return boundMapper.map((Content) source, _context);
+        }
+
         return super.mapperFacade.map(source, destinationClass);
     }
 
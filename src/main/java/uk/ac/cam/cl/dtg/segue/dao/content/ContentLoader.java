@@ -0,0 +1,72 @@
+package uk.ac.cam.cl.dtg.segue.dao.content;
+
+import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Loads content by ID for the duration of a single request.
+ *
+ * The IDs a request is going to need can be registered up front with {@link #prefetch(String...)}; the first lookup
+ * then retrieves every registered ID which is not already cached from the data store at once, rather than making a
+ * separate query for each. Everything loaded is also added to the content manager's shared cache.
+ *
+ * Loaders are not thread safe and should not be kept beyond the request they were created for, so that they never
+ * return content from an older content version.
+ */
+public class ContentLoader {
+    private final GitContentManager contentManager;
+    private final Set<String> pendingIds = new LinkedHashSet<>();
+    private final Map<String, Content> loadedContent = new HashMap<>();
+
+    /**
+     * @param contentManager - to load the content from.
+     */
+    ContentLoader(final GitContentManager contentManager) {
+        this.contentManager = contentManager;
+    }
+
+    /**
+     * Register content IDs that will be looked up later, so that they are loaded along with the next lookup.
+     *
+     * @param ids - the content object IDs.
+     * @return this loader.
+     */
+    public ContentLoader prefetch(final String... ids) {
+        for (String id : ids) {
+            if (null != id && !id.isEmpty() && !loadedContent.containsKey(id)) {
+                pendingIds.add(id);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Get a DO object by its ID or return null, loading it along with any other registered IDs not yet loaded.
+     *
+     * Do not modify the returned DO object.
+     *
+     * @param id - the content object ID.
+     * @return the content DO object, or null if there is no content with that ID.
+     * @throws ContentManagerException - on failure to load the content.
+     */
+    public Content getContentDOById(final String id) throws ContentManagerException {
+        if (null == id || id.isEmpty()) {
+            return null;
+        }
+
+        if (!loadedContent.containsKey(id)) {
+            pendingIds.add(id);
+            Map<String, Content> contentById = contentManager.getContentDOsByIds(pendingIds);
+            for (String pendingId : pendingIds) {
+                loadedContent.put(pendingId, contentById.get(pendingId));
+            }
+            pendingIds.clear();
+        }
+
+        return loadedContent.get(id);
+    }
+}
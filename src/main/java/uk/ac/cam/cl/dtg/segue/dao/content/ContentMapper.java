@@ -21,10 +21,12 @@ import com.fasterxml.jackson.databind.module.SimpleModule;
 import com.google.api.client.util.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import ma.glasnost.orika.BoundMapperFacade;
 import ma.glasnost.orika.MapperFacade;
 import ma.glasnost.orika.MapperFactory;
 import ma.glasnost.orika.converter.ConverterFactory;
 import ma.glasnost.orika.impl.DefaultMapperFactory;
+import ma.glasnost.orika.metadata.TypeFactory;
 import org.apache.commons.lang3.Validate;
 import org.reflections.Reflections;
 import org.slf4j.Logger;
@@ -33,6 +35,7 @@ import uk.ac.cam.cl.dtg.segue.dao.JsonLoader;
 import uk.ac.cam.cl.dtg.segue.dao.users.AnonymousUserQuestionAttemptsOrikaConverter;
 import uk.ac.cam.cl.dtg.segue.dao.users.QuestionValidationResponseDeserializer;
 import uk.ac.cam.cl.dtg.segue.dao.users.QuestionValidationResponseOrikaConverter;
+import uk.ac.cam.cl.dtg.segue.search.SearchHitDecoder;
 import uk.ac.cam.cl.dtg.isaac.dos.QuestionValidationResponse;
 import uk.ac.cam.cl.dtg.isaac.dos.content.Choice;
 import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
@@ -61,9 +64,11 @@ public class ContentMapper {
     // field.
     private final Map<String, Class<? extends Content>> jsonTypes;
     private final Map<Class<? extends Content>, Class<? extends ContentDTO>> mapOfDOsToDTOs;
+    private final Map<Class<? extends Content>, BoundMapperFacade<Content, ContentDTO>> mapOfDOsToBoundMappers;
 
-    // this autoMapper is initialised lazily in the getAutoMapper method
-    private MapperFacade autoMapper = null;
+    // this autoMapper (and the factory used for the bound mappers) is initialised lazily in the getAutoMapper method
+    private volatile MapperFacade autoMapper = null;
+    private MapperFactory mapperFactory = null;
     
     private static ObjectMapper preconfiguredObjectMapper;
 
@@ -77,6 +82,7 @@ public class ContentMapper {
     public ContentMapper() {
         jsonTypes = Maps.newConcurrentMap();
         mapOfDOsToDTOs = Maps.newConcurrentMap();
+        mapOfDOsToBoundMappers = Maps.newConcurrentMap();
     }
     
     /**
@@ -152,6 +158,7 @@ public class ContentMapper {
         DTOMapping dtoMapping = cls.getAnnotation(DTOMapping.class);
         if (dtoMapping != null && ContentDTO.class.isAssignableFrom(dtoMapping.value())) {
             this.mapOfDOsToDTOs.put(cls, (Class<? extends ContentDTO>) dtoMapping.value());
+            this.mapOfDOsToBoundMappers.remove(cls);
         } else {
             log.error("The DTO mapping provided is null or the annotation is not present" + " for the class " + cls
                     + ". This class cannot be auto mapped from DO to DTO.");
@@ -191,6 +198,25 @@ public class ContentMapper {
         return mapOfDOsToDTOs.get(cls);
     }
 
+    /**
+     * Get the mapper from a DO class to its DTO class.
+     *
+     * These are bound to a single pair of classes so, unlike MapperFacade.map, do not have to look up how to map the
+     * source object on every call. The mappers for every registered class are built when the auto mapper is created.
+     *
+     * @param cls
+     *            - DO class.
+     * @return the mapper to the DTO class, or null if the DO class has no DTO mapping.
+     */
+    public BoundMapperFacade<Content, ContentDTO> getBoundMapperByDOClass(final Class<? extends Content> cls) {
+        BoundMapperFacade<Content, ContentDTO> boundMapper = mapOfDOsToBoundMappers.get(cls);
+        if (null == boundMapper && mapOfDOsToDTOs.containsKey(cls)) {
+            getAutoMapper();
+            boundMapper = mapOfDOsToBoundMappers.computeIfAbsent(cls, this::createBoundMapper);
+        }
+        return boundMapper;
+    }
+
     /**
      * Populate relatedContent fields on the result and its children with IDs recursively.
      * Only recurses to children of type Content, but this is currently the only possibility.
@@ -236,7 +262,13 @@ public class ContentMapper {
             return null;
         }
 
-        ContentDTO result = getAutoMapper().map(content, this.mapOfDOsToDTOs.get(content.getClass()));
+        BoundMapperFacade<Content, ContentDTO> boundMapper = this.getBoundMapperByDOClass(content.getClass());
+        ContentDTO result;
+        if (boundMapper != null) {
+            result = boundMapper.map(content);
+        } else {
+            result = getAutoMapper().map(content, this.mapOfDOsToDTOs.get(content.getClass()));
+        }
         this.populateRelatedContentWithIDs(content, result);
         return result;
     }
@@ -285,27 +317,25 @@ public class ContentMapper {
     }
 
     /**
-     * Map a list of String to a List of Content.
-     * 
-     * @param stringList
-     *            - Converts a list of strings to a list of content
-     * @return Content List
+     * Get a decoder which maps search hits straight from their source bytes to Content objects.
+     *
+     * Hits which cannot be mapped are logged and left out of the results.
+     *
+     * @return a search hit decoder for content.
      */
-    public List<Content> mapFromStringListToContentList(final List<String> stringList) {
+    public SearchHitDecoder<Content> getContentDecoder() {
         // setup object mapper to use preconfigured deserializer module.
         // Required to deal with type polymorphism
         ObjectMapper objectMapper = this.getSharedContentObjectMapper();
 
-        List<Content> contentList = new ArrayList<Content>();
-
-        for (String item : stringList) {
+        return (source, offset, length) -> {
             try {
-                contentList.add((Content) objectMapper.readValue(item, ContentBase.class));
+                return (Content) objectMapper.readValue(source, offset, length, ContentBase.class);
             } catch (IOException e) {
-                log.error("Error whilst mapping from string to list of content", e);
+                log.error("Error whilst mapping search hit to content", e);
+                return null;
             }
-        }
-        return contentList;
+        };
     }
 
     /**
@@ -315,6 +345,17 @@ public class ContentMapper {
      * @return autoMapper
      */
     public MapperFacade getAutoMapper() {
+        if (null == this.autoMapper) {
+            this.initialiseAutoMapper();
+        }
+
+        return this.autoMapper;
+    }
+
+    /**
+     * Create the auto mapper, and a bound mapper for each registered DO to DTO mapping.
+     */
+    private synchronized void initialiseAutoMapper() {
         if (null == this.autoMapper) {
             log.info("Creating instance of content auto mapper.");
             MapperFactory mapperFactory = new DefaultMapperFactory.Builder().build();
@@ -327,10 +368,27 @@ public class ContentMapper {
             converterFactory.registerConverter(new AnonymousUserQuestionAttemptsOrikaConverter());
             converterFactory.registerConverter(new AudienceOrikaConverter());
 
+            this.mapperFactory = mapperFactory;
+            for (Class<? extends Content> cls : mapOfDOsToDTOs.keySet()) {
+                mapOfDOsToBoundMappers.computeIfAbsent(cls, this::createBoundMapper);
+            }
             this.autoMapper = mapperFactory.getMapperFacade();
         }
+    }
 
-        return this.autoMapper;
+    /**
+     * Create a mapper bound to a DO class and its registered DTO class.
+     *
+     * Content is a tree, so the mapper does not need to keep track of objects it has already mapped to cope with cycles.
+     *
+     * @param cls
+     *            - DO class.
+     * @return the mapper to the DTO class.
+     */
+    @SuppressWarnings("unchecked")
+    private BoundMapperFacade<Content, ContentDTO> createBoundMapper(final Class<? extends Content> cls) {
+        return (BoundMapperFacade<Content, ContentDTO>) mapperFactory.getMapperFacade(TypeFactory.valueOf(cls),
+                TypeFactory.valueOf(mapOfDOsToDTOs.get(cls)), false);
     }
     
     /**
@@ -15,6 +15,8 @@
  */
 package uk.ac.cam.cl.dtg.segue.dao.content;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Sets;
 import com.google.common.base.Functions;
 import com.google.common.cache.Cache;
@@ -25,10 +27,10 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.inject.Inject;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
 import org.elasticsearch.action.get.GetResponse;
-import org.elasticsearch.action.search.SearchResponse;
-import org.elasticsearch.search.SearchHit;
-import org.elasticsearch.search.SearchHits;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.cam.cl.dtg.segue.api.Constants;
@@ -44,6 +46,8 @@ import uk.ac.cam.cl.dtg.segue.search.BooleanMatchInstruction;
 import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
 import uk.ac.cam.cl.dtg.segue.search.MustMatchInstruction;
 import uk.ac.cam.cl.dtg.segue.search.RangeMatchInstruction;
+import uk.ac.cam.cl.dtg.segue.search.SearchHitDecoder;
+import uk.ac.cam.cl.dtg.segue.search.SearchResultsIterator;
 import uk.ac.cam.cl.dtg.segue.search.SegueSearchException;
 import uk.ac.cam.cl.dtg.segue.search.ShouldMatchInstruction;
 import uk.ac.cam.cl.dtg.segue.search.SimpleExclusionInstruction;
@@ -52,8 +56,10 @@ import uk.ac.cam.cl.dtg.segue.search.TermsFilterInstruction;
 import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 
 import jakarta.annotation.Nullable;
-import java.io.ByteArrayOutputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDate;
 import java.time.ZoneId;
 import java.util.ArrayList;
@@ -61,15 +67,19 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static uk.ac.cam.cl.dtg.isaac.api.Constants.*;
 import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.CACHE_METRICS_COLLECTOR;
+import static uk.ac.cam.cl.dtg.segue.api.monitors.SegueMetrics.HOT_CONTENT_TRACKER;
 
 /**
  * Implementation that specifically works with Content objects.
@@ -79,6 +89,10 @@ public class GitContentManager {
     private static final Logger log = LoggerFactory.getLogger(GitContentManager.class);
 
     private static final String CONTENT_TYPE = "content";
+    private static final int MAX_FILE_PATH_INDEXES_TO_CACHE = 2;
+    private static final long MAX_FILE_CACHE_SIZE_IN_BYTES = 128 * 1024 * 1024;
+    private static final int MAX_CACHED_FILE_SIZE_IN_BYTES = 8 * 1024 * 1024;
+    private static final int CONTENT_ID_BATCH_SIZE = 1000;
 
     private final GitDb database;
     private final ContentMapper mapper;
@@ -86,9 +100,12 @@ public class GitContentManager {
     private final PropertiesLoader globalProperties;
     private final boolean allowOnlyPublishedContent;
     private final boolean hideRegressionTestContent;
+    private final Map<String, AbstractFilterInstruction> baseFilters;
 
     private final Cache<Object, Object> cache;
     private final Cache<String, GetResponse> contentShaCache;
+    private final Cache<String, Map<String, ObjectId>> filePathIndexCache;
+    private final Cache<ObjectId, byte[]> fileBlobCache;
 
     private final String contentIndex;
 
@@ -130,7 +147,13 @@ public class GitContentManager {
 
         this.contentShaCache = CacheBuilder.newBuilder().softValues().expireAfterWrite(5, TimeUnit.SECONDS).build();
 
+        this.filePathIndexCache = CacheBuilder.newBuilder().maximumSize(MAX_FILE_PATH_INDEXES_TO_CACHE).build();
+        this.fileBlobCache = CacheBuilder.newBuilder().recordStats().maximumWeight(MAX_FILE_CACHE_SIZE_IN_BYTES)
+                .weigher((ObjectId blobId, byte[] bytes) -> bytes.length).build();
+        CACHE_METRICS_COLLECTOR.addCache("git_content_manager_file_cache", fileBlobCache);
+
         this.contentIndex = globalProperties.getProperty(Constants.CONTENT_INDEX);
+        this.baseFilters = this.generateBaseFilters();
     }
 
     /**
@@ -153,7 +176,11 @@ public class GitContentManager {
         this.hideRegressionTestContent = false;
         this.cache = CacheBuilder.newBuilder().softValues().expireAfterAccess(1, TimeUnit.DAYS).build();
         this.contentShaCache = CacheBuilder.newBuilder().softValues().expireAfterWrite(1, TimeUnit.MINUTES).build();
+        this.filePathIndexCache = CacheBuilder.newBuilder().maximumSize(MAX_FILE_PATH_INDEXES_TO_CACHE).build();
+        this.fileBlobCache = CacheBuilder.newBuilder().maximumWeight(MAX_FILE_CACHE_SIZE_IN_BYTES)
+                .weigher((ObjectId blobId, byte[] bytes) -> bytes.length).build();
         this.contentIndex = null;
+        this.baseFilters = null;
     }
 
     /**
@@ -186,9 +213,10 @@ public class GitContentManager {
      * @throws ContentManagerException on failure to return the object or null.
      */
     public final ContentDTO getContentById(final String id, final boolean failQuietly) throws ContentManagerException {
+        HOT_CONTENT_TRACKER.record(id);
         String k = "getContentById~" + getCurrentContentSHA() + "~" + id;
         if (!cache.asMap().containsKey(k)) {
-            ContentDTO c = this.mapper.getDTOByDO(this.getContentDOById(id, failQuietly));
+            ContentDTO c = this.mapper.getDTOByDO(this.loadContentDOById(id, failQuietly));
             if (c != null) {
                 cache.put(k, c);
             }
@@ -225,6 +253,20 @@ public class GitContentManager {
      * @throws ContentManagerException on failure to return the object or null.
      */
     public final Content getContentDOById(final String id, final boolean failQuietly) throws ContentManagerException {
+        HOT_CONTENT_TRACKER.record(id);
+        return this.loadContentDOById(id, failQuietly);
+    }
+
+    /**
+     *  Get a DO object by its ID or return null, as {@link #getContentDOById(String, boolean)} does but without
+     *  recording the request for it.
+     *
+     * @param id the content object ID.
+     * @param failQuietly whether to log a warning if the content cannot be found.
+     * @return the content DO object.
+     * @throws ContentManagerException on failure to return the object or null.
+     */
+    private Content loadContentDOById(final String id, final boolean failQuietly) throws ContentManagerException {
         if (null == id || id.equals("")) {
             return null;
         }
@@ -232,12 +274,11 @@ public class GitContentManager {
         String k = "getContentDOById~" + getCurrentContentSHA() + "~" + id;
         if (!cache.asMap().containsKey(k)) {
 
-            List<Content> searchResults = mapper.mapFromStringListToContentList(this.searchProvider.termSearch(
+            List<Content> searchResults = this.searchProvider.termSearch(
                     contentIndex,
                     CONTENT_TYPE, id,
                     Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX, 0, 1,
-                    this.getBaseFilters()).getResults()
-            );
+                    this.getBaseFilters(), mapper.getContentDecoder()).getResults();
 
             if (null == searchResults || searchResults.isEmpty()) {
                 if (!failQuietly) {
@@ -272,23 +313,116 @@ public class GitContentManager {
         String k = "getByIdPrefix~" + getCurrentContentSHA() + "~" + idPrefix + "~" + startIndex + "~" + limit;
         if (!cache.asMap().containsKey(k)) {
 
-            ResultsWrapper<String> searchHits = this.searchProvider.findByPrefix(contentIndex, CONTENT_TYPE,
+            ResultsWrapper<Content> searchHits = this.searchProvider.findByPrefix(contentIndex, CONTENT_TYPE,
                     Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX,
-                    idPrefix, startIndex, limit, this.getBaseFilters());
-
-            List<Content> searchResults = mapper.mapFromStringListToContentList(searchHits.getResults());
+                    idPrefix, startIndex, limit, this.getBaseFilters(), mapper.getContentDecoder());
 
-            cache.put(k, new ResultsWrapper<>(mapper.getDTOByDOList(searchResults), searchHits.getTotalResults()));
+            cache.put(k, new ResultsWrapper<>(mapper.getDTOByDOList(searchHits.getResults()), searchHits.getTotalResults()));
         }
 
         return (ResultsWrapper<ContentDTO>) cache.getIfPresent(k);
     }
 
+    /**
+     *  Get DO objects by their IDs.
+     *
+     *  Each object is taken from the cache if possible; all of those which are not cached are retrieved from the
+     *  data store together and then cached, as {@link #getContentDOById(String)} would.
+     *  Do not modify the returned DO objects.
+     *
+     * @param ids the content object IDs.
+     * @return a map from each ID that was found to its content DO, in the order the IDs were provided.
+     * @throws ContentManagerException on failure to return the objects.
+     */
+    public Map<String, Content> getContentDOsByIds(final Collection<String> ids) throws ContentManagerException {
+        ids.forEach(HOT_CONTENT_TRACKER::record);
+        return this.getContentDOsByIds(contentIndex, getCurrentContentSHA(), ids);
+    }
+
+    /**
+     *  Load content into the cache for a content version, so that it is already cached if and when that version
+     *  becomes the live version.
+     *
+     *  Both the DO and DTO of each object are cached, as {@link #getContentById(String)} would, and so are the DOs
+     *  of their related content.
+     *
+     * @param contentSHA the content version, which need not be the live version but must be indexed.
+     * @param ids the content object IDs.
+     * @throws ContentManagerException on failure to load the objects.
+     */
+    public void warmContentCache(final String contentSHA, final Collection<String> ids)
+            throws ContentManagerException {
+        Set<String> relatedContentIds = Sets.newHashSet();
+        for (Map.Entry<String, Content> content : this.getContentDOsByIds(contentSHA, contentSHA, ids).entrySet()) {
+            String k = "getContentById~" + contentSHA + "~" + content.getKey();
+            if (!cache.asMap().containsKey(k)) {
+                cache.put(k, mapper.getDTOByDO(content.getValue()));
+            }
+            if (content.getValue().getRelatedContent() != null) {
+                relatedContentIds.addAll(content.getValue().getRelatedContent());
+            }
+        }
+        this.getContentDOsByIds(contentSHA, contentSHA, relatedContentIds);
+    }
+
+    /**
+     *  Get DO objects by their IDs from a particular index, caching them against a content version.
+     *
+     * @param indexBase the index base to search, either the content index or the content SHA itself.
+     * @param contentSHA the content version the index base refers to.
+     * @param ids the content object IDs.
+     * @return a map from each ID that was found to its content DO, in the order the IDs were provided.
+     * @throws ContentManagerException on failure to return the objects.
+     */
+    private Map<String, Content> getContentDOsByIds(final String indexBase, final String contentSHA,
+                                                    final Collection<String> ids) throws ContentManagerException {
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.remove(null);
+        uniqueIds.remove("");
+
+        Map<String, Content> contentById = Maps.newHashMap();
+        List<String> uncachedIds = Lists.newArrayList();
+        for (String id : uniqueIds) {
+            Content cachedContent = (Content) cache.getIfPresent("getContentDOById~" + contentSHA + "~" + id);
+            if (cachedContent != null) {
+                contentById.put(id, cachedContent);
+            } else {
+                uncachedIds.add(id);
+            }
+        }
+
+        for (List<String> batch : Lists.partition(uncachedIds, CONTENT_ID_BATCH_SIZE)) {
+            Map<String, AbstractFilterInstruction> finalFilter = Maps.newHashMap();
+            finalFilter.put(Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX,
+                    new TermsFilterInstruction(batch));
+            if (getBaseFilters() != null) {
+                finalFilter.putAll(getBaseFilters());
+            }
+
+            ResultsWrapper<Content> searchHits = this.searchProvider.termSearch(indexBase, CONTENT_TYPE,
+                    null, null, 0, batch.size(), finalFilter, mapper.getContentDecoder());
+
+            for (Content content : searchHits.getResults()) {
+                contentById.put(content.getId(), content);
+                cache.put("getContentDOById~" + contentSHA + "~" + content.getId(), content);
+            }
+        }
+
+        Map<String, Content> orderedContentById = new LinkedHashMap<>();
+        for (String id : uniqueIds) {
+            if (contentById.containsKey(id)) {
+                orderedContentById.put(id, contentById.get(id));
+            }
+        }
+        return orderedContentById;
+    }
+
     /**
      *  Get a list of DTO objects by their IDs.
      *
      *  This may return cached objects, and will temporarily cache the objects
      *  to avoid re-querying the data store and the deserialization costs.
+     *  Objects are cached individually, so only those not already cached by an earlier lookup are retrieved.
      *  Do not modify the returned DTO objects.
      *
      * @param ids the list of content object IDs.
@@ -300,42 +434,55 @@ public class GitContentManager {
     public ResultsWrapper<ContentDTO> getContentMatchingIds(final Collection<String> ids,
                                                             final int startIndex, final int limit)
             throws ContentManagerException {
-
-        String k = "getContentMatchingIds~" + getCurrentContentSHA() + "~" + ids.toString() + "~" + startIndex + "~" + limit;
-        if (!cache.asMap().containsKey(k)) {
-
-            Map<String, AbstractFilterInstruction> finalFilter = Maps.newHashMap();
-            finalFilter.putAll(new ImmutableMap.Builder<String, AbstractFilterInstruction>()
-                                .put(Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX,
-                                    new TermsFilterInstruction(ids))
-                                .build());
-
-            if (getBaseFilters() != null) {
-                finalFilter.putAll(getBaseFilters());
+        String contentSHA = getCurrentContentSHA();
+        Set<String> uniqueIds = new LinkedHashSet<>(ids);
+        uniqueIds.forEach(HOT_CONTENT_TRACKER::record);
+
+        Map<String, ContentDTO> contentDTOById = Maps.newHashMap();
+        List<String> uncachedIds = Lists.newArrayList();
+        for (String id : uniqueIds) {
+            ContentDTO cachedContentDTO = (ContentDTO) cache.getIfPresent("getContentById~" + contentSHA + "~" + id);
+            if (cachedContentDTO != null) {
+                contentDTOById.put(id, cachedContentDTO);
+            } else {
+                uncachedIds.add(id);
             }
+        }
 
-            ResultsWrapper<String> searchHits = this.searchProvider.termSearch(
-                    contentIndex,
-                    CONTENT_TYPE,
-                    null,
-                    null,
-                    startIndex,
-                    limit,
-                    finalFilter
-            );
+        for (Map.Entry<String, Content> content
+                : this.getContentDOsByIds(contentIndex, contentSHA, uncachedIds).entrySet()) {
+            ContentDTO contentDTO = mapper.getDTOByDO(content.getValue());
+            contentDTOById.put(content.getKey(), contentDTO);
+            cache.put("getContentById~" + contentSHA + "~" + content.getKey(), contentDTO);
+        }
 
-            List<Content> searchResults = mapper.mapFromStringListToContentList(searchHits.getResults());
-            cache.put(k, new ResultsWrapper<>(mapper.getDTOByDOList(searchResults), searchHits.getTotalResults()));
+        List<ContentDTO> matchingContent = Lists.newArrayList();
+        for (String id : uniqueIds) {
+            if (contentDTOById.containsKey(id)) {
+                matchingContent.add(contentDTOById.get(id));
+            }
         }
 
-        return (ResultsWrapper<ContentDTO>) cache.getIfPresent(k);
+        int fromIndex = Math.min(startIndex, matchingContent.size());
+        int toIndex = limit < 0 ? matchingContent.size() : Math.min(matchingContent.size(), fromIndex + limit);
+        return new ResultsWrapper<>(Lists.newArrayList(matchingContent.subList(fromIndex, toIndex)),
+                (long) matchingContent.size());
+    }
+
+    /**
+     * Create a loader to use for the content lookups made while handling a single request.
+     *
+     * @return a new content loader.
+     */
+    public ContentLoader createContentLoader() {
+        return new ContentLoader(this);
     }
 
     public final ResultsWrapper<ContentDTO> searchForContent(
             final String searchString, @Nullable final Map<String, List<String>> fieldsThatMustMatch,
             final Integer startIndex, final Integer limit) throws ContentManagerException {
 
-        ResultsWrapper<String> searchHits = searchProvider.fuzzySearch(
+        ResultsWrapper<Content> searchHits = searchProvider.fuzzySearch(
                 contentIndex,
                 CONTENT_TYPE,
                 searchString,
@@ -343,6 +490,7 @@ public class GitContentManager {
                 limit,
                 fieldsThatMustMatch,
                 this.getBaseFilters(),
+                mapper.getContentDecoder(),
                 Constants.ID_FIELDNAME,
                 Constants.TITLE_FIELDNAME,
                 Constants.TAGS_FIELDNAME,
@@ -350,9 +498,7 @@ public class GitContentManager {
                 Constants.CHILDREN_FIELDNAME
         );
 
-        List<Content> searchResults = mapper.mapFromStringListToContentList(searchHits.getResults());
-
-        return new ResultsWrapper<>(mapper.getDTOByDOList(searchResults), searchHits.getTotalResults());
+        return new ResultsWrapper<>(mapper.getDTOByDOList(searchHits.getResults()), searchHits.getTotalResults());
     }
 
     public final ResultsWrapper<ContentDTO> siteWideSearch(
@@ -429,19 +575,18 @@ public class GitContentManager {
             matchQuery.mustNot(new MustMatchInstruction(Constants.TAGS_FIELDNAME, HIDE_FROM_FILTER_TAG));
         }
 
-        ResultsWrapper<String> searchHits = searchProvider.nestedMatchSearch(
+        ResultsWrapper<Content> searchHits = searchProvider.nestedMatchSearch(
                 contentIndex,
                 CONTENT_TYPE,
                 startIndex,
                 limit,
                 searchString,
                 matchQuery,
-                this.getBaseFilters()
+                this.getBaseFilters(),
+                mapper.getContentDecoder()
         );
 
-        List<Content> searchResults = mapper.mapFromStringListToContentList(searchHits.getResults());
-
-        return new ResultsWrapper<>(mapper.getDTOByDOList(searchResults), searchHits.getTotalResults());
+        return new ResultsWrapper<>(mapper.getDTOByDOList(searchHits.getResults()), searchHits.getTotalResults());
     }
 
     public final ResultsWrapper<ContentDTO> findByFieldNames(
@@ -482,14 +627,10 @@ public class GitContentManager {
             newFilterInstructions.putAll(this.getBaseFilters());
         }
 
-        ResultsWrapper<String> searchHits = searchProvider.matchSearch(contentIndex, CONTENT_TYPE, fieldsToMatch,
-                startIndex, limit, newSortInstructions, newFilterInstructions);
+        ResultsWrapper<Content> searchHits = searchProvider.matchSearch(contentIndex, CONTENT_TYPE, fieldsToMatch,
+                startIndex, limit, newSortInstructions, newFilterInstructions, mapper.getContentDecoder());
 
-        // setup object mapper to use pre-configured deserializer module.
-        // Required to deal with type polymorphism
-        List<Content> result = mapper.mapFromStringListToContentList(searchHits.getResults());
-
-        List<ContentDTO> contentDTOResults = mapper.getDTOByDOList(result);
+        List<ContentDTO> contentDTOResults = mapper.getDTOByDOList(searchHits.getResults());
 
         finalResults = new ResultsWrapper<>(contentDTOResults, searchHits.getTotalResults());
 
@@ -509,23 +650,64 @@ public class GitContentManager {
     ) throws ContentManagerException {
         ResultsWrapper<ContentDTO> finalResults;
 
-        ResultsWrapper<String> searchHits;
+        ResultsWrapper<Content> searchHits;
         searchHits = searchProvider.randomisedMatchSearch(contentIndex, CONTENT_TYPE, fieldsToMatch, startIndex, limit, randomSeed,
-                this.getBaseFilters());
-
-        // setup object mapper to use pre-configured deserializer module.
-        // Required to deal with type polymorphism
-        List<Content> result = mapper.mapFromStringListToContentList(searchHits.getResults());
+                this.getBaseFilters(), mapper.getContentDecoder());
 
-        List<ContentDTO> contentDTOResults = mapper.getDTOByDOList(result);
+        List<ContentDTO> contentDTOResults = mapper.getDTOByDOList(searchHits.getResults());
 
         finalResults = new ResultsWrapper<>(contentDTOResults, searchHits.getTotalResults());
 
         return finalResults;
     }
 
-    public final ByteArrayOutputStream getFileBytes(final String filename) throws IOException {
-        return database.getFileByCommitSHA(getCurrentContentSHA(), filename);
+    /**
+     * Find the id of the blob holding a file in the current content version.
+     *
+     * The first request for a content version indexes every file in it, so that later requests do not need to search
+     * the repository. Blob ids identify the file contents, so make ideal ETags.
+     *
+     * @param filename - the full path of the file, e.g. content/figures/figure.svg.
+     * @return the blob id of the file, or null if there is no such file.
+     * @throws IOException - if the current content version cannot be read from the repository.
+     */
+    public final ObjectId getFileBlobId(final String filename) throws IOException {
+        String sha = getCurrentContentSHA();
+        try {
+            return filePathIndexCache.get(sha, () -> {
+                Map<String, ObjectId> filePathIndex = database.getFilePathIndexByCommitSHA(sha);
+                if (null == filePathIndex) {
+                    throw new IOException(String.format("Unable to locate content version (%s) to index.", sha));
+                }
+                return filePathIndex;
+            }).get(filename);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Get the contents of a file by its blob id.
+     *
+     * Blobs never change, so small files are cached regardless of the content version they were requested from.
+     * Larger files are streamed from the repository each time, so they are never held in memory whole.
+     *
+     * @param blobId - the blob id of the file, from getFileBlobId.
+     * @return a stream of the file contents, which the caller must close.
+     * @throws MissingObjectException - if the blob is no longer in the repository.
+     * @throws IOException - if the blob cannot be read from the repository.
+     */
+    public final InputStream getFileBlob(final ObjectId blobId) throws IOException {
+        byte[] fileBytes = fileBlobCache.getIfPresent(blobId);
+        if (null == fileBytes) {
+            ObjectLoader blob = database.openBlob(blobId);
+            if (blob.getSize() > MAX_CACHED_FILE_SIZE_IN_BYTES) {
+                return blob.openStream();
+            }
+            fileBytes = blob.getCachedBytes();
+            fileBlobCache.put(blobId, fileBytes);
+        }
+        return new ByteArrayInputStream(fileBytes);
     }
 
     public final String getLatestContentSHA() {
@@ -564,52 +746,58 @@ public class GitContentManager {
         if (globalProperties.getProperty(Constants.SEGUE_APP_ENVIRONMENT).equals(Constants.EnvironmentType.PROD.name())) {
             unitType = Constants.CONTENT_INDEX_TYPE.PUBLISHED_UNIT.toString();
         }
-        try {
-            SearchResponse r = searchProvider.getAllFromIndex(globalProperties.getProperty(Constants.CONTENT_INDEX), unitType);
-            SearchHits hits = r.getHits();
-            ArrayList<String> units = new ArrayList<>((int) hits.getTotalHits().value);
-            for (SearchHit hit : hits) {
-                units.add((String) hit.getSourceAsMap().get("unit"));
+        try (SearchResultsIterator<JsonNode> hits = searchProvider.iterateAllFromIndex(
+                globalProperties.getProperty(Constants.CONTENT_INDEX), unitType, this.getJsonNodeDecoder())) {
+            ArrayList<String> units = new ArrayList<>((int) hits.getTotalResults());
+            while (hits.hasNext()) {
+                units.add(hits.next().path("unit").textValue());
             }
 
             return units;
-        } catch (SegueSearchException e) {
+        } catch (SegueSearchException | UncheckedIOException e) {
             log.error("Failed to retrieve all units from search provider", e);
             return Collections.emptyList();
         }
     }
 
     public final Map<Content, List<String>> getProblemMap() {
-        try {
-            SearchResponse r = searchProvider.getAllFromIndex(contentIndex,
-                    Constants.CONTENT_INDEX_TYPE.CONTENT_ERROR.toString());
-            SearchHits hits = r.getHits();
+        try (SearchResultsIterator<JsonNode> hits = searchProvider.iterateAllFromIndex(contentIndex,
+                Constants.CONTENT_INDEX_TYPE.CONTENT_ERROR.toString(), this.getJsonNodeDecoder())) {
             Map<Content, List<String>> map = new HashMap<>();
 
-            for (SearchHit hit : hits) {
+            while (hits.hasNext()) {
+                JsonNode src = hits.next();
                 Content partialContentWithErrors = new Content();
-                Map src = hit.getSourceAsMap();
-                partialContentWithErrors.setId((String) src.get("id"));
-                partialContentWithErrors.setTitle((String) src.get("title"));
+                partialContentWithErrors.setId(src.path("id").textValue());
+                partialContentWithErrors.setTitle(src.path("title").textValue());
                 //partialContentWithErrors.setTags(pair.getKey().getTags()); // TODO: Support tags
-                partialContentWithErrors.setPublished((Boolean) src.get("published"));
-                partialContentWithErrors.setCanonicalSourceFile((String) src.get("canonicalSourceFile"));
+                partialContentWithErrors.setPublished(src.hasNonNull("published")
+                        ? src.get("published").booleanValue() : null);
+                partialContentWithErrors.setCanonicalSourceFile(src.path("canonicalSourceFile").textValue());
 
                 ArrayList<String> errors = new ArrayList<>();
-                for (Object v : (List) hit.getSourceAsMap().get("errors")) {
-                    errors.add((String) v);
+                for (JsonNode v : src.path("errors")) {
+                    errors.add(v.textValue());
                 }
 
                 map.put(partialContentWithErrors, errors);
             }
             return map;
 
-        } catch (SegueSearchException e) {
+        } catch (SegueSearchException | UncheckedIOException e) {
             log.error("Failed to retrieve problem map from search provider", e);
             return Maps.newHashMap();
         }
     }
 
+    /**
+     * @return a decoder which reads the source of each search hit as a tree of JSON nodes.
+     */
+    private SearchHitDecoder<JsonNode> getJsonNodeDecoder() {
+        ObjectMapper objectMapper = mapper.getSharedContentObjectMapper();
+        return objectMapper::readTree;
+    }
+
     public ContentDTO populateRelatedContent(final ContentDTO contentDTO)
             throws ContentManagerException {
         if (contentDTO.getChildren() != null) {
@@ -685,6 +873,15 @@ public class GitContentManager {
      * @return either null or a map setup with filter/exclusion instructions, based on environment properties.
      */
     private Map<String, AbstractFilterInstruction> getBaseFilters() {
+        return this.baseFilters;
+    }
+
+    /**
+     * Build the basic filter configuration, which only depends on the environment properties so is built once.
+     *
+     * @return either null or a map setup with filter/exclusion instructions, based on environment properties.
+     */
+    private Map<String, AbstractFilterInstruction> generateBaseFilters() {
         if (!this.hideRegressionTestContent && !this.allowOnlyPublishedContent) {
             return null;
         }
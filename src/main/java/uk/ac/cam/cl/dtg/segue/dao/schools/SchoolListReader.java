@@ -19,15 +19,21 @@ import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
+import com.google.api.client.util.Maps;
 import com.google.inject.Inject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import uk.ac.cam.cl.dtg.isaac.dos.users.School;
 import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+import uk.ac.cam.cl.dtg.segue.search.SearchHitDecoder;
+import uk.ac.cam.cl.dtg.segue.search.SearchResultsIterator;
 import uk.ac.cam.cl.dtg.segue.search.SegueSearchException;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static uk.ac.cam.cl.dtg.segue.api.Constants.DEFAULT_RESULTS_LIMIT;
 import static uk.ac.cam.cl.dtg.segue.api.Constants.SCHOOLS_INDEX_BASE;
@@ -47,6 +53,7 @@ import static uk.ac.cam.cl.dtg.segue.api.Constants.UNPROCESSED_SEARCH_FIELD_SUFF
  */
 public class SchoolListReader {
     private static final Logger log = LoggerFactory.getLogger(SchoolListReader.class);
+    private static final long SCHOOL_POSTCODES_MAX_AGE_MILLISECONDS = 60 * 60 * 1000;
 
     private final ISearchProvider searchProvider;
 
@@ -54,6 +61,9 @@ public class SchoolListReader {
 
     private final String dataSourceModificationDate;
 
+    private Map<String, String> schoolPostcodesByURN;
+    private long schoolPostcodesLoadedAt;
+
     /**
      * SchoolListReader constructor.
      * 
@@ -93,7 +103,7 @@ public class SchoolListReader {
         // FIXME: for one release cycle, we need backwards compatibility and so cannot use the fieldsThatMustMatch property
         // It should be set to ImmutableMap.of("closed", ImmutableList.of("false"))
         List<String> schoolSearchResults = searchProvider.fuzzySearch(SCHOOLS_INDEX_BASE, SCHOOLS_INDEX_TYPE.SCHOOL_SEARCH.toString(),
-                searchQuery, 0, DEFAULT_RESULTS_LIMIT, null, null, SCHOOL_URN_FIELDNAME_POJO,
+                searchQuery, 0, DEFAULT_RESULTS_LIMIT, null, null, SearchHitDecoder.SOURCE_AS_STRING, SCHOOL_URN_FIELDNAME_POJO,
                 SCHOOL_ESTABLISHMENT_NAME_FIELDNAME_POJO, SCHOOL_POSTCODE_FIELDNAME_POJO)
                 .getResults();
 
@@ -142,7 +152,7 @@ public class SchoolListReader {
         
         matchingSchoolList = searchProvider.findByExactMatch(SCHOOLS_INDEX_BASE, SCHOOLS_INDEX_TYPE.SCHOOL_SEARCH.toString(),
                 SCHOOL_URN_FIELDNAME.toLowerCase() + "." + UNPROCESSED_SEARCH_FIELD_SUFFIX,
-                schoolURN, 0, DEFAULT_RESULTS_LIMIT, null).getResults();
+                schoolURN, 0, DEFAULT_RESULTS_LIMIT, null, SearchHitDecoder.SOURCE_AS_STRING).getResults();
 
         if (matchingSchoolList.isEmpty()) {
             return null;
@@ -157,6 +167,73 @@ public class SchoolListReader {
     }
 
 
+    /**
+     * Find the postcodes of many schools at once.
+     *
+     * The postcodes of every school are read from the index together and kept in memory for a while, so that looking
+     * up the schools of a long list of users does not need a search per user.
+     *
+     * @param schoolURNs
+     *            - the schools to find the postcodes of.
+     * @return map of school URN to postcode, for those schools which exist and have a postcode.
+     * @throws UnableToIndexSchoolsException
+     *             - if we cannot complete the indexing process
+     * @throws SegueSearchException
+     *             - if the schools cannot be read from the index.
+     */
+    public Map<String, String> findSchoolPostcodesById(final Collection<String> schoolURNs)
+            throws UnableToIndexSchoolsException, SegueSearchException {
+        Map<String, String> allSchoolPostcodes = this.getAllSchoolPostcodes();
+
+        Map<String, String> schoolPostcodes = Maps.newHashMap();
+        for (String schoolURN : schoolURNs) {
+            String postcode = allSchoolPostcodes.get(schoolURN);
+            if (postcode != null) {
+                schoolPostcodes.put(schoolURN, postcode);
+            }
+        }
+        return schoolPostcodes;
+    }
+
+    /**
+     * @return map of URN to postcode for every school with a postcode, reloaded from the index if it is out of date.
+     * @throws UnableToIndexSchoolsException
+     *             - if we cannot complete the indexing process
+     * @throws SegueSearchException
+     *             - if the schools cannot be read from the index.
+     */
+    private synchronized Map<String, String> getAllSchoolPostcodes()
+            throws UnableToIndexSchoolsException, SegueSearchException {
+        if (schoolPostcodesByURN != null
+                && System.currentTimeMillis() - schoolPostcodesLoadedAt < SCHOOL_POSTCODES_MAX_AGE_MILLISECONDS) {
+            return schoolPostcodesByURN;
+        }
+
+        if (!this.ensureSchoolList()) {
+            log.error("Unable to ensure school search cache.");
+            throw new UnableToIndexSchoolsException("unable to ensure the cache has been populated");
+        }
+
+        Map<String, String> postcodesByURN = Maps.newHashMap();
+        try (SearchResultsIterator<School> schools = searchProvider.iterateAllFromIndex(SCHOOLS_INDEX_BASE,
+                SCHOOLS_INDEX_TYPE.SCHOOL_SEARCH.toString(),
+                (source, offset, length) -> mapper.readValue(source, offset, length, School.class))) {
+            while (schools.hasNext()) {
+                School school = schools.next();
+                if (school.getUrn() != null && school.getPostcode() != null && !school.getPostcode().isEmpty()) {
+                    postcodesByURN.put(school.getUrn(), school.getPostcode());
+                }
+            }
+        } catch (UncheckedIOException e) {
+            throw new SegueSearchException("Unable to read the postcodes of schools", e);
+        }
+
+        schoolPostcodesByURN = postcodesByURN;
+        schoolPostcodesLoadedAt = System.currentTimeMillis();
+        log.info(String.format("Loaded the postcodes of %d schools", postcodesByURN.size()));
+        return schoolPostcodesByURN;
+    }
+
     /**
      * Ensure School List has been generated.
      * 
@@ -15,6 +15,7 @@
  */
 package uk.ac.cam.cl.dtg.segue.dao.users;
 
+import jakarta.annotation.Nullable;
 import uk.ac.cam.cl.dtg.segue.api.Constants.SchoolInfoStatus;
 import uk.ac.cam.cl.dtg.segue.api.Constants.TimeInterval;
 import uk.ac.cam.cl.dtg.segue.auth.AuthenticationProvider;
@@ -197,6 +198,25 @@ public interface IUserDataManager {
      */
     List<RegisteredUser> findUsers(RegisteredUser prototype) throws SegueDatabaseException;
 
+    /**
+     * Find a page of users by a prototype, ordered by name.
+     *
+     * Pages are found by position in the sort order rather than by offset, so later pages are as cheap to find as the
+     * first.
+     *
+     * @param prototype
+     *            - a user prototype that can be used for matching fields.
+     * @param afterUserId
+     *            - the id of the last user on the previous page, or null for the first page.
+     * @param limit
+     *            - the maximum number of users to return.
+     * @return list of users
+     * @throws SegueDatabaseException
+     *             if there is a database error.
+     */
+    List<RegisteredUser> findUsers(RegisteredUser prototype, @Nullable Long afterUserId, int limit)
+            throws SegueDatabaseException;
+
     /**
      * Bulk find users based on ids.
      * 
@@ -210,6 +210,16 @@ public interface IUserGroupPersistenceManager {
      */
     Set<Long> getAdditionalManagerSetByGroupId(final Long groupId) throws SegueDatabaseException;
 
+    /**
+     * Get the Id's of the users who are currently listed as additional managers for each of a collection of groups.
+     *
+     * @param groupIds - the group ids of interest
+     * @return map of group id to the set of additional manager user ids; groups without managers map to an empty set.
+     * @throws SegueDatabaseException
+     */
+    Map<Long, Set<Long>> getAdditionalManagerSetsByGroupIds(final Collection<Long> groupIds)
+            throws SegueDatabaseException;
+
     /**
      * Get groups by additional manager id.
      *
@@ -52,7 +52,7 @@ public class PgAnonymousUsers implements IAnonymousUserDataManager {
              PreparedStatement pst = conn.prepareStatement(query);
         ) {
             pst.setString(1, user.getSessionId());
-            pst.setString(2, "{\"questionAttempts\":{}}");
+            pst.setString(2, "{}");
             pst.setTimestamp(3, new java.sql.Timestamp(user.getDateCreated().getTime()));
             pst.setTimestamp(4, new java.sql.Timestamp(user.getDateCreated().getTime()));
 
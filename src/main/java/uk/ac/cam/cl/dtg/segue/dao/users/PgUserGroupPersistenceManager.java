@@ -412,6 +412,36 @@ public class PgUserGroupPersistenceManager implements IUserGroupPersistenceManag
         }
     }
 
+    @Override
+    public Map<Long, Set<Long>> getAdditionalManagerSetsByGroupIds(final Collection<Long> groupIds)
+            throws SegueDatabaseException {
+        Map<Long, Set<Long>> managersByGroupId = Maps.newHashMap();
+        for (Long groupId : groupIds) {
+            managersByGroupId.put(groupId, Sets.newHashSet());
+        }
+        if (managersByGroupId.isEmpty()) {
+            return managersByGroupId;
+        }
+
+        String query = "SELECT group_id, user_id FROM group_additional_managers WHERE group_id = ANY (?)";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            pst.setArray(1, conn.createArrayOf("bigint", managersByGroupId.keySet().toArray()));
+
+            // on this occasion we do not care if the groups are deleted.
+
+            try (ResultSet results = pst.executeQuery()) {
+                while (results.next()) {
+                    managersByGroupId.get(results.getLong("group_id")).add(results.getLong("user_id"));
+                }
+                return managersByGroupId;
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException("Postgres exception", e);
+        }
+    }
+
     @Override
     public void addUserAdditionalManagerList(final Long userId, final Long groupId) throws SegueDatabaseException {
         String query = "INSERT INTO group_additional_managers(group_id, user_id, created) VALUES (?, ?, ?);";
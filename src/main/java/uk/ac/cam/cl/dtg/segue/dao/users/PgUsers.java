@@ -20,6 +20,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
 import com.google.api.client.util.Maps;
 import com.google.inject.Inject;
+import jakarta.annotation.Nullable;
 import org.apache.commons.lang3.Validate;
 import uk.ac.cam.cl.dtg.segue.auth.AuthenticationProvider;
 import uk.ac.cam.cl.dtg.segue.dao.AbstractPgDataManager;
@@ -345,6 +346,65 @@ public class PgUsers extends AbstractPgDataManager implements IUserDataManager {
 
     @Override
     public List<RegisteredUser> findUsers(final RegisteredUser prototype) throws SegueDatabaseException {
+        List<Object> orderToAdd = Lists.newArrayList();
+        String query = "SELECT * FROM users" + buildPrototypeWhereClause(prototype, orderToAdd)
+                + " ORDER BY family_name, given_name";
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(query);
+        ) {
+            setPrototypeParameters(pst, orderToAdd);
+
+            try (ResultSet results = pst.executeQuery()) {
+                return this.findAllUsers(results);
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException(POSTGRES_EXCEPTION_MESSAGE, e);
+        } catch (JsonProcessingException e) {
+            throw new SegueDatabaseException(JSONB_PROCESSING_ERROR_MESSAGE, e);
+        }
+    }
+
+    @Override
+    public List<RegisteredUser> findUsers(final RegisteredUser prototype, @Nullable final Long afterUserId,
+                                          final int limit) throws SegueDatabaseException {
+        List<Object> orderToAdd = Lists.newArrayList();
+        StringBuilder sb = new StringBuilder("SELECT * FROM users");
+        sb.append(buildPrototypeWhereClause(prototype, orderToAdd));
+        if (null != afterUserId) {
+            // Keyset pagination: continue from the position of the last user on the previous page in the sort order.
+            sb.append(" AND (COALESCE(family_name, ''), COALESCE(given_name, ''), id) >"
+                    + " (SELECT COALESCE(family_name, ''), COALESCE(given_name, ''), id FROM users WHERE id = ?)");
+            orderToAdd.add(afterUserId);
+        }
+        sb.append(" ORDER BY COALESCE(family_name, ''), COALESCE(given_name, ''), id LIMIT ?");
+        orderToAdd.add(limit);
+
+        try (Connection conn = database.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(sb.toString());
+        ) {
+            setPrototypeParameters(pst, orderToAdd);
+
+            try (ResultSet results = pst.executeQuery()) {
+                return this.findAllUsers(results);
+            }
+        } catch (SQLException e) {
+            throw new SegueDatabaseException(POSTGRES_EXCEPTION_MESSAGE, e);
+        } catch (JsonProcessingException e) {
+            throw new SegueDatabaseException(JSONB_PROCESSING_ERROR_MESSAGE, e);
+        }
+    }
+
+    /**
+     * Build the WHERE clause matching the fields set on a user prototype.
+     *
+     * String fields are matched case insensitively with ILIKE, so may contain wildcards; these are served by the
+     * trigram indexes on the users table.
+     *
+     * @param prototype - the user prototype.
+     * @param orderToAdd - list to add the values of the clause's parameters to, in order.
+     * @return the WHERE clause.
+     */
+    private String buildPrototypeWhereClause(final RegisteredUser prototype, final List<Object> orderToAdd) {
         Map<String, Object> fieldsOfInterest = Maps.newHashMap();
         
         // Interesting fields to use for prototypical search
@@ -373,52 +433,37 @@ public class PgUsers extends AbstractPgDataManager implements IUserDataManager {
         // Build optional WHERE clause:
         StringBuilder sb = new StringBuilder();
         sb.append(" WHERE NOT deleted");
-        if (fieldsOfInterest.entrySet().size() != 0) {
-            sb.append(" AND ");
-        }
-
-        int index = 0;
-        List<Object> orderToAdd = Lists.newArrayList();
         for (Entry<String, Object> e : fieldsOfInterest.entrySet()) {
-
+            sb.append(" AND ");
             if (e.getValue() instanceof String) {
                 sb.append(e.getKey() + " ILIKE ?");
             } else {
                 sb.append(e.getKey() + " = ?");
             }
-
             orderToAdd.add(e.getValue());
-            if (index + 1 < fieldsOfInterest.entrySet().size()) {
-                sb.append(" AND ");
-            }
-            index++;
         }
+        return sb.toString();
+    }
 
-        String query = "SELECT * FROM users" + sb.toString() + " ORDER BY family_name, given_name";
-        try (Connection conn = database.getDatabaseConnection();
-             PreparedStatement pst = conn.prepareStatement(query);
-        ) {
-            index = 1;
-            for (Object value : orderToAdd) {
-                if (value instanceof String) {
-                    pst.setString(index, (String) value);
-                }
-                if (value instanceof Integer) {
-                    pst.setInt(index, (Integer) value);
-                }
-                if (value instanceof Long) {
-                    pst.setLong(index, (Long) value);
-                }
-                index++;
+    /**
+     * @param pst - the statement to set parameters on.
+     * @param orderToAdd - the values of the parameters, in order.
+     * @throws SQLException - if a parameter cannot be set.
+     */
+    private void setPrototypeParameters(final PreparedStatement pst, final List<Object> orderToAdd)
+            throws SQLException {
+        int index = 1;
+        for (Object value : orderToAdd) {
+            if (value instanceof String) {
+                pst.setString(index, (String) value);
             }
-            
-            try (ResultSet results = pst.executeQuery()) {
-                return this.findAllUsers(results);
+            if (value instanceof Integer) {
+                pst.setInt(index, (Integer) value);
             }
-        } catch (SQLException e) {
-            throw new SegueDatabaseException(POSTGRES_EXCEPTION_MESSAGE, e);
-        } catch (JsonProcessingException e) {
-            throw new SegueDatabaseException(JSONB_PROCESSING_ERROR_MESSAGE, e);
+            if (value instanceof Long) {
+                pst.setLong(index, (Long) value);
+            }
+            index++;
         }
     }
 
@@ -32,6 +32,7 @@ import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.InvalidRemoteException;
 import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
 import org.eclipse.jgit.lib.Constants;
 import org.eclipse.jgit.lib.ObjectId;
@@ -193,6 +194,59 @@ public class GitDb {
         return out;
     }
 
+    /**
+     * Build an index of every file in a particular version of the repository, from its full path to the id of its blob.
+     *
+     * Looking up a file in the index avoids walking the tree of the commit for every file requested.
+     *
+     * @param sha
+     *            - the version to index.
+     * @return a map of full file path (e.g. src/filename.json) to blob id, or null if the sha cannot be found.
+     * @throws IOException
+     *             - if we cannot access the repo location.
+     */
+    public Map<String, ObjectId> getFilePathIndexByCommitSHA(final String sha) throws IOException {
+        Validate.notBlank(sha);
+
+        Repository repository = gitHandle.getRepository();
+        // This may or may not help with concurrent repo update issues:
+        repository.scanForRepoChanges();
+
+        ObjectId commitId = repository.resolve(sha);
+        if (null == commitId) {
+            log.error("Unable to index files - Unable to locate resource with sha: " + sha);
+            return null;
+        }
+
+        Map<String, ObjectId> filePathIndex = new HashMap<>();
+        try (RevWalk revWalk = new RevWalk(repository);
+             TreeWalk treeWalk = new TreeWalk(repository)) {
+            treeWalk.addTree(revWalk.parseCommit(commitId).getTree());
+            treeWalk.setRecursive(true);
+            while (treeWalk.next()) {
+                filePathIndex.put(treeWalk.getPathString(), treeWalk.getObjectId(0));
+            }
+        }
+        log.info(String.format("Indexed %s files in content version (%s)", filePathIndex.size(), sha));
+        return filePathIndex;
+    }
+
+    /**
+     * Open a blob, to read its size and contents. Blobs are immutable, so the contents of a blob id never change.
+     *
+     * @param blobId
+     *            - the id of the blob, e.g. from getFilePathIndexByCommitSHA.
+     * @return a loader for the blob, which can stream its contents without reading them all into memory.
+     * @throws MissingObjectException
+     *             - if the blob does not exist.
+     * @throws IOException
+     *             - if we cannot access the repo location.
+     */
+    public ObjectLoader openBlob(final ObjectId blobId) throws IOException {
+        Validate.notNull(blobId);
+        return gitHandle.getRepository().open(blobId, Constants.OBJ_BLOB);
+    }
+
     /**
      * This method will configure a treewalk object that can be used to navigate the git repository.
      * 
@@ -17,6 +17,7 @@ package uk.ac.cam.cl.dtg.segue.database;
 
 import com.google.inject.Inject;
 import org.apache.commons.dbcp2.BasicDataSource;
+import uk.ac.cam.cl.dtg.segue.api.monitors.RequestWorkMonitor;
 
 import java.io.Closeable;
 import java.sql.Connection;
@@ -68,12 +69,14 @@ public class PostgresSqlDb implements Closeable {
 
     /**
      * Get a handle to the database.
+     *
+     * Connections obtained while handling a request record the queries made with them against that request.
      * 
      * @return database connection.
      * @throws SQLException
      */
     public Connection getDatabaseConnection() throws SQLException {
-        return dataSource.getConnection();
+        return RequestWorkMonitor.instrument(dataSource.getConnection());
     }
 
     @Override
@@ -29,6 +29,7 @@ import org.quartz.TriggerBuilder;
 import org.quartz.impl.StdSchedulerFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.isaac.api.managers.EventNotificationEmailManager;
 import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
 
 import java.sql.SQLException;
@@ -192,5 +193,6 @@ public class SegueJobService implements ServletContextListener {
         } catch (SchedulerException e) {
             log.error("Error while attempting to shutdown Segue Scheduler.", e);
         }
+        EventNotificationEmailManager.shutdownEmailPreparation();
     }
 }
@@ -1,6 +1,7 @@
 package uk.ac.cam.cl.dtg.segue.scheduler.jobs;
 
 import com.google.inject.Injector;
+import org.quartz.DisallowConcurrentExecution;
 import org.quartz.Job;
 import org.quartz.JobExecutionContext;
 import org.quartz.JobExecutionException;
@@ -9,6 +10,7 @@ import org.slf4j.LoggerFactory;
 import uk.ac.cam.cl.dtg.isaac.api.managers.EventNotificationEmailManager;
 import uk.ac.cam.cl.dtg.segue.configuration.SegueGuiceConfigurationModule;
 
+@DisallowConcurrentExecution
 public class EventFeedbackEmailJob implements Job {
     private static final Logger log = LoggerFactory.getLogger(EventReminderEmailJob.class);
     private final EventNotificationEmailManager scheduledEmailManager;
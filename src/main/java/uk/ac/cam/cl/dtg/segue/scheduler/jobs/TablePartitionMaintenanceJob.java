@@ -0,0 +1,84 @@
+package uk.ac.cam.cl.dtg.segue.scheduler.jobs;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.inject.Injector;
+import org.quartz.Job;
+import org.quartz.JobExecutionContext;
+import org.quartz.JobExecutionException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.segue.dao.PgTablePartitionManager;
+import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
+import uk.ac.cam.cl.dtg.segue.configuration.SegueGuiceConfigurationModule;
+import uk.ac.cam.cl.dtg.util.PropertiesLoader;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static uk.ac.cam.cl.dtg.segue.api.Constants.*;
+
+/**
+ * Creates the monthly partitions of logged_events and question_attempts ahead of time and, where a retention period
+ * is configured, detaches partitions which have fallen out of it and archives them to compressed files.
+ */
+public class TablePartitionMaintenanceJob implements Job {
+    private static final Logger log = LoggerFactory.getLogger(TablePartitionMaintenanceJob.class);
+
+    private static final Map<String, String> RETENTION_PROPERTY_BY_TABLE = ImmutableMap.of(
+            PgTablePartitionManager.LOGGED_EVENTS_TABLE, LOGGED_EVENTS_RETENTION_MONTHS,
+            PgTablePartitionManager.QUESTION_ATTEMPTS_TABLE, QUESTION_ATTEMPTS_RETENTION_MONTHS
+    );
+
+    private final PgTablePartitionManager partitionManager;
+    private final PropertiesLoader properties;
+
+    /**
+     * This class is required by quartz and must be executable by any instance of the segue api relying only on the
+     * jobdata context provided.
+     */
+    public TablePartitionMaintenanceJob() {
+        Injector injector = SegueGuiceConfigurationModule.getGuiceInjector();
+        partitionManager = injector.getInstance(PgTablePartitionManager.class);
+        properties = injector.getInstance(PropertiesLoader.class);
+    }
+
+    @Override
+    public void execute(final JobExecutionContext context) throws JobExecutionException {
+        LocalDate today = LocalDate.now();
+        String archiveLocation = properties.getProperty(PARTITION_ARCHIVE_LOCATION);
+
+        for (Map.Entry<String, String> tableAndRetention : RETENTION_PROPERTY_BY_TABLE.entrySet()) {
+            String table = tableAndRetention.getKey();
+            try {
+                partitionManager.createMonthlyPartitionsUntil(table, today.plusMonths(PARTITION_MONTHS_TO_CREATE_AHEAD));
+
+                String retentionMonths = properties.getProperty(tableAndRetention.getValue());
+                if (null == retentionMonths || retentionMonths.isEmpty() || null == archiveLocation) {
+                    continue;
+                }
+                LocalDate cutoff = today.withDayOfMonth(1).minusMonths(Integer.parseInt(retentionMonths));
+                for (PgTablePartitionManager.TablePartition partition : partitionManager.getPartitions(table)) {
+                    if (partition.getName().endsWith(PgTablePartitionManager.LEGACY_PARTITION_SUFFIX)
+                            && partition.getUpperBound().isAfter(cutoff)) {
+                        log.warn(String.format("Partition (%s) will only be archived once all of its rows are past"
+                                + " the retention period; split it by month with the legacy partition backfill script.",
+                                partition.getName()));
+                    }
+                }
+                partitionManager.detachPartitionsBefore(table, cutoff);
+
+                // Also archives any partitions left detached by an earlier run which failed part way through:
+                Path archiveDirectory = Paths.get(archiveLocation);
+                for (String detachedPartition : partitionManager.getDetachedPartitions(table)) {
+                    partitionManager.archiveAndDropTable(detachedPartition, archiveDirectory);
+                }
+            } catch (SegueDatabaseException | IOException | NumberFormatException e) {
+                log.error(String.format("Unable to maintain partitions of table (%s)", table), e);
+            }
+        }
+        log.info("Ran TablePartitionMaintenanceJob");
+    }
+}
@@ -15,11 +15,13 @@
  */
 package uk.ac.cam.cl.dtg.segue.search;
 
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.google.api.client.util.Lists;
 import com.google.api.client.util.Maps;
 import com.google.common.base.CaseFormat;
-import com.google.common.cache.Cache;
-import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableSet;
 import com.google.inject.Inject;
 import org.apache.commons.lang3.Validate;
@@ -29,17 +31,22 @@ import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.CredentialsProvider;
 import org.apache.http.impl.client.BasicCredentialsProvider;
 import org.apache.lucene.search.join.ScoreMode;
+import org.apache.lucene.util.BytesRef;
 import org.elasticsearch.ElasticsearchException;
 import org.elasticsearch.action.get.GetRequest;
 import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.action.search.ClosePointInTimeRequest;
+import org.elasticsearch.action.search.OpenPointInTimeRequest;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
+import org.elasticsearch.client.Request;
 import org.elasticsearch.client.RequestOptions;
+import org.elasticsearch.client.Response;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestHighLevelClient;
 import org.elasticsearch.client.indices.GetIndexRequest;
-import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.Fuzziness;
+import org.elasticsearch.core.TimeValue;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.MatchQueryBuilder;
 import org.elasticsearch.index.query.MultiMatchQueryBuilder;
@@ -49,6 +56,7 @@ import org.elasticsearch.index.query.RangeQueryBuilder;
 import org.elasticsearch.index.query.functionscore.RandomScoreFunctionBuilder;
 import org.elasticsearch.index.query.functionscore.ScoreFunctionBuilders;
 import org.elasticsearch.search.SearchHit;
+import org.elasticsearch.search.builder.PointInTimeBuilder;
 import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.fetch.subphase.FetchSourceContext;
 import org.elasticsearch.search.sort.SortBuilders;
@@ -62,16 +70,22 @@ import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
 import jakarta.annotation.Nullable;
 import jakarta.validation.constraints.NotNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
@@ -93,10 +107,17 @@ public class ElasticSearchProvider implements ISearchProvider {
     // to try and improve performance of searches with a -1 limit.
     private static final int LARGE_LIMIT = 100;
 
-    private static final int DEFAULT_MAX_WINDOW_SIZE = 10000;
+    // searches which iterate over every result fetch them a page at a time from a point in time.
+    private static final TimeValue POINT_IN_TIME_KEEP_ALIVE = TimeValue.timeValueMinutes(1);
+    static final String SHARD_DOC_SORT_FIELD = "_shard_doc";
+    static final int POINT_IN_TIME_PAGE_SIZE = 1000;
+    // unlimited searches hold every result in memory, so stop reading once this many have been found.
+    static final int MAX_UNLIMITED_SEARCH_RESULTS = 10000;
 
-    // used to optimise index setting retrieval as these probably don't change every request.
-    private final Cache<String, String> settingsCache;
+    // date range filters are rounded to this, so that searches made close together can share cached filters.
+    private static final long DATE_FILTER_BUCKET_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     public static String produceTypedIndexName(final String indexName, final String typeName) {
         return indexName + "_" + CaseFormat.LOWER_CAMEL.to(CaseFormat.LOWER_UNDERSCORE, typeName);
@@ -111,7 +132,6 @@ public class ElasticSearchProvider implements ISearchProvider {
     @Inject
     public ElasticSearchProvider(final RestHighLevelClient searchClient) {
         this.client = searchClient;
-        this.settingsCache = CacheBuilder.newBuilder().softValues().expireAfterWrite(10, TimeUnit.MINUTES).build();
     }
 
     @Override
@@ -120,10 +140,11 @@ public class ElasticSearchProvider implements ISearchProvider {
     }
 
     @Override
-    public ResultsWrapper<String> matchSearch(final String indexBase, final String indexType,
-                                              final List<GitContentManager.BooleanSearchClause> fieldsToMatch, final int startIndex,
-                                              final int limit, final Map<String, Constants.SortOrder> sortInstructions,
-                                              @Nullable final Map<String, AbstractFilterInstruction> filterInstructions) throws SegueSearchException {
+    public <T> ResultsWrapper<T> matchSearch(final String indexBase, final String indexType,
+                                             final List<GitContentManager.BooleanSearchClause> fieldsToMatch, final int startIndex,
+                                             final int limit, final Map<String, Constants.SortOrder> sortInstructions,
+                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder) throws SegueSearchException {
         // build up the query from the fieldsToMatch map
         QueryBuilder query = generateBoolMatchQuery(fieldsToMatch);
 
@@ -131,13 +152,14 @@ public class ElasticSearchProvider implements ISearchProvider {
             query = QueryBuilders.boolQuery().must(query).filter(generateFilterQuery(filterInstructions));
         }
 
-        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, sortInstructions);
+        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, sortInstructions, decoder);
     }
 
     @Override
-    public final ResultsWrapper<String> randomisedMatchSearch(final String indexBase, final String indexType,
-                                                              final List<GitContentManager.BooleanSearchClause> fieldsToMatch, final int startIndex, final int limit,
-                                                              final Long randomSeed, final Map<String, AbstractFilterInstruction> filterInstructions)
+    public final <T> ResultsWrapper<T> randomisedMatchSearch(final String indexBase, final String indexType,
+                                                             final List<GitContentManager.BooleanSearchClause> fieldsToMatch, final int startIndex, final int limit,
+                                                             final Long randomSeed, final Map<String, AbstractFilterInstruction> filterInstructions,
+                                                             final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
         // build up the query from the fieldsToMatch map
         QueryBuilder query = QueryBuilders.constantScoreQuery(generateBoolMatchQuery(fieldsToMatch));
@@ -157,14 +179,15 @@ public class ElasticSearchProvider implements ISearchProvider {
 
         log.debug("Randomised Query, to be sent to elasticsearch is : " + query);
 
-        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
     }
 
     @Override
-    public ResultsWrapper<String> nestedMatchSearch(
+    public <T> ResultsWrapper<T> nestedMatchSearch(
             final String indexBase, final String indexType, final Integer startIndex, final Integer limit,
             final String searchString, @NotNull final BooleanMatchInstruction matchInstruction,
-            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+            final SearchHitDecoder<T> decoder
     ) throws SegueSearchException {
         if (null == indexBase || null == indexType || null == searchString) {
             log.warn("A required field is missing. Unable to execute search.");
@@ -176,15 +199,16 @@ public class ElasticSearchProvider implements ISearchProvider {
             query.filter(generateFilterQuery(filterInstructions));
         }
         query.minimumShouldMatch(1);
-        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
     }
 
     @Override
-    public ResultsWrapper<String> fuzzySearch(final String indexBase, final String indexType, final String searchString,
-                                              final Integer startIndex, final Integer limit,
-                                              @Nullable final Map<String, List<String>> fieldsThatMustMatch,
-                                              @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
-                                              final String... fields) throws SegueSearchException {
+    public <T> ResultsWrapper<T> fuzzySearch(final String indexBase, final String indexType, final String searchString,
+                                             final Integer startIndex, final Integer limit,
+                                             @Nullable final Map<String, List<String>> fieldsThatMustMatch,
+                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder,
+                                             final String... fields) throws SegueSearchException {
         if (null == indexBase || null == indexType || null == searchString || null == fields) {
             log.warn("A required field is missing. Unable to execute search.");
             return null;
@@ -232,13 +256,14 @@ public class ElasticSearchProvider implements ISearchProvider {
             masterQuery.filter(generateFilterQuery(filterInstructions));
         }
 
-        return this.executeBasicQuery(indexBase, indexType, masterQuery, startIndex, limit);
+        return this.executeBasicQuery(indexBase, indexType, masterQuery, startIndex, limit, decoder);
     }
 
     @Override
-    public ResultsWrapper<String> termSearch(final String indexBase, final String indexType,
-                                             final String searchTerm, final String field, final int startIndex, final int limit,
-                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions)
+    public <T> ResultsWrapper<T> termSearch(final String indexBase, final String indexType,
+                                            final String searchTerm, final String field, final int startIndex, final int limit,
+                                            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                            final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
         if (null == indexBase || null == indexType || (null == searchTerm && null != field)) {
             log.error("A required field or field combination is missing. Unable to execute search.");
@@ -258,7 +283,7 @@ public class ElasticSearchProvider implements ISearchProvider {
             throw new SegueSearchException("This method requires either searchTerm or filter instructions.");
         }
 
-        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
     }
 
     /**
@@ -316,12 +341,13 @@ public class ElasticSearchProvider implements ISearchProvider {
     }
 
     @Override
-    public ResultsWrapper<String> findByExactMatch(final String indexBase, final String indexType,
-                                                   final String fieldname, final String needle, final int startIndex,
-                                                   final int limit,
-                                                   final Map<String, AbstractFilterInstruction> filterInstructions)
+    public <T> ResultsWrapper<T> findByExactMatch(final String indexBase, final String indexType,
+                                                  final String fieldname, final String needle, final int startIndex,
+                                                  final int limit,
+                                                  final Map<String, AbstractFilterInstruction> filterInstructions,
+                                                  final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
-        ResultsWrapper<String> resultList;
+        ResultsWrapper<T> resultList;
 
         QueryBuilder query = QueryBuilders.matchQuery(fieldname, needle);
 
@@ -329,16 +355,17 @@ public class ElasticSearchProvider implements ISearchProvider {
             query = QueryBuilders.boolQuery().must(query).filter(generateFilterQuery(filterInstructions));
         }
 
-        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
 
         return resultList;
     }
 
     @Override
-    public ResultsWrapper<String> findByPrefix(final String indexBase, final String indexType, final String fieldname,
-                                               final String prefix, final int startIndex, final int limit, final Map<String, AbstractFilterInstruction> filterInstructions)
+    public <T> ResultsWrapper<T> findByPrefix(final String indexBase, final String indexType, final String fieldname,
+                                              final String prefix, final int startIndex, final int limit, final Map<String, AbstractFilterInstruction> filterInstructions,
+                                              final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
-        ResultsWrapper<String> resultList;
+        ResultsWrapper<T> resultList;
 
         QueryBuilder query = QueryBuilders.prefixQuery(fieldname, prefix);
 
@@ -346,17 +373,18 @@ public class ElasticSearchProvider implements ISearchProvider {
             query = QueryBuilders.boolQuery().must(query).filter(generateFilterQuery(filterInstructions));
         }
 
-        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
 
         return resultList;
     }
 
     @Override
-    public ResultsWrapper<String> findByRegEx(final String indexBase, final String indexType, final String fieldname,
-                                              final String regex, final int startIndex, final int limit,
-                                              final Map<String, AbstractFilterInstruction> filterInstructions)
+    public <T> ResultsWrapper<T> findByRegEx(final String indexBase, final String indexType, final String fieldname,
+                                             final String regex, final int startIndex, final int limit,
+                                             final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
-        ResultsWrapper<String> resultList;
+        ResultsWrapper<T> resultList;
 
         QueryBuilder query = QueryBuilders.regexpQuery(fieldname, regex);
 
@@ -364,7 +392,7 @@ public class ElasticSearchProvider implements ISearchProvider {
             query = QueryBuilders.boolQuery().must(query).filter(generateFilterQuery(filterInstructions));
         }
 
-        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit);
+        resultList = this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, decoder);
 
         return resultList;
     }
@@ -404,56 +432,86 @@ public class ElasticSearchProvider implements ISearchProvider {
      * @return filterbuilder
      */
     public QueryBuilder generateFilterQuery(final Map<String, AbstractFilterInstruction> filterInstructions) {
+        // every clause is in filter context, so nothing is scored and each clause can be cached by the cluster.
         BoolQueryBuilder filter = QueryBuilders.boolQuery();
         for (Entry<String, AbstractFilterInstruction> fieldToFilterInstruction : filterInstructions.entrySet()) {
+            String field = fieldToFilterInstruction.getKey();
+
             // date filter logic
             if (fieldToFilterInstruction.getValue() instanceof DateRangeFilterInstruction) {
                 DateRangeFilterInstruction dateRangeInstruction = (DateRangeFilterInstruction) fieldToFilterInstruction
                         .getValue();
-                RangeQueryBuilder rangeFilter = QueryBuilders.rangeQuery(fieldToFilterInstruction.getKey());
+                RangeQueryBuilder rangeFilter = QueryBuilders.rangeQuery(field);
                 // Note: assumption that dates are stored in long format.
                 if (dateRangeInstruction.getFromDate() != null) {
-                    rangeFilter.from(dateRangeInstruction.getFromDate().getTime());
+                    rangeFilter.from(roundToDateFilterBucket(dateRangeInstruction.getFromDate()));
                 }
 
                 if (dateRangeInstruction.getToDate() != null) {
-                    rangeFilter.to(dateRangeInstruction.getToDate().getTime());
+                    rangeFilter.to(roundToDateFilterBucket(dateRangeInstruction.getToDate()));
                 }
 
-                filter.must(rangeFilter);
+                filter.filter(rangeFilter);
             }
 
             if (fieldToFilterInstruction.getValue() instanceof SimpleFilterInstruction) {
                 SimpleFilterInstruction sfi = (SimpleFilterInstruction) fieldToFilterInstruction.getValue();
-
-                List<GitContentManager.BooleanSearchClause> fieldsToMatch = Lists.newArrayList();
-                fieldsToMatch.add(new GitContentManager.BooleanSearchClause(
-                        fieldToFilterInstruction.getKey(), Constants.BooleanOperator.AND,
-                        Collections.singletonList(sfi.getMustMatchValue())));
-
-                filter.must(this.generateBoolMatchQuery(fieldsToMatch));
+                filter.filter(this.generateValueFilterQuery(field, sfi.getMustMatchValue()));
             }
 
             if (fieldToFilterInstruction.getValue() instanceof TermsFilterInstruction) {
                 TermsFilterInstruction sfi = (TermsFilterInstruction) fieldToFilterInstruction.getValue();
-                filter.must(QueryBuilders.termsQuery(fieldToFilterInstruction.getKey(), sfi.getMatchValues()));
+                filter.filter(QueryBuilders.termsQuery(field, sfi.getMatchValues()));
             }
 
             if (fieldToFilterInstruction.getValue() instanceof SimpleExclusionInstruction) {
                 SimpleExclusionInstruction sfi = (SimpleExclusionInstruction) fieldToFilterInstruction.getValue();
-
-                List<GitContentManager.BooleanSearchClause> fieldsToMatch = Lists.newArrayList();
-                fieldsToMatch.add(new GitContentManager.BooleanSearchClause(
-                        fieldToFilterInstruction.getKey(), Constants.BooleanOperator.AND,
-                        Collections.singletonList(sfi.getMustNotMatchValue())));
-
-                filter.mustNot(this.generateBoolMatchQuery(fieldsToMatch));
+                filter.mustNot(this.generateValueFilterQuery(field, sfi.getMustNotMatchValue()));
             }
         }
 
         return filter;
     }
 
+    /**
+     * Generate a query matching documents where a field has a value, for use in filter context.
+     *
+     * Raw fields and boolean values are never analysed, so they are matched with a term query; anything else has to be
+     * analysed with a match query.
+     *
+     * @param field
+     *            - the field to match.
+     * @param value
+     *            - the value the field must have.
+     * @return a query matching the value.
+     */
+    private QueryBuilder generateValueFilterQuery(final String field, final String value) {
+        QueryBuilder query;
+        if (field.endsWith(ES_FIELD_CONNECTOR + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX)
+                || Boolean.TRUE.toString().equals(value) || Boolean.FALSE.toString().equals(value)) {
+            query = QueryBuilders.termQuery(field, value);
+        } else {
+            query = QueryBuilders.matchQuery(field, value);
+        }
+
+        if (Constants.NESTED_FIELDS.contains(field)) {
+            return QueryBuilders.nestedQuery(field.split("\\.")[0], query, ScoreMode.None);
+        }
+        return query;
+    }
+
+    /**
+     * Round a date down to the start of its bucket, so that the same filter is sent for every search made within that
+     * bucket and the cluster can reuse its cached result rather than evaluating a new range each time.
+     *
+     * @param date
+     *            - the date to round.
+     * @return the start of the bucket as milliseconds since the epoch.
+     */
+    static long roundToDateFilterBucket(final Date date) {
+        return date.getTime() - Math.floorMod(date.getTime(), DATE_FILTER_BUCKET_MILLIS);
+    }
+
     /**
      * Utility method to generate a BoolMatchQuery based on the parameters provided.
      *
@@ -522,12 +580,15 @@ public class ElasticSearchProvider implements ISearchProvider {
      *            - start index for results
      * @param limit
      *            - the maximum number of results to return -1 will attempt to return all results.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return list of the search results
      */
-    private ResultsWrapper<String> executeBasicQuery(final String indexBase, final String indexType,
-                                                     final QueryBuilder query, final int startIndex, final int limit)
+    private <T> ResultsWrapper<T> executeBasicQuery(final String indexBase, final String indexType,
+                                                    final QueryBuilder query, final int startIndex, final int limit,
+                                                    final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
-        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, null);
+        return this.executeBasicQuery(indexBase, indexType, query, startIndex, limit, null, decoder);
     }
 
     /**
@@ -545,12 +606,18 @@ public class ElasticSearchProvider implements ISearchProvider {
      * @param startIndex
      *            - start index for results
      * @param limit
-     *            - the maximum number of results to return -1 will attempt to return all results.
+     *            - the maximum number of results to return -1 will attempt to return all results, up to
+     *            MAX_UNLIMITED_SEARCH_RESULTS; use iterateAllFromIndex to read more than that.
+     * @param sortInstructions
+     *            - the map of how to sort each field of interest.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return list of the search results
      */
-    private ResultsWrapper<String> executeBasicQuery(final String indexBase, final String indexType,
-                                                     final QueryBuilder query, final int startIndex, final int limit,
-                                                     @Nullable final Map<String, Constants.SortOrder> sortInstructions) throws SegueSearchException {
+    private <T> ResultsWrapper<T> executeBasicQuery(final String indexBase, final String indexType,
+                                                    final QueryBuilder query, final int startIndex, final int limit,
+                                                    @Nullable final Map<String, Constants.SortOrder> sortInstructions,
+                                                    final SearchHitDecoder<T> decoder) throws SegueSearchException {
         int newLimit = limit;
         String typedIndex = ElasticSearchProvider.produceTypedIndexName(indexBase, indexType);
         boolean isUnlimitedSearch = limit == -1;
@@ -566,21 +633,31 @@ public class ElasticSearchProvider implements ISearchProvider {
         }
 
         log.debug("Building Query: " + sourceBuilder);
-        ResultsWrapper<String> results = executeQuery(typedIndex, sourceBuilder);
+        ResultsWrapper<T> results = executeQuery(typedIndex, sourceBuilder, decoder);
 
-        // execute another query to get all results as this is an unlimited
-        // query.
+        // page through all of the results as this is an unlimited query, however many there are.
         if (isUnlimitedSearch && (results.getResults().size() < results.getTotalResults())) {
-            if (results.getTotalResults() > this.getMaxResultSize(indexBase, indexType)) {
-                throw new SegueSearchException(String.format("The search you have requested " +
-                        "exceeds the maximum number of results that can be returned at once (%s).",
-                        this.getMaxResultSize(indexBase, indexType)));
+            if (null == sortInstructions) {
+                sourceBuilder.sort(SortBuilders.scoreSort());
             }
 
-            sourceBuilder = new SearchSourceBuilder().query(query).size(results.getTotalResults().intValue()).from(startIndex);
-            results = executeQuery(typedIndex, sourceBuilder);
+            List<T> allResults = new ArrayList<>(
+                    (int) Math.min(results.getTotalResults(), MAX_UNLIMITED_SEARCH_RESULTS));
+            try (SearchResultsIterator<T> iterator = new PointInTimeIterator<>(typedIndex, sourceBuilder, decoder)) {
+                while (allResults.size() < MAX_UNLIMITED_SEARCH_RESULTS && iterator.hasNext()) {
+                    allResults.add(iterator.next());
+                }
+                if (iterator.hasNext()) {
+                    // the total still counts every hit, so callers can tell the results are incomplete.
+                    log.warn(String.format("Unlimited search of index %s stopped after %d of %d results.",
+                            typedIndex, allResults.size(), iterator.getTotalResults()));
+                }
+                results = new ResultsWrapper<>(allResults, iterator.getTotalResults());
+            } catch (UncheckedIOException e) {
+                throw new SegueSearchException("Error while trying to search", e.getCause());
+            }
 
-            log.debug("Unlimited Search - had to make a second round trip to elasticsearch.");
+            log.debug("Unlimited Search - had to page through the results from a point in time.");
         }
 
         return results;
@@ -588,24 +665,34 @@ public class ElasticSearchProvider implements ISearchProvider {
 
     /**
      * A general method for getting the results of a search.
+     *
+     * Each hit is decoded from the source bytes held by the search response, rather than from a String copy of them.
+     *
      * @param typedIndex
      *            - the index within which to search
      * @param searchSourceBuilder
      *            - the search request to send to the cluster.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return List of the search results.
      */
-    private ResultsWrapper<String> executeQuery(final String typedIndex, final SearchSourceBuilder searchSourceBuilder)
+    private <T> ResultsWrapper<T> executeQuery(final String typedIndex, final SearchSourceBuilder searchSourceBuilder,
+                                               final SearchHitDecoder<T> decoder)
             throws SegueSearchException {
         try {
             SearchResponse response = client.search(new SearchRequest(typedIndex).source(searchSourceBuilder), RequestOptions.DEFAULT);
 
-            List<SearchHit> hitAsList = Arrays.asList(response.getHits().getHits());
-            List<String> resultList = new ArrayList<>();
+            SearchHit[] hits = response.getHits().getHits();
+            List<T> resultList = new ArrayList<>(hits.length);
 
             log.debug("TOTAL SEARCH HITS " + response.getHits().getTotalHits());
             log.debug("Search Request: " + searchSourceBuilder);
-            for (SearchHit item : hitAsList) {
-                resultList.add(item.getSourceAsString());
+            for (SearchHit item : hits) {
+                BytesRef source = item.getSourceRef().toBytesRef();
+                T result = decoder.decode(source.bytes, source.offset, source.length);
+                if (result != null) {
+                    resultList.add(result);
+                }
             }
 
             return new ResultsWrapper<>(resultList, response.getHits().getTotalHits().value);
@@ -614,6 +701,237 @@ public class ElasticSearchProvider implements ISearchProvider {
         }
     }
 
+    /**
+     * Get a page of the results of a search from a point in time.
+     *
+     * The response is parsed as it is read from the connection, so the whole page is never held in memory and no
+     * intermediate SearchHit objects are made. Each hit source is copied into a buffer reused across the page and
+     * decoded from there as it is reached.
+     *
+     * @param searchSourceBuilder
+     *            - the search request to send to the cluster, including the point in time to search.
+     * @param decoder
+     *            - to decode the source of each search hit.
+     * @return the page of search results.
+     * @throws IOException - if the search fails or the response is malformed.
+     */
+    private <T> SearchResultsPage<T> streamSearchPage(final SearchSourceBuilder searchSourceBuilder,
+                                                      final SearchHitDecoder<T> decoder) throws IOException {
+        SearchResultsPage<T> page = new SearchResultsPage<>(searchSourceBuilder.size());
+        SourceBuffer source = new SourceBuffer();
+        try (InputStream content = this.searchPointInTime(searchSourceBuilder);
+             JsonParser parser = JSON_FACTORY.createParser(content)) {
+            expectToken(parser.nextToken(), JsonToken.START_OBJECT);
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String responseField = parser.getCurrentName();
+                parser.nextToken();
+                if ("pit_id".equals(responseField)) {
+                    page.pointInTimeId = parser.getText();
+                    continue;
+                } else if (!"hits".equals(responseField)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                expectToken(parser.currentToken(), JsonToken.START_OBJECT);
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String hitsField = parser.getCurrentName();
+                    parser.nextToken();
+                    if ("total".equals(hitsField)) {
+                        page.totalHits = readTotalHits(parser);
+                    } else if ("hits".equals(hitsField)) {
+                        expectToken(parser.currentToken(), JsonToken.START_ARRAY);
+                        while (parser.nextToken() == JsonToken.START_OBJECT) {
+                            readHit(parser, source, decoder, page);
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+        }
+
+        log.debug("Search Request: " + searchSourceBuilder);
+        return page;
+    }
+
+    /**
+     * Open a point in time on an index.
+     *
+     * @param typedIndex
+     *            - the index to open the point in time on.
+     * @return the id of the point in time.
+     * @throws IOException - if the point in time cannot be opened.
+     */
+    String openPointInTime(final String typedIndex) throws IOException {
+        return client.openPointInTime(new OpenPointInTimeRequest(typedIndex).keepAlive(POINT_IN_TIME_KEEP_ALIVE),
+                RequestOptions.DEFAULT).getPointInTimeId();
+    }
+
+    /**
+     * Send a search of a point in time to the cluster.
+     *
+     * @param searchSourceBuilder
+     *            - the search request to send, including the point in time to search.
+     * @return the body of the response, which the caller must close.
+     * @throws IOException - if the search fails.
+     */
+    InputStream searchPointInTime(final SearchSourceBuilder searchSourceBuilder) throws IOException {
+        // searches of a point in time must not name an index, it is implied by the point in time:
+        Request request = new Request("POST", "/_search");
+        request.setJsonEntity(searchSourceBuilder.toString());
+        Response response = client.getLowLevelClient().performRequest(request);
+        return response.getEntity().getContent();
+    }
+
+    /**
+     * Close a point in time, so that the cluster can release the resources it holds.
+     *
+     * @param pointInTimeId
+     *            - the id of the point in time.
+     * @throws IOException - if the point in time cannot be closed.
+     */
+    void closePointInTime(final String pointInTimeId) throws IOException {
+        client.closePointInTime(new ClosePointInTimeRequest(pointInTimeId), RequestOptions.DEFAULT);
+    }
+
+    /**
+     * Decode the source of the hit object the parser is positioned at and add it to the page, leaving the parser at
+     * the end of the hit.
+     *
+     * @param parser
+     *            - a parser over the response, positioned at the start of a hit object.
+     * @param source
+     *            - the buffer to copy the source of the hit into.
+     * @param decoder
+     *            - to decode the source of the hit.
+     * @param page
+     *            - the page of results to add the hit to.
+     * @throws IOException - if the response is malformed or the source cannot be decoded.
+     */
+    private static <T> void readHit(final JsonParser parser, final SourceBuffer source,
+                                    final SearchHitDecoder<T> decoder, final SearchResultsPage<T> page)
+            throws IOException {
+        T result = null;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String hitField = parser.getCurrentName();
+            parser.nextToken();
+            if ("_source".equals(hitField)) {
+                expectToken(parser.currentToken(), JsonToken.START_OBJECT);
+                source.reset();
+                try (JsonGenerator generator = JSON_FACTORY.createGenerator(source)) {
+                    copyStructure(parser, generator);
+                }
+                result = decoder.decode(source.getBuffer(), 0, source.size());
+            } else if ("sort".equals(hitField)) {
+                page.lastSortValues = readSortValues(parser);
+            } else {
+                parser.skipChildren();
+            }
+        }
+        page.hitCount++;
+        if (result != null) {
+            page.results.add(result);
+        }
+    }
+
+    /**
+     * Copy the object or array the parser is positioned at, leaving the parser at its end.
+     *
+     * Unlike JsonGenerator.copyCurrentStructure, floating point numbers are copied as written rather than through a
+     * double, so the decoded source is the same as the source in the index.
+     *
+     * @param parser
+     *            - a parser positioned at the start of an object or array.
+     * @param generator
+     *            - the generator to copy it to.
+     * @throws IOException - if the response is malformed.
+     */
+    private static void copyStructure(final JsonParser parser, final JsonGenerator generator) throws IOException {
+        int depth = 0;
+        do {
+            JsonToken token = parser.currentToken();
+            if (token == JsonToken.VALUE_NUMBER_FLOAT) {
+                generator.writeNumber(parser.getText());
+            } else {
+                generator.copyCurrentEvent(parser);
+            }
+            if (token.isStructStart()) {
+                depth++;
+            } else if (token.isStructEnd()) {
+                depth--;
+            }
+        } while (depth > 0 && parser.nextToken() != null);
+        if (depth > 0) {
+            throw new IOException("Unexpected end of search response.");
+        }
+    }
+
+    /**
+     * Read the sort values of a hit, which are used to request the results following it.
+     *
+     * @param parser
+     *            - a parser positioned at the start of the array of sort values.
+     * @return the sort values.
+     * @throws IOException - if the response is malformed.
+     */
+    private static Object[] readSortValues(final JsonParser parser) throws IOException {
+        expectToken(parser.currentToken(), JsonToken.START_ARRAY);
+        List<Object> sortValues = new ArrayList<>();
+        while (parser.nextToken() != JsonToken.END_ARRAY) {
+            switch (parser.currentToken()) {
+                case VALUE_NUMBER_INT:
+                case VALUE_NUMBER_FLOAT:
+                    sortValues.add(parser.getNumberValue());
+                    break;
+                case VALUE_TRUE:
+                case VALUE_FALSE:
+                    sortValues.add(parser.getBooleanValue());
+                    break;
+                case VALUE_NULL:
+                    sortValues.add(null);
+                    break;
+                case VALUE_STRING:
+                    sortValues.add(parser.getText());
+                    break;
+                default:
+                    throw new IOException("Unexpected search response, sort values must be scalars.");
+            }
+        }
+        return sortValues.toArray();
+    }
+
+    /**
+     * Read the total number of hits, which is either a number or an object containing the number as its value.
+     *
+     * @param parser
+     *            - a parser positioned at the value of the total field.
+     * @return the total number of hits.
+     * @throws IOException - if the response is malformed.
+     */
+    private static long readTotalHits(final JsonParser parser) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            return parser.getLongValue();
+        }
+        long totalHits = 0;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String totalField = parser.getCurrentName();
+            parser.nextToken();
+            if ("value".equals(totalField)) {
+                totalHits = parser.getLongValue();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return totalHits;
+    }
+
+    private static void expectToken(final JsonToken actual, final JsonToken expected) throws IOException {
+        if (actual != expected) {
+            throw new IOException(String.format("Unexpected search response, expected %s but found %s.",
+                    expected, actual));
+        }
+    }
+
 
     /**
      * Utility function to support conversion between simple field maps and bool maps.
@@ -707,48 +1025,168 @@ public class ElasticSearchProvider implements ISearchProvider {
         }
     }
 
-    public SearchResponse getAllFromIndex(final String indexBase, final String indexType) throws SegueSearchException {
+    @Override
+    public <T> SearchResultsIterator<T> iterateAllFromIndex(final String indexBase, final String indexType,
+                                                            final SearchHitDecoder<T> decoder)
+            throws SegueSearchException {
         String typedIndex = ElasticSearchProvider.produceTypedIndexName(indexBase, indexType);
-        SearchSourceBuilder sourceBuilder = new SearchSourceBuilder().size(10000).fetchSource(true);
-        try {
-            return client.search(new SearchRequest(typedIndex).source(sourceBuilder), RequestOptions.DEFAULT);
-        } catch (IOException e) {
-            throw new SegueSearchException(String.format("Failed to retrieve all data from index %s", typedIndex), e);
+        return new PointInTimeIterator<>(typedIndex, new SearchSourceBuilder().query(QueryBuilders.matchAllQuery()),
+                decoder);
+    }
+
+    /**
+     * The results of one page of a point in time search.
+     */
+    private static class SearchResultsPage<T> {
+        private final List<T> results;
+        private long totalHits;
+        private int hitCount;
+        private Object[] lastSortValues;
+        private String pointInTimeId;
+
+        /**
+         * @param expectedSize - the number of results expected in the page.
+         */
+        SearchResultsPage(final int expectedSize) {
+            this.results = new ArrayList<>(expectedSize);
         }
     }
 
     /**
-     * This method returns the maximum window size. i.e. the number of results that can be returned in a single result
-     * set without having to do a special scroll query.
-     *
-     * This is a configurable value but the default Elastic Search value is 10,000.
-     *
-     * TODO: we may want to selectively upgrade queries to scroll requests if exceeding this limit.
+     * A byte buffer for the source of one search hit at a time, which exposes its contents without copying them.
+     */
+    private static class SourceBuffer extends ByteArrayOutputStream {
+        /**
+         * @return the backing array, of which only the first size() bytes are valid.
+         */
+        byte[] getBuffer() {
+            return buf;
+        }
+    }
+
+    /**
+     * Iterates over every result of a search by opening a point in time on the index and fetching the results from it
+     * a page at a time, using the sort values of the last hit of each page to request the next page.
      *
-     * @param indexBase - to look up
-     * @return the configured index max window size or a default,
-     * if a request exceeds this an error will be thrown. (or we should use the scroll api.
+     * Unlike paging with from and size, this is not limited by the maximum result window of the index, and every page
+     * comes from the same view of the index. The point in time is closed as soon as the last page has been fetched.
      */
-    private int getMaxResultSize(final String indexBase, final String indexType) {
-        final String typedIndex = ElasticSearchProvider.produceTypedIndexName(indexBase, indexType);
-        try {
-            final String MAX_WINDOW_SIZE_KEY = typedIndex + "_" + "MAX_WINDOW_SIZE";
-            String max_window_size = this.settingsCache.getIfPresent(MAX_WINDOW_SIZE_KEY);
-            if (null == max_window_size) {
-                Map<String, Settings> response = client.indices().get(new GetIndexRequest(typedIndex), RequestOptions.DEFAULT).getSettings();
-                for (Settings settings : response.values()) {
-                    if (null == settings) {
-                        continue;
-                    }
-                    this.settingsCache.put(MAX_WINDOW_SIZE_KEY, settings.get(typedIndex + ".max_result_window",
-                            Integer.toString(SEARCH_MAX_WINDOW_SIZE)));
+    private class PointInTimeIterator<T> implements SearchResultsIterator<T> {
+        private final SearchSourceBuilder searchSourceBuilder;
+        private final SearchHitDecoder<T> decoder;
+        private String pointInTimeId;
+        private Iterator<T> currentPage;
+        private boolean lastPage;
+        private long totalResults;
+
+        /**
+         * Open a point in time on the index and fetch the first page of results.
+         *
+         * @param typedIndex
+         *            - the index within which to search.
+         * @param searchSourceBuilder
+         *            - the query and sort order of the search; any from value only applies to the first page.
+         * @param decoder
+         *            - to decode the source of each search hit.
+         * @throws SegueSearchException - if the point in time cannot be opened or the first page cannot be fetched.
+         */
+        PointInTimeIterator(final String typedIndex, final SearchSourceBuilder searchSourceBuilder,
+                            final SearchHitDecoder<T> decoder) throws SegueSearchException {
+            this.decoder = decoder;
+            try {
+                this.pointInTimeId = openPointInTime(typedIndex);
+            } catch (ElasticsearchException | IOException e) {
+                throw new SegueSearchException(String.format("Failed to open a point in time on index %s",
+                        typedIndex), e);
+            }
+
+            // the shard doc tiebreaker makes the sort order total, so no results are skipped between pages:
+            this.searchSourceBuilder = searchSourceBuilder.size(POINT_IN_TIME_PAGE_SIZE).trackTotalHits(true)
+                    .sort(SortBuilders.fieldSort(SHARD_DOC_SORT_FIELD));
+            try {
+                this.fetchNextPage();
+            } catch (IOException | RuntimeException e) {
+                this.close();
+                throw new SegueSearchException(String.format("Failed to search index %s", typedIndex), e);
+            }
+        }
+
+        @Override
+        public long getTotalResults() {
+            return totalResults;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (!currentPage.hasNext() && !lastPage) {
+                    this.fetchNextPage();
                 }
+            } catch (IOException e) {
+                this.close();
+                throw new UncheckedIOException(e);
+            } catch (RuntimeException e) {
+                // an undecodable hit must not leave the point in time open either.
+                this.close();
+                throw e;
             }
-            return Integer.parseInt(this.settingsCache.getIfPresent(MAX_WINDOW_SIZE_KEY));
-        } catch (IOException e) {
-            log.error(String.format("Failed to retrieve max window size settings for index %s - defaulting to %d",
-                    typedIndex, DEFAULT_MAX_WINDOW_SIZE), e);
-            return DEFAULT_MAX_WINDOW_SIZE;
+            return currentPage.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (!this.hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return currentPage.next();
+        }
+
+        @Override
+        public void close() {
+            lastPage = true;
+            currentPage = Collections.emptyIterator();
+            this.releasePointInTime();
+        }
+
+        /**
+         * Fetch the page of results following the last one, closing the point in time if it is the final page.
+         *
+         * @throws IOException - if the page cannot be fetched.
+         */
+        private void fetchNextPage() throws IOException {
+            searchSourceBuilder.pointInTimeBuilder(
+                    new PointInTimeBuilder(pointInTimeId).setKeepAlive(POINT_IN_TIME_KEEP_ALIVE));
+            SearchResultsPage<T> page = streamSearchPage(searchSourceBuilder, decoder);
+
+            if (null == currentPage) {
+                totalResults = page.totalHits;
+                // only the first page needs the total, and the offset only applies to the first page:
+                searchSourceBuilder.trackTotalHits(false).from(0);
+            }
+            currentPage = page.results.iterator();
+            if (page.pointInTimeId != null) {
+                pointInTimeId = page.pointInTimeId;
+            }
+
+            if (page.hitCount < POINT_IN_TIME_PAGE_SIZE || null == page.lastSortValues) {
+                lastPage = true;
+                this.releasePointInTime();
+            } else {
+                searchSourceBuilder.searchAfter(page.lastSortValues);
+            }
+        }
+
+        private void releasePointInTime() {
+            if (null == pointInTimeId) {
+                return;
+            }
+            try {
+                closePointInTime(pointInTimeId);
+            } catch (ElasticsearchException | IOException e) {
+                // it will expire on its own when the keep alive runs out.
+                log.warn("Failed to close point in time search, it will be left to expire.", e);
+            }
+            pointInTimeId = null;
         }
     }
 }
\ No newline at end of file
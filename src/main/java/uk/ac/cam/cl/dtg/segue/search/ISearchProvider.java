@@ -16,7 +16,6 @@
 package uk.ac.cam.cl.dtg.segue.search;
 
 import org.elasticsearch.action.get.GetResponse;
-import org.elasticsearch.action.search.SearchResponse;
 import uk.ac.cam.cl.dtg.segue.api.Constants;
 import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
 import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
@@ -67,13 +66,16 @@ public interface ISearchProvider {
      *            - the map of how to sort each field of interest.
      * @param filterInstructions
      *            - the map of how to sort each field of interest.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return Results
      */
-    ResultsWrapper<String> matchSearch(
+    <T> ResultsWrapper<T> matchSearch(
             final String indexBase, final String indexType,
             final List<GitContentManager.BooleanSearchClause> fieldsToMatch, final int startIndex, final int limit,
             final Map<String, Constants.SortOrder> sortInstructions,
-            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+            final SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /**
@@ -95,21 +97,24 @@ public interface ISearchProvider {
      *            - Map of Must match field -> value
      * @param filterInstructions
      *            - post search filter instructions e.g. remove content of a certain type.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @param fields
      *            - array (var args) of fields to search using the searchString
      * @return results
      */
-    ResultsWrapper<String> fuzzySearch(
+    <T> ResultsWrapper<T> fuzzySearch(
             final String indexBase, final String indexType, final String searchString,
             final Integer startIndex, final Integer limit, final Map<String, List<String>> fieldsThatMustMatch,
             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
-            final String... fields
+            final SearchHitDecoder<T> decoder, final String... fields
     ) throws SegueSearchException;
 
-    public ResultsWrapper<String> nestedMatchSearch(
+    public <T> ResultsWrapper<T> nestedMatchSearch(
             final String indexBase, final String indexType, final Integer startIndex, final Integer limit,
             final String searchString, @NotNull final BooleanMatchInstruction matchInstruction,
-            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+            final SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /**
@@ -132,11 +137,14 @@ public interface ISearchProvider {
      * @param limit
      *            - the maximum number of results to return -1 will attempt to return all results.
      * @param filterInstructions - instructions for filtering the results
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return results
      */
-    ResultsWrapper<String> termSearch(
+    <T> ResultsWrapper<T> termSearch(
             final String indexBase, final String indexType, final String searchterms, final String field,
-            final int startIndex, final int limit, final Map<String, AbstractFilterInstruction> filterInstructions
+            final int startIndex, final int limit, final Map<String, AbstractFilterInstruction> filterInstructions,
+            final SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /**
@@ -156,11 +164,14 @@ public interface ISearchProvider {
      *            - random seed.
      * @param filterInstructions
      *            - post search filter instructions e.g. remove content of a certain type.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return results in a random order for a given match search.
      */
-    ResultsWrapper<String> randomisedMatchSearch(
+    <T> ResultsWrapper<T> randomisedMatchSearch(
             String indexBase, String indexType, List<GitContentManager.BooleanSearchClause> fieldsToMatch,
-            int startIndex, int limit, Long randomSeed, Map<String, AbstractFilterInstruction> filterInstructions
+            int startIndex, int limit, Long randomSeed, Map<String, AbstractFilterInstruction> filterInstructions,
+            SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /**
@@ -180,11 +191,14 @@ public interface ISearchProvider {
      *            - the maximum number of results to return -1 will attempt to return all results.
      * @param filterInstructions
      *            - post search filter instructions e.g. remove content of a certain type.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return A list of results that match the id prefix.
      */
-    ResultsWrapper<String> findByExactMatch(
+    <T> ResultsWrapper<T> findByExactMatch(
             String indexBase, String indexType, String fieldname, String needle, int startIndex, int limit,
-            @Nullable Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable Map<String, AbstractFilterInstruction> filterInstructions,
+            SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /**
@@ -206,11 +220,14 @@ public interface ISearchProvider {
      *            - the maximum number of results to return -1 will attempt to return all results.
      * @param filterInstructions
      *            - post search filter instructions e.g. remove content of a certain type.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return A list of results that match the id prefix.
      */
-    ResultsWrapper<String> findByPrefix(
+    <T> ResultsWrapper<T> findByPrefix(
             String indexBase, String indexType, String fieldname, String prefix, int startIndex, int limit,
-            @Nullable Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable Map<String, AbstractFilterInstruction> filterInstructions,
+            SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
     
     /**
@@ -230,17 +247,37 @@ public interface ISearchProvider {
      *            - the maximum number of results to return -1 will attempt to return all results.
      * @param filterInstructions
      *            - post search filter instructions e.g. remove content of a certain type.
+     * @param decoder
+     *            - to decode the source of each search hit.
      * @return A list of results that match the id prefix.
      */
-    ResultsWrapper<String> findByRegEx(
+    <T> ResultsWrapper<T> findByRegEx(
             String indexBase, String indexType, String fieldname, String regex, int startIndex, int limit,
-            @Nullable Map<String, AbstractFilterInstruction> filterInstructions
+            @Nullable Map<String, AbstractFilterInstruction> filterInstructions,
+            SearchHitDecoder<T> decoder
     ) throws SegueSearchException;
 
     /*
-     * TODO: We need to change the return type of these two methods to avoid having ES specific things
+     * TODO: We need to change the return type of this method to avoid having ES specific things
      */
     GetResponse getById(String indexBase, String indexType, String id) throws SegueSearchException;
 
-    SearchResponse getAllFromIndex(String indexBase, String indexType) throws SegueSearchException;
+    /**
+     * Iterate over every document in an index, however many there are.
+     *
+     * The documents are fetched a page at a time from a consistent view of the index, so the index can change during
+     * iteration without documents being missed or repeated.
+     *
+     * @param indexBase
+     *            - the base string for the name of the index
+     * @param indexType
+     *            - the name of the type of document being searched for
+     * @param decoder
+     *            - to decode the source of each search hit.
+     * @return an iterator over the decoded documents, which must be closed.
+     * @throws SegueSearchException
+     *             - if the search cannot be started.
+     */
+    <T> SearchResultsIterator<T> iterateAllFromIndex(String indexBase, String indexType, SearchHitDecoder<T> decoder)
+            throws SegueSearchException;
 }
@@ -0,0 +1,526 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.elasticsearch.action.get.GetResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotNull;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search provider which serves searches of the live content from an in-memory copy of the content index.
+ *
+ * Every document of the content version the content index currently points to is loaded from the underlying search
+ * provider into an immutable {@link InMemorySearchIndex}, pinned to that version's SHA. Content searches are then
+ * answered in-process rather than over HTTP. When the live content version changes, the new version is loaded in the
+ * background and searches go to the underlying provider until it is ready.
+ *
+ * Fuzzy searches (the site-wide search) rely on the relevance scoring of the search cluster, so are always sent to the
+ * underlying provider, as are searches of any other index and lookups of individual documents by ID. Other match
+ * searches without a sort order return their results in index order here, not in order of relevance.
+ */
+public class InMemoryContentSearchProvider implements ISearchProvider {
+    private static final Logger log = LoggerFactory.getLogger(InMemoryContentSearchProvider.class);
+
+    private static final List<String> IN_MEMORY_INDEX_TYPES = ImmutableList.of(
+            Constants.CONTENT_INDEX_TYPE.CONTENT.toString(),
+            Constants.CONTENT_INDEX_TYPE.UNIT.toString(),
+            Constants.CONTENT_INDEX_TYPE.PUBLISHED_UNIT.toString(),
+            Constants.CONTENT_INDEX_TYPE.CONTENT_ERROR.toString());
+    private static final long CONTENT_VERSION_CHECK_INTERVAL_SECONDS = 5;
+    private static final long FAILED_LOAD_RETRY_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    private final ISearchProvider searchProvider;
+    private final String contentIndex;
+    private final Cache<String, String> contentVersionCache;
+    private final ExecutorService loadExecutor;
+
+    private volatile ContentVersionIndex loadedContent;
+    private String versionBeingLoaded;
+    private String lastFailedVersion;
+    private long lastFailedLoadTime;
+
+    /**
+     * @param searchProvider
+     *            - the provider to load the content from, and to send any other searches to.
+     * @param contentIndex
+     *            - the alias or index base of the live content, which searches must be made against to be served from
+     *            memory.
+     */
+    public InMemoryContentSearchProvider(final ISearchProvider searchProvider, final String contentIndex) {
+        this.searchProvider = searchProvider;
+        this.contentIndex = contentIndex;
+        this.contentVersionCache = CacheBuilder.newBuilder()
+                .expireAfterWrite(CONTENT_VERSION_CHECK_INTERVAL_SECONDS, TimeUnit.SECONDS).build();
+        this.loadExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("in-memory-content-loader").setDaemon(true).build());
+    }
+
+    /**
+     * Load every document of a content version into memory, replacing any version already loaded.
+     *
+     * The loaded content is only used while it is the live content version.
+     *
+     * @param contentSHA
+     *            - the SHA of the content version, which is the index base of its indices.
+     * @throws SegueSearchException
+     *             - if the content cannot be loaded.
+     */
+    public void loadContentVersion(final String contentSHA) throws SegueSearchException {
+        long startTime = System.currentTimeMillis();
+        ImmutableMap.Builder<String, InMemorySearchIndex> indicesByType = ImmutableMap.builder();
+        int documentCount = 0;
+        for (String indexType : IN_MEMORY_INDEX_TYPES) {
+            InMemorySearchIndex index;
+            if (searchProvider.hasIndex(contentSHA, indexType)) {
+                index = InMemorySearchIndex.load(searchProvider, contentSHA, indexType);
+            } else {
+                index = InMemorySearchIndex.empty();
+            }
+            indicesByType.put(indexType, index);
+            documentCount += index.size();
+        }
+
+        this.loadedContent = new ContentVersionIndex(contentSHA, indicesByType.build());
+        log.info(String.format("Loaded %d documents of content version (%s) into memory in %dms.", documentCount,
+                contentSHA, System.currentTimeMillis() - startTime));
+    }
+
+    /**
+     * @return the SHA of the content version loaded into memory, or null if none has been loaded yet.
+     */
+    @Nullable
+    public String getLoadedContentSHA() {
+        ContentVersionIndex content = this.loadedContent;
+        return content != null ? content.getContentSHA() : null;
+    }
+
+    @Override
+    public String getNestedFieldConnector() {
+        return searchProvider.getNestedFieldConnector();
+    }
+
+    @Override
+    public boolean hasIndex(final String indexBase, final String indexType) {
+        return searchProvider.hasIndex(indexBase, indexType);
+    }
+
+    @Override
+    public Collection<String> getAllIndices() {
+        return searchProvider.getAllIndices();
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> matchSearch(final String indexBase, final String indexType,
+                                             final List<GitContentManager.BooleanSearchClause> fieldsToMatch,
+                                             final int startIndex, final int limit,
+                                             final Map<String, Constants.SortOrder> sortInstructions,
+                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.matchSearch(indexBase, indexType, fieldsToMatch, startIndex, limit,
+                    sortInstructions, filterInstructions, decoder);
+        }
+
+        InMemorySearchIndex.BoolQuery query = generateBoolMatchQuery(fieldsToMatch);
+        if (filterInstructions != null) {
+            query.must(generateFilterQuery(filterInstructions));
+        }
+        return index.search(query, startIndex, limit, generateSortOrder(sortInstructions), decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> fuzzySearch(final String indexBase, final String indexType,
+                                             final String searchString, final Integer startIndex,
+                                             final Integer limit, final Map<String, List<String>> fieldsThatMustMatch,
+                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder, final String... fields)
+            throws SegueSearchException {
+        return searchProvider.fuzzySearch(indexBase, indexType, searchString, startIndex, limit, fieldsThatMustMatch,
+                filterInstructions, decoder, fields);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> nestedMatchSearch(
+            final String indexBase, final String indexType, final Integer startIndex, final Integer limit,
+            final String searchString, @NotNull final BooleanMatchInstruction matchInstruction,
+            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+            final SearchHitDecoder<T> decoder
+    ) throws SegueSearchException {
+        return searchProvider.nestedMatchSearch(indexBase, indexType, startIndex, limit, searchString,
+                matchInstruction, filterInstructions, decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> termSearch(final String indexBase, final String indexType, final String searchTerm,
+                                            final String field, final int startIndex, final int limit,
+                                            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                            final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.termSearch(indexBase, indexType, searchTerm, field, startIndex, limit,
+                    filterInstructions, decoder);
+        }
+
+        if (null == searchTerm && null != field) {
+            log.error("A required field or field combination is missing. Unable to execute search.");
+            return null;
+        }
+        if (null == searchTerm && null == filterInstructions) {
+            throw new SegueSearchException("This method requires either searchTerm or filter instructions.");
+        }
+
+        InMemorySearchIndex.BoolQuery query = new InMemorySearchIndex.BoolQuery();
+        if (searchTerm != null) {
+            query.must(InMemorySearchIndex.term(field, searchTerm));
+        }
+        if (filterInstructions != null) {
+            query.must(generateFilterQuery(filterInstructions));
+        }
+        return index.search(query, startIndex, limit, null, decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> randomisedMatchSearch(final String indexBase, final String indexType,
+                                                       final List<GitContentManager.BooleanSearchClause> fieldsToMatch,
+                                                       final int startIndex, final int limit, final Long randomSeed,
+                                                       final Map<String, AbstractFilterInstruction> filterInstructions,
+                                                       final SearchHitDecoder<T> decoder)
+            throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.randomisedMatchSearch(indexBase, indexType, fieldsToMatch, startIndex, limit,
+                    randomSeed, filterInstructions, decoder);
+        }
+
+        InMemorySearchIndex.BoolQuery query = generateBoolMatchQuery(fieldsToMatch);
+        if (filterInstructions != null) {
+            query.must(generateFilterQuery(filterInstructions));
+        }
+        return index.search(query, startIndex, limit, InMemorySearchIndex.randomOrder(randomSeed), decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> findByExactMatch(final String indexBase, final String indexType,
+                                                  final String fieldname, final String needle, final int startIndex,
+                                                  final int limit,
+                                                  @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                                  final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.findByExactMatch(indexBase, indexType, fieldname, needle, startIndex, limit,
+                    filterInstructions, decoder);
+        }
+        return index.search(withFilters(InMemorySearchIndex.match(fieldname, needle), filterInstructions),
+                startIndex, limit, null, decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> findByPrefix(final String indexBase, final String indexType, final String fieldname,
+                                              final String prefix, final int startIndex, final int limit,
+                                              @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                              final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.findByPrefix(indexBase, indexType, fieldname, prefix, startIndex, limit,
+                    filterInstructions, decoder);
+        }
+        return index.search(withFilters(InMemorySearchIndex.prefix(fieldname, prefix), filterInstructions),
+                startIndex, limit, null, decoder);
+    }
+
+    @Override
+    public <T> ResultsWrapper<T> findByRegEx(final String indexBase, final String indexType, final String fieldname,
+                                             final String regex, final int startIndex, final int limit,
+                                             @Nullable final Map<String, AbstractFilterInstruction> filterInstructions,
+                                             final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.findByRegEx(indexBase, indexType, fieldname, regex, startIndex, limit,
+                    filterInstructions, decoder);
+        }
+        return index.search(withFilters(InMemorySearchIndex.regexp(fieldname, regex), filterInstructions),
+                startIndex, limit, null, decoder);
+    }
+
+    @Override
+    public GetResponse getById(final String indexBase, final String indexType, final String id)
+            throws SegueSearchException {
+        return searchProvider.getById(indexBase, indexType, id);
+    }
+
+    @Override
+    public <T> SearchResultsIterator<T> iterateAllFromIndex(final String indexBase, final String indexType,
+                                                            final SearchHitDecoder<T> decoder)
+            throws SegueSearchException {
+        InMemorySearchIndex index = this.getLoadedIndex(indexBase, indexType);
+        if (null == index) {
+            return searchProvider.iterateAllFromIndex(indexBase, indexType, decoder);
+        }
+        return index.iterateAll(decoder);
+    }
+
+    /**
+     * Find the in-memory copy of an index, if searches of it can be served from memory.
+     *
+     * If the live content version has changed since it was loaded, loading the new version is started in the
+     * background.
+     *
+     * @param indexBase
+     *            - the index base being searched.
+     * @param indexType
+     *            - the type of document being searched for.
+     * @return the in-memory copy of the index at the live content version, or null if searches must be sent to the
+     *         underlying provider.
+     */
+    @Nullable
+    private InMemorySearchIndex getLoadedIndex(final String indexBase, final String indexType) {
+        if (!contentIndex.equals(indexBase) || !IN_MEMORY_INDEX_TYPES.contains(indexType)) {
+            return null;
+        }
+
+        String liveContentSHA = this.getLiveContentSHA();
+        if (null == liveContentSHA) {
+            return null;
+        }
+
+        ContentVersionIndex content = this.loadedContent;
+        if (null == content || !liveContentSHA.equals(content.getContentSHA())) {
+            this.scheduleLoad(liveContentSHA);
+            return null;
+        }
+        return content.getIndex(indexType);
+    }
+
+    /**
+     * @return the SHA of the live content version, checked at most every few seconds, or null if it is not known.
+     */
+    @Nullable
+    private String getLiveContentSHA() {
+        try {
+            return contentVersionCache.get(contentIndex, () -> {
+                GetResponse metadata = searchProvider.getById(contentIndex,
+                        Constants.CONTENT_INDEX_TYPE.METADATA.toString(), "general");
+                if (null == metadata.getSource() || !(metadata.getSource().get("version") instanceof String)) {
+                    throw new SegueSearchException("No version recorded in the content metadata.");
+                }
+                return (String) metadata.getSource().get("version");
+            });
+        } catch (ExecutionException e) {
+            log.warn(String.format("Unable to find the live version of content index (%s).", contentIndex),
+                    e.getCause());
+            return null;
+        }
+    }
+
+    /**
+     * Start loading a content version in the background, unless it is already being loaded or recently failed to load.
+     *
+     * @param contentSHA
+     *            - the content version to load.
+     */
+    private synchronized void scheduleLoad(final String contentSHA) {
+        if (contentSHA.equals(versionBeingLoaded) || (contentSHA.equals(lastFailedVersion)
+                && System.currentTimeMillis() - lastFailedLoadTime < FAILED_LOAD_RETRY_INTERVAL_MILLIS)) {
+            return;
+        }
+
+        versionBeingLoaded = contentSHA;
+        loadExecutor.submit(() -> {
+            try {
+                this.loadContentVersion(contentSHA);
+            } catch (SegueSearchException | RuntimeException e) {
+                log.error(String.format("Unable to load content version (%s) into memory.", contentSHA), e);
+                synchronized (this) {
+                    lastFailedVersion = contentSHA;
+                    lastFailedLoadTime = System.currentTimeMillis();
+                }
+            } finally {
+                synchronized (this) {
+                    versionBeingLoaded = null;
+                }
+            }
+        });
+    }
+
+    /**
+     * Build the equivalent of the bool query ElasticSearchProvider generates for a list of boolean search clauses.
+     *
+     * @param fieldsToMatch
+     *            - the clauses the query should match.
+     * @return the query.
+     */
+    private static InMemorySearchIndex.BoolQuery generateBoolMatchQuery(
+            final List<GitContentManager.BooleanSearchClause> fieldsToMatch) {
+        InMemorySearchIndex.BoolQuery masterQuery = new InMemorySearchIndex.BoolQuery();
+        Map<String, InMemorySearchIndex.BoolQuery> nestedQueriesByPath = Maps.newHashMap();
+
+        for (GitContentManager.BooleanSearchClause searchClause : fieldsToMatch) {
+            InMemorySearchIndex.BoolQuery query = new InMemorySearchIndex.BoolQuery();
+            for (String value : searchClause.getValues()) {
+                InMemorySearchIndex.Query valueQuery = InMemorySearchIndex.match(searchClause.getField(), value);
+                if (Constants.BooleanOperator.OR.equals(searchClause.getOperator())) {
+                    query.should(valueQuery);
+                } else if (Constants.BooleanOperator.AND.equals(searchClause.getOperator())) {
+                    query.must(valueQuery);
+                } else if (Constants.BooleanOperator.NOT.equals(searchClause.getOperator())) {
+                    query.mustNot(valueQuery);
+                }
+            }
+            if (Constants.BooleanOperator.OR.equals(searchClause.getOperator())) {
+                query.minimumShouldMatch(1);
+            }
+
+            if (!Constants.NESTED_FIELDS.contains(searchClause.getField())) {
+                masterQuery.must(query);
+            } else {
+                // As with the search cluster, clauses on the same nested path must all match the same nested object.
+                String nestedPath = searchClause.getField().split("\\.")[0];
+                nestedQueriesByPath.computeIfAbsent(nestedPath, path -> new InMemorySearchIndex.BoolQuery())
+                        .must(query);
+            }
+        }
+
+        for (Entry<String, InMemorySearchIndex.BoolQuery> entry : nestedQueriesByPath.entrySet()) {
+            masterQuery.must(InMemorySearchIndex.nested(entry.getKey(), entry.getValue()));
+        }
+        return masterQuery;
+    }
+
+    /**
+     * Build the equivalent of the filter query ElasticSearchProvider generates for a set of filter instructions.
+     *
+     * @param filterInstructions
+     *            - in the form "fieldName --> instruction".
+     * @return the query.
+     */
+    private static InMemorySearchIndex.Query generateFilterQuery(
+            final Map<String, AbstractFilterInstruction> filterInstructions) {
+        InMemorySearchIndex.BoolQuery filter = new InMemorySearchIndex.BoolQuery();
+        for (Entry<String, AbstractFilterInstruction> fieldToFilterInstruction : filterInstructions.entrySet()) {
+            String field = fieldToFilterInstruction.getKey();
+            AbstractFilterInstruction instruction = fieldToFilterInstruction.getValue();
+
+            if (instruction instanceof DateRangeFilterInstruction) {
+                DateRangeFilterInstruction dateRange = (DateRangeFilterInstruction) instruction;
+                filter.must(InMemorySearchIndex.range(field,
+                        dateRange.getFromDate() != null
+                                ? ElasticSearchProvider.roundToDateFilterBucket(dateRange.getFromDate()) : null,
+                        dateRange.getToDate() != null
+                                ? ElasticSearchProvider.roundToDateFilterBucket(dateRange.getToDate()) : null));
+            }
+
+            if (instruction instanceof SimpleFilterInstruction) {
+                filter.must(generateValueFilterQuery(field,
+                        ((SimpleFilterInstruction) instruction).getMustMatchValue()));
+            }
+
+            if (instruction instanceof TermsFilterInstruction) {
+                filter.must(InMemorySearchIndex.terms(field, ((TermsFilterInstruction) instruction).getMatchValues()));
+            }
+
+            if (instruction instanceof SimpleExclusionInstruction) {
+                filter.mustNot(generateValueFilterQuery(field,
+                        ((SimpleExclusionInstruction) instruction).getMustNotMatchValue()));
+            }
+        }
+        return filter;
+    }
+
+    /**
+     * @param field
+     *            - the field to match.
+     * @param value
+     *            - the value the field must have.
+     * @return a query matching the value, as ElasticSearchProvider would generate it.
+     */
+    private static InMemorySearchIndex.Query generateValueFilterQuery(final String field, final String value) {
+        InMemorySearchIndex.Query query;
+        if (field.endsWith("." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX)
+                || Boolean.TRUE.toString().equals(value) || Boolean.FALSE.toString().equals(value)) {
+            query = InMemorySearchIndex.term(field, value);
+        } else {
+            query = InMemorySearchIndex.match(field, value);
+        }
+
+        if (Constants.NESTED_FIELDS.contains(field)) {
+            return InMemorySearchIndex.nested(field.split("\\.")[0], query);
+        }
+        return query;
+    }
+
+    private static InMemorySearchIndex.Query withFilters(
+            final InMemorySearchIndex.Query query,
+            @Nullable final Map<String, AbstractFilterInstruction> filterInstructions) {
+        if (null == filterInstructions) {
+            return query;
+        }
+        return new InMemorySearchIndex.BoolQuery().must(query).must(generateFilterQuery(filterInstructions));
+    }
+
+    /**
+     * @param sortInstructions
+     *            - the map of how to sort each field of interest, or null.
+     * @return the order to return results in, or null for no particular order.
+     */
+    @Nullable
+    private static Comparator<InMemorySearchIndex.IndexedDocument> generateSortOrder(
+            @Nullable final Map<String, Constants.SortOrder> sortInstructions) {
+        if (null == sortInstructions || sortInstructions.isEmpty()) {
+            return null;
+        }
+        Comparator<InMemorySearchIndex.IndexedDocument> order = null;
+        for (Entry<String, Constants.SortOrder> entry : sortInstructions.entrySet()) {
+            Comparator<InMemorySearchIndex.IndexedDocument> fieldOrder =
+                    InMemorySearchIndex.fieldOrder(entry.getKey(), entry.getValue());
+            order = null == order ? fieldOrder : order.thenComparing(fieldOrder);
+        }
+        return order;
+    }
+
+    /**
+     * The in-memory indices of a single content version.
+     */
+    private static class ContentVersionIndex {
+        private final String contentSHA;
+        private final Map<String, InMemorySearchIndex> indicesByType;
+
+        /**
+         * @param contentSHA
+         *            - the content version.
+         * @param indicesByType
+         *            - the in-memory index of each type of document in the content version.
+         */
+        ContentVersionIndex(final String contentSHA, final Map<String, InMemorySearchIndex> indicesByType) {
+            this.contentSHA = contentSHA;
+            this.indicesByType = indicesByType;
+        }
+
+        String getContentSHA() {
+            return contentSHA;
+        }
+
+        InMemorySearchIndex getIndex(final String indexType) {
+            return indicesByType.get(indexType);
+        }
+    }
+}
@@ -0,0 +1,1128 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
+
+import jakarta.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * An immutable, in-process copy of every document in one search index, which can be searched without a round trip to
+ * the search cluster.
+ *
+ * Queries follow the way the cluster treats the documents the content indexer produces with its default mappings:
+ * string fields are analysed into lower case word tokens, except for their keyword sub-fields (e.g. id.raw) which hold
+ * the exact string, and nested objects are matched one object at a time.
+ *
+ * The first time a field is searched, an inverted index of it is built: posting lists of the documents holding each of
+ * its tokens, exact strings and other values. Term, match, prefix and regular expression queries are answered from
+ * these; range and nested queries check each document which the rest of the query has not already ruled out.
+ *
+ * Relevance is not scored. Results are returned in the requested sort order, or otherwise in the order the documents
+ * were loaded; so unlike the cluster, an unsorted match query does not put the best matches first.
+ */
+class InMemorySearchIndex {
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .enable(DeserializationFeature.USE_BIG_DECIMAL_FOR_FLOATS);
+    private static final String FIELD_CONNECTOR = ".";
+    private static final Set<String> KEYWORD_FIELD_SUFFIXES =
+            ImmutableSet.of(FIELD_CONNECTOR + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX, FIELD_CONNECTOR + "keyword");
+
+    private final List<IndexedDocument> documents;
+    private final Map<String, FieldIndex> fieldIndexes = new ConcurrentHashMap<>();
+
+    /**
+     * @param documents
+     *            - the parsed source of each document, in the order results should be returned by default.
+     */
+    private InMemorySearchIndex(final List<JsonNode> documents) {
+        ImmutableList.Builder<IndexedDocument> builder = ImmutableList.builder();
+        for (int ordinal = 0; ordinal < documents.size(); ordinal++) {
+            builder.add(new IndexedDocument(ordinal, documents.get(ordinal)));
+        }
+        this.documents = builder.build();
+    }
+
+    /**
+     * @param documents
+     *            - the parsed source of each document, in the order results should be returned by default.
+     * @return an index of the documents.
+     */
+    static InMemorySearchIndex fromDocuments(final List<JsonNode> documents) {
+        return new InMemorySearchIndex(documents);
+    }
+
+    /**
+     * @return an index with no documents.
+     */
+    static InMemorySearchIndex empty() {
+        return new InMemorySearchIndex(Collections.emptyList());
+    }
+
+    /**
+     * Copy every document in an index from a search provider.
+     *
+     * @param searchProvider
+     *            - to read the documents from.
+     * @param indexBase
+     *            - the base string for the name of the index.
+     * @param indexType
+     *            - the name of the type of document to load.
+     * @return the loaded index.
+     * @throws SegueSearchException
+     *             - if the documents cannot be read or parsed.
+     */
+    static InMemorySearchIndex load(final ISearchProvider searchProvider, final String indexBase,
+                                    final String indexType) throws SegueSearchException {
+        try (SearchResultsIterator<JsonNode> hits = searchProvider.iterateAllFromIndex(indexBase, indexType,
+                objectMapper::readTree)) {
+            List<JsonNode> documents = new ArrayList<>((int) hits.getTotalResults());
+            hits.forEachRemaining(documents::add);
+            return fromDocuments(documents);
+        } catch (UncheckedIOException e) {
+            throw new SegueSearchException(String.format("Unable to load index (%s_%s) into memory.", indexBase,
+                    indexType), e);
+        }
+    }
+
+    /**
+     * @return the number of documents in the index.
+     */
+    int size() {
+        return documents.size();
+    }
+
+    /**
+     * Find the documents matching a query.
+     *
+     * @param query
+     *            - the query the documents must match.
+     * @param startIndex
+     *            - e.g. 0 for the first set of results.
+     * @param limit
+     *            - the maximum number of results to return, -1 for all results.
+     * @param order
+     *            - the order to return the results in, or null for the order the documents were loaded in.
+     * @param decoder
+     *            - to decode the source of each result.
+     * @return the requested page of results, with the total number of matching documents.
+     * @throws SegueSearchException
+     *             - if a result cannot be decoded.
+     */
+    <T> ResultsWrapper<T> search(final Query query, final int startIndex, final int limit,
+                                 @Nullable final Comparator<IndexedDocument> order,
+                                 final SearchHitDecoder<T> decoder) throws SegueSearchException {
+        BitSet matchingOrdinals = query.findMatches(this, this.allDocuments());
+        List<IndexedDocument> matches = new ArrayList<>(matchingOrdinals.cardinality());
+        for (int ordinal = matchingOrdinals.nextSetBit(0); ordinal >= 0;
+             ordinal = matchingOrdinals.nextSetBit(ordinal + 1)) {
+            matches.add(documents.get(ordinal));
+        }
+        if (order != null) {
+            matches.sort(order);
+        }
+
+        int fromIndex = Math.min(Math.max(startIndex, 0), matches.size());
+        int toIndex = limit < 0 ? matches.size() : (int) Math.min((long) fromIndex + limit, matches.size());
+        List<T> results = new ArrayList<>(toIndex - fromIndex);
+        try {
+            for (IndexedDocument document : matches.subList(fromIndex, toIndex)) {
+                T result = document.decode(decoder);
+                if (result != null) {
+                    results.add(result);
+                }
+            }
+        } catch (IOException e) {
+            throw new SegueSearchException("Error while trying to search", e);
+        }
+        return new ResultsWrapper<>(results, (long) matches.size());
+    }
+
+    /**
+     * Iterate over every document in the index.
+     *
+     * @param decoder
+     *            - to decode the source of each document.
+     * @return an iterator over the decoded documents.
+     */
+    <T> SearchResultsIterator<T> iterateAll(final SearchHitDecoder<T> decoder) {
+        Iterator<IndexedDocument> iterator = documents.iterator();
+        return new SearchResultsIterator<T>() {
+            private T nextResult;
+
+            @Override
+            public long getTotalResults() {
+                return documents.size();
+            }
+
+            @Override
+            public boolean hasNext() {
+                try {
+                    while (null == nextResult && iterator.hasNext()) {
+                        nextResult = iterator.next().decode(decoder);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return nextResult != null;
+            }
+
+            @Override
+            public T next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                T result = nextResult;
+                nextResult = null;
+                return result;
+            }
+
+            @Override
+            public void close() {
+                // Nothing is held open.
+            }
+        };
+    }
+
+    /**
+     * @return the ordinals of every document in the index.
+     */
+    private BitSet allDocuments() {
+        BitSet ordinals = new BitSet(documents.size());
+        ordinals.set(0, documents.size());
+        return ordinals;
+    }
+
+    /**
+     * @param field
+     *            - the full name of a field, not a keyword sub-field.
+     * @return the inverted index of the field, which is built the first time it is needed.
+     */
+    private FieldIndex getFieldIndex(final String field) {
+        return fieldIndexes.computeIfAbsent(field, f -> new FieldIndex(documents, f));
+    }
+
+    /**
+     * Split text into lower case tokens, as the cluster's standard analyser does for words and numbers.
+     *
+     * @param text
+     *            - the text to analyse.
+     * @return the tokens, in the order they appear.
+     */
+    static List<String> analyse(final String text) {
+        List<String> tokens = Lists.newArrayList();
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            boolean joinsWordCharacters = (c == '.' || c == '\'') && token.length() > 0 && i + 1 < text.length()
+                    && isWordCharacter(text.charAt(i + 1));
+            if (isWordCharacter(c) || joinsWordCharacters) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                tokens.add(token.toString().toLowerCase(Locale.ROOT));
+                token.setLength(0);
+            }
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString().toLowerCase(Locale.ROOT));
+        }
+        return tokens;
+    }
+
+    private static boolean isWordCharacter(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_';
+    }
+
+    /**
+     * @param field
+     *            - a field name.
+     * @return the field holding the value of a keyword sub-field, or null if the field is not a keyword sub-field.
+     */
+    @Nullable
+    private static String getKeywordFieldBase(final String field) {
+        for (String suffix : KEYWORD_FIELD_SUFFIXES) {
+            if (field.endsWith(suffix)) {
+                return field.substring(0, field.length() - suffix.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Collect every value of a field, flattening arrays at any level as the cluster does.
+     *
+     * @param node
+     *            - the object to start from.
+     * @param path
+     *            - the field names leading to the values.
+     * @param pathIndex
+     *            - the index of the next field name to follow.
+     * @param values
+     *            - to add the values to.
+     */
+    private static void collectValues(final JsonNode node, final String[] path, final int pathIndex,
+                                      final List<JsonNode> values) {
+        if (node.isArray()) {
+            for (JsonNode element : node) {
+                collectValues(element, path, pathIndex, values);
+            }
+        } else if (pathIndex == path.length) {
+            if (node.isValueNode() && !node.isNull()) {
+                values.add(node);
+            }
+        } else if (node.isObject() && node.has(path[pathIndex])) {
+            collectValues(node.get(path[pathIndex]), path, pathIndex + 1, values);
+        }
+    }
+
+    /**
+     * @param value
+     *            - a non-string value from a document.
+     * @param queryValue
+     *            - the value a query is looking for.
+     * @return whether the values are equal, comparing numbers by value as the cluster would.
+     */
+    private static boolean scalarEquals(final JsonNode value, final String queryValue) {
+        if (value.isNumber()) {
+            try {
+                return value.decimalValue().compareTo(new BigDecimal(queryValue.trim())) == 0;
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return value.asText().equals(queryValue);
+    }
+
+    /**
+     * @param value
+     *            - a non-string value from a document.
+     * @return the key of the value in a field index, equal for numbers with equal values.
+     */
+    private static String scalarKey(final JsonNode value) {
+        if (value.isNumber()) {
+            return value.decimalValue().stripTrailingZeros().toPlainString();
+        }
+        return value.asText();
+    }
+
+    /**
+     * @param queryValue
+     *            - the value a query is looking for.
+     * @return the keys in a field index of the non-string values equal to it, as {@link #scalarEquals}.
+     */
+    private static Set<String> scalarKeys(final String queryValue) {
+        Set<String> keys = new HashSet<>();
+        keys.add(queryValue);
+        try {
+            keys.add(new BigDecimal(queryValue.trim()).stripTrailingZeros().toPlainString());
+        } catch (NumberFormatException e) {
+            // Then it can only equal a boolean.
+        }
+        return keys;
+    }
+
+    /**
+     * A document, with the values needed to match queries against it.
+     */
+    interface DocumentView {
+        /**
+         * @param field
+         *            - the full name of the field.
+         * @return every value of the field.
+         */
+        List<JsonNode> getValues(String field);
+
+        /**
+         * @param field
+         *            - the full name of a string field.
+         * @return the analysed tokens of every value of the field.
+         */
+        Set<String> getTokens(String field);
+
+        /**
+         * @param path
+         *            - the full name of a nested object field.
+         * @return a view of each object in the field.
+         */
+        List<DocumentView> getNestedObjects(String path);
+    }
+
+    /**
+     * A document in the index.
+     */
+    static class IndexedDocument implements DocumentView {
+        private final int ordinal;
+        private final JsonNode root;
+
+        /**
+         * @param ordinal
+         *            - the position of the document in the index.
+         * @param root
+         *            - the parsed source of the document.
+         */
+        IndexedDocument(final int ordinal, final JsonNode root) {
+            this.ordinal = ordinal;
+            this.root = root;
+        }
+
+        int getOrdinal() {
+            return ordinal;
+        }
+
+        /**
+         * @param decoder
+         *            - to decode the source of the document.
+         * @return the decoded document.
+         * @throws IOException
+         *             - if the document cannot be decoded.
+         */
+        <T> T decode(final SearchHitDecoder<T> decoder) throws IOException {
+            byte[] source = objectMapper.writeValueAsBytes(root);
+            return decoder.decode(source, 0, source.length);
+        }
+
+        @Override
+        public List<JsonNode> getValues(final String field) {
+            return ObjectView.getValues(root, field);
+        }
+
+        @Override
+        public Set<String> getTokens(final String field) {
+            return ObjectView.getTokens(this.getValues(field));
+        }
+
+        @Override
+        public List<DocumentView> getNestedObjects(final String path) {
+            return ObjectView.getNestedObjects(root, "", path);
+        }
+    }
+
+    /**
+     * An inverted index of one field: the ordinals of the documents holding each of its values, in ascending order.
+     */
+    private static class FieldIndex {
+        private final Map<String, int[]> ordinalsByToken;
+        private final Map<String, int[]> ordinalsByString;
+        private final Map<String, int[]> ordinalsByScalar;
+
+        /**
+         * @param documents
+         *            - every document in the index.
+         * @param field
+         *            - the full name of the field to index.
+         */
+        FieldIndex(final List<IndexedDocument> documents, final String field) {
+            Map<String, List<Integer>> tokens = new HashMap<>();
+            Map<String, List<Integer>> strings = new HashMap<>();
+            Map<String, List<Integer>> scalars = new HashMap<>();
+            for (IndexedDocument document : documents) {
+                Set<String> documentTokens = new HashSet<>();
+                Set<String> documentStrings = new HashSet<>();
+                Set<String> documentScalars = new HashSet<>();
+                for (JsonNode value : document.getValues(field)) {
+                    if (value.isTextual()) {
+                        documentStrings.add(value.textValue());
+                        documentTokens.addAll(analyse(value.textValue()));
+                    } else {
+                        documentScalars.add(scalarKey(value));
+                    }
+                }
+                addPostings(tokens, documentTokens, document.getOrdinal());
+                addPostings(strings, documentStrings, document.getOrdinal());
+                addPostings(scalars, documentScalars, document.getOrdinal());
+            }
+            this.ordinalsByToken = toPostingLists(tokens);
+            this.ordinalsByString = toPostingLists(strings);
+            this.ordinalsByScalar = toPostingLists(scalars);
+        }
+
+        /**
+         * @param tokens
+         *            - analysed tokens.
+         * @return the documents where the field contains any of the tokens.
+         */
+        BitSet findTokens(final Collection<String> tokens) {
+            return findAny(ordinalsByToken, tokens);
+        }
+
+        /**
+         * @param predicate
+         *            - a test of a single analysed token.
+         * @return the documents where the field contains a token passing the test.
+         */
+        BitSet findTokens(final Predicate<String> predicate) {
+            return findAny(ordinalsByToken, predicate);
+        }
+
+        /**
+         * @param strings
+         *            - exact strings.
+         * @return the documents where the field has any of the strings as a value.
+         */
+        BitSet findStrings(final Collection<String> strings) {
+            return findAny(ordinalsByString, strings);
+        }
+
+        /**
+         * @param predicate
+         *            - a test of a whole string value.
+         * @return the documents where the field has a string value passing the test.
+         */
+        BitSet findStrings(final Predicate<String> predicate) {
+            return findAny(ordinalsByString, predicate);
+        }
+
+        /**
+         * @param queryValue
+         *            - the value a query is looking for.
+         * @return the documents where the field has a non-string value equal to it, as {@link #scalarEquals}.
+         */
+        BitSet findScalars(final String queryValue) {
+            return findAny(ordinalsByScalar, scalarKeys(queryValue));
+        }
+
+        private static void addPostings(final Map<String, List<Integer>> postings, final Set<String> keys,
+                                        final int ordinal) {
+            for (String key : keys) {
+                postings.computeIfAbsent(key, k -> new ArrayList<>()).add(ordinal);
+            }
+        }
+
+        private static Map<String, int[]> toPostingLists(final Map<String, List<Integer>> postings) {
+            ImmutableMap.Builder<String, int[]> builder = ImmutableMap.builder();
+            for (Map.Entry<String, List<Integer>> entry : postings.entrySet()) {
+                builder.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            return builder.build();
+        }
+
+        private static BitSet findAny(final Map<String, int[]> postings, final Collection<String> keys) {
+            BitSet ordinals = new BitSet();
+            for (String key : keys) {
+                for (int ordinal : postings.getOrDefault(key, new int[0])) {
+                    ordinals.set(ordinal);
+                }
+            }
+            return ordinals;
+        }
+
+        private static BitSet findAny(final Map<String, int[]> postings, final Predicate<String> predicate) {
+            BitSet ordinals = new BitSet();
+            for (Map.Entry<String, int[]> entry : postings.entrySet()) {
+                if (predicate.test(entry.getKey())) {
+                    for (int ordinal : entry.getValue()) {
+                        ordinals.set(ordinal);
+                    }
+                }
+            }
+            return ordinals;
+        }
+    }
+
+    /**
+     * One object within a document, with field names given relative to the document root.
+     */
+    private static class ObjectView implements DocumentView {
+        private final JsonNode object;
+        private final String pathPrefix;
+
+        /**
+         * @param object
+         *            - the object.
+         * @param pathPrefix
+         *            - the path of the object from the document root, followed by the field connector.
+         */
+        ObjectView(final JsonNode object, final String pathPrefix) {
+            this.object = object;
+            this.pathPrefix = pathPrefix;
+        }
+
+        @Override
+        public List<JsonNode> getValues(final String field) {
+            if (!field.startsWith(pathPrefix)) {
+                return Collections.emptyList();
+            }
+            return getValues(object, field.substring(pathPrefix.length()));
+        }
+
+        @Override
+        public Set<String> getTokens(final String field) {
+            return getTokens(this.getValues(field));
+        }
+
+        @Override
+        public List<DocumentView> getNestedObjects(final String path) {
+            if (!path.startsWith(pathPrefix)) {
+                return Collections.emptyList();
+            }
+            return getNestedObjects(object, pathPrefix, path.substring(pathPrefix.length()));
+        }
+
+        static List<JsonNode> getValues(final JsonNode object, final String field) {
+            List<JsonNode> values = Lists.newArrayList();
+            collectValues(object, field.split("\\."), 0, values);
+            return values;
+        }
+
+        static Set<String> getTokens(final List<JsonNode> values) {
+            Set<String> tokens = new HashSet<>();
+            for (JsonNode value : values) {
+                if (value.isTextual()) {
+                    tokens.addAll(analyse(value.textValue()));
+                }
+            }
+            return tokens;
+        }
+
+        static List<DocumentView> getNestedObjects(final JsonNode object, final String pathPrefix,
+                                                   final String relativePath) {
+            JsonNode nested = object;
+            for (String fieldName : relativePath.split("\\.")) {
+                nested = nested.path(fieldName);
+            }
+            String nestedPrefix = pathPrefix + relativePath + FIELD_CONNECTOR;
+            List<DocumentView> views = Lists.newArrayList();
+            if (nested.isArray()) {
+                for (JsonNode element : nested) {
+                    if (element.isObject()) {
+                        views.add(new ObjectView(element, nestedPrefix));
+                    }
+                }
+            } else if (nested.isObject()) {
+                views.add(new ObjectView(nested, nestedPrefix));
+            }
+            return views;
+        }
+    }
+
+    /**
+     * A query that documents can be matched against.
+     */
+    interface Query {
+        /**
+         * @param document
+         *            - the document, or nested object, to check.
+         * @return whether it matches the query.
+         */
+        boolean matches(DocumentView document);
+
+        /**
+         * Find the documents of an index which match the query, by default by checking each candidate in turn.
+         *
+         * @param index
+         *            - the index being searched.
+         * @param candidates
+         *            - the ordinals of the documents which could match; this is not modified.
+         * @return the ordinals of the candidates which match.
+         */
+        default BitSet findMatches(final InMemorySearchIndex index, final BitSet candidates) {
+            BitSet matches = new BitSet();
+            for (int ordinal = candidates.nextSetBit(0); ordinal >= 0; ordinal = candidates.nextSetBit(ordinal + 1)) {
+                if (this.matches(index.documents.get(ordinal))) {
+                    matches.set(ordinal);
+                }
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * A query which can be answered from the inverted index of the field it searches.
+     */
+    private abstract static class FieldQuery implements Query {
+        private final String field;
+        @Nullable
+        private final String keywordFieldBase;
+
+        /**
+         * @param field
+         *            - the field the query searches.
+         */
+        FieldQuery(final String field) {
+            this.field = field;
+            this.keywordFieldBase = getKeywordFieldBase(field);
+        }
+
+        @Override
+        public boolean matches(final DocumentView document) {
+            if (keywordFieldBase != null) {
+                for (JsonNode value : document.getValues(keywordFieldBase)) {
+                    if (value.isTextual() && this.matchesString(value.textValue())) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+            return this.matchesTextField(document.getTokens(field), document.getValues(field));
+        }
+
+        @Override
+        public BitSet findMatches(final InMemorySearchIndex index, final BitSet candidates) {
+            BitSet matches = keywordFieldBase != null ? this.findStrings(index.getFieldIndex(keywordFieldBase))
+                    : this.findInTextField(index.getFieldIndex(field));
+            matches.and(candidates);
+            return matches;
+        }
+
+        /**
+         * @param value
+         *            - a whole string value of a keyword field.
+         * @return whether the value matches.
+         */
+        abstract boolean matchesString(String value);
+
+        /**
+         * @param tokens
+         *            - the analysed tokens of a text field.
+         * @param values
+         *            - the values of the field.
+         * @return whether the field matches.
+         */
+        abstract boolean matchesTextField(Set<String> tokens, List<JsonNode> values);
+
+        /**
+         * @param fieldIndex
+         *            - the index of the field the keyword field holds the value of.
+         * @return the documents which match, as {@link #matchesString(String)}.
+         */
+        abstract BitSet findStrings(FieldIndex fieldIndex);
+
+        /**
+         * @param fieldIndex
+         *            - the index of the text field.
+         * @return the documents which match, as {@link #matchesTextField(Set, List)}.
+         */
+        abstract BitSet findInTextField(FieldIndex fieldIndex);
+    }
+
+    /**
+     * @return a query matching every document.
+     */
+    static Query matchAll() {
+        return new Query() {
+            @Override
+            public boolean matches(final DocumentView document) {
+                return true;
+            }
+
+            @Override
+            public BitSet findMatches(final InMemorySearchIndex index, final BitSet candidates) {
+                return (BitSet) candidates.clone();
+            }
+        };
+    }
+
+    /**
+     * A full text match: the value is analysed and a document matches if the field contains any of its tokens.
+     *
+     * @param field
+     *            - the field to match.
+     * @param value
+     *            - the value to look for.
+     * @return the query.
+     */
+    static Query match(final String field, final String value) {
+        if (getKeywordFieldBase(field) != null) {
+            return term(field, value);
+        }
+        List<String> valueTokens = analyse(value);
+        return new FieldQuery(field) {
+            @Override
+            boolean matchesString(final String fieldValue) {
+                throw new IllegalStateException("Match queries on keyword fields are term queries.");
+            }
+
+            @Override
+            boolean matchesTextField(final Set<String> tokens, final List<JsonNode> values) {
+                for (String token : valueTokens) {
+                    if (tokens.contains(token)) {
+                        return true;
+                    }
+                }
+                return matchesScalar(values, value);
+            }
+
+            @Override
+            BitSet findStrings(final FieldIndex fieldIndex) {
+                throw new IllegalStateException("Match queries on keyword fields are term queries.");
+            }
+
+            @Override
+            BitSet findInTextField(final FieldIndex fieldIndex) {
+                BitSet matches = fieldIndex.findTokens(valueTokens);
+                matches.or(fieldIndex.findScalars(value));
+                return matches;
+            }
+        };
+    }
+
+    /**
+     * An exact match of an unanalysed value against a keyword field, or against a single token of a text field.
+     *
+     * @param field
+     *            - the field to match.
+     * @param value
+     *            - the value to look for.
+     * @return the query.
+     */
+    static Query term(final String field, final String value) {
+        return terms(field, Collections.singletonList(value));
+    }
+
+    /**
+     * An exact match of any of several unanalysed values, as {@link #term(String, String)}.
+     *
+     * @param field
+     *            - the field to match.
+     * @param values
+     *            - the values to look for.
+     * @return the query.
+     */
+    static Query terms(final String field, final Collection<String> values) {
+        Set<String> valueSet = ImmutableSet.copyOf(values);
+        return new FieldQuery(field) {
+            @Override
+            boolean matchesString(final String fieldValue) {
+                return valueSet.contains(fieldValue);
+            }
+
+            @Override
+            boolean matchesTextField(final Set<String> tokens, final List<JsonNode> fieldValues) {
+                for (String value : valueSet) {
+                    if (tokens.contains(value) || matchesScalar(fieldValues, value)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            BitSet findStrings(final FieldIndex fieldIndex) {
+                return fieldIndex.findStrings(valueSet);
+            }
+
+            @Override
+            BitSet findInTextField(final FieldIndex fieldIndex) {
+                BitSet matches = fieldIndex.findTokens(valueSet);
+                for (String value : valueSet) {
+                    matches.or(fieldIndex.findScalars(value));
+                }
+                return matches;
+            }
+        };
+    }
+
+    /**
+     * A match of the start of an unanalysed value against a keyword field, or against a single token of a text field.
+     *
+     * @param field
+     *            - the field to match.
+     * @param prefix
+     *            - the prefix to look for.
+     * @return the query.
+     */
+    static Query prefix(final String field, final String prefix) {
+        return predicate(field, value -> value.startsWith(prefix));
+    }
+
+    /**
+     * A match of a regular expression against the whole of a keyword field, or against a single token of a text field.
+     *
+     * @param field
+     *            - the field to match.
+     * @param regex
+     *            - the regular expression.
+     * @return the query.
+     */
+    static Query regexp(final String field, final String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        return predicate(field, value -> pattern.matcher(value).matches());
+    }
+
+    /**
+     * @param field
+     *            - the field to match.
+     * @param predicate
+     *            - a test of a whole keyword field value, or of a single token of a text field.
+     * @return a query matching documents where any value or token of the field passes the test.
+     */
+    private static Query predicate(final String field, final Predicate<String> predicate) {
+        return new FieldQuery(field) {
+            @Override
+            boolean matchesString(final String value) {
+                return predicate.test(value);
+            }
+
+            @Override
+            boolean matchesTextField(final Set<String> tokens, final List<JsonNode> values) {
+                for (String token : tokens) {
+                    if (predicate.test(token)) {
+                        return true;
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            BitSet findStrings(final FieldIndex fieldIndex) {
+                return fieldIndex.findStrings(predicate);
+            }
+
+            @Override
+            BitSet findInTextField(final FieldIndex fieldIndex) {
+                return fieldIndex.findTokens(predicate);
+            }
+        };
+    }
+
+    /**
+     * An inclusive range over a numeric field, such as a date stored as milliseconds since the epoch.
+     *
+     * @param field
+     *            - the field to match.
+     * @param from
+     *            - the lowest matching value, or null for no lower bound.
+     * @param to
+     *            - the highest matching value, or null for no upper bound.
+     * @return the query.
+     */
+    static Query range(final String field, @Nullable final Long from, @Nullable final Long to) {
+        return document -> {
+            for (JsonNode value : document.getValues(field)) {
+                if (!value.isNumber()) {
+                    continue;
+                }
+                if ((null == from || value.doubleValue() >= from) && (null == to || value.doubleValue() <= to)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    /**
+     * @param path
+     *            - the full name of the nested object field.
+     * @param query
+     *            - a query which a single nested object must match, using full field names.
+     * @return a query matching documents where any one of the nested objects matches.
+     */
+    static Query nested(final String path, final Query query) {
+        return document -> {
+            for (DocumentView nestedObject : document.getNestedObjects(path)) {
+                if (query.matches(nestedObject)) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+
+    private static boolean matchesScalar(final List<JsonNode> fieldValues, final String value) {
+        for (JsonNode fieldValue : fieldValues) {
+            if (!fieldValue.isTextual() && scalarEquals(fieldValue, value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * A boolean combination of queries. As in the search cluster, if there are no required clauses then at least one
+     * of the optional clauses must match.
+     */
+    static class BoolQuery implements Query {
+        private final List<Query> mustClauses = Lists.newArrayList();
+        private final List<Query> shouldClauses = Lists.newArrayList();
+        private final List<Query> mustNotClauses = Lists.newArrayList();
+        private Integer minimumShouldMatch;
+
+        BoolQuery must(final Query query) {
+            mustClauses.add(query);
+            return this;
+        }
+
+        BoolQuery should(final Query query) {
+            shouldClauses.add(query);
+            return this;
+        }
+
+        BoolQuery mustNot(final Query query) {
+            mustNotClauses.add(query);
+            return this;
+        }
+
+        BoolQuery minimumShouldMatch(final int minimumShouldMatch) {
+            this.minimumShouldMatch = minimumShouldMatch;
+            return this;
+        }
+
+        @Override
+        public boolean matches(final DocumentView document) {
+            for (Query query : mustClauses) {
+                if (!query.matches(document)) {
+                    return false;
+                }
+            }
+            for (Query query : mustNotClauses) {
+                if (query.matches(document)) {
+                    return false;
+                }
+            }
+
+            int requiredShouldMatches = minimumShouldMatch != null ? minimumShouldMatch
+                    : mustClauses.isEmpty() && !shouldClauses.isEmpty() ? 1 : 0;
+            int shouldMatches = 0;
+            for (Query query : shouldClauses) {
+                if (shouldMatches >= requiredShouldMatches) {
+                    break;
+                }
+                if (query.matches(document)) {
+                    shouldMatches++;
+                }
+            }
+            return shouldMatches >= requiredShouldMatches;
+        }
+
+        @Override
+        public BitSet findMatches(final InMemorySearchIndex index, final BitSet candidates) {
+            BitSet matches = (BitSet) candidates.clone();
+            for (Query query : mustClauses) {
+                if (matches.isEmpty()) {
+                    return matches;
+                }
+                matches = query.findMatches(index, matches);
+            }
+            for (Query query : mustNotClauses) {
+                if (matches.isEmpty()) {
+                    return matches;
+                }
+                matches.andNot(query.findMatches(index, matches));
+            }
+
+            int requiredShouldMatches = minimumShouldMatch != null ? minimumShouldMatch
+                    : mustClauses.isEmpty() && !shouldClauses.isEmpty() ? 1 : 0;
+            if (requiredShouldMatches <= 0 || matches.isEmpty()) {
+                return matches;
+            }
+            if (requiredShouldMatches == 1) {
+                BitSet shouldMatches = new BitSet();
+                for (Query query : shouldClauses) {
+                    shouldMatches.or(query.findMatches(index, matches));
+                }
+                matches.and(shouldMatches);
+                return matches;
+            }
+            int[] shouldMatchCounts = new int[index.size()];
+            for (Query query : shouldClauses) {
+                BitSet shouldMatches = query.findMatches(index, matches);
+                for (int ordinal = shouldMatches.nextSetBit(0); ordinal >= 0;
+                     ordinal = shouldMatches.nextSetBit(ordinal + 1)) {
+                    shouldMatchCounts[ordinal]++;
+                }
+            }
+            for (int ordinal = matches.nextSetBit(0); ordinal >= 0; ordinal = matches.nextSetBit(ordinal + 1)) {
+                if (shouldMatchCounts[ordinal] < requiredShouldMatches) {
+                    matches.clear(ordinal);
+                }
+            }
+            return matches;
+        }
+    }
+
+    /**
+     * Order documents by a field, as a field sort in the search cluster does: the lowest value of each document is
+     * used when sorting in ascending order and the highest in descending order, and documents without the field come
+     * last in either order.
+     *
+     * @param field
+     *            - the field to sort by.
+     * @param sortOrder
+     *            - the direction to sort in.
+     * @return the ordering.
+     */
+    static Comparator<IndexedDocument> fieldOrder(final String field, final Constants.SortOrder sortOrder) {
+        String keywordFieldBase = getKeywordFieldBase(field);
+        String valueField = keywordFieldBase != null ? keywordFieldBase : field;
+        boolean ascending = sortOrder == Constants.SortOrder.ASC;
+        Comparator<JsonNode> valueOrder = ascending ? InMemorySearchIndex::compareValues
+                : (a, b) -> compareValues(b, a);
+
+        return (a, b) -> {
+            JsonNode aValue = getSortValue(a, valueField, valueOrder);
+            JsonNode bValue = getSortValue(b, valueField, valueOrder);
+            if (null == aValue || null == bValue) {
+                return null == aValue ? (null == bValue ? 0 : 1) : -1;
+            }
+            return valueOrder.compare(aValue, bValue);
+        };
+    }
+
+    /**
+     * @param seed
+     *            - the seed for the order, or null for a different order each time.
+     * @return an ordering which is random, but the same for every search made with the same seed.
+     */
+    static Comparator<IndexedDocument> randomOrder(@Nullable final Long seed) {
+        long salt = null != seed ? seed : new Random().nextLong();
+        return Comparator.comparingLong(document -> mix(salt ^ document.getOrdinal()));
+    }
+
+    @Nullable
+    private static JsonNode getSortValue(final IndexedDocument document, final String field,
+                                         final Comparator<JsonNode> valueOrder) {
+        JsonNode first = null;
+        for (JsonNode value : document.getValues(field)) {
+            if (null == first || valueOrder.compare(value, first) < 0) {
+                first = value;
+            }
+        }
+        return first;
+    }
+
+    private static int compareValues(final JsonNode a, final JsonNode b) {
+        if (a.isNumber() && b.isNumber()) {
+            return a.decimalValue().compareTo(b.decimalValue());
+        }
+        if (a.isNumber() != b.isNumber()) {
+            return a.isNumber() ? -1 : 1;
+        }
+        return a.asText().compareTo(b.asText());
+    }
+
+    /**
+     * The finaliser of the SplitMix64 generator, which spreads consecutive inputs across the whole range of longs.
+     */
+    private static long mix(final long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,39 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Decodes the source document of a search hit into the type wanted by the caller.
+ *
+ * The source is passed as a slice of the UTF-8 encoded JSON received from the search provider, so that it can be
+ * given straight to a JSON parser without first being copied into a String.
+ *
+ * @param <T> the type each search hit is decoded into.
+ */
+@FunctionalInterface
+public interface SearchHitDecoder<T> {
+
+    /**
+     * Decodes the source document as a JSON string.
+     */
+    SearchHitDecoder<String> SOURCE_AS_STRING =
+            (source, offset, length) -> new String(source, offset, length, StandardCharsets.UTF_8);
+
+    /**
+     * Decode the source of a single search hit.
+     *
+     * The array must not be modified or retained, it may be shared with the other hits in the same response.
+     *
+     * @param source
+     *            - an array containing the UTF-8 encoded JSON source of the hit.
+     * @param offset
+     *            - the offset of the start of the source within the array.
+     * @param length
+     *            - the length of the source in bytes.
+     * @return the decoded hit, or null if the hit should be left out of the results.
+     * @throws IOException
+     *             - if the source cannot be decoded.
+     */
+    T decode(byte[] source, int offset, int length) throws IOException;
+}
@@ -0,0 +1,29 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Iterates over every result of a search, fetching the results from the search provider a page at a time.
+ *
+ * Only one page of results is held in memory at once, so any number of results can be read. The iterator holds
+ * resources open in the search provider until it has been exhausted or closed, so it should always be closed.
+ *
+ * Fetching a page of results can fail part way through iteration, in which case hasNext and next throw an
+ * {@link UncheckedIOException}.
+ *
+ * @param <T> the type each search hit is decoded into.
+ */
+public interface SearchResultsIterator<T> extends Iterator<T>, AutoCloseable {
+
+    /**
+     * @return the total number of hits the search matched.
+     */
+    long getTotalResults();
+
+    /**
+     * Release the resources held by the search; any remaining results are discarded.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,158 @@
+package uk.ac.cam.cl.dtg.util.locations;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An in-memory spatial index of postcode locations, so that the postcodes within a radius can be found without
+ * computing the distance to every known postcode.
+ *
+ * Postcodes are bucketed into a grid of cells of fixed latitude and longitude; a radius query only measures the
+ * distance to postcodes in the cells which overlap the bounding box of the circle.
+ *
+ * This class is threadsafe; postcodes can be added while the index is being queried.
+ */
+public class PostCodeGeoIndex {
+    private static final double CELL_SIZE_DEGREES = 0.2;
+    private static final long CELLS_AROUND_EQUATOR = Math.round(360 / CELL_SIZE_DEGREES);
+    private static final double EARTH_RADIUS_MILES = 6371.0 * 0.621371;
+    private static final double MILES_PER_DEGREE_LATITUDE = Math.toRadians(1) * EARTH_RADIUS_MILES;
+
+    private final Map<String, PostCode> postCodesByName = new ConcurrentHashMap<>();
+    private final Map<Long, Set<PostCode>> postCodesByCell = new ConcurrentHashMap<>();
+
+    /**
+     * Add postcodes to the index, replacing any existing locations for them. Postcodes without a location are ignored.
+     *
+     * @param postCodes - the postcodes to add.
+     */
+    public void addAll(final Collection<PostCode> postCodes) {
+        for (PostCode postCode : postCodes) {
+            if (null == postCode.getPostCode() || null == postCode.getLat() || null == postCode.getLon()) {
+                continue;
+            }
+
+            PostCode previous = postCodesByName.put(postCode.getPostCode(), postCode);
+            if (previous != null) {
+                postCodesByCell.getOrDefault(cellOf(previous.getLat(), previous.getLon()), Set.of()).remove(previous);
+            }
+            postCodesByCell.computeIfAbsent(cellOf(postCode.getLat(), postCode.getLon()),
+                    (ignoreKey) -> ConcurrentHashMap.newKeySet()).add(postCode);
+        }
+    }
+
+    /**
+     * @param postCode - the postcode, without whitespace.
+     * @return the location of the postcode, or null if it is not in the index.
+     */
+    public PostCode get(final String postCode) {
+        return postCodesByName.get(postCode);
+    }
+
+    /**
+     * @param postCode - the postcode, without whitespace.
+     * @return whether the index has a location for the postcode.
+     */
+    public boolean contains(final String postCode) {
+        return postCodesByName.containsKey(postCode);
+    }
+
+    /**
+     * @return the number of postcodes in the index.
+     */
+    public int size() {
+        return postCodesByName.size();
+    }
+
+    /**
+     * Find the postcodes within a given distance of a location.
+     *
+     * @param lat - latitude of the centre of the search.
+     * @param lon - longitude of the centre of the search.
+     * @param radiusInMiles - the distance from the centre to search within.
+     * @return the postcodes within the radius.
+     */
+    public List<PostCode> findWithinRadius(final double lat, final double lon, final double radiusInMiles) {
+        double latitudeDelta = radiusInMiles / MILES_PER_DEGREE_LATITUDE;
+        // Use the latitude nearest a pole within the box, where a degree of longitude is shortest, so the box is
+        // wide enough everywhere; near the poles, search every longitude.
+        double maxAbsoluteLatitude = Math.min(90, Math.abs(lat) + latitudeDelta);
+        double milesPerDegreeLongitude = MILES_PER_DEGREE_LATITUDE * Math.cos(Math.toRadians(maxAbsoluteLatitude));
+
+        long minLatCell = cellIndex(lat - latitudeDelta);
+        long maxLatCell = cellIndex(lat + latitudeDelta);
+        long minLonCell;
+        long maxLonCell;
+        double longitudeDelta = radiusInMiles / milesPerDegreeLongitude;
+        if (milesPerDegreeLongitude > 0
+                && cellIndex(lon + longitudeDelta) - cellIndex(lon - longitudeDelta) < CELLS_AROUND_EQUATOR) {
+            minLonCell = cellIndex(lon - longitudeDelta);
+            maxLonCell = cellIndex(lon + longitudeDelta);
+        } else {
+            minLonCell = -CELLS_AROUND_EQUATOR / 2;
+            maxLonCell = CELLS_AROUND_EQUATOR / 2 - 1;
+        }
+
+        List<PostCode> results = new ArrayList<>();
+        for (long latCell = minLatCell; latCell <= maxLatCell; latCell++) {
+            for (long lonCell = minLonCell; lonCell <= maxLonCell; lonCell++) {
+                Set<PostCode> cell = postCodesByCell.get(cellKey(latCell, wrapLongitudeCell(lonCell)));
+                if (null == cell) {
+                    continue;
+                }
+                for (PostCode postCode : cell) {
+                    if (getLatLonDistanceInMiles(lat, lon, postCode.getLat(), postCode.getLon()) <= radiusInMiles) {
+                        results.add(postCode);
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    /**
+     * @param lat1
+     *            - latitude 1
+     * @param lon1
+     *            - longitude 1
+     * @param lat2
+     *            - latitude 2
+     * @param lon2
+     *            - longitude 2
+     * @return - distance in miles
+     */
+    public static double getLatLonDistanceInMiles(final double lat1, final double lon1, final double lat2,
+                                                  final double lon2) {
+        // borrowed from http://www.movable-type.co.uk/scripts/latlong.html
+        double phi1 = Math.toRadians(lat1);
+        double phi2 = Math.toRadians(lat2);
+        double deltaPhi = Math.toRadians(lat2 - lat1);
+        double deltaLambda = Math.toRadians(lon2 - lon1);
+
+        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2) + Math.cos(phi1) * Math.cos(phi2)
+                * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+
+        return EARTH_RADIUS_MILES * c;
+    }
+
+    private static long cellOf(final double lat, final double lon) {
+        return cellKey(cellIndex(lat), wrapLongitudeCell(cellIndex(lon)));
+    }
+
+    private static long cellIndex(final double degrees) {
+        return (long) Math.floor(degrees / CELL_SIZE_DEGREES);
+    }
+
+    private static long wrapLongitudeCell(final long lonCell) {
+        return Math.floorMod(lonCell + CELLS_AROUND_EQUATOR / 2, CELLS_AROUND_EQUATOR) - CELLS_AROUND_EQUATOR / 2;
+    }
+
+    private static long cellKey(final long latCell, final long lonCell) {
+        return (latCell << 32) ^ (lonCell & 0xFFFFFFFFL);
+    }
+}
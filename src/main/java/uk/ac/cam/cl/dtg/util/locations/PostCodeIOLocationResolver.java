@@ -18,11 +18,14 @@ package uk.ac.cam.cl.dtg.util.locations;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 import io.netty.handler.codec.http.HttpResponseStatus;
 import org.apache.http.HttpEntity;
@@ -44,6 +47,10 @@ import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.api.client.util.Lists;
 import com.google.api.client.util.Maps;
+import com.google.api.client.util.Sets;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Iterables;
 import com.google.inject.Inject;
 
 /**
@@ -59,9 +66,16 @@ public class PostCodeIOLocationResolver implements PostCodeLocationResolver {
     private final int POSTCODEIO_MAX_REQUESTS = 100;
     
     private final LocationHistory locationHistory;
+    private final PostCodeGeoIndex postCodeIndex = new PostCodeGeoIndex();
+    private final Cache<String, Boolean> unresolvablePostCodes = CacheBuilder.newBuilder()
+            .expireAfterWrite(1, TimeUnit.DAYS).maximumSize(10000).build();
+    private volatile boolean storedPostCodesLoaded = false;
 
     /**
      * PostCode resolver that uses queries postcodes from the local database and external postcodes.io database.
+     *
+     * The locations of all of the stored postcodes are held in memory, along with any looked up since, so that radius
+     * searches only go to the database or external service for postcodes which have never been seen before.
      * 
      * @param locationHistory
      *            - the location history so we can access the database of existing post codes
@@ -94,64 +108,100 @@ public class PostCodeIOLocationResolver implements PostCodeLocationResolver {
                 cleanPostCodeIDMap.put(key.replace(" ", ""), val);
             }
         }
+        String cleanTargetPostCode = null == targetPostCode ? "" : targetPostCode.replace(" ", "");
 
-        LinkedList<Long> resultingUserIds = new LinkedList<Long>();
+        ensureStoredPostCodesLoaded();
 
-        // first do a database lookup, then fallback on the service
-        List<PostCode> knownPostCodes = Lists.newArrayList();
-        List<String> unknownPostCodes = Lists.newArrayList();
-        for (String postCode : cleanPostCodeIDMap.keySet()) {
-            PostCode result = this.locationHistory.getPostCode(postCode);
-            if (null == result) {
+        // look up any postcodes we have not seen before, including the target, in one go.
+        Set<String> unknownPostCodes = Sets.newHashSet();
+        for (String postCode : Iterables.concat(cleanPostCodeIDMap.keySet(), Collections.singleton(cleanTargetPostCode))) {
+            if (!postCode.isEmpty() && !postCodeIndex.contains(postCode)
+                    && null == unresolvablePostCodes.getIfPresent(postCode)) {
                 unknownPostCodes.add(postCode);
-            } else {
-                knownPostCodes.add(result);
             }
         }
+        if (!unknownPostCodes.isEmpty()) {
+            resolveUnknownPostCodes(unknownPostCodes);
+        }
 
-        // add the target postcode, so we can do it in one request
-        PostCode targetPostCodeObject = this.locationHistory.getPostCode(targetPostCode);
-        
+        PostCode targetPostCodeObject = postCodeIndex.get(cleanTargetPostCode);
         if (null == targetPostCodeObject) {
-            List<String> targetPostCodeList = Lists.newArrayList();
-            targetPostCodeList.add(targetPostCode);
-            List<PostCode> results = submitPostCodeRequest(targetPostCodeList);
-            if (results.size() == 1) {
-                targetPostCodeObject = results.get(0);
-            } else {
-                throw new LocationServerException(
-                        "Location service failed to return valid lat/lon for target postcode");
-            } 
+            throw new LocationServerException(
+                    "Location service failed to return valid lat/lon for target postcode");
+        }
+
+        LinkedList<Long> resultingUserIds = new LinkedList<Long>();
+        for (PostCode postCode : postCodeIndex.findWithinRadius(targetPostCodeObject.getLat(),
+                targetPostCodeObject.getLon(), postCodeRadius.getDistance())) {
+            List<Long> userIds = cleanPostCodeIDMap.get(postCode.getPostCode());
+            if (userIds != null) {
+                // Add this to a list, with user ids
+                resultingUserIds.addAll(userIds);
+            }
+        }
+        
+        return resultingUserIds;
+    }
+
+    /**
+     * Load the locations of every stored postcode into memory, the first time they are needed.
+     *
+     * @throws SegueDatabaseException
+     *             - if the postcodes cannot be read from the database.
+     */
+    private void ensureStoredPostCodesLoaded() throws SegueDatabaseException {
+        if (storedPostCodesLoaded) {
+            return;
+        }
+        synchronized (postCodeIndex) {
+            if (!storedPostCodesLoaded) {
+                postCodeIndex.addAll(this.locationHistory.getAllPostCodes());
+                storedPostCodesLoaded = true;
+                log.info(String.format("Loaded %d stored postcodes into memory", postCodeIndex.size()));
+            }
+        }
+    }
+
+    /**
+     * Find the locations of postcodes which are not in memory; first from the database, in case they have been stored
+     * since the stored postcodes were loaded, then from the external service. Any found are added to the index.
+     *
+     * @param unknownPostCodes
+     *            - the postcodes to find.
+     * @throws LocationServerException
+     *             - if there was an issue with the service
+     * @throws SegueDatabaseException
+     *             - if the database could not be read or written.
+     */
+    private void resolveUnknownPostCodes(final Set<String> unknownPostCodes)
+            throws LocationServerException, SegueDatabaseException {
+        List<PostCode> storedPostCodes = this.locationHistory.getPostCodes(unknownPostCodes);
+        postCodeIndex.addAll(storedPostCodes);
+
+        List<String> remainingPostCodes = Lists.newArrayList();
+        for (String postCode : unknownPostCodes) {
+            if (!postCodeIndex.contains(postCode)) {
+                remainingPostCodes.add(postCode);
+            }
+        }
+        if (remainingPostCodes.isEmpty()) {
+            return;
         }
 
-        List<PostCode> foundPostCodes = carryOutExternalPostCodeServiceRequest(unknownPostCodes);
+        List<PostCode> foundPostCodes = carryOutExternalPostCodeServiceRequest(remainingPostCodes);
 
         // Store new postcodes back to the database
         this.locationHistory.storePostCodes(foundPostCodes);
+        postCodeIndex.addAll(foundPostCodes);
 
-        knownPostCodes.addAll(foundPostCodes);
-        
-        for (PostCode postCode : knownPostCodes) {
-            
-            if (null == postCode.getLat() || null == postCode.getLon()) {
-                continue;
-            }
-            
-            double distInMiles = getLatLonDistanceInMiles(targetPostCodeObject.getLat(),
-                    targetPostCodeObject.getLon(), postCode.getLat(),
-                    postCode.getLon());
-            
-            if (distInMiles <= postCodeRadius.getDistance()
-                    && cleanPostCodeIDMap.containsKey(postCode.getPostCode())) {
-                // Add this to a list, with user ids
-                resultingUserIds.addAll(cleanPostCodeIDMap.get(postCode.getPostCode()));
+        // Remember the postcodes the service could not find for a while, so we don't keep asking for them.
+        for (String postCode : remainingPostCodes) {
+            if (!postCodeIndex.contains(postCode)) {
+                unresolvablePostCodes.put(postCode, true);
             }
-            
         }
-        
-        return resultingUserIds;
     }
-    
+
     /**
      * Method to ensure that only 100 (the max) post codes are queried using the external service at once.
      * 
@@ -262,42 +312,4 @@ public class PostCodeIOLocationResolver implements PostCodeLocationResolver {
 
         return returnList;
     }
-    
-
-    /**
-     * @param lat1
-     *            - latitude 1
-     * @param lon1
-     *            - longitude 1
-     * @param lat2
-     *            - latitude 2
-     * @param lon2
-     *            - longitude 2
-     * @return - distance in miles
-     */
-    private double getLatLonDistanceInMiles(final double lat1, final double lon1, final double lat2,
-            final double lon2) {
-        // borrowed from http://www.movable-type.co.uk/scripts/latlong.html
-        int R = 6371000;
-        double phi1 = Math.toRadians(lat1);
-        double phi2 = Math.toRadians(lat2);
-        double deltaPhi = Math.toRadians(lat2 - lat1);
-        double deltaLambda = Math.toRadians(lon2 - lon1);
-
-        double a = Math.sin(deltaPhi / 2) * Math.sin(deltaPhi / 2) + Math.cos(phi1) * Math.cos(phi2)
-                * Math.sin(deltaLambda / 2) * Math.sin(deltaLambda / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-
-        double d = R * c;
-
-        // convert from metres to miles
-        d = (d / 1000) * 0.621371;
-
-        return d;
-    }
-
-
-
-
-
 }
@@ -0,0 +1,36 @@
+/*
+ * Store anonymous users' question attempts as rows rather than as one JSON document in temporary_user_store, so that
+ * recording an attempt is a single insert and merging into a registered account is a single INSERT ... SELECT.
+ */
+
+BEGIN;
+
+CREATE TABLE anonymous_question_attempts (
+    id serial NOT NULL,
+    anonymous_user_id character varying NOT NULL,
+    question_id text NOT NULL,
+    question_attempt jsonb NOT NULL,
+    correct boolean,
+    "timestamp" timestamp without time zone NOT NULL,
+    CONSTRAINT anonymous_question_attempts_pkey PRIMARY KEY (id),
+    CONSTRAINT anonymous_question_attempts_user_fkey FOREIGN KEY (anonymous_user_id)
+        REFERENCES temporary_user_store(id) ON DELETE CASCADE
+);
+
+ALTER TABLE anonymous_question_attempts OWNER TO rutherford;
+
+CREATE INDEX anonymous_question_attempts_by_user ON anonymous_question_attempts USING btree (anonymous_user_id, id);
+
+/* Move the existing attempts out of the JSON, oldest first so that the ids preserve the order of attempts */
+INSERT INTO anonymous_question_attempts(anonymous_user_id, question_id, question_attempt, correct, "timestamp")
+SELECT temporary_user_store.id, questions.key, attempts.value, (attempts.value->>'correct')::boolean,
+       to_timestamp((attempts.value->>'dateAttempted')::bigint / 1000.0)::timestamp
+FROM temporary_user_store,
+     jsonb_each(temporary_app_data->'questionAttempts') AS pages,
+     jsonb_each(pages.value) AS questions,
+     jsonb_array_elements(questions.value) WITH ORDINALITY AS attempts(value, attempt_number)
+ORDER BY temporary_user_store.id, (attempts.value->>'dateAttempted')::bigint, attempts.attempt_number;
+
+UPDATE temporary_user_store SET temporary_app_data = temporary_app_data - 'questionAttempts';
+
+COMMIT;
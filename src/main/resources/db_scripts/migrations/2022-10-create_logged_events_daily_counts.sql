@@ -0,0 +1,26 @@
+CREATE TABLE logged_events_daily_counts (
+    event_type character varying(255) NOT NULL,
+    day date NOT NULL,
+    user_id character varying(100) NOT NULL,
+    event_count bigint NOT NULL,
+    CONSTRAINT logged_events_daily_counts_pk PRIMARY KEY (event_type, day, user_id)
+);
+
+CREATE INDEX logged_events_daily_counts_user_id ON logged_events_daily_counts USING btree (user_id);
+
+/* Single row recording the last complete day that has been rolled up into logged_events_daily_counts */
+CREATE TABLE logged_events_daily_counts_state (
+    id boolean DEFAULT TRUE NOT NULL,
+    rolled_up_to date NOT NULL,
+    CONSTRAINT logged_events_daily_counts_state_pk PRIMARY KEY (id),
+    CONSTRAINT logged_events_daily_counts_state_single_row CHECK (id)
+);
+
+/* One-off backfill of every complete day currently in logged_events */
+INSERT INTO logged_events_daily_counts(event_type, day, user_id, event_count)
+SELECT event_type, "timestamp"::date, user_id, count(*)
+FROM logged_events
+WHERE event_type IS NOT NULL AND "timestamp" < CURRENT_DATE
+GROUP BY event_type, "timestamp"::date, user_id;
+
+INSERT INTO logged_events_daily_counts_state(id, rolled_up_to) VALUES (TRUE, CURRENT_DATE - 1);
@@ -0,0 +1,75 @@
+/*
+ * Store the current state of each user's daily and weekly streaks, so that it can be updated as each correct
+ * attempt is made (by user_streaks_record_correct_attempt) rather than recalculated from every attempt the user has
+ * ever made.
+ *
+ * The backfill below uses the original streak functions, so can be run before the updated functions are loaded;
+ * it is equivalent to calling user_streaks_rebuild_state for every user with a correct attempt.
+ *
+ * The question parts which have already been counted towards each user's streaks are also stored, so that only the
+ * first correct attempt at a part is ever counted, even when two correct attempts are recorded at once.
+ */
+
+BEGIN;
+
+CREATE TABLE user_streak_state (
+    user_id bigint NOT NULL,
+    current_day date,
+    current_day_count integer DEFAULT 0 NOT NULL,
+    daily_streak integer DEFAULT 0 NOT NULL,
+    daily_streak_end_date date,
+    longest_daily_streak integer DEFAULT 0 NOT NULL,
+    current_week date,
+    current_week_count integer DEFAULT 0 NOT NULL,
+    weekly_streak integer DEFAULT 0 NOT NULL,
+    weekly_streak_end_date date,
+    longest_weekly_streak integer DEFAULT 0 NOT NULL,
+    CONSTRAINT user_streak_state_pkey PRIMARY KEY (user_id),
+    CONSTRAINT user_streak_state_user_id_fkey FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+ALTER TABLE user_streak_state OWNER TO rutherford;
+
+CREATE TABLE user_streak_counted_parts (
+    user_id bigint NOT NULL,
+    question_id text NOT NULL,
+    CONSTRAINT user_streak_counted_parts_pkey PRIMARY KEY (user_id, question_id),
+    CONSTRAINT user_streak_counted_parts_user_id_fkey FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+);
+
+ALTER TABLE user_streak_counted_parts OWNER TO rutherford;
+
+INSERT INTO user_streak_counted_parts (user_id, question_id)
+SELECT DISTINCT question_attempts.user_id, question_attempts.question_id
+FROM question_attempts JOIN users ON question_attempts.user_id = users.id
+WHERE correct;
+
+INSERT INTO user_streak_state (user_id, current_day, current_day_count, daily_streak, daily_streak_end_date,
+                               longest_daily_streak, current_week, current_week_count, weekly_streak,
+                               weekly_streak_end_date, longest_weekly_streak)
+SELECT
+    users_with_attempts.user_id,
+    daily_progress.currentdate,
+    daily_progress.currentprogress,
+    COALESCE(latest_daily_streak.streaklength, 0),
+    latest_daily_streak.enddate,
+    COALESCE(longest_daily_streak.streaklength, 0),
+    weekly_progress.currentweek,
+    weekly_progress.currentprogress,
+    COALESCE(latest_weekly_streak.streaklength, 0),
+    latest_weekly_streak.enddate,
+    COALESCE(longest_weekly_streak.streaklength, 0)
+FROM (SELECT DISTINCT question_attempts.user_id FROM question_attempts JOIN users ON question_attempts.user_id = users.id
+      WHERE correct) AS users_with_attempts
+    CROSS JOIN LATERAL user_streaks_current_progress(users_with_attempts.user_id) AS daily_progress
+    CROSS JOIN LATERAL user_streaks_weekly_current_progress(users_with_attempts.user_id) AS weekly_progress
+    LEFT JOIN LATERAL (SELECT streaklength, enddate FROM user_streaks(users_with_attempts.user_id)
+                       WHERE startdate <= CURRENT_DATE ORDER BY enddate DESC LIMIT 1) AS latest_daily_streak ON TRUE
+    LEFT JOIN LATERAL (SELECT MAX(streaklength) AS streaklength FROM user_streaks(users_with_attempts.user_id))
+        AS longest_daily_streak ON TRUE
+    LEFT JOIN LATERAL (SELECT streaklength, enddate FROM user_streaks_weekly(users_with_attempts.user_id)
+                       WHERE startdate <= date_trunc('WEEK', CURRENT_DATE) ORDER BY enddate DESC LIMIT 1) AS latest_weekly_streak ON TRUE
+    LEFT JOIN LATERAL (SELECT MAX(streaklength) AS streaklength FROM user_streaks_weekly(users_with_attempts.user_id))
+        AS longest_weekly_streak ON TRUE;
+
+COMMIT;
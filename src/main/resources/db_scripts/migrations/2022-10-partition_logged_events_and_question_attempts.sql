@@ -0,0 +1,100 @@
+/*
+ * Convert logged_events and question_attempts into tables range partitioned by month on "timestamp".
+ *
+ * All existing rows become a single "legacy" partition covering everything before next month; new monthly partitions
+ * are then created ahead of time (and old ones detached and archived) by the scheduled partition maintenance job.
+ * Each table also has a default partition as a safety net so inserts never fail if the job has not yet run.
+ *
+ * The legacy partition cannot be archived until all of its rows are past the retention period; to archive it a month
+ * at a time, split it with 2022-10-split_legacy_partitions.sql in a maintenance window after running this.
+ */
+
+BEGIN;
+
+/* logged_events */
+
+ALTER TABLE logged_events RENAME TO logged_events_legacy;
+ALTER TABLE logged_events_legacy DROP CONSTRAINT "id pkey";
+
+UPDATE logged_events_legacy SET "timestamp" = 'epoch' WHERE "timestamp" IS NULL;
+ALTER TABLE logged_events_legacy ALTER COLUMN "timestamp" SET NOT NULL;
+
+CREATE TABLE logged_events (
+    id integer DEFAULT nextval('logged_events_id_seq'::regclass) NOT NULL,
+    user_id character varying(100) NOT NULL,
+    anonymous_user boolean NOT NULL,
+    event_type character varying(255),
+    event_details_type text,
+    event_details jsonb,
+    ip_address inet,
+    "timestamp" timestamp without time zone NOT NULL,
+    CONSTRAINT logged_events_pkey PRIMARY KEY (id, "timestamp")
+) PARTITION BY RANGE ("timestamp");
+
+ALTER TABLE logged_events OWNER TO rutherford;
+ALTER TABLE logged_events_legacy ALTER COLUMN id DROP DEFAULT;
+ALTER SEQUENCE logged_events_id_seq OWNED BY logged_events.id;
+
+/* Renaming rather than dropping lets the matching indexes on the partitioned table adopt these without a rebuild */
+ALTER INDEX log_events_timestamp RENAME TO logged_events_legacy_timestamp;
+ALTER INDEX log_events_type RENAME TO logged_events_legacy_type;
+ALTER INDEX log_events_user_id RENAME TO logged_events_legacy_user_id;
+ALTER INDEX logged_events_type_timestamp RENAME TO logged_events_legacy_type_timestamp;
+
+/* question_attempts */
+
+ALTER TABLE question_attempts RENAME TO question_attempts_legacy;
+ALTER TABLE question_attempts_legacy DROP CONSTRAINT question_attempts_id;
+ALTER TABLE question_attempts_legacy DROP CONSTRAINT user_id_question_attempts_fkey;
+
+UPDATE question_attempts_legacy SET "timestamp" = 'epoch' WHERE "timestamp" IS NULL;
+ALTER TABLE question_attempts_legacy ALTER COLUMN "timestamp" SET NOT NULL;
+
+CREATE TABLE question_attempts (
+    id integer DEFAULT nextval('question_attempts_id_seq'::regclass) NOT NULL,
+    user_id integer NOT NULL,
+    question_id text NOT NULL,
+    question_attempt jsonb,
+    correct boolean,
+    "timestamp" timestamp without time zone NOT NULL,
+    CONSTRAINT question_attempts_pkey PRIMARY KEY (id, "timestamp"),
+    CONSTRAINT user_id_question_attempts_fkey FOREIGN KEY (user_id) REFERENCES users(id) ON DELETE CASCADE
+) PARTITION BY RANGE ("timestamp");
+
+ALTER TABLE question_attempts OWNER TO rutherford;
+ALTER TABLE question_attempts_legacy ALTER COLUMN id DROP DEFAULT;
+ALTER SEQUENCE question_attempts_id_seq OWNED BY question_attempts.id;
+
+ALTER INDEX "question-attempts-by-user" RENAME TO question_attempts_legacy_by_user;
+ALTER INDEX question_attempts_by_timestamp RENAME TO question_attempts_legacy_by_timestamp;
+ALTER INDEX question_attempts_by_user_question RENAME TO question_attempts_legacy_by_user_question;
+
+/* Attach the legacy data and create the default and next month's partitions */
+
+DO $$
+DECLARE
+    next_month date := date_trunc('month', CURRENT_DATE + INTERVAL '1 month')::date;
+    month_after date := date_trunc('month', CURRENT_DATE + INTERVAL '2 months')::date;
+BEGIN
+    EXECUTE format('ALTER TABLE logged_events ATTACH PARTITION logged_events_legacy FOR VALUES FROM (MINVALUE) TO (%L)', next_month);
+    EXECUTE format('CREATE TABLE logged_events_p%s PARTITION OF logged_events FOR VALUES FROM (%L) TO (%L)', to_char(next_month, 'YYYY_MM'), next_month, month_after);
+
+    EXECUTE format('ALTER TABLE question_attempts ATTACH PARTITION question_attempts_legacy FOR VALUES FROM (MINVALUE) TO (%L)', next_month);
+    EXECUTE format('CREATE TABLE question_attempts_p%s PARTITION OF question_attempts FOR VALUES FROM (%L) TO (%L)', to_char(next_month, 'YYYY_MM'), next_month, month_after);
+END $$;
+
+CREATE TABLE logged_events_default PARTITION OF logged_events DEFAULT;
+CREATE TABLE question_attempts_default PARTITION OF question_attempts DEFAULT;
+
+/* Indexes on the partitioned tables are created on every partition, including future ones */
+
+CREATE INDEX log_events_timestamp ON logged_events USING btree ("timestamp");
+CREATE INDEX log_events_type ON logged_events USING btree (event_type);
+CREATE INDEX log_events_user_id ON logged_events USING btree (user_id);
+CREATE INDEX logged_events_type_timestamp ON logged_events USING btree (event_type, "timestamp");
+
+CREATE INDEX "question-attempts-by-user" ON question_attempts USING btree (user_id);
+CREATE INDEX question_attempts_by_timestamp ON question_attempts USING btree ("timestamp");
+CREATE INDEX question_attempts_by_user_question ON question_attempts USING btree (user_id, question_id text_pattern_ops);
+
+COMMIT;
@@ -0,0 +1,46 @@
+/*
+ * Split the legacy partitions of logged_events and question_attempts into monthly partitions.
+ *
+ * The partitioning migration kept every existing row in a single [table]_legacy partition. That partition can only be
+ * archived once all of its rows are older than the retention period, so this backfill copies its rows into a monthly
+ * partition for each month they cover and then drops it. Once run, old months are archived one at a time by the
+ * partition maintenance job like any other.
+ *
+ * Every row is copied, so this needs as much free disk space as the legacy partitions use. The tables are locked
+ * until it finishes: run it in a maintenance window, with the API stopped.
+ */
+
+BEGIN;
+
+DO $$
+DECLARE
+    partitioned_table text;
+    legacy_partition text;
+    table_columns text;
+    month date;
+BEGIN
+    FOREACH partitioned_table IN ARRAY ARRAY['logged_events', 'question_attempts'] LOOP
+        legacy_partition := partitioned_table || '_legacy';
+        IF to_regclass(legacy_partition) IS NULL THEN
+            CONTINUE;
+        END IF;
+        SELECT string_agg(quote_ident(attname), ', ' ORDER BY attnum) INTO table_columns FROM pg_attribute
+            WHERE attrelid = partitioned_table::regclass AND attnum > 0 AND NOT attisdropped;
+
+        EXECUTE format('ALTER TABLE %I DETACH PARTITION %I', partitioned_table, legacy_partition);
+        /* The legacy partition ends at the start of a month, so these never overlap the existing monthly partitions */
+        FOR month IN EXECUTE format('SELECT DISTINCT date_trunc(''month'', "timestamp")::date FROM %I ORDER BY 1',
+                legacy_partition) LOOP
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                    partitioned_table || '_p' || to_char(month, 'YYYY_MM'), partitioned_table, month,
+                    (month + INTERVAL '1 month')::date);
+        END LOOP;
+
+        EXECUTE format('INSERT INTO %I (%s) SELECT %s FROM %I', partitioned_table, table_columns, table_columns,
+                legacy_partition);
+        EXECUTE format('DROP TABLE %I', legacy_partition);
+        RAISE NOTICE 'Split % into monthly partitions', legacy_partition;
+    END LOOP;
+END $$;
+
+COMMIT;
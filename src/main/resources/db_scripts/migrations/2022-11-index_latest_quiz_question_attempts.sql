@@ -0,0 +1,11 @@
+/*
+ * Index quiz question attempts by question and time within each quiz attempt, so that the latest attempt at each
+ * question can be read straight from the index when marking a whole quiz assignment.
+ *
+ * The new index also serves lookups by quiz_attempt_id alone, so replaces the existing single column index.
+ */
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS quiz_question_attempts_by_quiz_attempt_id_question_id_timestamp
+    ON quiz_question_attempts USING btree (quiz_attempt_id, question_id, "timestamp" DESC);
+
+DROP INDEX CONCURRENTLY IF EXISTS quiz_question_attempts_by_quiz_attempt_id;
@@ -0,0 +1,19 @@
+/*
+ * Index the users table for the admin user search.
+ *
+ * Searches match fields with ILIKE and wildcards, which trigram indexes can serve without scanning the whole table;
+ * results are paged in name order, which the ordering index can return a page at a time.
+ *
+ * CREATE INDEX CONCURRENTLY cannot run inside a transaction, so run each statement separately.
+ */
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_email_trgm ON users USING gin (email gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_family_name_trgm ON users USING gin (family_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_given_name_trgm ON users USING gin (given_name gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_school_id_trgm ON users USING gin (school_id gin_trgm_ops);
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_school_other_trgm ON users USING gin (school_other gin_trgm_ops);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS users_by_name_id
+    ON users USING btree (COALESCE(family_name, ''), COALESCE(given_name, ''), id) WHERE NOT deleted;
@@ -29,10 +29,55 @@ CREATE EXTENSION IF NOT EXISTS plpgsql WITH SCHEMA pg_catalog;
 
 COMMENT ON EXTENSION plpgsql IS 'PL/pgSQL procedural language';
 
+
+--
+-- Name: pg_trgm; Type: EXTENSION; Schema: -; Owner:
+--
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm WITH SCHEMA public;
+
+
 SET default_tablespace = '';
 
 SET default_table_access_method = heap;
 
+--
+-- Name: anonymous_question_attempts; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.anonymous_question_attempts (
+    id integer NOT NULL,
+    anonymous_user_id character varying NOT NULL,
+    question_id text NOT NULL,
+    question_attempt jsonb NOT NULL,
+    correct boolean,
+    "timestamp" timestamp without time zone NOT NULL
+);
+
+
+ALTER TABLE public.anonymous_question_attempts OWNER TO rutherford;
+
+--
+-- Name: anonymous_question_attempts_id_seq; Type: SEQUENCE; Schema: public; Owner: rutherford
+--
+
+CREATE SEQUENCE public.anonymous_question_attempts_id_seq
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+
+ALTER TABLE public.anonymous_question_attempts_id_seq OWNER TO rutherford;
+
+--
+-- Name: anonymous_question_attempts_id_seq; Type: SEQUENCE OWNED BY; Schema: public; Owner: rutherford
+--
+
+ALTER SEQUENCE public.anonymous_question_attempts_id_seq OWNED BY public.anonymous_question_attempts.id;
+
+
 --
 -- Name: assignments; Type: TABLE; Schema: public; Owner: rutherford
 --
@@ -288,12 +333,22 @@ CREATE TABLE public.logged_events (
     event_details_type text,
     event_details jsonb,
     ip_address inet,
-    "timestamp" timestamp without time zone
-);
+    "timestamp" timestamp without time zone NOT NULL
+)
+PARTITION BY RANGE ("timestamp");
 
 
 ALTER TABLE public.logged_events OWNER TO rutherford;
 
+--
+-- Name: logged_events_default; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.logged_events_default PARTITION OF public.logged_events DEFAULT;
+
+
+ALTER TABLE public.logged_events_default OWNER TO rutherford;
+
 --
 -- Name: logged_events_id_seq; Type: SEQUENCE; Schema: public; Owner: rutherford
 --
@@ -315,6 +370,34 @@ ALTER TABLE public.logged_events_id_seq OWNER TO rutherford;
 ALTER SEQUENCE public.logged_events_id_seq OWNED BY public.logged_events.id;
 
 
+--
+-- Name: logged_events_daily_counts; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.logged_events_daily_counts (
+    event_type character varying(255) NOT NULL,
+    day date NOT NULL,
+    user_id character varying(100) NOT NULL,
+    event_count bigint NOT NULL
+);
+
+
+ALTER TABLE public.logged_events_daily_counts OWNER TO rutherford;
+
+--
+-- Name: logged_events_daily_counts_state; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.logged_events_daily_counts_state (
+    id boolean DEFAULT true NOT NULL,
+    rolled_up_to date NOT NULL,
+    CONSTRAINT logged_events_daily_counts_state_single_row CHECK (id)
+);
+
+
+ALTER TABLE public.logged_events_daily_counts_state OWNER TO rutherford;
+
+
 --
 -- Name: question_attempts; Type: TABLE; Schema: public; Owner: rutherford
 --
@@ -325,12 +408,22 @@ CREATE TABLE public.question_attempts (
     question_id text NOT NULL,
     question_attempt jsonb,
     correct boolean,
-    "timestamp" timestamp without time zone
-);
+    "timestamp" timestamp without time zone NOT NULL
+)
+PARTITION BY RANGE ("timestamp");
 
 
 ALTER TABLE public.question_attempts OWNER TO rutherford;
 
+--
+-- Name: question_attempts_default; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.question_attempts_default PARTITION OF public.question_attempts DEFAULT;
+
+
+ALTER TABLE public.question_attempts_default OWNER TO rutherford;
+
 --
 -- Name: question_attempts_id_seq; Type: SEQUENCE; Schema: public; Owner: rutherford
 --
@@ -664,6 +757,39 @@ CREATE TABLE public.user_streak_freezes (
 
 ALTER TABLE public.user_streak_freezes OWNER TO rutherford;
 
+--
+-- Name: user_streak_counted_parts; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.user_streak_counted_parts (
+    user_id bigint NOT NULL,
+    question_id text NOT NULL
+);
+
+
+ALTER TABLE public.user_streak_counted_parts OWNER TO rutherford;
+
+--
+-- Name: user_streak_state; Type: TABLE; Schema: public; Owner: rutherford
+--
+
+CREATE TABLE public.user_streak_state (
+    user_id bigint NOT NULL,
+    current_day date,
+    current_day_count integer DEFAULT 0 NOT NULL,
+    daily_streak integer DEFAULT 0 NOT NULL,
+    daily_streak_end_date date,
+    longest_daily_streak integer DEFAULT 0 NOT NULL,
+    current_week date,
+    current_week_count integer DEFAULT 0 NOT NULL,
+    weekly_streak integer DEFAULT 0 NOT NULL,
+    weekly_streak_end_date date,
+    longest_weekly_streak integer DEFAULT 0 NOT NULL
+);
+
+
+ALTER TABLE public.user_streak_state OWNER TO rutherford;
+
 --
 -- Name: user_streak_targets; Type: TABLE; Schema: public; Owner: rutherford
 --
@@ -744,6 +870,13 @@ ALTER TABLE public.users_id_seq OWNER TO rutherford;
 ALTER SEQUENCE public.users_id_seq OWNED BY public.users.id;
 
 
+--
+-- Name: anonymous_question_attempts id; Type: DEFAULT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.anonymous_question_attempts ALTER COLUMN id SET DEFAULT nextval('public.anonymous_question_attempts_id_seq'::regclass);
+
+
 --
 -- Name: assignments id; Type: DEFAULT; Schema: public; Owner: rutherford
 --
@@ -814,6 +947,14 @@ ALTER TABLE ONLY public.quiz_question_attempts ALTER COLUMN id SET DEFAULT nextv
 ALTER TABLE ONLY public.users ALTER COLUMN id SET DEFAULT nextval('public.users_id_seq'::regclass);
 
 
+--
+-- Name: anonymous_question_attempts anonymous_question_attempts_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.anonymous_question_attempts
+    ADD CONSTRAINT anonymous_question_attempts_pkey PRIMARY KEY (id);
+
+
 --
 -- Name: users User Id; Type: CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -887,11 +1028,27 @@ ALTER TABLE ONLY public.groups
 
 
 --
--- Name: logged_events id pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
+-- Name: logged_events logged_events_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
 --
 
-ALTER TABLE ONLY public.logged_events
-    ADD CONSTRAINT "id pkey" PRIMARY KEY (id);
+ALTER TABLE public.logged_events
+    ADD CONSTRAINT logged_events_pkey PRIMARY KEY (id, "timestamp");
+
+
+--
+-- Name: logged_events_daily_counts logged_events_daily_counts_pk; Type: CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.logged_events_daily_counts
+    ADD CONSTRAINT logged_events_daily_counts_pk PRIMARY KEY (event_type, day, user_id);
+
+
+--
+-- Name: logged_events_daily_counts_state logged_events_daily_counts_state_pk; Type: CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.logged_events_daily_counts_state
+    ADD CONSTRAINT logged_events_daily_counts_state_pk PRIMARY KEY (id);
 
 
 --
@@ -927,11 +1084,11 @@ ALTER TABLE ONLY public.linked_accounts
 
 
 --
--- Name: question_attempts question_attempts_id; Type: CONSTRAINT; Schema: public; Owner: rutherford
+-- Name: question_attempts question_attempts_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
 --
 
-ALTER TABLE ONLY public.question_attempts
-    ADD CONSTRAINT question_attempts_id PRIMARY KEY (id);
+ALTER TABLE public.question_attempts
+    ADD CONSTRAINT question_attempts_pkey PRIMARY KEY (id, "timestamp");
 
 
 --
@@ -1054,6 +1211,14 @@ ALTER TABLE ONLY public.user_preferences
     ADD CONSTRAINT user_id_preference_type_name_pk PRIMARY KEY (user_id, preference_type, preference_name);
 
 
+--
+-- Name: user_streak_counted_parts user_streak_counted_parts_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.user_streak_counted_parts
+    ADD CONSTRAINT user_streak_counted_parts_pkey PRIMARY KEY (user_id, question_id);
+
+
 --
 -- Name: user_streak_freezes user_streak_freeze_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -1062,6 +1227,14 @@ ALTER TABLE ONLY public.user_streak_freezes
     ADD CONSTRAINT user_streak_freeze_pkey PRIMARY KEY (user_id, start_date);
 
 
+--
+-- Name: user_streak_state user_streak_state_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.user_streak_state
+    ADD CONSTRAINT user_streak_state_pkey PRIMARY KEY (user_id);
+
+
 --
 -- Name: user_streak_targets user_streak_targets_pkey; Type: CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -1070,6 +1243,13 @@ ALTER TABLE ONLY public.user_streak_targets
     ADD CONSTRAINT user_streak_targets_pkey PRIMARY KEY (user_id, start_date);
 
 
+--
+-- Name: anonymous_question_attempts_by_user; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX anonymous_question_attempts_by_user ON public.anonymous_question_attempts USING btree (anonymous_user_id, id);
+
+
 --
 -- Name: assignments_by_id; Type: INDEX; Schema: public; Owner: rutherford
 --
@@ -1161,6 +1341,13 @@ CREATE INDEX log_events_user_id ON public.logged_events USING btree (user_id);
 CREATE INDEX logged_events_type_timestamp ON public.logged_events USING btree (event_type, "timestamp");
 
 
+--
+-- Name: logged_events_daily_counts_user_id; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX logged_events_daily_counts_user_id ON public.logged_events_daily_counts USING btree (user_id);
+
+
 --
 -- Name: only_one_attempt_per_assignment_per_user; Type: INDEX; Schema: public; Owner: rutherford
 --
@@ -1197,10 +1384,10 @@ CREATE INDEX quiz_attempts_index_by_quiz_id_and_user_id ON public.quiz_attempts
 
 
 --
--- Name: quiz_question_attempts_by_quiz_attempt_id; Type: INDEX; Schema: public; Owner: rutherford
+-- Name: quiz_question_attempts_by_quiz_attempt_id_question_id_timestamp; Type: INDEX; Schema: public; Owner: rutherford
 --
 
-CREATE INDEX quiz_question_attempts_by_quiz_attempt_id ON public.quiz_question_attempts USING btree (quiz_attempt_id);
+CREATE INDEX quiz_question_attempts_by_quiz_attempt_id_question_id_timestamp ON public.quiz_question_attempts USING btree (quiz_attempt_id, question_id, "timestamp" DESC);
 
 
 --
@@ -1266,6 +1453,56 @@ CREATE INDEX user_streak_targets_by_user_id ON public.user_streak_targets USING
 CREATE INDEX users_id_role ON public.users USING btree (id, role);
 
 
+--
+-- Name: users_by_name_id; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_by_name_id ON public.users USING btree (COALESCE(family_name, ''::text), COALESCE(given_name, ''::text), id) WHERE (NOT deleted);
+
+
+--
+-- Name: users_email_trgm; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_email_trgm ON public.users USING gin (email public.gin_trgm_ops);
+
+
+--
+-- Name: users_family_name_trgm; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_family_name_trgm ON public.users USING gin (family_name public.gin_trgm_ops);
+
+
+--
+-- Name: users_given_name_trgm; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_given_name_trgm ON public.users USING gin (given_name public.gin_trgm_ops);
+
+
+--
+-- Name: users_school_id_trgm; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_school_id_trgm ON public.users USING gin (school_id public.gin_trgm_ops);
+
+
+--
+-- Name: users_school_other_trgm; Type: INDEX; Schema: public; Owner: rutherford
+--
+
+CREATE INDEX users_school_other_trgm ON public.users USING gin (school_other public.gin_trgm_ops);
+
+
+--
+-- Name: anonymous_question_attempts anonymous_question_attempts_user_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.anonymous_question_attempts
+    ADD CONSTRAINT anonymous_question_attempts_user_fkey FOREIGN KEY (anonymous_user_id) REFERENCES public.temporary_user_store(id) ON DELETE CASCADE;
+
+
 --
 -- Name: assignments assignment_group_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -1454,7 +1691,7 @@ ALTER TABLE ONLY public.user_totp
 -- Name: question_attempts user_id_question_attempts_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
 --
 
-ALTER TABLE ONLY public.question_attempts
+ALTER TABLE public.question_attempts
     ADD CONSTRAINT user_id_question_attempts_fkey FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE;
 
 
@@ -1482,6 +1719,14 @@ ALTER TABLE ONLY public.user_associations
     ADD CONSTRAINT user_receiving_permissions_key FOREIGN KEY (user_id_receiving_permission) REFERENCES public.users(id) ON DELETE CASCADE;
 
 
+--
+-- Name: user_streak_counted_parts user_streak_counted_parts_user_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.user_streak_counted_parts
+    ADD CONSTRAINT user_streak_counted_parts_user_id_fkey FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE;
+
+
 --
 -- Name: user_streak_freezes user_streak_freezes_user_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -1490,6 +1735,14 @@ ALTER TABLE ONLY public.user_streak_freezes
     ADD CONSTRAINT user_streak_freezes_user_id_fkey FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE;
 
 
+--
+-- Name: user_streak_state user_streak_state_user_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
+--
+
+ALTER TABLE ONLY public.user_streak_state
+    ADD CONSTRAINT user_streak_state_user_id_fkey FOREIGN KEY (user_id) REFERENCES public.users(id) ON DELETE CASCADE;
+
+
 --
 -- Name: user_streak_targets user_streak_targets_user_id_fkey; Type: FK CONSTRAINT; Schema: public; Owner: rutherford
 --
@@ -2,7 +2,7 @@
 -- Merge and Delete Users
 --
 -- Authors: Stephen Cummins, James Sharkey
--- Last Modified: 2020-08-12
+-- Last Modified: 2022-10-19
 --
 
 CREATE OR REPLACE FUNCTION mergeuser(targetuseridtokeep bigint, targetuseridtodelete bigint) RETURNS boolean
@@ -58,6 +58,16 @@ BEGIN
   SET user_id = targetUserIdToKeep::varchar(255)
   WHERE user_id = targetUserIdToDelete::varchar(255);
 
+  INSERT INTO logged_events_daily_counts(event_type, day, user_id, event_count)
+  SELECT event_type, day, targetUserIdToKeep::varchar(255), event_count
+  FROM logged_events_daily_counts
+  WHERE user_id = targetUserIdToDelete::varchar(255)
+  ON CONFLICT (event_type, day, user_id) DO UPDATE
+  SET event_count = logged_events_daily_counts.event_count + EXCLUDED.event_count;
+
+  DELETE FROM logged_events_daily_counts
+  WHERE user_id = targetUserIdToDelete::varchar(255);
+
   UPDATE question_attempts
   SET user_id = targetUserIdToKeep
   WHERE user_id = targetUserIdToDelete;
@@ -125,6 +135,9 @@ BEGIN
     -- Ignore duplicate inserts.
   END;
 
+  -- The stored streaks of the user being deleted are removed with them, so recalculate the merged user's streaks:
+  PERFORM user_streaks_rebuild_state(targetUserIdToKeep);
+
   DELETE FROM users
   WHERE id = targetUserIdToDelete;
 
@@ -476,3 +489,236 @@ END
 $$;
 
 ALTER FUNCTION user_streaks_weekly_current_progress(BIGINT, INTEGER) OWNER TO rutherford;
+
+
+--
+-- Check whether every day (or week) in a range is covered by a streak freeze
+--
+-- An empty range, where lastdate is before firstdate, is considered frozen.
+--
+
+CREATE OR REPLACE FUNCTION user_streaks_frozen_between(useridofinterest BIGINT, firstdate DATE, lastdate DATE, weekly BOOLEAN DEFAULT FALSE)
+    RETURNS BOOLEAN
+    LANGUAGE sql
+    STABLE
+AS
+$$
+    SELECT NOT EXISTS (
+        SELECT 1
+        FROM generate_series(firstdate, lastdate, CASE WHEN weekly THEN INTERVAL '7 DAY' ELSE INTERVAL '1 DAY' END) AS period
+        WHERE NOT EXISTS (
+            SELECT 1
+            FROM user_streak_freezes
+            WHERE user_id=useridofinterest
+              AND CASE WHEN weekly THEN date_trunc('WEEK', start_date) ELSE start_date END <= period
+              AND CASE WHEN weekly THEN date_trunc('WEEK', COALESCE(end_date, CURRENT_DATE)) ELSE COALESCE(end_date, CURRENT_DATE) END >= period
+        )
+    );
+$$;
+
+ALTER FUNCTION user_streaks_frozen_between(BIGINT, DATE, DATE, BOOLEAN) OWNER TO rutherford;
+
+
+--
+-- Rebuild the Stored Streak State of a User from their Question Attempts
+--
+-- Needed after a user's attempts are merged, or after their streak freezes or targets are edited (which the triggers
+-- below take care of), since user_streaks_record_correct_attempt only ever moves the stored state forwards.
+--
+
+CREATE OR REPLACE FUNCTION user_streaks_rebuild_state(useridofinterest BIGINT, defaultquestionsperday INTEGER DEFAULT 3, defaultquestionsperweek INTEGER DEFAULT 10)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    -- Hold the state row while it is recalculated, so that no correct attempt can be recorded in the meantime:
+    INSERT INTO user_streak_state (user_id) VALUES (useridofinterest) ON CONFLICT (user_id) DO NOTHING;
+    PERFORM 1 FROM user_streak_state WHERE user_id=useridofinterest FOR UPDATE;
+
+    INSERT INTO user_streak_counted_parts (user_id, question_id)
+    SELECT DISTINCT user_id, question_id FROM question_attempts WHERE user_id=useridofinterest AND correct
+    ON CONFLICT (user_id, question_id) DO NOTHING;
+
+    WITH
+        daily_streaks AS (
+            SELECT * FROM user_streaks(useridofinterest, defaultquestionsperday)
+        ),
+
+        weekly_streaks AS (
+            SELECT * FROM user_streaks_weekly(useridofinterest, defaultquestionsperweek)
+        ),
+
+        -- The latest streak which has started, which may or may not still be current:
+        latest_daily_streak AS (
+            SELECT streaklength, enddate FROM daily_streaks
+            WHERE startdate <= CURRENT_DATE
+            ORDER BY enddate DESC LIMIT 1
+        ),
+
+        latest_weekly_streak AS (
+            SELECT streaklength, enddate FROM weekly_streaks
+            WHERE startdate <= date_trunc('WEEK', CURRENT_DATE)
+            ORDER BY enddate DESC LIMIT 1
+        )
+
+    INSERT INTO user_streak_state (user_id, current_day, current_day_count, daily_streak, daily_streak_end_date,
+                                   longest_daily_streak, current_week, current_week_count, weekly_streak,
+                                   weekly_streak_end_date, longest_weekly_streak)
+    SELECT
+        useridofinterest,
+        daily_progress.currentdate,
+        daily_progress.currentprogress,
+        COALESCE((SELECT streaklength FROM latest_daily_streak), 0),
+        (SELECT enddate FROM latest_daily_streak),
+        COALESCE((SELECT MAX(streaklength) FROM daily_streaks), 0),
+        weekly_progress.currentweek,
+        weekly_progress.currentprogress,
+        COALESCE((SELECT streaklength FROM latest_weekly_streak), 0),
+        (SELECT enddate FROM latest_weekly_streak),
+        COALESCE((SELECT MAX(streaklength) FROM weekly_streaks), 0)
+    FROM user_streaks_current_progress(useridofinterest, defaultquestionsperday) AS daily_progress,
+         user_streaks_weekly_current_progress(useridofinterest, defaultquestionsperweek) AS weekly_progress
+    ON CONFLICT (user_id) DO UPDATE SET
+        current_day = EXCLUDED.current_day,
+        current_day_count = EXCLUDED.current_day_count,
+        daily_streak = EXCLUDED.daily_streak,
+        daily_streak_end_date = EXCLUDED.daily_streak_end_date,
+        longest_daily_streak = EXCLUDED.longest_daily_streak,
+        current_week = EXCLUDED.current_week,
+        current_week_count = EXCLUDED.current_week_count,
+        weekly_streak = EXCLUDED.weekly_streak,
+        weekly_streak_end_date = EXCLUDED.weekly_streak_end_date,
+        longest_weekly_streak = EXCLUDED.longest_weekly_streak;
+END
+$$;
+
+ALTER FUNCTION user_streaks_rebuild_state(BIGINT, INTEGER, INTEGER) OWNER TO rutherford;
+
+CREATE OR REPLACE FUNCTION user_streaks_rebuild_state_after_edit()
+    RETURNS TRIGGER
+    LANGUAGE plpgsql
+AS
+$$
+BEGIN
+    -- The user may be in the middle of being deleted, in which case there is no state left to rebuild:
+    IF TG_OP <> 'INSERT' AND EXISTS (SELECT 1 FROM users WHERE id=OLD.user_id) THEN
+        PERFORM user_streaks_rebuild_state(OLD.user_id);
+    END IF;
+    IF TG_OP = 'INSERT' THEN
+        PERFORM user_streaks_rebuild_state(NEW.user_id);
+    ELSIF TG_OP = 'UPDATE' THEN
+        IF NEW.user_id <> OLD.user_id THEN
+            PERFORM user_streaks_rebuild_state(NEW.user_id);
+        END IF;
+    END IF;
+    RETURN NULL;
+END
+$$;
+
+ALTER FUNCTION user_streaks_rebuild_state_after_edit() OWNER TO rutherford;
+
+DROP TRIGGER IF EXISTS user_streak_freezes_rebuild_state ON user_streak_freezes;
+CREATE TRIGGER user_streak_freezes_rebuild_state
+    AFTER INSERT OR UPDATE OR DELETE ON user_streak_freezes
+    FOR EACH ROW EXECUTE PROCEDURE user_streaks_rebuild_state_after_edit();
+
+DROP TRIGGER IF EXISTS user_streak_targets_rebuild_state ON user_streak_targets;
+CREATE TRIGGER user_streak_targets_rebuild_state
+    AFTER INSERT OR UPDATE OR DELETE ON user_streak_targets
+    FOR EACH ROW EXECUTE PROCEDURE user_streaks_rebuild_state_after_edit();
+
+
+--
+-- Update the Stored Streak State of a User after a Correct Question Attempt
+--
+-- This must be called after the attempt has been recorded in question_attempts. Only the first correct attempt at
+-- each question part counts, exactly as in user_streaks, and a day (or week) joins the streak at the moment its
+-- target is reached. Only the stored state is read, so the cost does not grow with the user's history.
+--
+-- Whether a part has been counted is decided by user_streak_counted_parts rather than by counting correct attempts,
+-- since two correct attempts at a part made at once have both been recorded before either is counted.
+--
+
+CREATE OR REPLACE FUNCTION user_streaks_record_correct_attempt(useridofinterest BIGINT, questionid TEXT, defaultquestionsperday INTEGER DEFAULT 3, defaultquestionsperweek INTEGER DEFAULT 10)
+    RETURNS VOID
+    LANGUAGE plpgsql
+AS
+$$
+DECLARE
+    today DATE := CURRENT_DATE;
+    this_week DATE := date_trunc('WEEK', CURRENT_DATE)::DATE;
+    daily_target INTEGER;
+    weekly_target INTEGER;
+    state user_streak_state%ROWTYPE;
+BEGIN
+    INSERT INTO user_streak_counted_parts (user_id, question_id) VALUES (useridofinterest, questionid)
+    ON CONFLICT (user_id, question_id) DO NOTHING;
+    IF NOT FOUND THEN
+        RETURN;
+    END IF;
+
+    INSERT INTO user_streak_state (user_id) VALUES (useridofinterest) ON CONFLICT (user_id) DO NOTHING;
+    SELECT * INTO state FROM user_streak_state WHERE user_id=useridofinterest FOR UPDATE;
+
+    SELECT COALESCE(MIN(target_count), defaultquestionsperday) INTO daily_target
+    FROM user_streak_targets
+    WHERE user_id=useridofinterest AND start_date <= today AND COALESCE(end_date, today) >= today;
+
+    SELECT COALESCE(MIN(target_count), defaultquestionsperweek) INTO weekly_target
+    FROM user_streak_targets
+    WHERE user_id=useridofinterest AND date_trunc('WEEK', start_date) <= this_week
+      AND date_trunc('WEEK', COALESCE(end_date, today)) >= this_week;
+
+    -- Daily streak:
+    IF state.current_day IS DISTINCT FROM today THEN
+        state.current_day := today;
+        state.current_day_count := 0;
+    END IF;
+    state.current_day_count := state.current_day_count + 1;
+
+    IF state.current_day_count = daily_target THEN
+        IF state.daily_streak_end_date IS NOT NULL AND (state.daily_streak_end_date >= today - 1
+                OR user_streaks_frozen_between(useridofinterest, state.daily_streak_end_date + 1, today - 1)) THEN
+            state.daily_streak := state.daily_streak + 1;
+        ELSE
+            state.daily_streak := 1;
+        END IF;
+        state.daily_streak_end_date := GREATEST(state.daily_streak_end_date, today);
+        state.longest_daily_streak := GREATEST(state.longest_daily_streak, state.daily_streak);
+    END IF;
+
+    -- Weekly streak:
+    IF state.current_week IS DISTINCT FROM this_week THEN
+        state.current_week := this_week;
+        state.current_week_count := 0;
+    END IF;
+    state.current_week_count := state.current_week_count + 1;
+
+    IF state.current_week_count = weekly_target THEN
+        IF state.weekly_streak_end_date IS NOT NULL AND (state.weekly_streak_end_date >= this_week - 7
+                OR user_streaks_frozen_between(useridofinterest, state.weekly_streak_end_date + 7, this_week - 7, TRUE)) THEN
+            state.weekly_streak := state.weekly_streak + 1;
+        ELSE
+            state.weekly_streak := 1;
+        END IF;
+        state.weekly_streak_end_date := GREATEST(state.weekly_streak_end_date, this_week);
+        state.longest_weekly_streak := GREATEST(state.longest_weekly_streak, state.weekly_streak);
+    END IF;
+
+    UPDATE user_streak_state SET
+        current_day = state.current_day,
+        current_day_count = state.current_day_count,
+        daily_streak = state.daily_streak,
+        daily_streak_end_date = state.daily_streak_end_date,
+        longest_daily_streak = state.longest_daily_streak,
+        current_week = state.current_week,
+        current_week_count = state.current_week_count,
+        weekly_streak = state.weekly_streak,
+        weekly_streak_end_date = state.weekly_streak_end_date,
+        longest_weekly_streak = state.longest_weekly_streak
+    WHERE user_id=useridofinterest;
+END
+$$;
+
+ALTER FUNCTION user_streaks_record_correct_attempt(BIGINT, TEXT, INTEGER, INTEGER) OWNER TO rutherford;
@@ -0,0 +1,13 @@
+/* Roll up every complete day since the last run into logged_events_daily_counts */
+
+INSERT INTO logged_events_daily_counts(event_type, day, user_id, event_count)
+SELECT event_type, "timestamp"::date, user_id, count(*)
+FROM logged_events
+WHERE event_type IS NOT NULL
+  AND "timestamp" >= COALESCE((SELECT rolled_up_to + 1 FROM logged_events_daily_counts_state), '-infinity'::date)
+  AND "timestamp" < CURRENT_DATE
+GROUP BY event_type, "timestamp"::date, user_id
+ON CONFLICT (event_type, day, user_id) DO UPDATE SET event_count = EXCLUDED.event_count;
+
+INSERT INTO logged_events_daily_counts_state(id, rolled_up_to) VALUES (TRUE, CURRENT_DATE - 1)
+ON CONFLICT (id) DO UPDATE SET rolled_up_to = EXCLUDED.rolled_up_to;
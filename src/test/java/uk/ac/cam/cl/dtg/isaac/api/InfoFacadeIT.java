@@ -4,6 +4,7 @@ import com.google.common.collect.ImmutableMap;
 import org.junit.Before;
 import org.junit.Test;
 import uk.ac.cam.cl.dtg.segue.api.InfoFacade;
+import uk.ac.cam.cl.dtg.segue.api.services.ContentWarmUpService;
 import uk.ac.cam.cl.dtg.segue.scheduler.SegueJobService;
 
 import jakarta.ws.rs.core.Request;
@@ -22,7 +23,8 @@ public class InfoFacadeIT extends IsaacIntegrationTest {
     @Before
     public void setUp() throws RuntimeException, IOException {
         SegueJobService segueJobService = createNiceMock(SegueJobService.class); // new SegueJobService(new ArrayList<>(), postgresSqlDb);
-        infoFacade = new InfoFacade(properties, contentManager, segueJobService, logManager);
+        ContentWarmUpService contentWarmUpService = createNiceMock(ContentWarmUpService.class);
+        infoFacade = new InfoFacade(properties, contentManager, segueJobService, contentWarmUpService, logManager);
     }
 
     @Test
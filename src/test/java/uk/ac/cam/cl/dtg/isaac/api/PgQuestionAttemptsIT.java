@@ -0,0 +1,86 @@
+package uk.ac.cam.cl.dtg.isaac.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.reflections.Reflections;
+import uk.ac.cam.cl.dtg.isaac.dos.PgUserStreakManager;
+import uk.ac.cam.cl.dtg.isaac.dos.QuestionValidationResponse;
+import uk.ac.cam.cl.dtg.isaac.dos.content.Choice;
+import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.PgQuestionAttempts;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Date;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration tests for the PgQuestionAttempts class.
+ */
+public class PgQuestionAttemptsIT extends IsaacIntegrationTest {
+    private static final String TEST_ANONYMOUS_USER_ID = "question-attempts-test-anonymous-user";
+    private static final String TEST_QUESTION_PAGE_ID = "merge_test_question";
+
+    private PgQuestionAttempts questionAttempts;
+    private PgUserStreakManager userStreakManager;
+    private RegisteredUserDTO student;
+
+    @Before
+    public void setUp() throws SQLException {
+        questionAttempts = new PgQuestionAttempts(postgresSqlDb, new ContentMapper(new Reflections("uk.ac.cam.cl.dtg")));
+        userStreakManager = new PgUserStreakManager(postgresSqlDb);
+        student = new RegisteredUserDTO();
+        student.setId(ITConstants.TEST_STUDENT_ID);
+
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO temporary_user_store (id) VALUES (?)")) {
+            pst.setString(1, TEST_ANONYMOUS_USER_ID);
+            pst.executeUpdate();
+        }
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection()) {
+            try (PreparedStatement pst = conn.prepareStatement("DELETE FROM temporary_user_store WHERE id = ?")) {
+                pst.setString(1, TEST_ANONYMOUS_USER_ID);
+                pst.executeUpdate();
+            }
+            for (String table : new String[]{"question_attempts", "user_streak_counted_parts", "user_streak_state"}) {
+                try (PreparedStatement pst = conn.prepareStatement("DELETE FROM " + table + " WHERE user_id = ?")) {
+                    pst.setLong(1, ITConstants.TEST_STUDENT_ID);
+                    pst.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void mergeAnonymousQuestionInformationWithRegisteredUserRecord_correctAnonymousAttempts_attemptsAndStreaksMerged()
+            throws Exception {
+        String firstPartId = TEST_QUESTION_PAGE_ID + "|part1";
+        String secondPartId = TEST_QUESTION_PAGE_ID + "|part2";
+        questionAttempts.registerAnonymousQuestionAttempt(TEST_ANONYMOUS_USER_ID, TEST_QUESTION_PAGE_ID, firstPartId,
+                new QuestionValidationResponse(firstPartId, new Choice(), true, null, new Date()));
+        questionAttempts.registerAnonymousQuestionAttempt(TEST_ANONYMOUS_USER_ID, TEST_QUESTION_PAGE_ID, firstPartId,
+                new QuestionValidationResponse(firstPartId, new Choice(), true, null, new Date()));
+        questionAttempts.registerAnonymousQuestionAttempt(TEST_ANONYMOUS_USER_ID, TEST_QUESTION_PAGE_ID, secondPartId,
+                new QuestionValidationResponse(secondPartId, new Choice(), false, null, new Date()));
+
+        questionAttempts.mergeAnonymousQuestionInformationWithRegisteredUserRecord(TEST_ANONYMOUS_USER_ID,
+                ITConstants.TEST_STUDENT_ID);
+
+        assertEquals(2, questionAttempts.getQuestionAttempts(ITConstants.TEST_STUDENT_ID)
+                .get(TEST_QUESTION_PAGE_ID).get(firstPartId).size());
+        assertTrue(questionAttempts.getQuestionAttempts(ITConstants.TEST_STUDENT_ID)
+                .get(TEST_QUESTION_PAGE_ID).containsKey(secondPartId));
+        // Only the first correct attempt at a part counts towards a streak:
+        assertEquals(1, userStreakManager.getCurrentStreakRecord(student).get("currentActivity"));
+        assertEquals(1, userStreakManager.getCurrentWeeklyStreakRecord(student).get("currentActivity"));
+    }
+}
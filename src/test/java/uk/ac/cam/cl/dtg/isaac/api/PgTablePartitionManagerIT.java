@@ -0,0 +1,121 @@
+package uk.ac.cam.cl.dtg.isaac.api;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import uk.ac.cam.cl.dtg.segue.dao.PgTablePartitionManager;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Integration tests for the PgTablePartitionManager class.
+ */
+public class PgTablePartitionManagerIT extends IsaacIntegrationTest {
+    private static final String DETACHED_PARTITION = "logged_events_p2000_01";
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private PgTablePartitionManager partitionManager;
+
+    @Before
+    public void setUp() {
+        partitionManager = new PgTablePartitionManager(postgresSqlDb);
+    }
+
+    @Test
+    public void createMonthlyPartitionsUntil_rowsInDefaultPartition_rowsMovedToNewPartition() throws Exception {
+        LocalDate today = LocalDate.now();
+        String partitionName = String.format("logged_events_p%d_%02d", today.getYear(), today.getMonthValue());
+        long eventId = this.insertLoggedEvent(LocalDateTime.now());
+
+        partitionManager.createMonthlyPartitionsUntil(PgTablePartitionManager.LOGGED_EVENTS_TABLE, today.plusMonths(1));
+
+        List<String> partitionNames = partitionManager.getPartitions(PgTablePartitionManager.LOGGED_EVENTS_TABLE)
+                .stream().map(PgTablePartitionManager.TablePartition::getName).collect(Collectors.toList());
+        assertTrue(partitionNames.contains(partitionName));
+        assertEquals(1, this.countRows(partitionName, eventId));
+        assertEquals(0, this.countRows("logged_events_default", eventId));
+        // Running again creates nothing new:
+        assertTrue(partitionManager.createMonthlyPartitionsUntil(PgTablePartitionManager.LOGGED_EVENTS_TABLE,
+                today.plusMonths(1)).isEmpty());
+    }
+
+    @Test
+    public void getDetachedPartitions_partitionLeftDetachedByEarlierRun_foundAndArchived() throws Exception {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             Statement st = conn.createStatement()) {
+            st.execute(String.format("CREATE TABLE %s (LIKE logged_events INCLUDING DEFAULTS)", DETACHED_PARTITION));
+            st.execute(String.format("INSERT INTO %s (user_id, anonymous_user, event_type, \"timestamp\")"
+                    + " VALUES ('1', false, 'PARTITION_TEST', '2000-01-15')", DETACHED_PARTITION));
+        }
+
+        List<String> detachedPartitions =
+                partitionManager.getDetachedPartitions(PgTablePartitionManager.LOGGED_EVENTS_TABLE);
+        assertEquals(List.of(DETACHED_PARTITION), detachedPartitions);
+
+        Path archive = partitionManager.archiveAndDropTable(DETACHED_PARTITION, temporaryFolder.getRoot().toPath());
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(archive)), StandardCharsets.UTF_8))) {
+            List<String> lines = reader.lines().collect(Collectors.toList());
+            assertEquals(2, lines.size());
+            assertTrue(lines.get(1).contains("PARTITION_TEST"));
+        }
+        assertFalse(partitionManager.getDetachedPartitions(PgTablePartitionManager.LOGGED_EVENTS_TABLE)
+                .contains(DETACHED_PARTITION));
+    }
+
+    /**
+     * @param timestamp - when the event happened.
+     * @return the id of the new event.
+     */
+    private long insertLoggedEvent(final LocalDateTime timestamp) throws SQLException {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO logged_events (user_id, anonymous_user,"
+                     + " event_type, \"timestamp\") VALUES ('1', false, 'PARTITION_TEST', ?) RETURNING id")) {
+            pst.setTimestamp(1, Timestamp.valueOf(timestamp));
+            try (ResultSet results = pst.executeQuery()) {
+                results.next();
+                return results.getLong("id");
+            }
+        }
+    }
+
+    /**
+     * @param table - a partition of logged_events.
+     * @param eventId - the id of an event.
+     * @return how many rows of the partition have the event id.
+     */
+    private long countRows(final String table, final long eventId) throws SQLException {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement(
+                     String.format("SELECT count(*) AS row_count FROM %s WHERE id = ?", table))) {
+            pst.setLong(1, eventId);
+            try (ResultSet results = pst.executeQuery()) {
+                results.next();
+                return results.getLong("row_count");
+            }
+        }
+    }
+}
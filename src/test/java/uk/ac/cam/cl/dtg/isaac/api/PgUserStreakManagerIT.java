@@ -0,0 +1,104 @@
+package uk.ac.cam.cl.dtg.isaac.api;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dos.PgUserStreakManager;
+import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Integration tests for the stored streak state kept up to date by PgUserStreakManager.
+ */
+public class PgUserStreakManagerIT extends IsaacIntegrationTest {
+    private static final String TEST_QUESTION_ID = "streaks_test_question";
+
+    private PgUserStreakManager userStreakManager;
+    private RegisteredUserDTO student;
+
+    @Before
+    public void setUp() {
+        userStreakManager = new PgUserStreakManager(postgresSqlDb);
+        student = new RegisteredUserDTO();
+        student.setId(ITConstants.TEST_STUDENT_ID);
+    }
+
+    @After
+    public void tearDown() throws SQLException {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection()) {
+            for (String table : new String[]{"question_attempts", "user_streak_targets", "user_streak_freezes",
+                    "user_streak_counted_parts", "user_streak_state"}) {
+                try (PreparedStatement pst = conn.prepareStatement("DELETE FROM " + table + " WHERE user_id = ?")) {
+                    pst.setLong(1, ITConstants.TEST_STUDENT_ID);
+                    pst.executeUpdate();
+                }
+            }
+        }
+    }
+
+    @Test
+    public void recordCorrectQuestionAttempt_correctAttemptsAtPartRecordedTogether_countedOnce() throws SQLException {
+        // Both attempts are stored before either is counted, as happens when an answer is submitted twice at once:
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part1");
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part1");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part1");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part1");
+
+        assertEquals(1, userStreakManager.getCurrentStreakRecord(student).get("currentActivity"));
+        assertEquals(1, userStreakManager.getCurrentWeeklyStreakRecord(student).get("currentActivity"));
+    }
+
+    @Test
+    public void recordCorrectQuestionAttempt_partAlreadyAnsweredCorrectly_notCountedAgain() throws SQLException {
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part1");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part1");
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part2");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part2");
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part1");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part1");
+
+        assertEquals(2, userStreakManager.getCurrentStreakRecord(student).get("currentActivity"));
+        assertEquals(0, userStreakManager.getCurrentStreakRecord(student).get("currentStreak"));
+    }
+
+    @Test
+    public void userStreakTargets_targetLoweredAfterAttempts_streakStateRebuilt() throws SQLException {
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part1");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part1");
+        insertCorrectAttempt(TEST_QUESTION_ID + "|part2");
+        userStreakManager.recordCorrectQuestionAttempt(student, TEST_QUESTION_ID + "|part2");
+        assertEquals(0, userStreakManager.getCurrentStreakRecord(student).get("currentStreak"));
+
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO user_streak_targets (user_id, target_count,"
+                     + " start_date) VALUES (?, 2, CURRENT_DATE)")) {
+            pst.setLong(1, ITConstants.TEST_STUDENT_ID);
+            pst.executeUpdate();
+        }
+
+        assertEquals(1, userStreakManager.getCurrentStreakRecord(student).get("currentStreak"));
+        assertEquals(1, userStreakManager.getLongestStreak(student));
+    }
+
+    /**
+     * Store a correct attempt by the test student, made now.
+     *
+     * @param questionPartId - the question part answered.
+     */
+    private void insertCorrectAttempt(final String questionPartId) throws SQLException {
+        try (Connection conn = postgresSqlDb.getDatabaseConnection();
+             PreparedStatement pst = conn.prepareStatement("INSERT INTO question_attempts (user_id, question_id,"
+                     + " question_attempt, correct, \"timestamp\") VALUES (?, ?, '{}'::jsonb, true, ?)")) {
+            pst.setLong(1, ITConstants.TEST_STUDENT_ID);
+            pst.setString(2, questionPartId);
+            pst.setTimestamp(3, new Timestamp(System.currentTimeMillis()));
+            pst.executeUpdate();
+        }
+    }
+}
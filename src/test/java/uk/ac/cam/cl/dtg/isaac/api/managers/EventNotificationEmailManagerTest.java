@@ -0,0 +1,203 @@
+package uk.ac.cam.cl.dtg.isaac.api.managers;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dos.eventbookings.BookingStatus;
+import uk.ac.cam.cl.dtg.isaac.dto.IsaacEventPageDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.EmailTemplateDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
+import uk.ac.cam.cl.dtg.segue.comm.EmailManager;
+import uk.ac.cam.cl.dtg.segue.comm.EmailType;
+import uk.ac.cam.cl.dtg.segue.dao.SegueDatabaseException;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+import uk.ac.cam.cl.dtg.util.PropertiesLoader;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the EventNotificationEmailManager class.
+ */
+public class EventNotificationEmailManagerTest {
+    private static final List<BookingStatus> BOOKING_STATUSES = Collections.singletonList(BookingStatus.CONFIRMED);
+
+    private EmailManager dummyEmailManager;
+    private EventBookingManager dummyBookingManager;
+    private UserAccountManager dummyUserAccountManager;
+    private PgScheduledEmailManager dummyScheduledEmailManager;
+    private EmailTemplateDTO emailTemplate;
+    private Object[] mockedObjects;
+
+    /**
+     * Initial configuration of tests.
+     */
+    @Before
+    public final void setUp() {
+        this.dummyEmailManager = createMock(EmailManager.class);
+        this.dummyBookingManager = createMock(EventBookingManager.class);
+        this.dummyUserAccountManager = createMock(UserAccountManager.class);
+        this.dummyScheduledEmailManager = createMock(PgScheduledEmailManager.class);
+        this.emailTemplate = new EmailTemplateDTO();
+        this.mockedObjects = new Object[]{
+                dummyEmailManager, dummyBookingManager, dummyUserAccountManager, dummyScheduledEmailManager
+        };
+    }
+
+    @Test
+    public void sendBookingStatusFilteredEmailsForEvents_moreEventsThanBatchSize_bookingsLoadedOncePerBatch()
+            throws Exception {
+        List<IsaacEventPageDTO> events = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            events.add(event("event" + i));
+        }
+
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(anyObject())).andReturn(Collections.emptySet()).times(4);
+        expect(dummyEmailManager.getEmailTemplateDTO("event_reminder")).andReturn(emailTemplate).once();
+        expect(dummyBookingManager.getBookedUserIdsByEventIds(anyObject(), eq(BOOKING_STATUSES)))
+                .andReturn(Collections.emptyMap()).times(2);
+        expect(dummyUserAccountManager.findUsers(Collections.<Long>emptySet())).andReturn(Collections.emptyList()).times(2);
+        for (IsaacEventPageDTO event : events) {
+            expect(dummyScheduledEmailManager.commitToSchedulingEmail(event.getId() + "@pre")).andReturn(true).once();
+        }
+        replay(mockedObjects);
+
+        buildEventNotificationEmailManager().sendBookingStatusFilteredEmailsForEvents(events, "pre",
+                "event_reminder", BOOKING_STATUSES);
+
+        verify(mockedObjects);
+    }
+
+    @Test
+    public void sendBookingStatusFilteredEmailsForEvents_oneEmailFails_onlySentRecipientCommitted() throws Exception {
+        IsaacEventPageDTO event = event("event1");
+        RegisteredUserDTO firstUser = user(1L);
+        RegisteredUserDTO secondUser = user(2L);
+
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(Collections.singleton("event1@pre")))
+                .andReturn(Collections.emptySet()).once();
+        expect(dummyEmailManager.getEmailTemplateDTO("event_reminder")).andReturn(emailTemplate).once();
+        expect(dummyBookingManager.getBookedUserIdsByEventIds(Collections.singletonList("event1"), BOOKING_STATUSES))
+                .andReturn(ImmutableMap.of("event1", Arrays.asList(1L, 2L))).once();
+        expect(dummyUserAccountManager.findUsers(ImmutableSet.of(1L, 2L)))
+                .andReturn(Arrays.asList(firstUser, secondUser)).once();
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(ImmutableSet.of("event1@pre@1", "event1@pre@2")))
+                .andReturn(Collections.emptySet()).once();
+        dummyEmailManager.sendTemplatedEmailToUser(eq(firstUser), eq(emailTemplate), anyObject(), eq(EmailType.SYSTEM));
+        expectLastCall().once();
+        dummyEmailManager.sendTemplatedEmailToUser(eq(secondUser), eq(emailTemplate), anyObject(), eq(EmailType.SYSTEM));
+        expectLastCall().andThrow(new SegueDatabaseException("Email could not be queued")).once();
+        // Neither the second recipient nor the event is committed to, so both are retried by the next run:
+        expect(dummyScheduledEmailManager.commitToSchedulingEmail("event1@pre@1")).andReturn(true).once();
+        replay(mockedObjects);
+
+        buildEventNotificationEmailManager().sendBookingStatusFilteredEmailsForEvents(
+                Collections.singletonList(event), "pre", "event_reminder", BOOKING_STATUSES);
+
+        verify(mockedObjects);
+    }
+
+    @Test
+    public void sendBookingStatusFilteredEmailsForEvents_recipientAlreadyEmailed_onlyRemainingRecipientEmailed()
+            throws Exception {
+        IsaacEventPageDTO event = event("event1");
+        RegisteredUserDTO firstUser = user(1L);
+        RegisteredUserDTO secondUser = user(2L);
+
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(Collections.singleton("event1@pre")))
+                .andReturn(Collections.emptySet()).once();
+        expect(dummyEmailManager.getEmailTemplateDTO("event_reminder")).andReturn(emailTemplate).once();
+        expect(dummyBookingManager.getBookedUserIdsByEventIds(Collections.singletonList("event1"), BOOKING_STATUSES))
+                .andReturn(ImmutableMap.of("event1", Arrays.asList(1L, 2L))).once();
+        expect(dummyUserAccountManager.findUsers(ImmutableSet.of(1L, 2L)))
+                .andReturn(Arrays.asList(firstUser, secondUser)).once();
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(ImmutableSet.of("event1@pre@1", "event1@pre@2")))
+                .andReturn(Collections.singleton("event1@pre@1")).once();
+        dummyEmailManager.sendTemplatedEmailToUser(eq(secondUser), eq(emailTemplate), anyObject(), eq(EmailType.SYSTEM));
+        expectLastCall().once();
+        expect(dummyScheduledEmailManager.commitToSchedulingEmail("event1@pre@2")).andReturn(true).once();
+        expect(dummyScheduledEmailManager.commitToSchedulingEmail("event1@pre")).andReturn(true).once();
+        replay(mockedObjects);
+
+        buildEventNotificationEmailManager().sendBookingStatusFilteredEmailsForEvents(
+                Collections.singletonList(event), "pre", "event_reminder", BOOKING_STATUSES);
+
+        verify(mockedObjects);
+    }
+
+    @Test
+    public void sendBookingStatusFilteredEmailsForEvents_interruptedWhileSending_sentEmailStillCommitted()
+            throws Exception {
+        IsaacEventPageDTO event = event("event1");
+        RegisteredUserDTO firstUser = user(1L);
+        Thread jobThread = Thread.currentThread();
+        CountDownLatch runStopped = new CountDownLatch(1);
+        CountDownLatch emailCommitted = new CountDownLatch(1);
+
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(Collections.singleton("event1@pre")))
+                .andReturn(Collections.emptySet()).once();
+        expect(dummyEmailManager.getEmailTemplateDTO("event_reminder")).andReturn(emailTemplate).once();
+        expect(dummyBookingManager.getBookedUserIdsByEventIds(Collections.singletonList("event1"), BOOKING_STATUSES))
+                .andReturn(ImmutableMap.of("event1", Collections.singletonList(1L))).once();
+        expect(dummyUserAccountManager.findUsers(Collections.singleton(1L)))
+                .andReturn(Collections.singletonList(firstUser)).once();
+        expect(dummyScheduledEmailManager.getCommittedEmailKeys(Collections.singleton("event1@pre@1")))
+                .andReturn(Collections.emptySet()).once();
+        // The job is interrupted while the email is being sent, and the email is only recorded after it has stopped:
+        dummyEmailManager.sendTemplatedEmailToUser(eq(firstUser), eq(emailTemplate), anyObject(), eq(EmailType.SYSTEM));
+        expectLastCall().andAnswer(() -> {
+            jobThread.interrupt();
+            runStopped.await(10, TimeUnit.SECONDS);
+            return null;
+        }).once();
+        // The event is not committed to, as the run stopped before it knew every email had been sent:
+        expect(dummyScheduledEmailManager.commitToSchedulingEmail("event1@pre@1")).andAnswer(() -> {
+            emailCommitted.countDown();
+            return true;
+        }).once();
+        replay(mockedObjects);
+
+        try {
+            buildEventNotificationEmailManager().sendBookingStatusFilteredEmailsForEvents(
+                    Collections.singletonList(event), "pre", "event_reminder", BOOKING_STATUSES);
+        } finally {
+            runStopped.countDown();
+            assertTrue(Thread.interrupted());
+        }
+
+        assertTrue(emailCommitted.await(10, TimeUnit.SECONDS));
+        verify(mockedObjects);
+    }
+
+    private EventNotificationEmailManager buildEventNotificationEmailManager() {
+        return new EventNotificationEmailManager(createMock(PropertiesLoader.class), createMock(GitContentManager.class),
+                dummyBookingManager, dummyUserAccountManager, dummyEmailManager, dummyScheduledEmailManager);
+    }
+
+    private static IsaacEventPageDTO event(final String id) {
+        IsaacEventPageDTO event = new IsaacEventPageDTO();
+        event.setId(id);
+        return event;
+    }
+
+    private static RegisteredUserDTO user(final Long id) {
+        RegisteredUserDTO user = new RegisteredUserDTO();
+        user.setId(id);
+        return user;
+    }
+}
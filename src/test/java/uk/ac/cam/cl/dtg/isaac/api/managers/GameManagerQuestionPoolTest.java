@@ -0,0 +1,161 @@
+package uk.ac.cam.cl.dtg.isaac.api.managers;
+
+import com.google.common.collect.Lists;
+import ma.glasnost.orika.MapperFacade;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dao.GameboardPersistenceManager;
+import uk.ac.cam.cl.dtg.isaac.dos.IsaacQuestionPage;
+import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
+import uk.ac.cam.cl.dtg.isaac.dto.GameFilter;
+import uk.ac.cam.cl.dtg.isaac.dto.GameboardItem;
+import uk.ac.cam.cl.dtg.isaac.dto.IsaacQuestionPageDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentBaseDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.QuestionDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionAttemptSummary;
+import uk.ac.cam.cl.dtg.isaac.quiz.QuestionIdDictionary;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
+import uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+import uk.ac.cam.cl.dtg.segue.database.GitDb;
+import uk.ac.cam.cl.dtg.segue.search.AbstractFilterInstruction;
+import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+import uk.ac.cam.cl.dtg.segue.search.TermsFilterInstruction;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.anyLong;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.ac.cam.cl.dtg.isaac.api.Constants.GAME_BOARD_TARGET_SIZE;
+
+/**
+ * Test class for the GameManager class choosing gameboard questions from its question pool.
+ *
+ * Unlike GameManagerTest, the content manager is real, searching a mock search provider, so that no final methods
+ * need mocking.
+ */
+public class GameManagerQuestionPoolTest {
+    private static final int MATCHING_QUESTIONS = 12;
+    private static final int COMPLETED_QUESTIONS = 4;
+
+    private ISearchProvider dummySearchProvider;
+    private ContentMapper dummyContentMapper;
+    private GameboardPersistenceManager dummyGameboardPersistenceManager;
+    private GameManager gameManager;
+    private AtomicInteger poolSearches;
+
+    @Before
+    public final void setUp() throws Exception {
+        this.dummySearchProvider = createMock(ISearchProvider.class);
+        this.dummyContentMapper = createMock(ContentMapper.class);
+        this.dummyGameboardPersistenceManager = createMock(GameboardPersistenceManager.class);
+        this.poolSearches = new AtomicInteger();
+
+        GitContentManager contentManager = new GitContentManager(createMock(GitDb.class), dummySearchProvider,
+                dummyContentMapper) {
+            @Override
+            public String getCurrentContentSHA() {
+                return "sha";
+            }
+        };
+        // Load the question pool on the calling thread, so that it is ready as soon as the first request returns.
+        this.gameManager = new GameManager(contentManager, dummyGameboardPersistenceManager,
+                createMock(MapperFacade.class), createMock(QuestionManager.class), "latest", Runnable::run);
+
+        List<Content> matchingQuestionPages = IntStream.range(0, MATCHING_QUESTIONS)
+                .mapToObj(i -> questionPageDO("q" + i)).collect(Collectors.toList());
+        expect(dummyContentMapper.getContentDecoder()).andStubReturn(null);
+        expect(dummySearchProvider.<Content>matchSearch(anyObject(), eq("content"), anyObject(), eq(0), anyInt(),
+                anyObject(), anyObject(), anyObject())).andAnswer(() -> {
+                    poolSearches.incrementAndGet();
+                    return new ResultsWrapper<>(matchingQuestionPages, (long) MATCHING_QUESTIONS);
+                }).once();
+        expect(dummySearchProvider.<Content>randomisedMatchSearch(anyObject(), eq("content"), anyObject(), anyInt(),
+                anyInt(), anyLong(), anyObject(), anyObject())).andStubReturn(new ResultsWrapper<>());
+        expect(dummySearchProvider.<Content>termSearch(anyObject(), eq("content"), anyObject(), anyObject(), eq(0),
+                anyInt(), anyObject(), anyObject())).andStubAnswer(() -> {
+                    @SuppressWarnings("unchecked")
+                    Map<String, AbstractFilterInstruction> filters =
+                            (Map<String, AbstractFilterInstruction>) getCurrentArguments()[6];
+                    List<Content> foundContent = searchedIds(filters).stream()
+                            .map(GameManagerQuestionPoolTest::questionPageDO).collect(Collectors.toList());
+                    return new ResultsWrapper<>(foundContent, (long) foundContent.size());
+                });
+        expect(dummyContentMapper.getDTOByDO(anyObject(Content.class))).andStubAnswer(
+                () -> questionPageDTO(((Content) getCurrentArguments()[0]).getId()));
+        expect(dummyContentMapper.getDTOByDOList(anyObject())).andStubAnswer(() -> {
+            @SuppressWarnings("unchecked")
+            List<Content> contentDOs = (List<Content>) getCurrentArguments()[0];
+            return contentDOs.stream().map(content -> questionPageDTO(content.getId())).collect(Collectors.toList());
+        });
+        expect(dummyGameboardPersistenceManager.convertToGameboardItem(anyObject(), anyObject())).andStubAnswer(() -> {
+            GameboardItem gameboardItem = new GameboardItem();
+            gameboardItem.setId(((ContentDTO) getCurrentArguments()[0]).getId());
+            return gameboardItem;
+        });
+        replay(dummySearchProvider, dummyContentMapper, dummyGameboardPersistenceManager);
+    }
+
+    @Test
+    public void getSelectedGameboardQuestions_poolLoaded_completedQuestionsOnlyUsedToFillBoard() throws Exception {
+        QuestionAttemptSummary attemptSummary = new QuestionAttemptSummary(new QuestionIdDictionary());
+        for (int i = 0; i < COMPLETED_QUESTIONS; i++) {
+            attemptSummary.recordAttempt("q" + i + "|part", true);
+        }
+
+        // The first request for the filter searches as before, while the pool is loaded:
+        assertEquals(Collections.emptyList(),
+                gameManager.getSelectedGameboardQuestions(new GameFilter(), attemptSummary));
+
+        for (int i = 0; i < 5; i++) {
+            Set<String> chosenIds = gameManager.getSelectedGameboardQuestions(new GameFilter(), attemptSummary)
+                    .stream().map(GameboardItem::getId).collect(Collectors.toSet());
+
+            assertEquals(GAME_BOARD_TARGET_SIZE, chosenIds.size());
+            for (int j = COMPLETED_QUESTIONS; j < MATCHING_QUESTIONS; j++) {
+                assertTrue(chosenIds.contains("q" + j));
+            }
+        }
+        assertEquals(1, poolSearches.get());
+        verify(dummySearchProvider);
+    }
+
+    private static List<String> searchedIds(final Map<String, AbstractFilterInstruction> filters) {
+        TermsFilterInstruction idFilter = (TermsFilterInstruction) filters.get(
+                Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX);
+        return Lists.newArrayList(idFilter.getMatchValues());
+    }
+
+    private static Content questionPageDO(final String id) {
+        IsaacQuestionPage questionPage = new IsaacQuestionPage();
+        questionPage.setId(id);
+        return questionPage;
+    }
+
+    private static ContentDTO questionPageDTO(final String id) {
+        QuestionDTO questionPart = new QuestionDTO();
+        questionPart.setId(id + "|part");
+        IsaacQuestionPageDTO questionPage = new IsaacQuestionPageDTO();
+        questionPage.setId(id);
+        questionPage.setChildren(Lists.<ContentBaseDTO>newArrayList(questionPart));
+        return questionPage;
+    }
+}
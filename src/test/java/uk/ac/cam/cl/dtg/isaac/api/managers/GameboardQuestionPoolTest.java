@@ -0,0 +1,88 @@
+package uk.ac.cam.cl.dtg.isaac.api.managers;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the GameboardQuestionPool class.
+ */
+public class GameboardQuestionPoolTest {
+    private GameboardQuestionPool questionPool;
+
+    @Before
+    public final void setUp() {
+        questionPool = new GameboardQuestionPool("sha");
+    }
+
+    @Test
+    public void addQuestionPagesForFilter_overlappingFilters_questionPagesShareOrdinals() {
+        int[] firstOrdinals = questionPool.addQuestionPagesForFilter("a", Arrays.asList("q1", "q2"));
+        int[] secondOrdinals = questionPool.addQuestionPagesForFilter("b", Arrays.asList("q3", "q2"));
+
+        assertArrayEquals(new int[]{0, 1}, firstOrdinals);
+        assertArrayEquals(new int[]{2, 1}, secondOrdinals);
+        assertSame(secondOrdinals, questionPool.getOrdinalsForFilter("b"));
+        assertEquals("q3", questionPool.getQuestionPageId(2));
+        assertNull(questionPool.getOrdinalsForFilter("c"));
+    }
+
+    @Test
+    public void startLoadingFilter_alreadyLoading_onlyFirstCallerLoads() {
+        assertTrue(questionPool.startLoadingFilter("a"));
+        assertFalse(questionPool.startLoadingFilter("a"));
+
+        questionPool.cancelLoadingFilter("a");
+        assertTrue(questionPool.startLoadingFilter("a"));
+    }
+
+    @Test
+    public void startLoadingFilter_filterTooLargeToPool_notLoadedAgain() {
+        assertTrue(questionPool.startLoadingFilter("a"));
+        questionPool.markFilterTooLargeToPool("a");
+
+        assertFalse(questionPool.startLoadingFilter("a"));
+        assertNull(questionPool.getOrdinalsForFilter("a"));
+    }
+
+    @Test
+    public void getOrdinals_someQuestionPagesNotInPool_onlyKnownOnesSet() {
+        questionPool.addQuestionPagesForFilter("a", Arrays.asList("q1", "q2"));
+
+        BitSet ordinals = questionPool.getOrdinals(Arrays.asList("q2", "unknown"));
+
+        assertEquals(1, ordinals.cardinality());
+        assertFalse(ordinals.get(0));
+        assertEquals(1, ordinals.nextSetBit(0));
+    }
+
+    @Test
+    public void randomOrder_iteratedToEnd_everyOrdinalReturnedOnceAndInputUnchanged() {
+        int[] ordinals = {3, 1, 4, 5, 9, 2, 6};
+
+        PrimitiveIterator.OfInt randomOrdinals = GameboardQuestionPool.randomOrder(ordinals, new Random(42));
+        Set<Integer> returned = new TreeSet<>();
+        int count = 0;
+        while (randomOrdinals.hasNext()) {
+            returned.add(randomOrdinals.nextInt());
+            count++;
+        }
+
+        assertEquals(ordinals.length, count);
+        assertEquals(Set.of(1, 2, 3, 4, 5, 6, 9), returned);
+        assertArrayEquals(new int[]{3, 1, 4, 5, 9, 2, 6}, ordinals);
+    }
+}
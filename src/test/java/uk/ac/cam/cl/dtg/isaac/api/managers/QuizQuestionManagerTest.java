@@ -258,10 +258,10 @@ public class QuizQuestionManagerTest extends AbstractManagerTest {
         List<RegisteredUserDTO> groupMembers = this.groupManager.getUsersInGroup(studentGroup);
 
         withMock(quizAttemptManager, m -> expect(m.getCompletedUserIds(studentAssignment)).andReturn(singleton(student.getId())));
-        withMock(quizQuestionAttemptPersistenceManager, m -> expect(m.getAllAnswersForQuizAssignment(studentAssignment.getId())).andReturn(
-            ImmutableMap.of(student.getId(), answerMap.entrySet().stream().collect(Collectors.toMap(
+        withMock(quizQuestionAttemptPersistenceManager, m -> expect(m.getLatestAnswerCorrectnessForQuizAssignment(studentAssignment.getId())).andReturn(
+            ImmutableMap.of(student.getId(), answerMap.entrySet().stream().filter(entry -> entry.getValue() != null).collect(Collectors.toMap(
                 entry -> entry.getKey().getId(),
-                entry -> singletonList(entry.getValue()))))
+                entry -> entry.getValue().isCorrect())))
         ));
 
         Map<RegisteredUserDTO, QuizFeedbackDTO> feedback = quizQuestionManager.getAssignmentTeacherFeedback(studentQuiz, studentAssignment, groupMembers);
@@ -0,0 +1,164 @@
+package uk.ac.cam.cl.dtg.isaac.dao;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import ma.glasnost.orika.MapperFacade;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.api.managers.URIManager;
+import uk.ac.cam.cl.dtg.isaac.dos.GameboardContentDescriptor;
+import uk.ac.cam.cl.dtg.isaac.dos.GameboardDO;
+import uk.ac.cam.cl.dtg.isaac.dto.GameFilter;
+import uk.ac.cam.cl.dtg.isaac.dto.GameboardDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.GameboardItem;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+import uk.ac.cam.cl.dtg.segue.database.PostgresSqlDb;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.Collections;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.reset;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for the GameboardPersistenceManager class.
+ */
+public class GameboardPersistenceManagerTest {
+    private static final String GAMEBOARD_ID = "board_id";
+    private static final String QUESTION_ID = "question_id";
+
+    private PostgresSqlDb mockDatabase;
+    private GitContentManager mockContentManager;
+    private MapperFacade mockMapper;
+    private URIManager mockUriManager;
+    private GameboardPersistenceManager gameboardPersistenceManager;
+    private String currentContentSHA;
+
+    @Before
+    public final void setUp() throws Exception {
+        this.mockDatabase = createMock(PostgresSqlDb.class);
+        this.mockContentManager = createMock(GitContentManager.class);
+        this.mockMapper = createMock(MapperFacade.class);
+        this.mockUriManager = createNiceMock(URIManager.class);
+        this.gameboardPersistenceManager = new GameboardPersistenceManager(mockDatabase, mockContentManager, mockMapper,
+                new ObjectMapper(), mockUriManager, "latest");
+
+        expect(mockMapper.map(anyObject(GameboardDO.class), eq(GameboardDTO.class))).andAnswer(() -> {
+            GameboardDTO gameboard = new GameboardDTO();
+            gameboard.setId(GAMEBOARD_ID);
+            gameboard.setTitle("Title");
+            return gameboard;
+        }).anyTimes();
+        expect(mockMapper.map(anyObject(ContentDTO.class), eq(GameboardItem.class))).andAnswer(() -> {
+            GameboardItem item = new GameboardItem();
+            item.setId(QUESTION_ID);
+            item.setTitle("Question");
+            return item;
+        }).anyTimes();
+        replay(mockMapper, mockUriManager);
+
+        this.currentContentSHA = "sha1";
+        expect(mockContentManager.getCurrentContentSHA()).andAnswer(() -> currentContentSHA).anyTimes();
+    }
+
+    @Test
+    public void getGameboardById_sameContentVersion_itemsLookedUpOnceAndCopiesReturned() throws Exception {
+        expectGameboardQueries(1);
+        expectQuestionLookups(1);
+
+        GameboardDTO firstGameboard = gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+        firstGameboard.setPercentageCompleted(100);
+        firstGameboard.getContents().get(0).setQuestionPartsCorrect(1);
+        GameboardDTO secondGameboard = gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+
+        assertNotSame(firstGameboard, secondGameboard);
+        assertNull(secondGameboard.getPercentageCompleted());
+        assertEquals(1, secondGameboard.getContents().size());
+        assertNull(secondGameboard.getContents().get(0).getQuestionPartsCorrect());
+        verify(mockDatabase, mockContentManager);
+    }
+
+    @Test
+    public void getGameboardById_contentVersionChanged_itemsLookedUpAgain() throws Exception {
+        expectGameboardQueries(2);
+        expectQuestionLookups(2);
+
+        gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+        currentContentSHA = "sha2";
+        GameboardDTO gameboard = gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+
+        assertEquals(QUESTION_ID, gameboard.getContents().get(0).getId());
+        verify(mockDatabase, mockContentManager);
+    }
+
+    @Test
+    public void updateGameboardTitle_cachedGameboard_gameboardReadAgain() throws Exception {
+        expectGameboardQueries(2);
+        expectQuestionLookups(2);
+
+        gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+
+        GameboardDTO renamedGameboard = new GameboardDTO();
+        renamedGameboard.setId(GAMEBOARD_ID);
+        renamedGameboard.setTitle("New title");
+        gameboardPersistenceManager.updateGameboardTitle(renamedGameboard);
+        gameboardPersistenceManager.getGameboardById(GAMEBOARD_ID);
+
+        verify(mockDatabase, mockContentManager);
+    }
+
+    /**
+     * Make the database return the same gameboard row a number of times, and accept any updates.
+     */
+    private void expectGameboardQueries(final int times) throws Exception {
+        Array mockContentsArray = createMock(Array.class);
+        expect(mockContentsArray.getArray()).andReturn(new String[]{new ObjectMapper().writeValueAsString(
+                new GameboardContentDescriptor(QUESTION_ID, "isaacQuestionPage", null))}).times(times);
+
+        ResultSet mockResultSet = createNiceMock(ResultSet.class);
+        for (int i = 0; i < times; i++) {
+            expect(mockResultSet.next()).andReturn(true);
+            expect(mockResultSet.next()).andReturn(false);
+        }
+        expect(mockResultSet.getString("id")).andReturn(GAMEBOARD_ID).anyTimes();
+        expect(mockResultSet.getArray("contents")).andReturn(mockContentsArray).anyTimes();
+        expect(mockResultSet.getObject("game_filter")).andReturn(new ObjectMapper().writeValueAsString(new GameFilter()))
+                .anyTimes();
+        expect(mockResultSet.getObject("tags")).andReturn("[]").anyTimes();
+        expect(mockResultSet.getTimestamp("creation_date")).andReturn(new Timestamp(0)).anyTimes();
+
+        PreparedStatement mockPreparedStatement = createNiceMock(PreparedStatement.class);
+        expect(mockPreparedStatement.executeQuery()).andReturn(mockResultSet).times(times);
+        expect(mockPreparedStatement.executeUpdate()).andReturn(1).anyTimes();
+
+        Connection mockConnection = createNiceMock(Connection.class);
+        expect(mockConnection.prepareStatement(anyString())).andReturn(mockPreparedStatement).anyTimes();
+
+        reset(mockDatabase);
+        expect(mockDatabase.getDatabaseConnection()).andReturn(mockConnection).anyTimes();
+        replay(mockContentsArray, mockResultSet, mockPreparedStatement, mockConnection, mockDatabase);
+    }
+
+    private void expectQuestionLookups(final int times) throws Exception {
+        ContentDTO question = new ContentDTO();
+        question.setId(QUESTION_ID);
+        expect(mockContentManager.getContentMatchingIds(Collections.singletonList(QUESTION_ID), 0, 1))
+                .andReturn(new ResultsWrapper<>(Collections.singletonList(question), 1L)).times(times);
+        replay(mockContentManager);
+    }
+}
@@ -0,0 +1,83 @@
+package uk.ac.cam.cl.dtg.isaac.quiz;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the QuestionAttemptSummary class.
+ */
+public class QuestionAttemptSummaryTest {
+    private QuestionIdDictionary dictionary;
+    private QuestionAttemptSummary attemptSummary;
+
+    @Before
+    public final void setUp() {
+        dictionary = new QuestionIdDictionary();
+        attemptSummary = new QuestionAttemptSummary(dictionary);
+    }
+
+    @Test
+    public void recordAttempt_incorrectThenCorrect_partCorrect() {
+        attemptSummary.recordAttempt("page|part", false);
+        assertTrue(attemptSummary.hasAttemptedQuestionPart("page|part"));
+        assertFalse(attemptSummary.isQuestionPartCorrect("page|part"));
+
+        attemptSummary.recordAttempt("page|part", true);
+        attemptSummary.recordAttempt("page|part", false);
+
+        assertTrue(attemptSummary.isQuestionPartCorrect("page|part"));
+    }
+
+    @Test
+    public void recordAttempt_partsOfTwoPages_bothPagesAttempted() {
+        attemptSummary.recordAttempt("page1|part", true);
+        attemptSummary.recordAttempt("page2|part1", false);
+        attemptSummary.recordAttempt("page2|part2", false);
+
+        assertTrue(attemptSummary.hasAttemptedQuestionPage("page1"));
+        assertTrue(attemptSummary.hasAttemptedQuestionPage("page2"));
+        assertFalse(attemptSummary.hasAttemptedQuestionPage("page3"));
+        assertEquals(Arrays.asList("page1", "page2"), attemptSummary.getAttemptedQuestionPageIds());
+    }
+
+    @Test
+    public void hasAttemptedQuestionPart_partOnlyAttemptedByAnotherUser_notAttempted() {
+        new QuestionAttemptSummary(dictionary).recordAttempt("page|part", true);
+
+        assertFalse(attemptSummary.hasAttemptedQuestionPart("page|part"));
+        assertFalse(attemptSummary.isQuestionPartCorrect("page|part"));
+        assertTrue(attemptSummary.isEmpty());
+        assertEquals(Collections.emptyList(), attemptSummary.getAttemptedQuestionPageIds());
+    }
+
+    @Test
+    public void getAttemptsVersion_newAttemptRecorded_versionChanges() {
+        attemptSummary.recordAttempt("page|part", true);
+        attemptSummary.recordAttemptIds(1, 10);
+        String firstVersion = attemptSummary.getAttemptsVersion();
+
+        // A repeated correct answer does not change which parts are correct, but is still a new attempt:
+        attemptSummary.recordAttempt("page|part", true);
+        attemptSummary.recordAttemptIds(1, 11);
+
+        assertNotEquals(firstVersion, attemptSummary.getAttemptsVersion());
+    }
+
+    @Test
+    public void getAttemptsVersion_olderAttemptsMergedIn_versionChanges() {
+        attemptSummary.recordAttemptIds(2, 10);
+        String firstVersion = attemptSummary.getAttemptsVersion();
+
+        attemptSummary.recordAttemptIds(1, 5);
+
+        assertNotEquals(firstVersion, attemptSummary.getAttemptsVersion());
+    }
+}
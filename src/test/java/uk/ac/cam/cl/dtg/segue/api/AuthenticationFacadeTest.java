@@ -0,0 +1,217 @@
+package uk.ac.cam.cl.dtg.segue.api;
+
+import com.google.common.collect.ImmutableMap;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import ma.glasnost.orika.MapperFacade;
+import org.jboss.resteasy.mock.MockDispatcherFactory;
+import org.jboss.resteasy.mock.MockHttpRequest;
+import org.jboss.resteasy.mock.MockHttpResponse;
+import org.jboss.resteasy.spi.Dispatcher;
+import org.junit.Before;
+import org.junit.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+import uk.ac.cam.cl.dtg.isaac.dos.AbstractUserPreferenceManager;
+import uk.ac.cam.cl.dtg.isaac.dos.users.LocalUserCredential;
+import uk.ac.cam.cl.dtg.isaac.dos.users.RegisteredUser;
+import uk.ac.cam.cl.dtg.segue.api.managers.QuestionManager;
+import uk.ac.cam.cl.dtg.segue.api.managers.UserAccountManager;
+import uk.ac.cam.cl.dtg.segue.api.managers.UserAuthenticationManager;
+import uk.ac.cam.cl.dtg.segue.api.monitors.IMisuseMonitor;
+import uk.ac.cam.cl.dtg.segue.auth.AuthenticationProvider;
+import uk.ac.cam.cl.dtg.segue.auth.IAuthenticator;
+import uk.ac.cam.cl.dtg.segue.auth.ISecondFactorAuthenticator;
+import uk.ac.cam.cl.dtg.segue.auth.ISegueHashingAlgorithm;
+import uk.ac.cam.cl.dtg.segue.auth.PasswordHashingService;
+import uk.ac.cam.cl.dtg.segue.auth.SegueLocalAuthenticator;
+import uk.ac.cam.cl.dtg.segue.comm.EmailManager;
+import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
+import uk.ac.cam.cl.dtg.segue.dao.users.IAnonymousUserDataManager;
+import uk.ac.cam.cl.dtg.segue.dao.users.IPasswordDataManager;
+import uk.ac.cam.cl.dtg.segue.dao.users.IUserDataManager;
+import uk.ac.cam.cl.dtg.util.PropertiesLoader;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.createNiceMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the AuthenticationFacade class.
+ */
+public class AuthenticationFacadeTest {
+    private static final String[] WEB_XML_FILES = {"web-api-live.xml", "web-api-local.xml"};
+    private static final String HASHING_SCHEME = "SlowTestHash";
+    private static final Long USER_ID = 1L;
+    private static final String EMAIL = "test@example.com";
+
+    private PasswordHashingService hashingService;
+    private SlowHashingAlgorithm hashingAlgorithm;
+    private AuthenticationFacade authenticationFacade;
+
+    @Before
+    public final void setUp() throws Exception {
+        hashingService = new PasswordHashingService(1, 0, 0);
+        hashingAlgorithm = new SlowHashingAlgorithm();
+
+        PropertiesLoader properties = createNiceMock(PropertiesLoader.class);
+        expect(properties.getProperty(Constants.HMAC_SALT)).andReturn("BOB").anyTimes();
+        expect(properties.getProperty(Constants.HOST_NAME)).andReturn("bob").anyTimes();
+        expect(properties.getProperty(Constants.SESSION_EXPIRY_SECONDS_DEFAULT)).andReturn("60").anyTimes();
+        expect(properties.getProperty(Constants.SESSION_EXPIRY_SECONDS_REMEMBERED)).andReturn("360").anyTimes();
+        expect(properties.getProperty(Constants.SEGUE_APP_ENVIRONMENT)).andReturn("DEV").anyTimes();
+
+        RegisteredUser user = new RegisteredUser();
+        user.setId(USER_ID);
+        user.setEmail(EMAIL);
+        IUserDataManager userDataManager = createNiceMock(IUserDataManager.class);
+        expect(userDataManager.getByEmail(EMAIL)).andReturn(user).anyTimes();
+        IPasswordDataManager passwordDataManager = createNiceMock(IPasswordDataManager.class);
+        expect(passwordDataManager.getLocalUserCredential(USER_ID))
+                .andReturn(new LocalUserCredential(USER_ID, "hash", "salt", HASHING_SCHEME)).anyTimes();
+
+        IMisuseMonitor misuseMonitor = createNiceMock(IMisuseMonitor.class);
+        expect(misuseMonitor.hasMisused(anyString(), anyString())).andReturn(false).anyTimes();
+        EmailManager emailManager = createNiceMock(EmailManager.class);
+        replay(properties, userDataManager, passwordDataManager, misuseMonitor, emailManager);
+
+        SegueLocalAuthenticator localAuthenticator = new SegueLocalAuthenticator(userDataManager, passwordDataManager,
+                properties, ImmutableMap.of(HASHING_SCHEME, hashingAlgorithm), hashingAlgorithm, hashingService);
+        Map<AuthenticationProvider, IAuthenticator> providers =
+                ImmutableMap.of(AuthenticationProvider.SEGUE, localAuthenticator);
+        UserAuthenticationManager userAuthenticationManager = new UserAuthenticationManager(userDataManager,
+                properties, providers, emailManager);
+        UserAccountManager userManager = new UserAccountManager(userDataManager, createMock(QuestionManager.class),
+                properties, providers, createMock(MapperFacade.class), emailManager,
+                createMock(IAnonymousUserDataManager.class), createMock(ILogManager.class), userAuthenticationManager,
+                createMock(ISecondFactorAuthenticator.class), createMock(AbstractUserPreferenceManager.class));
+
+        authenticationFacade = new AuthenticationFacade(properties, userManager, createMock(ILogManager.class),
+                misuseMonitor);
+    }
+
+    @Test
+    public void authenticateWithCredentials_passwordHashingBudgetExhausted_serviceUnavailable() throws Exception {
+        for (String webXmlFile : WEB_XML_FILES) {
+            Dispatcher dispatcher = createDispatcher(webXmlFile);
+
+            Thread otherLogin = new Thread(() -> {
+                try {
+                    hashingService.hashPassword(hashingAlgorithm, "password", "salt");
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            otherLogin.start();
+            try {
+                assertTrue(hashingAlgorithm.started.await(10, TimeUnit.SECONDS));
+
+                MockHttpRequest request = MockHttpRequest.post("/auth/SEGUE/authenticate")
+                        .contentType(MediaType.APPLICATION_JSON_TYPE)
+                        .content(String.format("{\"email\": \"%s\", \"password\": \"password\"}", EMAIL)
+                                .getBytes(StandardCharsets.UTF_8));
+                MockHttpResponse response = new MockHttpResponse();
+                dispatcher.invoke(request, response);
+
+                assertEquals(webXmlFile, Response.Status.SERVICE_UNAVAILABLE.getStatusCode(), response.getStatus());
+            } finally {
+                hashingAlgorithm.release.countDown();
+                otherLogin.join();
+                hashingAlgorithm.reset();
+            }
+        }
+    }
+
+    /**
+     * Create a dispatcher with the providers listed in a web.xml file, as the servlet would.
+     */
+    private Dispatcher createDispatcher(final String webXmlFile) throws Exception {
+        Dispatcher dispatcher = MockDispatcherFactory.createDispatcher();
+        for (String provider : resteasyProviders(webXmlFile)) {
+            dispatcher.getProviderFactory().registerProvider(Class.forName(provider));
+        }
+
+        HttpServletRequest servletRequest = createNiceMock(HttpServletRequest.class);
+        expect(servletRequest.getMethod()).andReturn("POST").anyTimes();
+        expect(servletRequest.getRequestURI()).andReturn("/api/auth/SEGUE/authenticate").anyTimes();
+        expect(servletRequest.getCookies()).andReturn(null).anyTimes();
+        replay(servletRequest);
+        dispatcher.getDefaultContextObjects().put(HttpServletRequest.class, servletRequest);
+        dispatcher.getDefaultContextObjects().put(HttpServletResponse.class,
+                createNiceMock(HttpServletResponse.class));
+
+        dispatcher.getRegistry().addSingletonResource(authenticationFacade);
+        return dispatcher;
+    }
+
+    private static String[] resteasyProviders(final String webXmlFile) throws Exception {
+        NodeList contextParams = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+                .parse(new File(webXmlFile)).getElementsByTagName("context-param");
+        for (int i = 0; i < contextParams.getLength(); i++) {
+            Element contextParam = (Element) contextParams.item(i);
+            if ("resteasy.providers".equals(
+                    contextParam.getElementsByTagName("param-name").item(0).getTextContent().trim())) {
+                return contextParam.getElementsByTagName("param-value").item(0).getTextContent().trim()
+                        .split("\\s*,\\s*");
+            }
+        }
+        throw new AssertionError("No resteasy.providers in " + webXmlFile);
+    }
+
+    /**
+     * A hashing algorithm that uses the whole memory budget and holds it until released.
+     */
+    private static class SlowHashingAlgorithm implements ISegueHashingAlgorithm {
+        private CountDownLatch started = new CountDownLatch(1);
+        private CountDownLatch release = new CountDownLatch(1);
+
+        private void reset() {
+            started = new CountDownLatch(1);
+            release = new CountDownLatch(1);
+        }
+
+        @Override
+        public String hashPassword(final String password, final String salt) {
+            started.countDown();
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "hash";
+        }
+
+        @Override
+        public String generateSalt() {
+            return "salt";
+        }
+
+        @Override
+        public String hashingAlgorithmName() {
+            return HASHING_SCHEME;
+        }
+
+        @Override
+        public byte[] computeHash(final String str, final String salt, final int keyLength) {
+            return new byte[keyLength];
+        }
+
+        @Override
+        public long memoryCostInBytes() {
+            return 1024 * 1024;
+        }
+    }
+}
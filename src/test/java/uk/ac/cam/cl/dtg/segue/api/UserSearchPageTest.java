@@ -0,0 +1,98 @@
+package uk.ac.cam.cl.dtg.segue.api;
+
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dto.users.RegisteredUserDTO;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the UserSearchPage class.
+ */
+public class UserSearchPageTest {
+
+    @Test
+    public void constructor_noLimitGiven_pageSizeIsHardLimit() {
+        UserSearchPage page = new UserSearchPage(null, null, 2000);
+
+        assertEquals(2001, page.getBatchSize());
+        assertNull(page.getLastUserFoundId());
+    }
+
+    @Test
+    public void constructor_limitAboveHardLimit_pageSizeIsHardLimit() {
+        UserSearchPage page = new UserSearchPage(5L, 5000, 2000);
+
+        assertEquals(2001, page.getBatchSize());
+        assertEquals(Long.valueOf(5), page.getLastUserFoundId());
+    }
+
+    @Test
+    public void addBatch_moreUsersThanPageSize_nextPageFollowsLastUserOnPage() {
+        UserSearchPage page = new UserSearchPage(null, 2, 2000);
+        List<RegisteredUserDTO> batch = users(1, 2, 3);
+        page.addBatch(batch, batch);
+
+        assertFalse(page.needsMoreUsers());
+        assertEquals(Arrays.asList(1L, 2L), idsOf(page.getUsers()));
+        assertEquals(Long.valueOf(2), page.getNextPageAfterUserId());
+    }
+
+    @Test
+    public void addBatch_exactlyPageSizeUsers_noNextPage() {
+        UserSearchPage page = new UserSearchPage(null, 2, 2000);
+        List<RegisteredUserDTO> batch = users(1, 2);
+        page.addBatch(batch, batch);
+
+        assertFalse(page.needsMoreUsers());
+        assertEquals(Arrays.asList(1L, 2L), idsOf(page.getUsers()));
+        assertNull(page.getNextPageAfterUserId());
+    }
+
+    @Test
+    public void addBatch_filtersRejectMostOfFirstBatch_readsNextBatchUntilPageFull() {
+        UserSearchPage page = new UserSearchPage(null, 2, 2000);
+        List<RegisteredUserDTO> firstBatch = users(1, 2, 3);
+        page.addBatch(firstBatch, firstBatch.subList(1, 2));
+
+        assertTrue(page.needsMoreUsers());
+        assertEquals(Long.valueOf(3), page.getLastUserFoundId());
+
+        List<RegisteredUserDTO> secondBatch = users(4, 5);
+        page.addBatch(secondBatch, secondBatch);
+
+        assertFalse(page.needsMoreUsers());
+        assertEquals(Arrays.asList(2L, 4L), idsOf(page.getUsers()));
+        // User 5 was found but did not fit on the page, so there is another page:
+        assertEquals(Long.valueOf(4), page.getNextPageAfterUserId());
+    }
+
+    @Test
+    public void addBatch_filtersRejectEveryRemainingUser_emptyPageWithoutNextPage() {
+        UserSearchPage page = new UserSearchPage(3L, 2, 2000);
+        page.addBatch(users(4), Collections.emptyList());
+
+        assertFalse(page.needsMoreUsers());
+        assertTrue(page.getUsers().isEmpty());
+        assertNull(page.getNextPageAfterUserId());
+    }
+
+    private static List<RegisteredUserDTO> users(final long... ids) {
+        return Arrays.stream(ids).mapToObj(id -> {
+            RegisteredUserDTO user = new RegisteredUserDTO();
+            user.setId(id);
+            return user;
+        }).collect(Collectors.toList());
+    }
+
+    private static List<Long> idsOf(final List<RegisteredUserDTO> users) {
+        return users.stream().map(RegisteredUserDTO::getId).collect(Collectors.toList());
+    }
+}
@@ -35,11 +35,18 @@ import uk.ac.cam.cl.dtg.isaac.dto.users.UserSummaryWithEmailAddressDTO;
 import uk.ac.cam.cl.dtg.util.PropertiesLoader;
 
 import java.text.SimpleDateFormat;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 import static org.easymock.EasyMock.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -108,8 +115,8 @@ public class GroupManagerTest {
 		try {
 			expect(this.groupDataManager.createGroup(and(capture(capturedGroup), isA(UserGroup.class))))
 					.andReturn(resultFromDB);
-			expect(this.groupDataManager.getAdditionalManagerSetByGroupId(anyObject()))
-					.andReturn(someSetOfManagers).atLeastOnce();
+			expect(this.groupDataManager.getAdditionalManagerSetsByGroupIds(anyObject()))
+					.andReturn(Collections.singletonMap(resultFromDB.getId(), someSetOfManagers)).atLeastOnce();
 			expect(this.userManager.findUsers(someSetOfManagers)).andReturn(someListOfUsers);
 			expect(this.userManager.convertToDetailedUserSummaryObjectList(someListOfUsers, UserSummaryWithEmailAddressDTO.class)).andReturn(someListOfUsersDTOs);
 			expect(this.dummyMapper.map(resultFromDB, UserGroupDTO.class)).andReturn(mappedGroup).atLeastOnce();
@@ -130,4 +137,55 @@ public class GroupManagerTest {
 		}
 		verify(this.groupDataManager);
 	}
+
+	/**
+	 * Verify that the owners and additional managers of several groups are looked up together.
+	 */
+	@Test
+	public final void getGroupsByOwner_severalGroups_usersLookedUpOnceForAllGroups() throws SegueDatabaseException {
+		RegisteredUserDTO someGroupOwner = new RegisteredUserDTO();
+		someGroupOwner.setId(5339L);
+		RegisteredUserDTO someManager = new RegisteredUserDTO();
+		someManager.setId(42L);
+		UserSummaryWithEmailAddressDTO ownerSummary = new UserSummaryWithEmailAddressDTO();
+		ownerSummary.setId(someGroupOwner.getId());
+		UserSummaryWithEmailAddressDTO managerSummary = new UserSummaryWithEmailAddressDTO();
+		managerSummary.setId(someManager.getId());
+
+		UserGroup firstGroup = new UserGroup();
+		firstGroup.setId(1L);
+		firstGroup.setOwnerId(someGroupOwner.getId());
+		UserGroup secondGroup = new UserGroup();
+		secondGroup.setId(2L);
+		secondGroup.setOwnerId(someGroupOwner.getId());
+		UserGroupDTO firstMappedGroup = new UserGroupDTO();
+		UserGroupDTO secondMappedGroup = new UserGroupDTO();
+
+		Map<Long, Set<Long>> managersByGroupId = new HashMap<>();
+		managersByGroupId.put(firstGroup.getId(), Sets.newHashSet());
+		managersByGroupId.put(secondGroup.getId(), Collections.singleton(someManager.getId()));
+		Set<Long> allUserIds = new HashSet<>(Arrays.asList(someGroupOwner.getId(), someManager.getId()));
+		List<RegisteredUserDTO> allUsers = Arrays.asList(someManager, someGroupOwner);
+
+		GroupManager gm = new GroupManager(this.groupDataManager, this.userManager, this.gameManager, this.dummyMapper);
+		expect(this.groupDataManager.getGroupsByOwner(someGroupOwner.getId()))
+				.andReturn(Arrays.asList(firstGroup, secondGroup));
+		expect(this.groupDataManager.getAdditionalManagerSetsByGroupIds(
+				new HashSet<>(Arrays.asList(firstGroup.getId(), secondGroup.getId())))).andReturn(managersByGroupId);
+		expect(this.userManager.findUsers(allUserIds)).andReturn(allUsers);
+		expect(this.userManager.convertToDetailedUserSummaryObjectList(allUsers, UserSummaryWithEmailAddressDTO.class))
+				.andReturn(Arrays.asList(managerSummary, ownerSummary));
+		expect(this.dummyMapper.map(firstGroup, UserGroupDTO.class)).andReturn(firstMappedGroup);
+		expect(this.dummyMapper.map(secondGroup, UserGroupDTO.class)).andReturn(secondMappedGroup);
+		replay(this.userManager, this.groupDataManager, this.dummyMapper);
+
+		List<UserGroupDTO> groups = gm.getGroupsByOwner(someGroupOwner);
+
+		assertEquals(Arrays.asList(firstMappedGroup, secondMappedGroup), groups);
+		assertSame(ownerSummary, firstMappedGroup.getOwnerSummary());
+		assertSame(ownerSummary, secondMappedGroup.getOwnerSummary());
+		assertTrue(firstMappedGroup.getAdditionalManagers().isEmpty());
+		assertEquals(Collections.singleton(managerSummary), secondMappedGroup.getAdditionalManagers());
+		verify(this.userManager, this.groupDataManager, this.dummyMapper);
+	}
 }
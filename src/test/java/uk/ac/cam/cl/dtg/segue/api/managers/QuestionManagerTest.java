@@ -0,0 +1,113 @@
+package uk.ac.cam.cl.dtg.segue.api.managers;
+
+import ma.glasnost.orika.MapperFacade;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dos.QuestionValidationResponse;
+import uk.ac.cam.cl.dtg.isaac.dto.QuestionValidationResponseDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentBaseDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.QuestionDTO;
+import uk.ac.cam.cl.dtg.isaac.dto.content.SeguePageDTO;
+import uk.ac.cam.cl.dtg.isaac.quiz.IQuestionAttemptManager;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for the QuestionManager class.
+ */
+public class QuestionManagerTest {
+    private static final String PAGE_ID = "page";
+    private static final String QUESTION_ID = PAGE_ID + "|question";
+
+    private QuestionManager questionManager;
+
+    @Before
+    public final void setUp() {
+        MapperFacade mockMapper = createMock(MapperFacade.class);
+        expect(mockMapper.map(anyObject(QuestionValidationResponse.class), eq(QuestionValidationResponseDTO.class)))
+                .andAnswer(() -> {
+                    QuestionValidationResponse attempt = (QuestionValidationResponse) getCurrentArguments()[0];
+                    QuestionValidationResponseDTO attemptDTO = new QuestionValidationResponseDTO();
+                    attemptDTO.setQuestionId(attempt.getQuestionId());
+                    attemptDTO.setCorrect(attempt.isCorrect());
+                    attemptDTO.setDateAttempted(attempt.getDateAttempted());
+                    return attemptDTO;
+                }).anyTimes();
+        ContentMapper mockContentMapper = createMock(ContentMapper.class);
+        expect(mockContentMapper.getAutoMapper()).andReturn(mockMapper).anyTimes();
+        replay(mockMapper, mockContentMapper);
+
+        questionManager = new QuestionManager(mockContentMapper, createMock(IQuestionAttemptManager.class));
+    }
+
+    @Test
+    public void augmentQuestionObjects_correctAttemptBeforeLaterIncorrect_correctAttemptIsBest() {
+        QuestionValidationResponse correctAttempt = attempt(true, 2);
+        SeguePageDTO page = pageWithQuestion();
+
+        questionManager.augmentQuestionObjects(page, "user", Collections.singletonMap(PAGE_ID,
+                Collections.singletonMap(QUESTION_ID, Arrays.asList(attempt(false, 1), correctAttempt, attempt(false, 3)))));
+
+        QuestionValidationResponseDTO bestAttempt = getQuestion(page).getBestAttempt();
+        assertEquals(true, bestAttempt.isCorrect());
+        assertEquals(correctAttempt.getDateAttempted(), bestAttempt.getDateAttempted());
+    }
+
+    @Test
+    public void augmentQuestionObjects_noCorrectAttempts_latestAttemptIsBest() {
+        QuestionValidationResponse latestAttempt = attempt(false, 2);
+        SeguePageDTO page = pageWithQuestion();
+
+        questionManager.augmentQuestionObjects(page, "user", Collections.singletonMap(PAGE_ID,
+                Collections.singletonMap(QUESTION_ID, Arrays.asList(attempt(false, 1), latestAttempt))));
+
+        assertEquals(latestAttempt.getDateAttempted(), getQuestion(page).getBestAttempt().getDateAttempted());
+    }
+
+    @Test
+    public void augmentQuestionObjectsWithBestAttempts_onlyOtherQuestionsAttempted_noBestAttempt() {
+        SeguePageDTO page = pageWithQuestion();
+
+        Map<String, QuestionValidationResponse> bestAttempts =
+                Collections.singletonMap(PAGE_ID + "|other", attempt(true, 1));
+        questionManager.augmentQuestionObjectsWithBestAttempts(page, "user", bestAttempts);
+
+        assertNull(getQuestion(page).getBestAttempt());
+    }
+
+    private static SeguePageDTO pageWithQuestion() {
+        QuestionDTO question = new QuestionDTO();
+        question.setId(QUESTION_ID);
+        SeguePageDTO page = new SeguePageDTO();
+        page.setId(PAGE_ID);
+        List<ContentBaseDTO> children = Collections.singletonList(question);
+        page.setChildren(children);
+        return page;
+    }
+
+    private static QuestionDTO getQuestion(final SeguePageDTO page) {
+        return (QuestionDTO) page.getChildren().get(0);
+    }
+
+    private static QuestionValidationResponse attempt(final boolean correct, final long time) {
+        QuestionValidationResponse attempt = new QuestionValidationResponse();
+        attempt.setQuestionId(QUESTION_ID);
+        attempt.setCorrect(correct);
+        attempt.setDateAttempted(new Date(time));
+        return attempt;
+    }
+}
@@ -37,6 +37,7 @@ import uk.ac.cam.cl.dtg.segue.auth.ISecondFactorAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.SegueLocalAuthenticator;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.AuthenticationProviderMappingException;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.CrossSiteRequestForgeryException;
+import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserException;
 import uk.ac.cam.cl.dtg.segue.auth.exceptions.NoUserLoggedInException;
 import uk.ac.cam.cl.dtg.segue.comm.EmailManager;
 import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
@@ -764,6 +765,22 @@ public class UserManagerTest {
         assertFalse(valid);
     }
 
+    /**
+     * Ensure a page of a user search cannot follow a user who no longer exists, since its position is unknown.
+     *
+     * @throws Exception
+     */
+    @Test(expected = NoUserException.class)
+    public final void findUsers_afterUserNoLongerExists_NoUserExceptionThrown() throws Exception {
+        // Arrange
+        UserAccountManager userManager = buildTestUserManager();
+        expect(dummyDatabase.getById(99L, true)).andReturn(null).once();
+        replay(dummyDatabase);
+
+        // Act
+        userManager.findUsers(new RegisteredUserDTO(), 99L, 10);
+    }
+
 
     /**
      * Helper method to construct a UserManager with the default TEST provider.
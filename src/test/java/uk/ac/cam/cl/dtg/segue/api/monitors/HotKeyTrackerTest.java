@@ -0,0 +1,58 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the HotKeyTracker class.
+ */
+public class HotKeyTrackerTest {
+
+    @Test
+    public void getTopKeys_fewHotKeysAmongstManyColdKeys_hotKeysHottestFirst() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 1024, 3, Long.MAX_VALUE);
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("cold_" + i);
+            if (i % 2 == 0) {
+                tracker.record("hot_a");
+            }
+            if (i % 4 == 0) {
+                tracker.record("hot_b");
+            }
+            if (i % 8 == 0) {
+                tracker.record("hot_c");
+            }
+        }
+
+        assertEquals(Arrays.asList("hot_a", "hot_b", "hot_c"), new ArrayList<>(tracker.getTopKeys().keySet()));
+        assertTrue(tracker.estimateCount("hot_a") >= 500);
+        assertTrue(tracker.isTopKey("hot_c"));
+        assertFalse(tracker.isTopKey("cold_1"));
+    }
+
+    @Test
+    public void record_keyNoLongerRequested_fallsOutOfTopKeys() {
+        HotKeyTracker tracker = new HotKeyTracker(4, 1024, 2, 100);
+        for (int i = 0; i < 50; i++) {
+            tracker.record("old");
+        }
+        for (int i = 0; i < 1000; i++) {
+            tracker.record("new_" + (i % 2));
+        }
+
+        assertFalse(tracker.isTopKey("old"));
+        assertTrue(tracker.isTopKey("new_0"));
+        assertTrue(tracker.isTopKey("new_1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_widthNotPowerOfTwo_throwsException() {
+        new HotKeyTracker(4, 1000, 10, 100);
+    }
+}
@@ -0,0 +1,90 @@
+package uk.ac.cam.cl.dtg.segue.api.monitors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class RequestWorkMonitorTest {
+    private static final String GROUP_MANAGERS_QUERY = "SELECT * FROM group_additional_managers WHERE group_id = ?";
+
+    private Connection mockConnection;
+    private PreparedStatement mockPreparedStatement;
+    private ResultSet mockResultSet;
+
+    @Before
+    public final void setUp() {
+        this.mockConnection = createMock(Connection.class);
+        this.mockPreparedStatement = createMock(PreparedStatement.class);
+        this.mockResultSet = createMock(ResultSet.class);
+    }
+
+    @After
+    public final void tearDown() {
+        RequestWorkMonitor.endRequest();
+    }
+
+    @Test
+    public void instrument_connectionDuringRequest_recordsEachStatementAndRow() throws Exception {
+        expect(mockConnection.prepareStatement(GROUP_MANAGERS_QUERY)).andReturn(mockPreparedStatement).times(3);
+        mockPreparedStatement.setLong(1, 1L);
+        mockPreparedStatement.setLong(1, 2L);
+        mockPreparedStatement.setLong(1, 3L);
+        expect(mockPreparedStatement.executeQuery()).andReturn(mockResultSet).times(3);
+        expect(mockResultSet.next()).andReturn(true).times(2);
+        expect(mockResultSet.next()).andReturn(false).times(3);
+        expect(mockResultSet.getLong("user_id")).andReturn(7L).times(2);
+        replay(mockConnection, mockPreparedStatement, mockResultSet);
+
+        RequestWork work = RequestWorkMonitor.startRequest();
+        Connection connection = RequestWorkMonitor.instrument(mockConnection);
+        for (long groupId = 1; groupId <= 3; groupId++) {
+            PreparedStatement statement = connection.prepareStatement(GROUP_MANAGERS_QUERY);
+            statement.setLong(1, groupId);
+            ResultSet results = statement.executeQuery();
+            while (results.next()) {
+                results.getLong("user_id");
+            }
+        }
+
+        assertEquals(3, work.getDatabaseQueries());
+        assertEquals(2, work.getDatabaseRows());
+        assertEquals(GROUP_MANAGERS_QUERY, work.getMostRepeatedStatement());
+        assertEquals(3, work.getExecutions(GROUP_MANAGERS_QUERY));
+        verify(mockConnection, mockPreparedStatement, mockResultSet);
+    }
+
+    @Test
+    public void instrument_connectionOutsideRequest_returnsConnectionUnchanged() {
+        assertSame(mockConnection, RequestWorkMonitor.instrument(mockConnection));
+    }
+
+    @Test
+    public void instrument_searchProvider_recordsCallsForCurrentRequestOnly() throws Exception {
+        ISearchProvider mockSearchProvider = createMock(ISearchProvider.class);
+        expect(mockSearchProvider.hasIndex("live", "content")).andReturn(true).times(2);
+        expect(mockSearchProvider.getNestedFieldConnector()).andReturn(".");
+        replay(mockSearchProvider);
+        ISearchProvider searchProvider = RequestWorkMonitor.instrument(mockSearchProvider);
+
+        searchProvider.hasIndex("live", "content");
+        RequestWork work = RequestWorkMonitor.startRequest();
+        searchProvider.hasIndex("live", "content");
+        searchProvider.getNestedFieldConnector();
+
+        assertEquals(1, work.getSearchQueries());
+        assertEquals(1, work.getTotalQueries());
+        verify(mockSearchProvider);
+    }
+}
@@ -0,0 +1,150 @@
+package uk.ac.cam.cl.dtg.segue.api.services;
+
+import com.google.common.collect.ImmutableMap;
+import jakarta.ws.rs.core.CacheControl;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Request;
+import jakarta.ws.rs.core.Response;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Test class for the ContentResponseCache class.
+ */
+public class ContentResponseCacheTest {
+    private static final String OLD_CONTENT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String NEW_CONTENT_SHA = "89abcdef0123456789abcdef0123456789abcdef";
+
+    private GitContentManager mockContentManager;
+    private Request mockRequest;
+    private HttpHeaders mockHeaders;
+    private AtomicInteger loaderCalls;
+    private Supplier<Response> loader;
+
+    @Before
+    public final void setUp() {
+        mockContentManager = createMock(GitContentManager.class);
+        mockRequest = createMock(Request.class);
+        mockHeaders = createMock(HttpHeaders.class);
+        expect(mockHeaders.getRequestHeader(HttpHeaders.ACCEPT_ENCODING)).andReturn(null).anyTimes();
+        loaderCalls = new AtomicInteger();
+        loader = () -> Response.ok(ImmutableMap.of("version", loaderCalls.incrementAndGet())).build();
+    }
+
+    @Test
+    public void getResponse_sameParametersInAnyOrder_loadedOnceAndServedFromCache() {
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).times(3);
+        expect(mockRequest.evaluatePreconditions(anyObject(EntityTag.class))).andReturn(null).times(3);
+        replay(mockContentManager, mockRequest, mockHeaders);
+        ContentResponseCache responseCache = new ContentResponseCache(mockContentManager);
+
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("tags", "physics");
+        parameters.put("limit", 10);
+        parameters.put("start_index", null);
+        Map<String, Object> reorderedParameters = new LinkedHashMap<>();
+        reorderedParameters.put("limit", 10);
+        reorderedParameters.put("tags", "physics");
+
+        Response first = responseCache.getResponse(mockRequest, mockHeaders, "getConceptList", parameters, null,
+                loader);
+        Response second = responseCache.getResponse(mockRequest, mockHeaders, "getConceptList", reorderedParameters,
+                null, loader);
+        Response otherEndpoint = responseCache.getResponse(mockRequest, mockHeaders, "getQuestionList", parameters,
+                null, loader);
+
+        assertEquals(2, loaderCalls.get());
+        assertEquals("{\"version\":1}", body(first));
+        assertEquals("{\"version\":1}", body(second));
+        assertEquals(first.getEntityTag(), second.getEntityTag());
+        assertEquals("{\"version\":2}", body(otherEndpoint));
+        assertNotEquals(first.getEntityTag(), otherEndpoint.getEntityTag());
+        assertNull(first.getHeaderString(HttpHeaders.CACHE_CONTROL));
+        verify(mockContentManager, mockRequest);
+    }
+
+    @Test
+    public void getResponse_clientHasCurrentVersion_notModifiedWithoutLoading() {
+        CacheControl cacheControl = new CacheControl();
+        cacheControl.setMaxAge(600);
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).once();
+        expect(mockRequest.evaluatePreconditions(anyObject(EntityTag.class))).andReturn(Response.notModified()).once();
+        replay(mockContentManager, mockRequest, mockHeaders);
+        ContentResponseCache responseCache = new ContentResponseCache(mockContentManager);
+
+        Response response = responseCache.getResponse(mockRequest, mockHeaders, "getConcept",
+                ImmutableMap.of("id", "c1"), cacheControl, loader);
+
+        assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        assertEquals(0, loaderCalls.get());
+        assertEquals(cacheControl, response.getHeaders().getFirst(HttpHeaders.CACHE_CONTROL));
+        verify(mockContentManager, mockRequest);
+    }
+
+    @Test
+    public void getResponse_contentShaChanges_reloadedWithNewETag() {
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).times(2);
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(NEW_CONTENT_SHA).times(2);
+        expect(mockRequest.evaluatePreconditions(anyObject(EntityTag.class))).andReturn(null).times(4);
+        replay(mockContentManager, mockRequest, mockHeaders);
+        ContentResponseCache responseCache = new ContentResponseCache(mockContentManager);
+        Map<String, Object> parameters = ImmutableMap.of("id", "c1");
+
+        Response oldVersion = responseCache.getResponse(mockRequest, mockHeaders, "getConcept", parameters, null,
+                loader);
+        responseCache.getResponse(mockRequest, mockHeaders, "getConcept", parameters, null, loader);
+        Response newVersion = responseCache.getResponse(mockRequest, mockHeaders, "getConcept", parameters, null,
+                loader);
+        Response newVersionAgain = responseCache.getResponse(mockRequest, mockHeaders, "getConcept", parameters,
+                null, loader);
+
+        assertEquals(2, loaderCalls.get());
+        assertEquals("{\"version\":1}", body(oldVersion));
+        assertEquals("{\"version\":2}", body(newVersion));
+        assertEquals("{\"version\":2}", body(newVersionAgain));
+        assertNotEquals(oldVersion.getEntityTag(), newVersion.getEntityTag());
+        assertEquals(newVersion.getEntityTag(), newVersionAgain.getEntityTag());
+        verify(mockContentManager, mockRequest);
+    }
+
+    @Test
+    public void getResponse_loaderReturnsError_errorReturnedAndNotCached() {
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).times(2);
+        expect(mockRequest.evaluatePreconditions(anyObject(EntityTag.class))).andReturn(null).times(2);
+        replay(mockContentManager, mockRequest, mockHeaders);
+        ContentResponseCache responseCache = new ContentResponseCache(mockContentManager);
+        Supplier<Response> notFoundLoader = () -> {
+            loaderCalls.incrementAndGet();
+            return Response.status(Response.Status.NOT_FOUND).build();
+        };
+
+        for (int i = 0; i < 2; i++) {
+            Response response = responseCache.getResponse(mockRequest, mockHeaders, "getTermById",
+                    ImmutableMap.of("id", "missing"), null, notFoundLoader);
+            assertEquals(Response.Status.NOT_FOUND.getStatusCode(), response.getStatus());
+        }
+        assertEquals(2, loaderCalls.get());
+        verify(mockContentManager, mockRequest);
+    }
+
+    private static String body(final Response response) {
+        return new String((byte[]) response.getEntity(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,132 @@
+package uk.ac.cam.cl.dtg.segue.api.services;
+
+import org.easymock.Capture;
+import org.easymock.CaptureType;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.api.Constants.IsaacServerLogType;
+import uk.ac.cam.cl.dtg.segue.dao.ILogManager;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentManagerException;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.easymock.EasyMock.anyInt;
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.capture;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.expectLastCall;
+import static org.easymock.EasyMock.newCapture;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the ContentWarmUpService class.
+ */
+public class ContentWarmUpServiceTest {
+    private static final String OLD_CONTENT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String NEW_CONTENT_SHA = "89abcdef0123456789abcdef0123456789abcdef";
+
+    private GitContentManager mockContentManager;
+    private ILogManager mockLogManager;
+
+    @Before
+    public final void setUp() throws Exception {
+        mockContentManager = createMock(GitContentManager.class);
+        mockLogManager = createMock(ILogManager.class);
+        expect(mockLogManager.getMostFrequentEventDetailValues(eq(IsaacServerLogType.VIEW_QUESTION.name()),
+                eq("questionId"), anyObject(Date.class), anyInt())).andReturn(Arrays.asList("q1", "q2")).once();
+        expect(mockLogManager.getMostFrequentEventDetailValues(eq(IsaacServerLogType.VIEW_CONCEPT.name()),
+                eq("conceptId"), anyObject(Date.class), anyInt())).andReturn(Collections.singletonList("c1")).once();
+        replay(mockLogManager);
+    }
+
+    @Test
+    public void warmUpLiveContentVersion_liveVersionChangesAfterStartup_readyFromFirstWarmUp() throws Exception {
+        Capture<Collection<String>> warmedContentIds = newCapture(CaptureType.ALL);
+        mockContentManager.warmContentCache(eq(OLD_CONTENT_SHA), capture(warmedContentIds));
+        expectLastCall().atLeastOnce();
+        mockContentManager.warmContentCache(eq(NEW_CONTENT_SHA), anyObject());
+        expectLastCall().atLeastOnce();
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).once();
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(NEW_CONTENT_SHA).once();
+        replay(mockContentManager);
+
+        ContentWarmUpService warmUpService = new ContentWarmUpService(mockContentManager,
+                createMock(ISearchProvider.class), mockLogManager);
+        assertFalse(warmUpService.isReady());
+        warmUpService.warmUpLiveContentVersion();
+        assertTrue(warmUpService.isReady());
+
+        assertTrue(warmedContentIds.getValues().stream().flatMap(Collection::stream).collect(Collectors.toSet())
+                .containsAll(Arrays.asList("q1", "q2", "c1")));
+
+        // A new live version is warmed without the server ever becoming unready:
+        warmUpService.warmUpContentVersionInBackground(NEW_CONTENT_SHA).get();
+        assertTrue(warmUpService.isReady());
+        warmUpService.warmUpLiveContentVersion();
+        assertTrue(warmUpService.isReady());
+        verify(mockContentManager, mockLogManager);
+    }
+
+    @Test
+    public void warmUpContentVersion_versionAlreadyWarmed_notWarmedAgain() throws Exception {
+        // Content recorded as hot by other tests may also be warmed, in more than one batch:
+        Capture<Collection<String>> warmedContentIds = newCapture(CaptureType.ALL);
+        mockContentManager.warmContentCache(eq(OLD_CONTENT_SHA), capture(warmedContentIds));
+        expectLastCall().atLeastOnce();
+        replay(mockContentManager);
+
+        ContentWarmUpService warmUpService = new ContentWarmUpService(mockContentManager,
+                createMock(ISearchProvider.class), mockLogManager);
+        warmUpService.warmUpContentVersion(OLD_CONTENT_SHA);
+        int warmUpBatches = warmedContentIds.getValues().size();
+        warmUpService.warmUpContentVersion(OLD_CONTENT_SHA);
+
+        assertEquals(warmUpBatches, warmedContentIds.getValues().size());
+        verify(mockContentManager, mockLogManager);
+    }
+
+    @Test
+    public void warmUpLiveContentVersion_everyWarmUpTaskFails_readyButWarmedAgainNextTime() throws Exception {
+        AtomicBoolean searchDown = new AtomicBoolean(true);
+        AtomicInteger warmUpBatches = new AtomicInteger();
+        mockContentManager.warmContentCache(eq(OLD_CONTENT_SHA), anyObject());
+        expectLastCall().andAnswer(() -> {
+            warmUpBatches.incrementAndGet();
+            if (searchDown.get()) {
+                throw new ContentManagerException("Search is down");
+            }
+            return null;
+        }).atLeastOnce();
+        expect(mockContentManager.getCurrentContentSHA()).andReturn(OLD_CONTENT_SHA).times(2);
+        replay(mockContentManager);
+
+        ContentWarmUpService warmUpService = new ContentWarmUpService(mockContentManager,
+                createMock(ISearchProvider.class), mockLogManager);
+        warmUpService.warmUpLiveContentVersion();
+        int failedWarmUpBatches = warmUpBatches.get();
+        assertTrue(warmUpService.isReady());
+
+        // The version was not warmed, so it is warmed again once search is back, and then only the once:
+        searchDown.set(false);
+        warmUpService.warmUpLiveContentVersion();
+        int warmedBatches = warmUpBatches.get();
+        assertTrue(warmedBatches > failedWarmUpBatches);
+        warmUpService.warmUpContentVersion(OLD_CONTENT_SHA);
+        assertEquals(warmedBatches, warmUpBatches.get());
+        verify(mockContentManager, mockLogManager);
+    }
+}
@@ -0,0 +1,147 @@
+package uk.ac.cam.cl.dtg.segue.auth;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.segue.auth.exceptions.PasswordHashingUnavailableException;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Test class for the PasswordHashingService class.
+ */
+public class PasswordHashingServiceTest {
+    private static final long ONE_MEGABYTE = 1024 * 1024;
+
+    private CountDownLatch hashStarted;
+    private CountDownLatch releaseHash;
+    private ExecutorService executor;
+
+    @Before
+    public final void setUp() {
+        this.hashStarted = new CountDownLatch(1);
+        this.releaseHash = new CountDownLatch(1);
+        this.executor = Executors.newSingleThreadExecutor();
+    }
+
+    @After
+    public final void tearDown() {
+        releaseHash.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void hashPassword_withinBudget_returnsHash() throws Exception {
+        PasswordHashingService hashingService = new PasswordHashingService(1, 0, 0);
+        releaseHash.countDown();
+
+        assertEquals("password:salt", hashingService.hashPassword(new BlockingAlgorithm(ONE_MEGABYTE), "password", "salt"));
+    }
+
+    @Test
+    public void hashPassword_budgetInUseAndQueueFull_rejectedImmediately() throws Exception {
+        PasswordHashingService hashingService = new PasswordHashingService(1, 0, 60000);
+        Future<String> runningHash = startBlockingHash(hashingService);
+
+        long startTime = System.nanoTime();
+        try {
+            hashingService.hashPassword(new BlockingAlgorithm(ONE_MEGABYTE), "password", "salt");
+            fail("Expected PasswordHashingUnavailableException as the queue is full.");
+        } catch (PasswordHashingUnavailableException e) {
+            // this is a pass
+        }
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startTime) < 10000);
+
+        releaseHash.countDown();
+        assertEquals("password:salt", runningHash.get(10, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void computeHash_budgetInUse_rejectedAfterTimeout() throws Exception {
+        PasswordHashingService hashingService = new PasswordHashingService(1, 1, 50);
+        startBlockingHash(hashingService);
+
+        try {
+            hashingService.computeHash(new BlockingAlgorithm(ONE_MEGABYTE), "token", "salt", 16);
+            fail("Expected PasswordHashingUnavailableException as no memory was freed in time.");
+        } catch (PasswordHashingUnavailableException e) {
+            // this is a pass
+        }
+    }
+
+    @Test
+    public void hashPassword_smallHashesWhileLargeHashRunning_notBlocked() throws Exception {
+        PasswordHashingService hashingService = new PasswordHashingService(2, 0, 0);
+        startBlockingHash(hashingService);
+
+        CountDownLatch alreadyReleased = new CountDownLatch(0);
+        assertEquals("password:salt",
+                hashingService.hashPassword(new BlockingAlgorithm(1024, alreadyReleased), "password", "salt"));
+    }
+
+    /**
+     * Start a one megabyte hash on another thread, which runs until the test releases it.
+     */
+    private Future<String> startBlockingHash(final PasswordHashingService hashingService) throws InterruptedException {
+        Future<String> runningHash = executor.submit(() ->
+                hashingService.hashPassword(new BlockingAlgorithm(ONE_MEGABYTE), "password", "salt"));
+        assertTrue(hashStarted.await(10, TimeUnit.SECONDS));
+        return runningHash;
+    }
+
+    /**
+     * A hashing algorithm with a given memory cost, whose hashes do not finish until released.
+     */
+    private class BlockingAlgorithm implements ISegueHashingAlgorithm {
+        private final long memoryCost;
+        private final CountDownLatch release;
+
+        BlockingAlgorithm(final long memoryCost) {
+            this(memoryCost, releaseHash);
+        }
+
+        BlockingAlgorithm(final long memoryCost, final CountDownLatch release) {
+            this.memoryCost = memoryCost;
+            this.release = release;
+        }
+
+        @Override
+        public String hashPassword(final String password, final String salt) {
+            hashStarted.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return password + ":" + salt;
+        }
+
+        @Override
+        public byte[] computeHash(final String str, final String salt, final int keyLength) {
+            return hashPassword(str, salt).getBytes();
+        }
+
+        @Override
+        public String generateSalt() {
+            return "salt";
+        }
+
+        @Override
+        public String hashingAlgorithmName() {
+            return "BlockingAlgorithm";
+        }
+
+        @Override
+        public long memoryCostInBytes() {
+            return memoryCost;
+        }
+    }
+}
@@ -55,6 +55,10 @@ public class SegueLocalAuthenticatorTest {
     private ISegueHashingAlgorithm oldAlgorithm2 = new SeguePBKDF2v2();
     private ISegueHashingAlgorithm oldAlgorithm3 = new SeguePBKDF2v3();
 
+    private PasswordHashingService hashingService = new PasswordHashingService(
+            PasswordHashingService.DEFAULT_MEMORY_BUDGET_MEGABYTES, PasswordHashingService.DEFAULT_MAX_QUEUED_HASHES,
+            PasswordHashingService.DEFAULT_QUEUE_TIMEOUT_MILLISECONDS);
+
     Map<String, ISegueHashingAlgorithm> possibleAlgorithms = ImmutableMap.of(
             preferredAlgorithm.hashingAlgorithmName(), preferredAlgorithm,
             oldAlgorithm1.hashingAlgorithmName(), oldAlgorithm1,
@@ -87,7 +91,7 @@ public class SegueLocalAuthenticatorTest {
 		replay(userDataManager);
 		
 		SegueLocalAuthenticator segueAuthenticator = new SegueLocalAuthenticator(this.userDataManager, this.passwordDataManager,
-		        this.propertiesLoader, possibleAlgorithms, preferredAlgorithm);
+		        this.propertiesLoader, possibleAlgorithms, preferredAlgorithm, hashingService);
 		
 		try {
 			segueAuthenticator.setOrChangeUsersPassword(someUser, null);
@@ -123,7 +127,7 @@ public class SegueLocalAuthenticatorTest {
 		replay(userDataManager);
 		
 		SegueLocalAuthenticator segueAuthenticator = new SegueLocalAuthenticator(this.userDataManager, this.passwordDataManager,
-				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm);
+				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm, hashingService);
 		
 		try {
 			segueAuthenticator.setOrChangeUsersPassword(someUser, somePassword);
@@ -172,7 +176,7 @@ public class SegueLocalAuthenticatorTest {
 		replay(userDataManager, passwordDataManager);
 		
 		SegueLocalAuthenticator segueAuthenticator = new SegueLocalAuthenticator(this.userDataManager, this.passwordDataManager,
-				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm);
+				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm, hashingService);
 		try {
 			RegisteredUser authenticatedUser = segueAuthenticator.authenticate(usersEmailAddress, someIncorrectPassword);
 			fail("This should fail as a bad password has been provided.");
@@ -211,7 +215,7 @@ public class SegueLocalAuthenticatorTest {
 		replay(userDataManager);
 		
 		SegueLocalAuthenticator segueAuthenticator = new SegueLocalAuthenticator(this.userDataManager, this.passwordDataManager,
-				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm);
+				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm, hashingService);
 		try {
 			RegisteredUser authenticatedUser = segueAuthenticator.authenticate(someBadEmail, someIncorrectPassword);
 			fail("This should fail as a bad email and password has been provided.");
@@ -254,7 +258,7 @@ public class SegueLocalAuthenticatorTest {
 		replay(userDataManager, passwordDataManager);
 		
 		SegueLocalAuthenticator segueAuthenticator = new SegueLocalAuthenticator(this.userDataManager, this.passwordDataManager,
-				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm);
+				this.propertiesLoader, possibleAlgorithms, preferredAlgorithm, hashingService);
 		try {
 			// first try and mutate the user object using the the set method.
 			// this should set the password and secure hash on the user object.
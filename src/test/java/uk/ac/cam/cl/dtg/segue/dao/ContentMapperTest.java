@@ -3,11 +3,17 @@ package uk.ac.cam.cl.dtg.segue.dao;
 import org.junit.Before;
 import org.junit.Test;
 import org.reflections.Reflections;
+import uk.ac.cam.cl.dtg.isaac.dos.IsaacQuestionPage;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
 import uk.ac.cam.cl.dtg.isaac.dos.content.CodeSnippet;
 import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
 import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 public class ContentMapperTest {
@@ -46,4 +52,33 @@ public class ContentMapperTest {
         // Assert
         assertTrue(contentDTO.getExpandable());
     }
+
+    @Test
+    public void getContentDecoder_sliceOfSearchResponse_decodesPolymorphicContent() throws IOException {
+        // Arrange
+        String source = "{\"id\":\"question_id\",\"type\":\"isaacQuestionPage\",\"title\":\"Caf\u00e9\"}";
+        byte[] response = ("{\"_source\":" + source + "}").getBytes(StandardCharsets.UTF_8);
+        int offset = "{\"_source\":".length();
+
+        // Act
+        Content content = contentMapper.getContentDecoder().decode(response, offset,
+                source.getBytes(StandardCharsets.UTF_8).length);
+
+        // Assert
+        assertTrue(content instanceof IsaacQuestionPage);
+        assertEquals("question_id", content.getId());
+        assertEquals("Caf\u00e9", content.getTitle());
+    }
+
+    @Test
+    public void getContentDecoder_malformedSource_returnsNull() throws IOException {
+        // Arrange
+        byte[] source = "{\"id\":".getBytes(StandardCharsets.UTF_8);
+
+        // Act
+        Content content = contentMapper.getContentDecoder().decode(source, 0, source.length);
+
+        // Assert
+        assertNull(content);
+    }
 }
@@ -15,20 +15,39 @@
  */
 package uk.ac.cam.cl.dtg.segue.dao;
 
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectStream;
+import org.easymock.Capture;
+import org.easymock.CaptureType;
 import org.junit.Before;
 import org.junit.Test;
 import org.powermock.core.classloader.annotations.PowerMockIgnore;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.isaac.dto.content.ContentDTO;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
+import uk.ac.cam.cl.dtg.segue.dao.content.ContentLoader;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentManagerException;
 import uk.ac.cam.cl.dtg.segue.dao.content.ContentMapper;
 import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
 import uk.ac.cam.cl.dtg.segue.database.GitDb;
 import uk.ac.cam.cl.dtg.isaac.dos.content.Content;
 import uk.ac.cam.cl.dtg.isaac.dos.content.ContentBase;
+import uk.ac.cam.cl.dtg.segue.search.AbstractFilterInstruction;
 import uk.ac.cam.cl.dtg.segue.search.ISearchProvider;
+import uk.ac.cam.cl.dtg.segue.search.TermsFilterInstruction;
 
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.easymock.EasyMock.*;
+import static org.eclipse.jgit.lib.Constants.OBJ_BLOB;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
@@ -73,6 +92,177 @@ public class GitContentManagerTest {
 		}
 	}
 
+	/**
+	 * Test that small files are read from the repository once and then served from the cache.
+	 */
+	@Test
+	public void getFileBlob_smallBlob_readFromRepositoryOnce() throws Exception {
+		ObjectId blobId = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+		byte[] fileBytes = "<svg/>".getBytes(StandardCharsets.UTF_8);
+		expect(database.openBlob(blobId)).andReturn(new ObjectLoader.SmallObject(OBJ_BLOB, fileBytes)).once();
+		replay(database);
+
+		for (int i = 0; i < 2; i++) {
+			try (InputStream fileContent = defaultGCM.getFileBlob(blobId)) {
+				assertEquals("<svg/>", new String(fileContent.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		verify(database);
+	}
+
+	/**
+	 * Test that files too large to cache are streamed from the repository rather than read into memory.
+	 */
+	@Test
+	public void getFileBlob_blobTooLargeToCache_streamedFromRepositoryEachTime() throws Exception {
+		ObjectId blobId = ObjectId.fromString("0123456789abcdef0123456789abcdef01234567");
+		byte[] fileBytes = "%PDF".getBytes(StandardCharsets.UTF_8);
+		ObjectLoader blob = createMock(ObjectLoader.class);
+		expect(database.openBlob(blobId)).andReturn(blob).times(2);
+		expect(blob.getSize()).andReturn(9L * 1024 * 1024).times(2);
+		// Only a stream is opened; getCachedBytes is never called:
+		expect(blob.openStream()).andAnswer(() -> new ObjectStream.Filter(OBJ_BLOB, fileBytes.length,
+				new ByteArrayInputStream(fileBytes))).times(2);
+		replay(database, blob);
+
+		for (int i = 0; i < 2; i++) {
+			try (InputStream fileContent = defaultGCM.getFileBlob(blobId)) {
+				assertEquals("%PDF", new String(fileContent.readAllBytes(), StandardCharsets.UTF_8));
+			}
+		}
+		verify(database, blob);
+	}
+
+	/**
+	 * Test that when none of the IDs are cached, they are all loaded in one search and returned in the order asked for.
+	 */
+	@Test
+	public void getContentMatchingIds_noIdsCached_loadedInOneSearchInInputOrder() throws Exception {
+		GitContentManager contentManager = contentManagerAtInitialVersion();
+		Capture<Map<String, AbstractFilterInstruction>> filters = newCapture();
+		expectContentSearch(filters, 3, "a", "b", "c");
+		expectDTOMapping(3);
+		replay(searchProvider, contentMapper);
+
+		ResultsWrapper<ContentDTO> results = contentManager.getContentMatchingIds(Arrays.asList("c", "a", "b"), 0, -1);
+
+		assertEquals(Arrays.asList("c", "a", "b"), idsOf(results.getResults()));
+		assertEquals(Long.valueOf(3), results.getTotalResults());
+		assertEquals(Arrays.asList("c", "a", "b"), searchedIds(filters.getValue()));
+		verify(searchProvider, contentMapper);
+	}
+
+	/**
+	 * Test that when every ID is cached, the results come from the cache without searching.
+	 */
+	@Test
+	public void getContentMatchingIds_allIdsCached_noSearchMade() throws Exception {
+		GitContentManager contentManager = contentManagerAtInitialVersion();
+		expectContentSearch(newCapture(), 2, "a", "b");
+		expectDTOMapping(2);
+		replay(searchProvider, contentMapper);
+
+		ResultsWrapper<ContentDTO> firstResults = contentManager.getContentMatchingIds(Arrays.asList("a", "b"), 0, -1);
+		ResultsWrapper<ContentDTO> cachedResults = contentManager.getContentMatchingIds(Arrays.asList("b", "a"), 0, -1);
+
+		assertEquals(Arrays.asList("b", "a"), idsOf(cachedResults.getResults()));
+		assertSame(firstResults.getResults().get(0), cachedResults.getResults().get(1));
+		verify(searchProvider, contentMapper);
+	}
+
+	/**
+	 * Test that when some IDs are cached, only the others are searched for, and IDs which do not exist are left out.
+	 */
+	@Test
+	public void getContentMatchingIds_someIdsCached_onlyUncachedIdsSearched() throws Exception {
+		GitContentManager contentManager = contentManagerAtInitialVersion();
+		Capture<Map<String, AbstractFilterInstruction>> filters = newCapture(CaptureType.ALL);
+		expectContentSearch(filters, 1, "a");
+		expectContentSearch(filters, 2, "b");
+		expectDTOMapping(2);
+		replay(searchProvider, contentMapper);
+
+		contentManager.getContentMatchingIds(Collections.singletonList("a"), 0, -1);
+		ResultsWrapper<ContentDTO> results =
+				contentManager.getContentMatchingIds(Arrays.asList("b", "missing", "a"), 0, 1);
+
+		assertEquals(Collections.singletonList("b"), idsOf(results.getResults()));
+		assertEquals(Long.valueOf(2), results.getTotalResults());
+		assertEquals(Arrays.asList("b", "missing"), searchedIds(filters.getValues().get(1)));
+		verify(searchProvider, contentMapper);
+	}
+
+	/**
+	 * Test that a content loader fetches every prefetched ID with the first lookup, and remembers IDs not found.
+	 */
+	@Test
+	public void contentLoader_prefetchedIds_loadedTogetherOnFirstLookup() throws Exception {
+		GitContentManager contentManager = contentManagerAtInitialVersion();
+		Capture<Map<String, AbstractFilterInstruction>> filters = newCapture();
+		expectContentSearch(filters, 3, "b", "a");
+		replay(searchProvider, contentMapper);
+
+		ContentLoader contentLoader = contentManager.createContentLoader().prefetch("a", "b", "missing");
+
+		assertEquals("b", contentLoader.getContentDOById("b").getId());
+		assertEquals("a", contentLoader.getContentDOById("a").getId());
+		assertNull(contentLoader.getContentDOById("missing"));
+		assertEquals(Arrays.asList("a", "b", "missing"), searchedIds(filters.getValue()));
+		verify(searchProvider, contentMapper);
+	}
+
+	/**
+	 * @return a content manager whose live content version is fixed, rather than read from the search index.
+	 */
+	private GitContentManager contentManagerAtInitialVersion() {
+		return new GitContentManager(database, searchProvider, contentMapper) {
+			@Override
+			public String getCurrentContentSHA() {
+				return INITIAL_VERSION;
+			}
+		};
+	}
+
+	/**
+	 * Expect a single search for a batch of content IDs.
+	 *
+	 * @param filters - to capture the filters of the search.
+	 * @param batchSize - the number of IDs searched for.
+	 * @param foundIds - the IDs of the content the search finds, in the order the search returns them.
+	 */
+	private void expectContentSearch(final Capture<Map<String, AbstractFilterInstruction>> filters,
+									 final int batchSize, final String... foundIds) throws Exception {
+		List<Content> foundContent = Arrays.stream(foundIds)
+				.map(id -> createEmptyContentElement(new ArrayList<>(), id)).collect(Collectors.toList());
+		expect(contentMapper.getContentDecoder()).andReturn(null).once();
+		expect(searchProvider.<Content>termSearch(anyObject(), eq("content"), anyObject(), anyObject(), eq(0),
+				eq(batchSize), capture(filters), anyObject()))
+				.andReturn(new ResultsWrapper<>(foundContent, (long) foundContent.size())).once();
+	}
+
+	/**
+	 * Expect content DOs to be mapped to DTOs with the same ID.
+	 *
+	 * @param count - the number of DOs mapped.
+	 */
+	private void expectDTOMapping(final int count) {
+		expect(contentMapper.getDTOByDO(anyObject(Content.class))).andAnswer(() -> {
+			ContentDTO contentDTO = new ContentDTO();
+			contentDTO.setId(((Content) getCurrentArguments()[0]).getId());
+			return contentDTO;
+		}).times(count);
+	}
+
+	private static List<String> searchedIds(final Map<String, AbstractFilterInstruction> filters) {
+		TermsFilterInstruction idFilter = (TermsFilterInstruction) filters.get(
+				Constants.ID_FIELDNAME + "." + Constants.UNPROCESSED_SEARCH_FIELD_SUFFIX);
+		return new ArrayList<>(idFilter.getMatchValues());
+	}
+
+	private static List<String> idsOf(final List<ContentDTO> results) {
+		return results.stream().map(ContentDTO::getId).collect(Collectors.toList());
+	}
+
 	/**
 	 * Helper method for the
 	 * flattenContentObjects_flattenMultiTierObject_checkCorrectObjectReturned
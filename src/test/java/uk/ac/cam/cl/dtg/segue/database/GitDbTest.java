@@ -17,17 +17,29 @@ package uk.ac.cam.cl.dtg.segue.database;
 
 import static org.junit.Assert.*;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
 
 import org.easymock.EasyMock;
 import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.ObjectId;
 import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 import org.powermock.api.easymock.PowerMock;
 
 public class GitDbTest {
 
+	@Rule
+	public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
 	@Test
 	public void gitDbOtherConstructor_checkForBadParameters_exceptionsShouldBeThrown() {
 		// Test that if you provide an empty string or null, an IllegalArgumentException gets thrown and git.open never gets called.
@@ -98,4 +110,42 @@ public class GitDbTest {
 
 		assertNull(db.getTreeWalk("sha", "")); // Blank path is explicitly allowed. This should not throw an exception. But in this case we've passed an invalid sha, so we should get null back.
 	}
+
+	@Test
+	public void getFilePathIndexByCommitSHA_indexVersionOfRepository_allFilesInThatVersionIndexed() throws Exception {
+		File repoLocation = temporaryFolder.newFolder();
+		Git git = Git.init().setDirectory(repoLocation).call();
+
+		Files.createDirectories(repoLocation.toPath().resolve("content/figures"));
+		Files.write(repoLocation.toPath().resolve("content/page.json"), "{}".getBytes(StandardCharsets.UTF_8));
+		Files.write(repoLocation.toPath().resolve("content/figures/figure.svg"), "<svg/>".getBytes(StandardCharsets.UTF_8));
+		git.add().addFilepattern(".").call();
+		RevCommit firstCommit = git.commit().setMessage("First").setAuthor("test", "test@example.com").call();
+
+		Files.write(repoLocation.toPath().resolve("content/figures/figure.svg"), "<svg></svg>".getBytes(StandardCharsets.UTF_8));
+		git.add().addFilepattern(".").call();
+		git.commit().setMessage("Second").setAuthor("test", "test@example.com").call();
+
+		GitDb db = new GitDb(git);
+		Map<String, ObjectId> filePathIndex = db.getFilePathIndexByCommitSHA(firstCommit.getName());
+
+		assertEquals(2, filePathIndex.size());
+		assertNull(filePathIndex.get("content/figures"));
+		assertEquals("<svg/>", new String(db.openBlob(filePathIndex.get("content/figures/figure.svg")).getBytes(),
+				StandardCharsets.UTF_8));
+		assertNull(db.getFilePathIndexByCommitSHA("unknown"));
+	}
+
+	@Test
+	public void openBlob_blobNotInRepository_missingObjectExceptionThrown() throws Exception {
+		Git git = Git.init().setDirectory(temporaryFolder.newFolder()).call();
+		GitDb db = new GitDb(git);
+
+		try {
+			db.openBlob(ObjectId.fromString("0123456789abcdef0123456789abcdef01234567"));
+			fail("Opening a blob which is not in the repository should fail");
+		} catch (MissingObjectException e) {
+			// Exception correctly thrown.
+		}
+	}
 }
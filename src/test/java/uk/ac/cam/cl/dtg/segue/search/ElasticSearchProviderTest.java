@@ -18,12 +18,30 @@ package uk.ac.cam.cl.dtg.segue.search;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
+import org.elasticsearch.search.builder.SearchSourceBuilder;
+import org.elasticsearch.search.sort.SortBuilder;
+import org.elasticsearch.search.sort.SortBuilders;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
 
 public class ElasticSearchProviderTest {
 
@@ -36,9 +54,7 @@ public class ElasticSearchProviderTest {
         filters.put("published", new SimpleFilterInstruction("true"));
 
         BoolQueryBuilder expectedQuery = QueryBuilders.boolQuery()
-                .must(QueryBuilders.boolQuery()
-                        .must(QueryBuilders.boolQuery()
-                                .must(QueryBuilders.matchQuery("published", "true"))));
+                .filter(QueryBuilders.termQuery("published", "true"));
 
         // Act
         QueryBuilder actualQuery = provider.generateFilterQuery(filters);
@@ -56,9 +72,7 @@ public class ElasticSearchProviderTest {
         filters.put("published", new SimpleExclusionInstruction("true"));
 
         BoolQueryBuilder expectedQuery = QueryBuilders.boolQuery()
-                .mustNot(QueryBuilders.boolQuery()
-                        .must(QueryBuilders.boolQuery()
-                                .must(QueryBuilders.matchQuery("published", "true"))));
+                .mustNot(QueryBuilders.termQuery("published", "true"));
 
         // Act
         QueryBuilder actualQuery = provider.generateFilterQuery(filters);
@@ -76,16 +90,27 @@ public class ElasticSearchProviderTest {
         filters.put("published", new SimpleFilterInstruction("true"));
         filters.put("tags", new SimpleExclusionInstruction("regression_test"));
 
-        BoolQueryBuilder expectedMustQuery = QueryBuilders.boolQuery()
-                .must(QueryBuilders.boolQuery()
-                                .must(QueryBuilders.matchQuery("published", "true")));
+        BoolQueryBuilder expectedQuery = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.termQuery("published", "true"))
+                .mustNot(QueryBuilders.matchQuery("tags", "regression_test"));
+
+        // Act
+        QueryBuilder actualQuery = provider.generateFilterQuery(filters);
+
+        // Assert
+        assertEquals(expectedQuery, actualQuery);
+    }
 
-        BoolQueryBuilder expectedMustNotQuery = QueryBuilders.boolQuery()
-                .must(QueryBuilders.boolQuery()
-                                .must(QueryBuilders.matchQuery("tags", "regression_test")));
+    @Test
+    public void generateFilterQuery_dateRangeFilterInstruction_returnsRangeRoundedToTheMinute() {
+        // Arrange
+        ElasticSearchProvider provider = new ElasticSearchProvider(null);
 
-        BoolQueryBuilder expectedQuery = QueryBuilders.boolQuery().must(expectedMustQuery);
-        expectedQuery.mustNot(expectedMustNotQuery);
+        Map<String, AbstractFilterInstruction> filters = new HashMap<>();
+        filters.put("endDate", new DateRangeFilterInstruction(new Date(1666200012345L), new Date(1666200071999L)));
+
+        BoolQueryBuilder expectedQuery = QueryBuilders.boolQuery()
+                .filter(QueryBuilders.rangeQuery("endDate").from(1666200000000L).to(1666200060000L));
 
         // Act
         QueryBuilder actualQuery = provider.generateFilterQuery(filters);
@@ -93,4 +118,184 @@ public class ElasticSearchProviderTest {
         // Assert
         assertEquals(expectedQuery, actualQuery);
     }
+
+    @Test
+    public void iterateAllFromIndex_moreHitsThanPageSize_pagesFromPointInTimeWithShardDocTiebreaker() throws Exception {
+        // Arrange
+        int totalHits = ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE + 1;
+        PointInTimeStubProvider provider = new PointInTimeStubProvider(
+                searchPage("pit2", totalHits, 0, ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE),
+                searchPage(null, totalHits, ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE, 1));
+
+        // Act
+        List<String> results = new ArrayList<>();
+        long totalResults;
+        try (SearchResultsIterator<String> iterator = provider.iterateAllFromIndex("content", "page",
+                SearchHitDecoder.SOURCE_AS_STRING)) {
+            iterator.forEachRemaining(results::add);
+            totalResults = iterator.getTotalResults();
+        }
+
+        // Assert
+        assertEquals(totalHits, totalResults);
+        assertEquals(totalHits, results.size());
+        assertEquals("{\"n\":0}", results.get(0));
+        assertEquals("{\"n\":1000}", results.get(totalHits - 1));
+        // the second page follows the last hit of the first, from the point in time id the first page returned:
+        assertEquals(Arrays.asList("pit1", "pit2"), provider.searchedPointInTimeIds);
+        assertEquals(2, provider.searchAfterValues.size());
+        assertArrayEquals(null, provider.searchAfterValues.get(0));
+        assertArrayEquals(new Object[]{999}, provider.searchAfterValues.get(1));
+        for (List<SortBuilder<?>> sorts : provider.searchSorts) {
+            assertEquals(SortBuilders.fieldSort(ElasticSearchProvider.SHARD_DOC_SORT_FIELD), sorts.get(sorts.size() - 1));
+        }
+        assertEquals(Collections.singletonList("pit2"), provider.closedPointInTimeIds);
+    }
+
+    @Test
+    public void iterateAllFromIndex_sourceWithDecimalsAndUnicode_sourceDecodedAsIndexed() throws Exception {
+        // Arrange
+        String source = "{\"title\":\"Caf\u00e9\",\"value\":1.50,\"tags\":[\"a\",null,true]}";
+        PointInTimeStubProvider provider = new PointInTimeStubProvider(
+                "{\"pit_id\":\"pit1\",\"took\":1,\"hits\":{\"total\":{\"value\":1,\"relation\":\"eq\"},"
+                        + "\"hits\":[{\"_id\":\"a\",\"_source\":" + source + ",\"sort\":[1.5,\"a\"]}]}}");
+
+        // Act
+        List<String> results = new ArrayList<>();
+        try (SearchResultsIterator<String> iterator = provider.iterateAllFromIndex("content", "page",
+                SearchHitDecoder.SOURCE_AS_STRING)) {
+            iterator.forEachRemaining(results::add);
+        }
+
+        // Assert
+        assertEquals(Collections.singletonList(source), results);
+        assertEquals(Collections.singletonList("pit1"), provider.closedPointInTimeIds);
+    }
+
+    @Test
+    public void iterateAllFromIndex_laterPageFails_pointInTimeClosed() throws Exception {
+        // Arrange
+        PointInTimeStubProvider provider = new PointInTimeStubProvider(
+                searchPage(null, 2000, 0, ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE), null);
+        List<String> results = new ArrayList<>();
+
+        // Act
+        try (SearchResultsIterator<String> iterator = provider.iterateAllFromIndex("content", "page",
+                SearchHitDecoder.SOURCE_AS_STRING)) {
+            iterator.forEachRemaining(results::add);
+            fail("The failed page should have been reported.");
+        } catch (UncheckedIOException e) {
+            // Assert
+            assertEquals(ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE, results.size());
+            assertEquals(Collections.singletonList("pit1"), provider.closedPointInTimeIds);
+        }
+    }
+
+    @Test
+    public void iterateAllFromIndex_firstPageFails_pointInTimeClosedAndExceptionThrown() {
+        // Arrange
+        PointInTimeStubProvider provider = new PointInTimeStubProvider((String) null);
+
+        // Act
+        try {
+            provider.iterateAllFromIndex("content", "page", SearchHitDecoder.SOURCE_AS_STRING);
+            fail("The failed search should have been reported.");
+        } catch (SegueSearchException e) {
+            // Assert
+            assertEquals(Collections.singletonList("pit1"), provider.closedPointInTimeIds);
+        }
+    }
+
+    @Test
+    public void iterateAllFromIndex_hitCannotBeDecoded_pointInTimeClosed() throws Exception {
+        // Arrange
+        PointInTimeStubProvider provider = new PointInTimeStubProvider(
+                searchPage(null, 2000, 0, ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE),
+                searchPage(null, 2000, ElasticSearchProvider.POINT_IN_TIME_PAGE_SIZE, 1));
+        SearchHitDecoder<String> decoder = (source, offset, length) -> {
+            String result = new String(source, offset, length, StandardCharsets.UTF_8);
+            if (result.contains("1000")) {
+                throw new IllegalStateException("Undecodable hit");
+            }
+            return result;
+        };
+
+        // Act
+        SearchResultsIterator<String> iterator = provider.iterateAllFromIndex("content", "page", decoder);
+        try {
+            iterator.forEachRemaining(result -> { });
+            fail("The undecodable hit should have been reported.");
+        } catch (IllegalStateException e) {
+            // Assert
+            assertFalse(iterator.hasNext());
+            assertEquals(Collections.singletonList("pit1"), provider.closedPointInTimeIds);
+        }
+    }
+
+    /**
+     * @param pointInTimeId - the point in time id returned with the page, or null for none.
+     * @param totalHits - the total number of hits of the search.
+     * @param firstHit - the number of the first hit on the page.
+     * @param hitCount - the number of hits on the page.
+     * @return a search response body, where each hit has its number as its source and sort value.
+     */
+    private static String searchPage(final String pointInTimeId, final long totalHits, final int firstHit,
+                                     final int hitCount) {
+        StringBuilder page = new StringBuilder("{");
+        if (pointInTimeId != null) {
+            page.append(String.format("\"pit_id\":\"%s\",", pointInTimeId));
+        }
+        page.append(String.format("\"hits\":{\"total\":{\"value\":%d,\"relation\":\"eq\"},\"hits\":[", totalHits));
+        for (int hit = firstHit; hit < firstHit + hitCount; hit++) {
+            if (hit > firstHit) {
+                page.append(',');
+            }
+            page.append(String.format("{\"_id\":\"%d\",\"_source\":{\"n\":%d},\"sort\":[%d]}", hit, hit, hit));
+        }
+        return page.append("]}}").toString();
+    }
+
+    /**
+     * A provider whose point in time requests are answered with canned responses rather than sent to a cluster.
+     */
+    private static class PointInTimeStubProvider extends ElasticSearchProvider {
+        private final Deque<String> responses;
+        private final List<String> searchedPointInTimeIds = new ArrayList<>();
+        private final List<Object[]> searchAfterValues = new ArrayList<>();
+        private final List<List<SortBuilder<?>>> searchSorts = new ArrayList<>();
+        private final List<String> closedPointInTimeIds = new ArrayList<>();
+
+        /**
+         * @param responses - the body of the response to each search in turn, where null fails the search.
+         */
+        PointInTimeStubProvider(final String... responses) {
+            super(null);
+            this.responses = new ArrayDeque<>();
+            for (String response : responses) {
+                this.responses.add(null == response ? "" : response);
+            }
+        }
+
+        @Override
+        String openPointInTime(final String typedIndex) {
+            return "pit1";
+        }
+
+        @Override
+        InputStream searchPointInTime(final SearchSourceBuilder searchSourceBuilder) throws IOException {
+            searchedPointInTimeIds.add(searchSourceBuilder.pointInTimeBuilder().getEncodedId());
+            searchAfterValues.add(searchSourceBuilder.searchAfter());
+            searchSorts.add(new ArrayList<>(searchSourceBuilder.sorts()));
+            String response = responses.remove();
+            if (response.isEmpty()) {
+                throw new IOException("Search failed");
+            }
+            return new ByteArrayInputStream(response.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        void closePointInTime(final String pointInTimeId) {
+            closedPointInTimeIds.add(pointInTimeId);
+        }
+    }
 }
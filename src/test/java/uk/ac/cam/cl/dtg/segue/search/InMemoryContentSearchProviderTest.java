@@ -0,0 +1,274 @@
+package uk.ac.cam.cl.dtg.segue.search;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.elasticsearch.action.get.GetResponse;
+import org.elasticsearch.common.bytes.BytesArray;
+import org.elasticsearch.index.get.GetResult;
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.isaac.dto.ResultsWrapper;
+import uk.ac.cam.cl.dtg.segue.api.Constants;
+import uk.ac.cam.cl.dtg.segue.dao.content.GitContentManager;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.easymock.EasyMock.anyObject;
+import static org.easymock.EasyMock.anyString;
+import static org.easymock.EasyMock.createMock;
+import static org.easymock.EasyMock.eq;
+import static org.easymock.EasyMock.expect;
+import static org.easymock.EasyMock.getCurrentArguments;
+import static org.easymock.EasyMock.replay;
+import static org.easymock.EasyMock.verify;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class InMemoryContentSearchProviderTest {
+    private static final String CONTENT_INDEX = "live";
+    private static final String CONTENT_SHA = "0123456789abcdef0123456789abcdef01234567";
+    private static final String CONTENT_TYPE = Constants.CONTENT_INDEX_TYPE.CONTENT.toString();
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final SearchHitDecoder<String> ID_DECODER =
+            (source, offset, length) -> objectMapper.readTree(source, offset, length).get("id").textValue();
+
+    private static final List<String> DOCUMENTS = ImmutableList.of(
+            "{\"id\":\"mechanics_q1\",\"type\":\"isaacQuestionPage\",\"title\":\"Falling Bodies\",\"published\":true,"
+                    + "\"tags\":[\"physics\",\"mechanics\"],\"audience\":[{\"stage\":[\"a_level\"],"
+                    + "\"difficulty\":[\"practice_2\"]},{\"stage\":[\"gcse\"],\"difficulty\":[\"challenge_1\"]}]}",
+            "{\"id\":\"mechanics_q2\",\"type\":\"isaacQuestionPage\",\"title\":\"Accelerating Blocks\","
+                    + "\"published\":true,\"tags\":[\"physics\",\"mechanics\"],\"audience\":[{\"stage\":[\"a_level\"],"
+                    + "\"difficulty\":[\"challenge_1\"]}]}",
+            "{\"id\":\"waves_q1\",\"type\":\"isaacQuestionPage\",\"title\":\"Standing Waves\",\"published\":false,"
+                    + "\"tags\":[\"physics\",\"waves\"]}",
+            "{\"id\":\"regression_q1\",\"type\":\"isaacQuestionPage\",\"title\":\"Regression Question\","
+                    + "\"published\":true,\"tags\":[\"regression_test\"]}",
+            "{\"id\":\"event_1\",\"type\":\"isaacEventPage\",\"title\":\"Masterclass\",\"published\":true,"
+                    + "\"date\":1600000000000,\"endDate\":1600003600000}",
+            "{\"id\":\"untitled\",\"type\":\"isaacQuestionPage\",\"published\":true,\"tags\":[\"mechanics\"]}");
+
+    private static final Map<String, AbstractFilterInstruction> BASE_FILTERS = ImmutableMap.of(
+            "tags", new SimpleExclusionInstruction("regression_test"),
+            "published", new SimpleFilterInstruction("true"));
+
+    private ISearchProvider mockSearchProvider;
+
+    @Before
+    public final void setUp() throws Exception {
+        this.mockSearchProvider = createMock(ISearchProvider.class);
+    }
+
+    @SuppressWarnings("unchecked")
+    private InMemoryContentSearchProvider buildLoadedProvider(final String liveContentSHA) throws Exception {
+        expect(mockSearchProvider.hasIndex(eq(CONTENT_SHA), anyString()))
+                .andAnswer(() -> CONTENT_TYPE.equals(getCurrentArguments()[1])).anyTimes();
+        expect(mockSearchProvider.iterateAllFromIndex(eq(CONTENT_SHA), eq(CONTENT_TYPE), anyObject()))
+                .andAnswer(() -> iterate(DOCUMENTS, (SearchHitDecoder<Object>) getCurrentArguments()[2])).once();
+        expect(mockSearchProvider.getById(CONTENT_INDEX, Constants.CONTENT_INDEX_TYPE.METADATA.toString(), "general"))
+                .andReturn(new GetResponse(new GetResult(CONTENT_INDEX + "_metadata", "_doc", "general", 0, 1, 1,
+                        true, new BytesArray("{\"version\":\"" + liveContentSHA + "\"}"), null, null)))
+                .anyTimes();
+
+        InMemoryContentSearchProvider provider = new InMemoryContentSearchProvider(mockSearchProvider, CONTENT_INDEX);
+        replay(mockSearchProvider);
+        provider.loadContentVersion(CONTENT_SHA);
+        return provider;
+    }
+
+    @Test
+    public void termSearch_idWithBaseFilters_returnsOnlyVisibleContent() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        ResultsWrapper<String> published = provider.termSearch(CONTENT_INDEX, CONTENT_TYPE, "mechanics_q1", "id.raw",
+                0, 1, BASE_FILTERS, ID_DECODER);
+        ResultsWrapper<String> unpublished = provider.termSearch(CONTENT_INDEX, CONTENT_TYPE, "waves_q1", "id.raw",
+                0, 1, BASE_FILTERS, ID_DECODER);
+        ResultsWrapper<String> regressionTest = provider.termSearch(CONTENT_INDEX, CONTENT_TYPE, "regression_q1",
+                "id.raw", 0, 1, BASE_FILTERS, ID_DECODER);
+
+        assertEquals(ImmutableList.of("mechanics_q1"), published.getResults());
+        assertEquals(Collections.emptyList(), unpublished.getResults());
+        assertEquals(Collections.emptyList(), regressionTest.getResults());
+        verify(mockSearchProvider);
+    }
+
+    @Test
+    public void termSearch_termsFilterOnIds_returnsMatchesInIndexOrder() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        ResultsWrapper<String> results = provider.termSearch(CONTENT_INDEX, CONTENT_TYPE, null, null, 0, 10,
+                ImmutableMap.of("id.raw", new TermsFilterInstruction(
+                        ImmutableList.of("event_1", "mechanics_q1", "missing"))), ID_DECODER);
+
+        assertEquals(ImmutableList.of("mechanics_q1", "event_1"), results.getResults());
+        assertEquals(Long.valueOf(2), results.getTotalResults());
+    }
+
+    @Test
+    public void matchSearch_nestedAudienceFields_matchWithinTheSameAudience() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        List<GitContentManager.BooleanSearchClause> fieldsToMatch = ImmutableList.of(
+                new GitContentManager.BooleanSearchClause("type", Constants.BooleanOperator.AND,
+                        ImmutableList.of("isaacQuestionPage")),
+                new GitContentManager.BooleanSearchClause(Constants.STAGE_FIELDNAME, Constants.BooleanOperator.OR,
+                        ImmutableList.of("a_level")),
+                new GitContentManager.BooleanSearchClause(Constants.DIFFICULTY_FIELDNAME,
+                        Constants.BooleanOperator.OR, ImmutableList.of("challenge_1")));
+
+        ResultsWrapper<String> results = provider.matchSearch(CONTENT_INDEX, CONTENT_TYPE, fieldsToMatch, 0, 10,
+                null, BASE_FILTERS, ID_DECODER);
+
+        // mechanics_q1 is a_level and challenge_1, but not for the same audience:
+        assertEquals(ImmutableList.of("mechanics_q2"), results.getResults());
+    }
+
+    @Test
+    public void matchSearch_sortedByRawTitle_pagesInOrderWithMissingTitlesLast() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        List<GitContentManager.BooleanSearchClause> fieldsToMatch = ImmutableList.of(
+                new GitContentManager.BooleanSearchClause("tags", Constants.BooleanOperator.OR,
+                        ImmutableList.of("Mechanics", "waves")));
+        Map<String, Constants.SortOrder> sortInstructions = ImmutableMap.of("title.raw", Constants.SortOrder.ASC);
+
+        ResultsWrapper<String> firstPage = provider.matchSearch(CONTENT_INDEX, CONTENT_TYPE, fieldsToMatch, 0, 2,
+                sortInstructions, null, ID_DECODER);
+        ResultsWrapper<String> secondPage = provider.matchSearch(CONTENT_INDEX, CONTENT_TYPE, fieldsToMatch, 2, 2,
+                sortInstructions, null, ID_DECODER);
+
+        assertEquals(ImmutableList.of("mechanics_q2", "mechanics_q1"), firstPage.getResults());
+        assertEquals(ImmutableList.of("waves_q1", "untitled"), secondPage.getResults());
+        assertEquals(Long.valueOf(4), firstPage.getTotalResults());
+    }
+
+    @Test
+    public void findByPrefix_rawIdPrefixAndDateRange_returnsMatchingContent() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        ResultsWrapper<String> byPrefix = provider.findByPrefix(CONTENT_INDEX, CONTENT_TYPE, "id.raw", "mechanics_",
+                0, -1, BASE_FILTERS, ID_DECODER);
+        ResultsWrapper<String> byDate = provider.findByExactMatch(CONTENT_INDEX, CONTENT_TYPE, "type",
+                "isaacEventPage", 0, -1, ImmutableMap.of("endDate",
+                        new DateRangeFilterInstruction(new Date(1600000000000L), null)), ID_DECODER);
+        ResultsWrapper<String> byPastDate = provider.findByExactMatch(CONTENT_INDEX, CONTENT_TYPE, "type",
+                "isaacEventPage", 0, -1, ImmutableMap.of("endDate",
+                        new DateRangeFilterInstruction(new Date(1700000000000L), null)), ID_DECODER);
+
+        assertEquals(ImmutableList.of("mechanics_q1", "mechanics_q2"), byPrefix.getResults());
+        assertEquals(ImmutableList.of("event_1"), byDate.getResults());
+        assertEquals(Collections.emptyList(), byPastDate.getResults());
+    }
+
+    @Test
+    public void termSearch_liveContentVersionChanged_searchesUnderlyingProvider() throws Exception {
+        String newContentSHA = "fedcba9876543210fedcba9876543210fedcba98";
+        ResultsWrapper<String> expectedResults = new ResultsWrapper<>(ImmutableList.of("mechanics_q1"), 1L);
+        expect(mockSearchProvider.termSearch(CONTENT_INDEX, CONTENT_TYPE, "mechanics_q1", "id.raw", 0, 1,
+                BASE_FILTERS, ID_DECODER)).andReturn(expectedResults).once();
+        // The new version is loaded in the background:
+        expect(mockSearchProvider.hasIndex(eq(newContentSHA), anyString())).andReturn(false).anyTimes();
+        InMemoryContentSearchProvider provider = buildLoadedProvider(newContentSHA);
+
+        ResultsWrapper<String> results = provider.termSearch(CONTENT_INDEX, CONTENT_TYPE, "mechanics_q1", "id.raw",
+                0, 1, BASE_FILTERS, ID_DECODER);
+
+        assertSame(expectedResults, results);
+    }
+
+    @Test
+    public void fuzzySearch_loadedContent_searchesUnderlyingProvider() throws Exception {
+        ResultsWrapper<String> expectedResults = new ResultsWrapper<>(ImmutableList.of("waves_q1"), 1L);
+        expect(mockSearchProvider.fuzzySearch(CONTENT_INDEX, CONTENT_TYPE, "wave", 0, 10, null, BASE_FILTERS,
+                ID_DECODER, "title")).andReturn(expectedResults).once();
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        ResultsWrapper<String> results = provider.fuzzySearch(CONTENT_INDEX, CONTENT_TYPE, "wave", 0, 10, null,
+                BASE_FILTERS, ID_DECODER, "title");
+
+        assertSame(expectedResults, results);
+        assertEquals(CONTENT_SHA, provider.getLoadedContentSHA());
+        verify(mockSearchProvider);
+    }
+
+    @Test
+    public void matchSearch_noSortOrder_returnsMatchesInIndexOrderNotByRelevance() throws Exception {
+        InMemoryContentSearchProvider provider = buildLoadedProvider(CONTENT_SHA);
+
+        List<GitContentManager.BooleanSearchClause> fieldsToMatch = ImmutableList.of(
+                new GitContentManager.BooleanSearchClause("title", Constants.BooleanOperator.OR,
+                        ImmutableList.of("Falling", "Standing Waves")));
+
+        ResultsWrapper<String> results = provider.matchSearch(CONTENT_INDEX, CONTENT_TYPE, fieldsToMatch, 0, 10,
+                null, null, ID_DECODER);
+
+        // The cluster would score waves_q1 higher, as it matches more of the search terms:
+        assertEquals(ImmutableList.of("mechanics_q1", "waves_q1"), results.getResults());
+    }
+
+    @Test
+    public void search_termsOnTextAndNumericFields_matchedFromFieldIndexes() throws Exception {
+        InMemorySearchIndex index = InMemorySearchIndex.fromDocuments(ImmutableList.of(
+                objectMapper.readTree("{\"id\":\"a\",\"title\":\"Projectile Motion\",\"level\":2}"),
+                objectMapper.readTree("{\"id\":\"b\",\"title\":\"Circular Motion\",\"level\":2.0}"),
+                objectMapper.readTree("{\"id\":\"c\",\"title\":\"Motionless\",\"level\":3}")));
+
+        assertEquals(ImmutableList.of("a", "b"), index.search(InMemorySearchIndex.term("title", "motion"), 0, -1,
+                null, ID_DECODER).getResults());
+        assertEquals(ImmutableList.of("a", "b"), index.search(InMemorySearchIndex.term("level", "2.00"), 0, -1,
+                null, ID_DECODER).getResults());
+        assertEquals(ImmutableList.of("a", "b", "c"), index.search(InMemorySearchIndex.prefix("title", "motion"),
+                0, -1, null, ID_DECODER).getResults());
+        assertEquals(ImmutableList.of("c"), index.search(new InMemorySearchIndex.BoolQuery()
+                .must(InMemorySearchIndex.prefix("title", "motion"))
+                .mustNot(InMemorySearchIndex.match("title", "circular projectile")), 0, -1, null, ID_DECODER)
+                .getResults());
+    }
+
+    @Test
+    public void analyse_mixedText_splitsIntoLowerCaseTokens() {
+        assertEquals(ImmutableList.of("a_level", "e.g", "3.5", "don't", "stop"),
+                InMemorySearchIndex.analyse("A_Level, e.g. 3.5 -- Don't STOP!"));
+    }
+
+    private static <T> SearchResultsIterator<T> iterate(final List<String> documents,
+                                                        final SearchHitDecoder<T> decoder) {
+        List<T> decoded = documents.stream().map(document -> {
+            byte[] source = document.getBytes(StandardCharsets.UTF_8);
+            try {
+                return decoder.decode(source, 0, source.length);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }).collect(Collectors.toList());
+        Iterator<T> iterator = decoded.iterator();
+        return new SearchResultsIterator<T>() {
+            @Override
+            public long getTotalResults() {
+                return decoded.size();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+    }
+}
@@ -0,0 +1,70 @@
+package uk.ac.cam.cl.dtg.segue.util;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.ac.cam.cl.dtg.util.locations.PostCode;
+import uk.ac.cam.cl.dtg.util.locations.PostCodeGeoIndex;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Test class for the PostCodeGeoIndex class.
+ */
+public class PostCodeGeoIndexTest {
+    private PostCodeGeoIndex postCodeIndex;
+
+    @Before
+    public final void setUp() {
+        postCodeIndex = new PostCodeGeoIndex();
+        postCodeIndex.addAll(Arrays.asList(
+                new PostCode("CB3 0FD", 52.2108, 0.0916),
+                new PostCode("CB23 7AN", 52.2076, -0.0053),
+                new PostCode("IP32 7JY", 52.2500, 0.6963),
+                new PostCode("BD17 5TP", 53.8487, -1.7707),
+                new PostCode("NOWHERE", null, null)));
+    }
+
+    @Test
+    public void findWithinRadius_nearbyAndDistantPostCodes_onlyNearbyReturned() {
+        Set<String> found = postCodeNames(postCodeIndex.findWithinRadius(52.2108, 0.0916, 25));
+
+        assertEquals(Set.of("CB30FD", "CB237AN"), found);
+    }
+
+    @Test
+    public void findWithinRadius_radiusSpanningManyCells_matchesDistanceToEveryPostCode() {
+        Set<String> found = postCodeNames(postCodeIndex.findWithinRadius(52.2108, 0.0916, 50));
+
+        assertEquals(Set.of("CB30FD", "CB237AN", "IP327JY"), found);
+    }
+
+    @Test
+    public void findWithinRadius_acrossAntimeridian_postCodesOnBothSidesReturned() {
+        postCodeIndex.addAll(Arrays.asList(new PostCode("EAST", -16.5, 179.95), new PostCode("WEST", -16.5, -179.95)));
+
+        Set<String> found = postCodeNames(postCodeIndex.findWithinRadius(-16.5, 179.99, 10));
+
+        assertEquals(Set.of("EAST", "WEST"), found);
+    }
+
+    @Test
+    public void addAll_postCodeMoved_onlyFoundAtNewLocation() {
+        postCodeIndex.addAll(Collections.singletonList(new PostCode("CB3 0FD", 53.8487, -1.7707)));
+
+        assertFalse(postCodeNames(postCodeIndex.findWithinRadius(52.2108, 0.0916, 1)).contains("CB30FD"));
+        assertTrue(postCodeNames(postCodeIndex.findWithinRadius(53.8487, -1.7707, 1)).contains("CB30FD"));
+        assertEquals(4, postCodeIndex.size());
+    }
+
+    private Set<String> postCodeNames(final List<PostCode> postCodes) {
+        return postCodes.stream().map(PostCode::getPostCode).collect(Collectors.toSet());
+    }
+}